@@ -44,4 +44,19 @@ public interface Dirty
 	public boolean isDirty();
 
 	public void setDirty();
+
+	/**
+	 * Set or clear the dirty flag. Clearing is useful after the content was
+	 * persisted, for example by a write-back cache.
+	 * <p>
+	 * The default implementation cannot clear the flag and ignores
+	 * {@code setDirty( false )}, such that the content is considered modified
+	 * and persisted again. Implementations should override it.
+	 * </p>
+	 */
+	public default void setDirty( final boolean dirty )
+	{
+		if ( dirty )
+			setDirty();
+	}
 }
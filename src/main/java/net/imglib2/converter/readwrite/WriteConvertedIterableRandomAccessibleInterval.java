@@ -76,4 +76,9 @@ public class WriteConvertedIterableRandomAccessibleInterval< A, B, S extends Ran
 	{
 		return new WriteConvertedCursor< A, B >( sourceInterval.localizingCursor(), converter );
 	}
+
+	public SamplerConverter< ? super A, B > getConverter()
+	{
+		return converter;
+	}
 }
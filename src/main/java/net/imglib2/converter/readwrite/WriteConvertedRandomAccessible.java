@@ -63,4 +63,9 @@ public class WriteConvertedRandomAccessible< A, B > extends AbstractConvertedRan
 	{
 		return new WriteConvertedRandomAccess< A, B >( source.randomAccess( interval ), converter );
 	}
+
+	public SamplerConverter< ? super A, B > getConverter()
+	{
+		return converter;
+	}
 }
@@ -63,4 +63,9 @@ public class WriteConvertedRandomAccessibleInterval< A, B > extends AbstractWrap
 	{
 		return new WriteConvertedRandomAccess< A, B >( sourceInterval.randomAccess( interval ), converter );
 	}
+
+	public SamplerConverter< ? super A, B > getConverter()
+	{
+		return converter;
+	}
 }
@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.CopyOnWriteArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.cell.SharedCellImgFactory;
+import net.imglib2.img.list.ListImg;
+import net.imglib2.img.list.ListLocalizingCursor;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Intervals;
+
+/**
+ * Copy-on-write snapshots of {@link ArrayImg}s and {@link CellImg}s. A
+ * snapshot shares the storage arrays of the original image, no pixel data is
+ * copied. When either image is written, only the storage array that is
+ * written to (i.e., the cell) is copied.
+ * <p>
+ * The data of the image must be {@link CopyOnWriteAccess}es. Create images
+ * with {@link CopyOnWriteArrayImgFactory} or {@link SharedCellImgFactory}.
+ * Taking a snapshot of an {@link ArrayImg} is O(1), taking a snapshot of a
+ * {@link CellImg} creates a new {@link Cell} object for every cell. The image
+ * must not be written while taking the snapshot.
+ * </p>
+ */
+public final class Snapshots
+{
+	private Snapshots()
+	{}
+
+	/**
+	 * Create a snapshot of {@code img}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the data of {@code img} is not a
+	 *             {@link CopyOnWriteAccess}.
+	 */
+	public static < T extends NativeType< T > > ArrayImg< T, ? > snapshot( final ArrayImg< T, ? > img )
+	{
+		final T type = img.createLinkedType();
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final ArrayImg< T, ? > snapshot = snapshot( ( ArrayImg ) img, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return snapshot;
+	}
+
+	/**
+	 * Create a snapshot of {@code img}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the cell data of {@code img} are not
+	 *             {@link CopyOnWriteAccess}es.
+	 */
+	public static < T extends NativeType< T > > CellImg< T, ? > snapshot( final CellImg< T, ? > img )
+	{
+		final T type = img.createLinkedType();
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final CellImg< T, ? > snapshot = snapshot( ( CellImg ) img, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return snapshot;
+	}
+
+	private static < T extends NativeType< T >, A extends CopyOnWriteAccess< A > > ArrayImg< T, A > snapshot(
+			final ArrayImg< T, A > img,
+			final T type,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		final A data = share( ( Object ) img.update( null ) );
+		final ArrayImg< T, A > snapshot = new ArrayImg<>( data, Intervals.dimensionsAsLongArray( img ), type.getEntitiesPerPixel() );
+		snapshot.setLinkedType( typeFactory.createLinkedType( snapshot ) );
+		return snapshot;
+	}
+
+	private static < T extends NativeType< T >, A extends CopyOnWriteAccess< A > > CellImg< T, A > snapshot(
+			final CellImg< T, A > img,
+			final T type,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		final CellGrid grid = img.getCellGrid();
+		final int n = grid.numDimensions();
+		final ListImg< Cell< A > > cells = new ListImg<>( grid.getGridDimensions(), new Cell<>( new int[] { 1 }, new long[] { 1 }, null ) );
+		final ListLocalizingCursor< Cell< A > > source = img.getCells().localizingCursor();
+		final ListLocalizingCursor< Cell< A > > target = cells.localizingCursor();
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		while ( source.hasNext() )
+		{
+			final Cell< A > cell = source.next();
+			target.fwd();
+			cell.min( cellMin );
+			cell.dimensions( cellDims );
+			target.set( new Cell<>( cellDims.clone(), cellMin.clone(), share( ( Object ) cell.getData() ) ) );
+		}
+
+		final CellImg< T, A > snapshot = new CellImg<>( ( CellImgFactory< T > ) img.factory(), grid, cells, type.getEntitiesPerPixel() );
+		snapshot.setLinkedType( typeFactory.createLinkedType( snapshot ) );
+		return snapshot;
+	}
+
+	/**
+	 * Create a new access that shares the data of {@code access}.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private static < A extends CopyOnWriteAccess< A > > A share( final Object data )
+	{
+		if ( !( data instanceof CopyOnWriteAccess ) )
+			throw new IllegalArgumentException( "Image data must be CopyOnWriteAccess, got " + data.getClass().getName() );
+		final A access = ( A ) data;
+		final A copy = access.createArray( 0 );
+		copy.shareData( access );
+		copy.setDirty( access.isDirty() );
+		return copy;
+	}
+}
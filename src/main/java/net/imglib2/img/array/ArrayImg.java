@@ -39,6 +39,8 @@ import net.imglib2.FlatIterationOrder;
 import net.imglib2.Interval;
 import net.imglib2.img.AbstractNativeImg;
 import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
 import net.imglib2.type.NativeType;
 import net.imglib2.util.Fraction;
 import net.imglib2.util.IntervalIndexer;
@@ -118,6 +120,10 @@ public class ArrayImg< T extends NativeType< T >, A > extends AbstractNativeImg<
 	@Override
 	public ArrayImgFactory< T > factory()
 	{
+		if ( data instanceof CopyOnWriteAccess )
+			return new CopyOnWriteArrayImgFactory<>( linkedType );
+		if ( data instanceof BufferAccess )
+			return new ArrayImgFactory<>( linkedType, ( ( BufferAccess< ? > ) data ).order() );
 		return new ArrayImgFactory<>( linkedType );
 	}
 
@@ -143,9 +149,11 @@ public class ArrayImg< T extends NativeType< T >, A > extends AbstractNativeImg<
 	{
 		final int dimLength = fastCursorAvailable( interval );
 
-		assert dimLength > 0;
+		assert Intervals.contains( this, interval );
 
-		return new ArraySubIntervalCursor< T >( this, ( int ) offset( interval ), ( int ) size( interval, dimLength ) );
+		if ( dimLength > 0 )
+			return new ArraySubIntervalCursor< T >( this, ( int ) offset( interval ), ( int ) size( interval, dimLength ) );
+		return new ArrayIntervalCursor< T >( this, interval );
 	}
 
 	private long size( final Interval interval, final int length )
@@ -209,18 +217,25 @@ public class ArrayImg< T extends NativeType< T >, A > extends AbstractNativeImg<
 	{
 		final int dimLength = fastCursorAvailable( interval );
 
-		assert dimLength > 0;
+		assert Intervals.contains( this, interval );
 
-		return new ArrayLocalizingSubIntervalCursor< T >( this, ( int ) offset( interval ), ( int ) size( interval, dimLength ) );
+		if ( dimLength > 0 )
+			return new ArrayLocalizingSubIntervalCursor< T >( this, ( int ) offset( interval ), ( int ) size( interval, dimLength ) );
+		return new ArrayIntervalCursor< T >( this, interval );
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * Contiguous sub-intervals are iterated as a single run of the underlying
+	 * array. Any other contained sub-interval is iterated line by line (see
+	 * {@link ArrayIntervalCursor}).
+	 * </p>
 	 */
 	@Override
 	public boolean supportsOptimizedCursor( final Interval interval )
 	{
-		return fastCursorAvailable( interval ) > 0;
+		return Intervals.contains( this, interval ) && !Intervals.isEmpty( interval );
 	}
 
 	/**
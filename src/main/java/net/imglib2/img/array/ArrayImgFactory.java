@@ -34,6 +34,8 @@
 
 package net.imglib2.img.array;
 
+import java.nio.ByteOrder;
+
 import net.imglib2.Dimensions;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.AbstractImg;
@@ -41,6 +43,8 @@ import net.imglib2.img.ImgFactory;
 import net.imglib2.img.NativeImgFactory;
 import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccessFactory;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.NativeTypeFactory;
 import net.imglib2.util.Fraction;
@@ -48,7 +52,9 @@ import net.imglib2.util.Intervals;
 import net.imglib2.util.Util;
 
 /**
- * Factory for {@link ArrayImg}s.
+ * Factory for {@link ArrayImg}s. By default, image data is stored in Java
+ * primitive arrays. If a {@link ByteOrder} is given, image data is stored
+ * off-heap in direct buffers with that byte order (see {@link BufferAccess}).
  *
  * @author Tobias Pietzsch
  * @author Stephan Preibisch
@@ -56,9 +62,31 @@ import net.imglib2.util.Util;
  */
 public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
 {
+	private final ByteOrder byteOrder;
+
 	public ArrayImgFactory( final T type )
+	{
+		this( type, null );
+	}
+
+	/**
+	 * @param byteOrder
+	 *            byte order of off-heap {@link BufferAccess} storage, or
+	 *            {@code null} to store data in Java primitive arrays.
+	 */
+	public ArrayImgFactory( final T type, final ByteOrder byteOrder )
 	{
 		super( type );
+		this.byteOrder = byteOrder;
+	}
+
+	/**
+	 * Returns the byte order of off-heap storage, or {@code null} if this
+	 * factory stores data in Java primitive arrays.
+	 */
+	public ByteOrder getByteOrder()
+	{
+		return byteOrder;
 	}
 
 	@Override
@@ -88,7 +116,10 @@ public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFacto
 	{
 		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
 		final int numEntities = numEntitiesRangeCheck( dimensions, entitiesPerPixel );
-		final A data = ArrayDataAccessFactory.get( typeFactory ).createArray( numEntities );
+		final A prototype = byteOrder == null
+				? ArrayDataAccessFactory.get( typeFactory )
+				: BufferAccessFactory.get( typeFactory, byteOrder );
+		final A data = prototype.createArray( numEntities );
 		final ArrayImg< T, A > img = new ArrayImg<>( data, dimensions, entitiesPerPixel );
 		img.setLinkedType( typeFactory.createLinkedType( img ) );
 		return img;
@@ -99,7 +130,7 @@ public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFacto
 		final long numEntities = entitiesPerPixel.mulCeil( AbstractImg.numElements( dimensions ) );
 
 		if ( numEntities > Integer.MAX_VALUE )
-			throw new RuntimeException( "Number of elements in ArrayImg too big, use for example CellImg instead: " + numEntities + " > " + Integer.MAX_VALUE );
+			throw new RuntimeException( "Number of elements in ArrayImg too big, use for example BigArrayImg or CellImg instead: " + numEntities + " > " + Integer.MAX_VALUE );
 
 		return ( int ) numEntities;
 	}
@@ -109,7 +140,7 @@ public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFacto
 	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
 	{
 		if ( type instanceof NativeType )
-			return new ArrayImgFactory( (NativeType) type );
+			return new ArrayImgFactory( (NativeType) type, byteOrder );
 		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
 	}
 
@@ -129,6 +160,7 @@ public class ArrayImgFactory< T extends NativeType< T > > extends NativeImgFacto
 	public ArrayImgFactory()
 	{
 		super();
+		byteOrder = null;
 	}
 
 	@Deprecated
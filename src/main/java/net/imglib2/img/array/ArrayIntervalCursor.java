@@ -0,0 +1,272 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.array;
+
+import net.imglib2.AbstractLocalizingCursorInt;
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Localizing {@link Cursor} on an arbitrary rectangular sub-interval of an
+ * {@link ArrayImg}, iterating in flat order. Each line along dimension 0 is a
+ * contiguous run of the underlying array; the array index jumps only at line
+ * ends.
+ *
+ * @param <T>
+ */
+public class ArrayIntervalCursor< T extends NativeType< T > > extends AbstractLocalizingCursorInt< T >
+{
+	protected final T type;
+
+	protected final ArrayImg< T, ? > img;
+
+	/**
+	 * Minimum of the iterated interval in every dimension.
+	 */
+	protected final int[] min;
+
+	/**
+	 * Maximum of the iterated interval in every dimension.
+	 */
+	protected final int[] max;
+
+	/**
+	 * Dimensions of the iterated interval.
+	 */
+	protected final int[] dimensions;
+
+	/**
+	 * Distance from the first index of a line to the first index of the next
+	 * line, if the carry goes to dimension d.
+	 */
+	protected final int[] lineJump;
+
+	/**
+	 * Index of the last element of the interval.
+	 */
+	protected final int lastIndex;
+
+	/**
+	 * The current index of the type. It is faster to duplicate this here than
+	 * to access it through type.getIndex().
+	 */
+	protected int index;
+
+	/**
+	 * Index of the last element on the current line.
+	 */
+	protected int lastIndexOnLine;
+
+	protected ArrayIntervalCursor( final ArrayIntervalCursor< T > cursor )
+	{
+		super( cursor.numDimensions() );
+
+		img = cursor.img;
+		type = img.createLinkedType();
+		min = cursor.min;
+		max = cursor.max;
+		dimensions = cursor.dimensions;
+		lineJump = cursor.lineJump;
+		lastIndex = cursor.lastIndex;
+
+		for ( int d = 1; d < n; ++d )
+			position[ d ] = cursor.position[ d ];
+		index = cursor.index;
+		lastIndexOnLine = cursor.lastIndexOnLine;
+
+		type.updateContainer( this );
+		type.updateIndex( index );
+	}
+
+	public ArrayIntervalCursor( final ArrayImg< T, ? > img, final Interval interval )
+	{
+		super( img.numDimensions() );
+
+		this.img = img;
+		type = img.createLinkedType();
+		min = new int[ n ];
+		max = new int[ n ];
+		dimensions = new int[ n ];
+		lineJump = new int[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = ( int ) interval.min( d );
+			max[ d ] = ( int ) interval.max( d );
+			dimensions[ d ] = max[ d ] - min[ d ] + 1;
+		}
+
+		int skipped = 0;
+		for ( int d = 1; d < n; ++d )
+		{
+			lineJump[ d ] = img.steps[ d ] - skipped;
+			skipped += ( dimensions[ d ] - 1 ) * img.steps[ d ];
+		}
+		lastIndex = IntervalIndexer.positionToIndex( max, img.dim );
+
+		reset();
+	}
+
+	@Override
+	public T get()
+	{
+		return type;
+	}
+
+	@Override
+	public ArrayIntervalCursor< T > copy()
+	{
+		return new ArrayIntervalCursor<>( this );
+	}
+
+	@Override
+	public ArrayIntervalCursor< T > copyCursor()
+	{
+		return copy();
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return index < lastIndex;
+	}
+
+	@Override
+	public void fwd()
+	{
+		if ( ++index > lastIndexOnLine )
+		{
+			final int firstIndexOnLine = lastIndexOnLine - dimensions[ 0 ] + 1;
+			position[ 0 ] = min[ 0 ];
+			for ( int d = 1; d < n; ++d )
+			{
+				if ( ++position[ d ] > max[ d ] )
+					position[ d ] = min[ d ];
+				else
+				{
+					index = firstIndexOnLine + lineJump[ d ];
+					break;
+				}
+			}
+			lastIndexOnLine = index + dimensions[ 0 ] - 1;
+		}
+		type.updateIndex( index );
+	}
+
+	@Override
+	public void jumpFwd( final long steps )
+	{
+		updatePosition0();
+		final long i = IntervalIndexer.positionWithOffsetToIndex( position, dimensions, min ) + steps;
+		IntervalIndexer.indexToPositionWithOffset( ( int ) i, dimensions, min, position );
+		index = IntervalIndexer.positionToIndex( position, img.dim );
+		lastIndexOnLine = index + max[ 0 ] - position[ 0 ];
+		type.updateIndex( index );
+	}
+
+	@Override
+	public void reset()
+	{
+		for ( int d = 0; d < n; ++d )
+			position[ d ] = min[ d ];
+		index = IntervalIndexer.positionToIndex( position, img.dim );
+		lastIndexOnLine = index + dimensions[ 0 ] - 1;
+		--index;
+		type.updateIndex( index );
+		type.updateContainer( this );
+	}
+
+	/**
+	 * {@code position[ 0 ]} is not maintained while moving along a line. It is
+	 * derived from the distance of {@link #index} to the end of the line.
+	 */
+	private void updatePosition0()
+	{
+		position[ 0 ] = max[ 0 ] - ( lastIndexOnLine - index );
+	}
+
+	@Override
+	public void localize( final int[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final long[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final float[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final double[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public int getIntPosition( final int d )
+	{
+		return d == 0 ? max[ 0 ] - ( lastIndexOnLine - index ) : position[ d ];
+	}
+
+	@Override
+	public long getLongPosition( final int d )
+	{
+		return getIntPosition( d );
+	}
+
+	@Override
+	public float getFloatPosition( final int d )
+	{
+		return getIntPosition( d );
+	}
+
+	@Override
+	public double getDoublePosition( final int d )
+	{
+		return getIntPosition( d );
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.array;
+
+import net.imglib2.img.basictypeaccess.ArrayDataAccessPool;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+
+/**
+ * {@link ArrayImg} whose data comes from an {@link ArrayDataAccessPool}.
+ * {@link #close()} returns the data to the pool, so that it can be reused by
+ * the next image of the same size. The image must not be used after it was
+ * closed. Use try-with-resources for temporary images:
+ *
+ * <pre>
+ * {@code
+ * try ( PooledArrayImg< FloatType, ? > tmp = factory.create( 512, 512 ) )
+ * {
+ * 	...
+ * }
+ * }
+ * </pre>
+ *
+ * @param <T>
+ * @param <A>
+ */
+public class PooledArrayImg< T extends NativeType< T >, A extends ArrayDataAccess< A > > extends ArrayImg< T, A > implements AutoCloseable
+{
+	private final ArrayDataAccessPool pool;
+
+	private boolean closed;
+
+	public PooledArrayImg( final ArrayDataAccessPool pool, final A data, final long[] dim, final Fraction entitiesPerPixel )
+	{
+		super( data, dim, entitiesPerPixel );
+		this.pool = pool;
+	}
+
+	public ArrayDataAccessPool getPool()
+	{
+		return pool;
+	}
+
+	/**
+	 * Return the data of this image to the pool. Calling {@code close()} more
+	 * than once has no effect.
+	 */
+	@Override
+	public synchronized void close()
+	{
+		if ( !closed )
+		{
+			closed = true;
+			pool.release( update( null ) );
+		}
+	}
+
+	public synchronized boolean isClosed()
+	{
+		return closed;
+	}
+
+	@Override
+	public PooledArrayImgFactory< T > factory()
+	{
+		return new PooledArrayImgFactory<>( linkedType, pool );
+	}
+
+	@Override
+	public PooledArrayImg< T, ? > copy()
+	{
+		return ( PooledArrayImg< T, ? > ) super.copy();
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.array;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessPool;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for {@link PooledArrayImg}s, whose data is taken from an
+ * {@link ArrayDataAccessPool} and returned to it when the image is closed.
+ * This avoids allocating (and garbage collecting) the data of short-lived
+ * images. Factories derived by {@link #imgFactory(Object)} share the pool.
+ *
+ * @param <T>
+ */
+public class PooledArrayImgFactory< T extends NativeType< T > > extends ArrayImgFactory< T >
+{
+	private final ArrayDataAccessPool pool;
+
+	public PooledArrayImgFactory( final T type )
+	{
+		this( type, new ArrayDataAccessPool() );
+	}
+
+	public PooledArrayImgFactory( final T type, final ArrayDataAccessPool pool )
+	{
+		super( type );
+		this.pool = pool;
+	}
+
+	public ArrayDataAccessPool getPool()
+	{
+		return pool;
+	}
+
+	@Override
+	public PooledArrayImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final PooledArrayImg< T, ? > img = create( dimensions, type(), ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public PooledArrayImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public PooledArrayImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends ArrayDataAccess< A > > PooledArrayImg< T, A > create(
+			final long[] dimensions,
+			final T type,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		final int numEntities = numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+		final A data = pool.acquire( ArrayDataAccessFactory.get( typeFactory ), numEntities );
+		final PooledArrayImg< T, A > img = new PooledArrayImg<>( pool, data, dimensions, entitiesPerPixel );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( type instanceof NativeType )
+			return new PooledArrayImgFactory( ( NativeType ) type, pool );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public PooledArrayImg< T, ? > create( final long[] dim, final T type )
+	{
+		cache( type );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final PooledArrayImg< T, ? > img = create( dim, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return img;
+	}
+}
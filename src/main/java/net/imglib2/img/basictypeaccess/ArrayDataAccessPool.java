@@ -0,0 +1,270 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+
+/**
+ * Pool of {@link ArrayDataAccess}es for reuse by short-lived images. Released
+ * accesses are kept in buckets by access class and array length, and handed
+ * out again (cleared to zero) by {@link #acquire(ArrayDataAccess, int)}.
+ * <p>
+ * Buckets are keyed by exact length, so that an acquired access always has
+ * exactly the requested number of entities. At most
+ * {@link #getMaxRetainedBytes()} bytes are retained, accesses released beyond
+ * that are discarded (left to the garbage collector).
+ * </p>
+ * <p>
+ * An access must not be used after it was released. The pool is thread-safe.
+ * </p>
+ */
+public class ArrayDataAccessPool
+{
+	/**
+	 * Default bound on the memory retained by a pool: 256 MB.
+	 */
+	public static final long DEFAULT_MAX_RETAINED_BYTES = 1L << 28;
+
+	private final long maxRetainedBytes;
+
+	private final Map< Class< ? >, Map< Integer, ArrayDeque< ArrayDataAccess< ? > > > > buckets = new HashMap<>();
+
+	private long retainedBytes;
+
+	private long numRetained;
+
+	private long numAcquired;
+
+	private long numReused;
+
+	private long numReleased;
+
+	private long numDiscarded;
+
+	public ArrayDataAccessPool()
+	{
+		this( DEFAULT_MAX_RETAINED_BYTES );
+	}
+
+	/**
+	 * @param maxRetainedBytes
+	 *            maximum number of bytes of pooled arrays to retain.
+	 */
+	public ArrayDataAccessPool( final long maxRetainedBytes )
+	{
+		this.maxRetainedBytes = maxRetainedBytes;
+	}
+
+	/**
+	 * Get an access of the same class as {@code prototype} with
+	 * {@code numEntities} entities, all zero. A pooled access is reused if
+	 * available, otherwise a new one is created by
+	 * {@code prototype.createArray(numEntities)}.
+	 */
+	public < A extends ArrayDataAccess< A > > A acquire( final A prototype, final int numEntities )
+	{
+		ArrayDataAccess< ? > access = null;
+		synchronized ( this )
+		{
+			++numAcquired;
+			final Map< Integer, ArrayDeque< ArrayDataAccess< ? > > > lengths = buckets.get( prototype.getClass() );
+			if ( lengths != null )
+			{
+				final ArrayDeque< ArrayDataAccess< ? > > bucket = lengths.get( numEntities );
+				if ( bucket != null && !bucket.isEmpty() )
+				{
+					access = bucket.pop();
+					++numReused;
+					--numRetained;
+					retainedBytes -= sizeInBytes( access );
+				}
+			}
+		}
+
+		if ( access == null )
+			return prototype.createArray( numEntities );
+
+		clear( access.getCurrentStorageArray() );
+		@SuppressWarnings( "unchecked" )
+		final A a = ( A ) access;
+		return a;
+	}
+
+	/**
+	 * Return {@code access} to the pool. It must not be used afterwards.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if {@code access} is not backed by a Java primitive array.
+	 */
+	public synchronized void release( final ArrayDataAccess< ? > access )
+	{
+		if ( access instanceof BufferAccess || !access.getCurrentStorageArray().getClass().isArray() )
+			throw new IllegalArgumentException( "Only accesses to Java primitive arrays can be pooled." );
+		++numReleased;
+		final long bytes = sizeInBytes( access );
+		if ( retainedBytes + bytes > maxRetainedBytes )
+		{
+			++numDiscarded;
+			return;
+		}
+		buckets
+				.computeIfAbsent( access.getClass(), k -> new HashMap<>() )
+				.computeIfAbsent( access.getArrayLength(), k -> new ArrayDeque<>() )
+				.push( access );
+		retainedBytes += bytes;
+		++numRetained;
+	}
+
+	/**
+	 * Discard all pooled accesses.
+	 */
+	public synchronized void clear()
+	{
+		buckets.clear();
+		retainedBytes = 0;
+		numRetained = 0;
+	}
+
+	public long getMaxRetainedBytes()
+	{
+		return maxRetainedBytes;
+	}
+
+	/**
+	 * Get the number of bytes of pooled arrays currently retained.
+	 */
+	public synchronized long getRetainedBytes()
+	{
+		return retainedBytes;
+	}
+
+	/**
+	 * Get the number of accesses currently retained.
+	 */
+	public synchronized long getNumRetained()
+	{
+		return numRetained;
+	}
+
+	public synchronized long getNumAcquired()
+	{
+		return numAcquired;
+	}
+
+	/**
+	 * Get the number of acquired accesses that were reused from the pool
+	 * rather than allocated.
+	 */
+	public synchronized long getNumReused()
+	{
+		return numReused;
+	}
+
+	public synchronized long getNumReleased()
+	{
+		return numReleased;
+	}
+
+	/**
+	 * Get the number of released accesses that were not retained because the
+	 * pool was full.
+	 */
+	public synchronized long getNumDiscarded()
+	{
+		return numDiscarded;
+	}
+
+	/**
+	 * Get the fraction of acquired accesses that were reused.
+	 */
+	public synchronized double getHitRate()
+	{
+		return numAcquired == 0 ? 0 : ( double ) numReused / numAcquired;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return getClass().getSimpleName() + "["
+				+ "acquired=" + numAcquired
+				+ ", reused=" + numReused
+				+ ", released=" + numReleased
+				+ ", discarded=" + numDiscarded
+				+ ", retained=" + numRetained
+				+ ", retainedBytes=" + retainedBytes
+				+ "]";
+	}
+
+	private static long sizeInBytes( final ArrayDataAccess< ? > access )
+	{
+		final Object array = access.getCurrentStorageArray();
+		final long length = access.getArrayLength();
+		if ( array instanceof boolean[] || array instanceof byte[] )
+			return length;
+		if ( array instanceof char[] || array instanceof short[] )
+			return 2 * length;
+		if ( array instanceof int[] || array instanceof float[] )
+			return 4 * length;
+		return 8 * length;
+	}
+
+	private static void clear( final Object array )
+	{
+		if ( array instanceof boolean[] )
+			Arrays.fill( ( boolean[] ) array, false );
+		else if ( array instanceof byte[] )
+			Arrays.fill( ( byte[] ) array, ( byte ) 0 );
+		else if ( array instanceof char[] )
+			Arrays.fill( ( char[] ) array, ( char ) 0 );
+		else if ( array instanceof short[] )
+			Arrays.fill( ( short[] ) array, ( short ) 0 );
+		else if ( array instanceof int[] )
+			Arrays.fill( ( int[] ) array, 0 );
+		else if ( array instanceof float[] )
+			Arrays.fill( ( float[] ) array, 0 );
+		else if ( array instanceof long[] )
+			Arrays.fill( ( long[] ) array, 0 );
+		else if ( array instanceof double[] )
+			Arrays.fill( ( double[] ) array, 0 );
+		else
+			throw new IllegalArgumentException( "Cannot clear " + array.getClass().getName() );
+	}
+}
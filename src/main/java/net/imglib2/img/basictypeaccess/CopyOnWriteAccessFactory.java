@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess;
+
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteBooleanArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteByteArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteCharArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteDoubleArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteFloatArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteIntArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteLongArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteShortArray;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.PrimitiveType;
+
+/**
+ * Given a {@link PrimitiveType} creates a specific {@link CopyOnWriteAccess}.
+ * For example, {@code FLOAT} specifies {@link CopyOnWriteFloatArray}. The
+ * returned access has length 0 and serves as a prototype for
+ * {@link CopyOnWriteAccess#createArray(int)}.
+ */
+public class CopyOnWriteAccessFactory
+{
+	public static < A extends CopyOnWriteAccess< A > > A get(
+			final NativeTypeFactory< ?, ? super A > typeFactory )
+	{
+		return get( typeFactory.getPrimitiveType() );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static < A extends CopyOnWriteAccess< A > > A get(
+			final PrimitiveType primitiveType )
+	{
+		switch ( primitiveType )
+		{
+		case BOOLEAN:
+			return ( A ) new CopyOnWriteBooleanArray( 0 );
+		case BYTE:
+			return ( A ) new CopyOnWriteByteArray( 0 );
+		case CHAR:
+			return ( A ) new CopyOnWriteCharArray( 0 );
+		case DOUBLE:
+			return ( A ) new CopyOnWriteDoubleArray( 0 );
+		case FLOAT:
+			return ( A ) new CopyOnWriteFloatArray( 0 );
+		case INT:
+			return ( A ) new CopyOnWriteIntArray( 0 );
+		case LONG:
+			return ( A ) new CopyOnWriteLongArray( 0 );
+		case SHORT:
+			return ( A ) new CopyOnWriteShortArray( 0 );
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+}
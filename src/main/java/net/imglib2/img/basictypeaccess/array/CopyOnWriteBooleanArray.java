@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.array;
+
+/**
+ * A {@link DirtyBooleanArray} whose storage array can be shared, see
+ * {@link CopyOnWriteAccess}.
+ */
+public class CopyOnWriteBooleanArray extends AbstractBooleanArray< CopyOnWriteBooleanArray > implements CopyOnWriteAccess< CopyOnWriteBooleanArray >
+{
+	protected boolean dirty = false;
+
+	protected volatile boolean shared = false;
+
+	public CopyOnWriteBooleanArray( final int numEntities )
+	{
+		super( numEntities );
+	}
+
+	/**
+	 * @param shared
+	 *            whether {@code data} is shared with others, i.e., must be
+	 *            copied before writing.
+	 */
+	public CopyOnWriteBooleanArray( final boolean[] data, final boolean shared )
+	{
+		super( data );
+		this.shared = shared;
+	}
+
+	@Override
+	public void setValue( final int index, final boolean value )
+	{
+		if ( shared )
+			unshare();
+		dirty = true;
+		data[ index ] = value;
+	}
+
+	private synchronized void unshare()
+	{
+		if ( shared )
+		{
+			data = data.clone();
+			shared = false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc} This access must not be written concurrently.
+	 */
+	@Override
+	public void shareData( final CopyOnWriteBooleanArray other )
+	{
+		final boolean[] otherData;
+		synchronized ( other )
+		{
+			other.shared = true;
+			otherData = other.data;
+		}
+		synchronized ( this )
+		{
+			data = otherData;
+			shared = true;
+		}
+	}
+
+	@Override
+	public boolean isShared()
+	{
+		return shared;
+	}
+
+	@Override
+	public CopyOnWriteBooleanArray createArray( final int numEntities )
+	{
+		return new CopyOnWriteBooleanArray( numEntities );
+	}
+
+	@Override
+	public boolean isDirty()
+	{
+		return dirty;
+	}
+
+	@Override
+	public void setDirty()
+	{
+		dirty = true;
+	}
+
+	@Override
+	public void setDirty( final boolean dirty )
+	{
+		this.dirty = dirty;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Base class for {@link BufferAccess} implementations. Subclasses provide a
+ * typed view of the buffer through {@link #updateView(ByteBuffer)}.
+ *
+ * @param <A>
+ */
+public abstract class AbstractBufferAccess< A extends AbstractBufferAccess< A > > implements BufferAccess< A >
+{
+	private final int bytesPerEntity;
+
+	private transient ByteBuffer buffer;
+
+	/**
+	 * Whether {@link #buffer} was allocated by this access and may be freed
+	 * by {@link #releaseUnsafe()}.
+	 */
+	private transient boolean ownsBuffer;
+
+	private transient boolean released;
+
+	/**
+	 * Allocate a direct buffer for {@code numEntities} entities.
+	 */
+	protected AbstractBufferAccess( final int numEntities, final ByteOrder order, final int bytesPerEntity )
+	{
+		this.bytesPerEntity = bytesPerEntity;
+		final long numBytes = ( long ) numEntities * bytesPerEntity;
+		if ( numEntities < 0 || numBytes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Cannot allocate buffer for " + numEntities + " entities of " + bytesPerEntity + " bytes." );
+		setBuffer( ByteBuffer.allocateDirect( ( int ) numBytes ).order( order ), true );
+	}
+
+	/**
+	 * Wrap the remaining bytes of {@code buffer}, in the buffer's byte order.
+	 * The buffer is not copied, and its memory is not freed by
+	 * {@link #releaseUnsafe()}.
+	 */
+	protected AbstractBufferAccess( final ByteBuffer buffer, final int bytesPerEntity )
+	{
+		this.bytesPerEntity = bytesPerEntity;
+		setBuffer( buffer.slice().order( buffer.order() ), false );
+	}
+
+	/**
+	 * Called whenever the underlying buffer changes, i.e., on construction,
+	 * deserialization and release. Note that this is called from
+	 * the constructor of {@link AbstractBufferAccess}, so the fields of
+	 * subclasses are not yet initialized.
+	 */
+	protected abstract void updateView( ByteBuffer buffer );
+
+	private void setBuffer( final ByteBuffer buffer, final boolean ownsBuffer )
+	{
+		this.buffer = buffer;
+		this.ownsBuffer = ownsBuffer;
+		updateView( buffer );
+	}
+
+	@Override
+	public ByteBuffer getBuffer()
+	{
+		return buffer;
+	}
+
+	@Override
+	public int getBytesPerEntity()
+	{
+		return bytesPerEntity;
+	}
+
+	@Override
+	public int getArrayLength()
+	{
+		return buffer.capacity() / bytesPerEntity;
+	}
+
+	@Override
+	public void release()
+	{
+		release( false );
+	}
+
+	@Override
+	public void releaseUnsafe()
+	{
+		release( true );
+	}
+
+	private void release( final boolean free )
+	{
+		if ( released )
+			return;
+		released = true;
+		final ByteBuffer old = buffer;
+		final boolean owned = ownsBuffer;
+		setBuffer( ByteBuffer.allocate( 0 ).order( old.order() ), false );
+		if ( free && owned )
+			DirectBuffers.free( old );
+	}
+
+	@Override
+	public boolean isReleased()
+	{
+		return released;
+	}
+
+	private void writeObject( final ObjectOutputStream out ) throws IOException
+	{
+		out.defaultWriteObject();
+		out.writeBoolean( buffer.order() == ByteOrder.BIG_ENDIAN );
+		out.writeInt( buffer.capacity() );
+		final ByteBuffer source = buffer.duplicate();
+		source.clear();
+		final byte[] chunk = new byte[ Math.min( source.remaining(), 1 << 16 ) ];
+		while ( source.hasRemaining() )
+		{
+			final int n = Math.min( source.remaining(), chunk.length );
+			source.get( chunk, 0, n );
+			out.write( chunk, 0, n );
+		}
+	}
+
+	private void readObject( final ObjectInputStream in ) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		final ByteOrder order = in.readBoolean() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+		final int numBytes = in.readInt();
+		final ByteBuffer target = ByteBuffer.allocateDirect( numBytes ).order( order );
+		final byte[] chunk = new byte[ Math.min( numBytes, 1 << 16 ) ];
+		while ( target.hasRemaining() )
+		{
+			final int n = Math.min( target.remaining(), chunk.length );
+			in.readFully( chunk, 0, n );
+			target.put( chunk, 0, n );
+		}
+		target.clear();
+		setBuffer( target, true );
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+/**
+ * An {@link ArrayDataAccess} that stores its entities in a {@link ByteBuffer}
+ * instead of a Java primitive array. Buffers created by
+ * {@link #createArray(int)} are direct, i.e., they live outside the Java heap
+ * and can be handed to native code without copying.
+ * <p>
+ * Note that {@link #getCurrentStorageArray()} returns the {@link ByteBuffer},
+ * not a Java primitive array. Code that handles {@link ArrayDataAccess}es
+ * generically and needs the primitive array must check for
+ * {@code BufferAccess} first.
+ * </p>
+ * <p>
+ * Off-heap memory is only reclaimed when the buffer is garbage collected,
+ * which may happen much later than the memory is actually freed from the
+ * application's point of view. {@link #release()} detaches the buffer from
+ * an access, such that its memory can be reclaimed as soon as no buffer
+ * obtained from {@link #getBuffer()} is reachable anymore.
+ * {@link #releaseUnsafe()} frees the memory immediately, but must only be
+ * used if no such buffer is used afterwards.
+ * </p>
+ *
+ * @param <A>
+ */
+public interface BufferAccess< A > extends ArrayDataAccess< A >
+{
+	/**
+	 * Get the underlying buffer. Position 0 of the returned buffer corresponds
+	 * to entity 0 of this access.
+	 * <p>
+	 * The buffer remains valid after {@link #release()}, but must not be used
+	 * after {@link #releaseUnsafe()}.
+	 * </p>
+	 */
+	ByteBuffer getBuffer();
+
+	/**
+	 * The byte order in which entities are stored in the buffer.
+	 */
+	default ByteOrder order()
+	{
+		return getBuffer().order();
+	}
+
+	/**
+	 * The number of bytes used to store one entity.
+	 */
+	int getBytesPerEntity();
+
+	/**
+	 * Returns {@link #getBuffer()}. This is not a Java primitive array.
+	 */
+	@Override
+	default ByteBuffer getCurrentStorageArray()
+	{
+		return getBuffer();
+	}
+
+	/**
+	 * Detach the buffer from this access. After release the access has zero
+	 * length, and {@code getValue} and {@code setValue} throw
+	 * {@link IndexOutOfBoundsException}. The memory is reclaimed by the
+	 * garbage collector once no buffer obtained from {@link #getBuffer()},
+	 * or a view of it, is reachable. Such buffers remain valid.
+	 * <p>
+	 * This is not thread-safe: the caller must make sure that no other
+	 * thread uses this access concurrently. Calling {@code release()}
+	 * repeatedly has no further effect.
+	 * </p>
+	 */
+	void release();
+
+	/**
+	 * Like {@link #release()}, but if the buffer was allocated by this access
+	 * (see {@link #createArray(int)}) its direct memory is freed immediately.
+	 * <p>
+	 * <em>This is unsafe.</em> Accessing a buffer obtained from
+	 * {@link #getBuffer()}, or any view of it, for example one exported by
+	 * {@link ImgBuffers}, after this call reads or writes freed memory and
+	 * may crash the JVM. Only use this if no such buffer is used afterwards.
+	 * </p>
+	 */
+	void releaseUnsafe();
+
+	/**
+	 * Whether {@link #release()} or {@link #releaseUnsafe()} has been called
+	 * on this access.
+	 */
+	boolean isReleased();
+}
@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.PrimitiveType;
+
+/**
+ * Given a {@link PrimitiveType} and a {@link ByteOrder} creates a specific
+ * {@link BufferAccess}. For example, {@code FLOAT} specifies
+ * {@link FloatBufferAccess}. The access returned by {@code get} has length 0
+ * and serves as a prototype for {@link BufferAccess#createArray(int)}. The
+ * access returned by {@code wrap} stores its entities in a given buffer.
+ */
+public class BufferAccessFactory
+{
+	public static < A extends ArrayDataAccess< A > > A get(
+			final NativeTypeFactory< ?, ? super A > typeFactory,
+			final ByteOrder order )
+	{
+		return get( typeFactory.getPrimitiveType(), order );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static < A extends ArrayDataAccess< A > > A get(
+			final PrimitiveType primitiveType,
+			final ByteOrder order )
+	{
+		switch ( primitiveType )
+		{
+		case BOOLEAN:
+			return ( A ) new BooleanBufferAccess( 0, order );
+		case BYTE:
+			return ( A ) new ByteBufferAccess( 0, order );
+		case CHAR:
+			return ( A ) new CharBufferAccess( 0, order );
+		case DOUBLE:
+			return ( A ) new DoubleBufferAccess( 0, order );
+		case FLOAT:
+			return ( A ) new FloatBufferAccess( 0, order );
+		case INT:
+			return ( A ) new IntBufferAccess( 0, order );
+		case LONG:
+			return ( A ) new LongBufferAccess( 0, order );
+		case SHORT:
+			return ( A ) new ShortBufferAccess( 0, order );
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+
+	public static < A extends ArrayDataAccess< A > > A wrap(
+			final NativeTypeFactory< ?, ? super A > typeFactory,
+			final ByteBuffer buffer )
+	{
+		return wrap( typeFactory.getPrimitiveType(), buffer );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static < A extends ArrayDataAccess< A > > A wrap(
+			final PrimitiveType primitiveType,
+			final ByteBuffer buffer )
+	{
+		switch ( primitiveType )
+		{
+		case BOOLEAN:
+			return ( A ) new BooleanBufferAccess( buffer );
+		case BYTE:
+			return ( A ) new ByteBufferAccess( buffer );
+		case CHAR:
+			return ( A ) new CharBufferAccess( buffer );
+		case DOUBLE:
+			return ( A ) new DoubleBufferAccess( buffer );
+		case FLOAT:
+			return ( A ) new FloatBufferAccess( buffer );
+		case INT:
+			return ( A ) new IntBufferAccess( buffer );
+		case LONG:
+			return ( A ) new LongBufferAccess( buffer );
+		case SHORT:
+			return ( A ) new ShortBufferAccess( buffer );
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+}
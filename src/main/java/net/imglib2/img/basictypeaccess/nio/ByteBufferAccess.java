@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.imglib2.img.basictypeaccess.ByteAccess;
+
+/**
+ * A {@link ByteAccess} backed by a {@link ByteBuffer}.
+ */
+public class ByteBufferAccess extends AbstractBufferAccess< ByteBufferAccess > implements ByteAccess
+{
+	private transient ByteBuffer values;
+
+	/**
+	 * Allocate a direct buffer for {@code numEntities} bytes in the given
+	 * byte order.
+	 */
+	public ByteBufferAccess( final int numEntities, final ByteOrder order )
+	{
+		super( numEntities, order, Byte.BYTES );
+	}
+
+	/**
+	 * Wrap the remaining bytes of {@code buffer} without copying.
+	 */
+	public ByteBufferAccess( final ByteBuffer buffer )
+	{
+		super( buffer, Byte.BYTES );
+	}
+
+	@Override
+	protected void updateView( final ByteBuffer buffer )
+	{
+		values = buffer;
+	}
+
+	@Override
+	public byte getValue( final int index )
+	{
+		return values.get( index );
+	}
+
+	@Override
+	public void setValue( final int index, final byte value )
+	{
+		values.put( index, value );
+	}
+
+	@Override
+	public ByteBufferAccess createArray( final int numEntities )
+	{
+		return new ByteBufferAccess( numEntities, order() );
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees the memory of direct {@link ByteBuffer}s without waiting for garbage
+ * collection. Uses {@code sun.misc.Unsafe.invokeCleaner} on Java 9 and newer,
+ * and the buffer's {@code Cleaner} on Java 8. If neither is available,
+ * {@link #free(ByteBuffer)} does nothing and the memory is reclaimed by the
+ * garbage collector as usual.
+ */
+final class DirectBuffers
+{
+	private static final Object unsafe;
+
+	private static final Method invokeCleaner;
+
+	private static final Method cleaner;
+
+	private static final Method clean;
+
+	static
+	{
+		Object u = null;
+		Method ic = null;
+		Method cl = null;
+		Method c = null;
+		try
+		{
+			final Class< ? > unsafeClass = Class.forName( "sun.misc.Unsafe" );
+			ic = unsafeClass.getMethod( "invokeCleaner", ByteBuffer.class );
+			final Field field = unsafeClass.getDeclaredField( "theUnsafe" );
+			field.setAccessible( true );
+			u = field.get( null );
+		}
+		catch ( final Exception e )
+		{
+			ic = null;
+			try
+			{
+				cl = Class.forName( "sun.nio.ch.DirectBuffer" ).getMethod( "cleaner" );
+				c = Class.forName( "sun.misc.Cleaner" ).getMethod( "clean" );
+			}
+			catch ( final Exception e2 )
+			{
+				cl = null;
+				c = null;
+			}
+		}
+		unsafe = u;
+		invokeCleaner = ic;
+		cleaner = cl;
+		clean = c;
+	}
+
+	private DirectBuffers()
+	{}
+
+	/**
+	 * Free the memory of a direct buffer. The buffer, and any view or slice of
+	 * it, must not be accessed afterwards. Non-direct buffers, views and
+	 * slices are ignored, since they do not own their memory.
+	 *
+	 * @return {@code true} if the memory was freed.
+	 */
+	static boolean free( final ByteBuffer buffer )
+	{
+		if ( !buffer.isDirect() )
+			return false;
+		try
+		{
+			if ( invokeCleaner != null )
+			{
+				invokeCleaner.invoke( unsafe, buffer );
+				return true;
+			}
+			if ( cleaner != null )
+			{
+				final Object c = cleaner.invoke( buffer );
+				if ( c != null )
+				{
+					clean.invoke( c );
+					return true;
+				}
+			}
+		}
+		catch ( final Exception e )
+		{
+			// invokeCleaner throws IllegalArgumentException for views and
+			// slices. Leave those to the garbage collector.
+		}
+		return false;
+	}
+}
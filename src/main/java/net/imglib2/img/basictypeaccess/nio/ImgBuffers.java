@@ -0,0 +1,365 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.CharArray;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.basictypeaccess.array.DoubleArray;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.LongArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.type.PrimitiveType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+
+/**
+ * Zero-copy views of {@link ArrayImg} and {@link PlanarImg} data as NIO
+ * {@link Buffer}s, and images wrapping existing buffers.
+ * <p>
+ * Buffers contain <em>entities</em> of the primitive type of the pixel type,
+ * not pixels. For example, a {@code ComplexFloatType} pixel consists of two
+ * float entities (real and imaginary part, interleaved), an
+ * {@code ARGBType} pixel is one int entity {@code 0xAARRGGBB}, and a
+ * {@code BitType} long entity holds 64 pixels.
+ * </p>
+ * <p>
+ * The byte order of a {@link ByteBuffer} determines the layout of
+ * multi-byte entities. An {@code ARGBType} pixel in a
+ * {@link java.nio.ByteOrder#BIG_ENDIAN BIG_ENDIAN} buffer is stored as bytes
+ * A, R, G, B, in a {@link java.nio.ByteOrder#LITTLE_ENDIAN LITTLE_ENDIAN}
+ * buffer as B, G, R, A. Exported {@link ByteBuffer}s have the byte order of
+ * the image storage. Wrapped {@link ByteBuffer}s are read in their current
+ * byte order, which must be set before wrapping.
+ * </p>
+ * <p>
+ * A {@link ByteBuffer} view of data stored in Java primitive arrays other than
+ * {@code byte[]} is not possible without copying. To exchange such data as
+ * bytes, create images with {@link ArrayImgFactory#ArrayImgFactory(NativeType,
+ * java.nio.ByteOrder)}, which stores it in a {@link ByteBuffer}.
+ * </p>
+ * <p>
+ * Exported buffers share the current storage of the image. Data in
+ * {@link CopyOnWriteAccess}es, e.g., of images created by
+ * {@link net.imglib2.img.array.CopyOnWriteArrayImgFactory} or
+ * {@link net.imglib2.img.Snapshots}, is always exported read-only, because
+ * writing to it would bypass the copy and modify all snapshots sharing the
+ * storage, including snapshots taken after the export. Such a buffer shows
+ * modifications of the image only until the image copies its storage on the
+ * next write after a snapshot. From then on, the buffer keeps showing the data
+ * as it was before that write. Get a new buffer after modifying the image.
+ * </p>
+ */
+public final class ImgBuffers
+{
+	private ImgBuffers()
+	{}
+
+	/**
+	 * Get a {@link Buffer} view of the data of {@code img}. The type of the
+	 * buffer corresponds to the primitive type of the pixels, e.g.
+	 * {@link FloatBuffer} for {@code FloatType} and {@code ComplexFloatType}.
+	 * Data in {@link CopyOnWriteAccess}es is returned as a read-only buffer,
+	 * which may not reflect later modifications of the image (see
+	 * {@link ImgBuffers}).
+	 *
+	 * @throws UnsupportedOperationException
+	 *             if the data is stored in a {@code boolean[]} array, or not
+	 *             in a primitive array or {@link BufferAccess}.
+	 */
+	public static Buffer buffer( final ArrayImg< ?, ? > img )
+	{
+		return buffer( img.update( null ), numEntities( img ) );
+	}
+
+	/**
+	 * Get a {@link Buffer} view of plane {@code plane} of {@code img}.
+	 *
+	 * @see #buffer(ArrayImg)
+	 */
+	public static Buffer buffer( final PlanarImg< ?, ? > img, final int plane )
+	{
+		return buffer( img.getPlane( plane ), numEntitiesPerPlane( img ) );
+	}
+
+	/**
+	 * Get a {@link ByteBuffer} view of the data of {@code img}. Data in
+	 * {@link CopyOnWriteAccess}es is returned as a read-only buffer.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             if the data is not stored in a {@code byte[]} array or a
+	 *             {@link BufferAccess}.
+	 */
+	public static ByteBuffer byteBuffer( final ArrayImg< ?, ? > img )
+	{
+		return byteBuffer( img.update( null ), numEntities( img ) );
+	}
+
+	/**
+	 * Get a {@link ByteBuffer} view of plane {@code plane} of {@code img}.
+	 *
+	 * @see #byteBuffer(ArrayImg)
+	 */
+	public static ByteBuffer byteBuffer( final PlanarImg< ?, ? > img, final int plane )
+	{
+		return byteBuffer( img.getPlane( plane ), numEntitiesPerPlane( img ) );
+	}
+
+	/**
+	 * Create an {@link ArrayImg} backed by {@code buffer}, without copying.
+	 * The image starts at the current position of the buffer.
+	 * <p>
+	 * A {@link ByteBuffer} (heap or direct) is read in its byte order. Other
+	 * buffers must be of the primitive type of {@code type}, and backed by an
+	 * accessible array starting at the current position.
+	 * </p>
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the buffer is too small, or cannot be wrapped.
+	 */
+	public static < T extends NativeType< T > > ArrayImg< T, ? > wrap( final Buffer buffer, final T type, final long... dimensions )
+	{
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		final int numEntities = ArrayImgFactory.numEntitiesRangeCheck( dimensions, entitiesPerPixel );
+		final Object data = access( buffer, type.getNativeTypeFactory(), numEntities );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final ArrayImg< T, ? > img = new ArrayImg( data, dimensions, entitiesPerPixel );
+		setLinkedType( img, type );
+		return img;
+	}
+
+	/**
+	 * Create a {@link PlanarImg} backed by the given buffers (one per plane),
+	 * without copying.
+	 *
+	 * @see #wrap(Buffer, NativeType, long...)
+	 */
+	public static < T extends NativeType< T > > PlanarImg< T, ? > wrapPlanes( final List< ? extends Buffer > planes, final T type, final long... dimensions )
+	{
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		final long pixelsPerPlane = dimensions.length > 1 ? dimensions[ 0 ] * dimensions[ 1 ] : dimensions[ 0 ];
+		if ( planes.size() != Intervals.numElements( dimensions ) / pixelsPerPlane )
+			throw new IllegalArgumentException( "Number of planes " + planes.size() + " does not match dimensions." );
+		final long numEntities = entitiesPerPixel.mulCeil( pixelsPerPlane );
+		if ( numEntities > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Number of entities in plane too large: " + numEntities );
+		final List< Object > data = new ArrayList<>( planes.size() );
+		for ( final Buffer plane : planes )
+			data.add( access( plane, type.getNativeTypeFactory(), ( int ) numEntities ) );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final PlanarImg< T, ? > img = new PlanarImg( data, dimensions, entitiesPerPixel );
+		setLinkedType( img, type );
+		return img;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private static < T extends NativeType< T > > void setLinkedType( final NativeImg< T, ? > img, final T type )
+	{
+		final NativeTypeFactory typeFactory = type.getNativeTypeFactory();
+		img.setLinkedType( ( T ) typeFactory.createLinkedType( img ) );
+	}
+
+	private static int numEntities( final ArrayImg< ?, ? > img )
+	{
+		return ( int ) img.firstElement().getEntitiesPerPixel().mulCeil( img.size() );
+	}
+
+	private static int numEntitiesPerPlane( final PlanarImg< ?, ? > img )
+	{
+		final long pixelsPerPlane = img.numDimensions() > 1 ? img.dimension( 0 ) * img.dimension( 1 ) : img.dimension( 0 );
+		return ( int ) img.firstElement().getEntitiesPerPixel().mulCeil( pixelsPerPlane );
+	}
+
+	private static Buffer buffer( final Object access, final int numEntities )
+	{
+		final Buffer buffer;
+		if ( access instanceof BufferAccess )
+		{
+			final ByteBuffer bytes = byteBuffer( access, numEntities );
+			if ( access instanceof CharBufferAccess )
+				buffer = bytes.asCharBuffer();
+			else if ( access instanceof ShortBufferAccess )
+				buffer = bytes.asShortBuffer();
+			else if ( access instanceof IntBufferAccess )
+				buffer = bytes.asIntBuffer();
+			else if ( access instanceof LongBufferAccess )
+				buffer = bytes.asLongBuffer();
+			else if ( access instanceof FloatBufferAccess )
+				buffer = bytes.asFloatBuffer();
+			else if ( access instanceof DoubleBufferAccess )
+				buffer = bytes.asDoubleBuffer();
+			else
+				buffer = bytes;
+			return buffer;
+		}
+
+		final Object array = storageArray( access );
+		if ( array instanceof byte[] )
+			buffer = ByteBuffer.wrap( ( byte[] ) array, 0, numEntities ).slice();
+		else if ( array instanceof char[] )
+			buffer = CharBuffer.wrap( ( char[] ) array, 0, numEntities ).slice();
+		else if ( array instanceof short[] )
+			buffer = ShortBuffer.wrap( ( short[] ) array, 0, numEntities ).slice();
+		else if ( array instanceof int[] )
+			buffer = IntBuffer.wrap( ( int[] ) array, 0, numEntities ).slice();
+		else if ( array instanceof long[] )
+			buffer = LongBuffer.wrap( ( long[] ) array, 0, numEntities ).slice();
+		else if ( array instanceof float[] )
+			buffer = FloatBuffer.wrap( ( float[] ) array, 0, numEntities ).slice();
+		else if ( array instanceof double[] )
+			buffer = DoubleBuffer.wrap( ( double[] ) array, 0, numEntities ).slice();
+		else
+			throw new UnsupportedOperationException( array.getClass().getSimpleName() + " cannot be viewed as a Buffer." );
+		return readOnlyIfCopyOnWrite( buffer, access );
+	}
+
+	private static ByteBuffer byteBuffer( final Object access, final int numEntities )
+	{
+		if ( access instanceof BufferAccess )
+		{
+			final BufferAccess< ? > bufferAccess = ( BufferAccess< ? > ) access;
+			final ByteBuffer bytes = bufferAccess.getBuffer().duplicate().order( bufferAccess.order() );
+			bytes.clear().limit( numEntities * bufferAccess.getBytesPerEntity() );
+			return bytes.slice().order( bufferAccess.order() );
+		}
+
+		final Object array = storageArray( access );
+		if ( !( array instanceof byte[] ) )
+			throw new UnsupportedOperationException( array.getClass().getSimpleName() + " cannot be viewed as a ByteBuffer without copying. "
+					+ "Use ArrayImgFactory( type, ByteOrder ) to store the image in a ByteBuffer." );
+		return ( ByteBuffer ) readOnlyIfCopyOnWrite( ByteBuffer.wrap( ( byte[] ) array, 0, numEntities ).slice(), access );
+	}
+
+	private static Object storageArray( final Object access )
+	{
+		if ( !( access instanceof ArrayDataAccess ) )
+			throw new UnsupportedOperationException( access.getClass().getSimpleName() + " cannot be viewed as a Buffer." );
+		return ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray();
+	}
+
+	private static Buffer readOnlyIfCopyOnWrite( final Buffer buffer, final Object access )
+	{
+		if ( !( access instanceof CopyOnWriteAccess ) )
+			return buffer;
+		if ( buffer instanceof ByteBuffer )
+			return ( ( ByteBuffer ) buffer ).asReadOnlyBuffer();
+		if ( buffer instanceof CharBuffer )
+			return ( ( CharBuffer ) buffer ).asReadOnlyBuffer();
+		if ( buffer instanceof ShortBuffer )
+			return ( ( ShortBuffer ) buffer ).asReadOnlyBuffer();
+		if ( buffer instanceof IntBuffer )
+			return ( ( IntBuffer ) buffer ).asReadOnlyBuffer();
+		if ( buffer instanceof LongBuffer )
+			return ( ( LongBuffer ) buffer ).asReadOnlyBuffer();
+		if ( buffer instanceof FloatBuffer )
+			return ( ( FloatBuffer ) buffer ).asReadOnlyBuffer();
+		return ( ( DoubleBuffer ) buffer ).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Create an access to {@code numEntities} entities of {@code buffer},
+	 * starting at its current position.
+	 */
+	private static Object access( final Buffer buffer, final NativeTypeFactory< ?, ? > typeFactory, final int numEntities )
+	{
+		final PrimitiveType primitiveType = typeFactory.getPrimitiveType();
+		if ( buffer instanceof ByteBuffer )
+		{
+			final ByteBuffer bytes = ( ByteBuffer ) buffer;
+			final Object access = BufferAccessFactory.wrap( primitiveType, bytes );
+			if ( ( ( BufferAccess< ? > ) access ).getArrayLength() < numEntities )
+				throw new IllegalArgumentException( "Buffer too small: " + bytes.remaining() + " bytes remaining, "
+						+ numEntities + " " + primitiveType + " entities required." );
+			return access;
+		}
+
+		if ( buffer.remaining() < numEntities )
+			throw new IllegalArgumentException( "Buffer too small: " + buffer.remaining() + " remaining, " + numEntities + " required." );
+		if ( buffer.isReadOnly() || !buffer.hasArray() || buffer.arrayOffset() + buffer.position() != 0 )
+			throw new IllegalArgumentException( "Only writable heap buffers with an array starting at the current position can be wrapped. "
+					+ "Wrap the underlying ByteBuffer instead." );
+
+		switch ( primitiveType )
+		{
+		case BYTE:
+			break;
+		case CHAR:
+			if ( buffer instanceof CharBuffer )
+				return new CharArray( ( ( CharBuffer ) buffer ).array() );
+			break;
+		case SHORT:
+			if ( buffer instanceof ShortBuffer )
+				return new ShortArray( ( ( ShortBuffer ) buffer ).array() );
+			break;
+		case INT:
+			if ( buffer instanceof IntBuffer )
+				return new IntArray( ( ( IntBuffer ) buffer ).array() );
+			break;
+		case LONG:
+			if ( buffer instanceof LongBuffer )
+				return new LongArray( ( ( LongBuffer ) buffer ).array() );
+			break;
+		case FLOAT:
+			if ( buffer instanceof FloatBuffer )
+				return new FloatArray( ( ( FloatBuffer ) buffer ).array() );
+			break;
+		case DOUBLE:
+			if ( buffer instanceof DoubleBuffer )
+				return new DoubleArray( ( ( DoubleBuffer ) buffer ).array() );
+			break;
+		default:
+			break;
+		}
+		throw new IllegalArgumentException( buffer.getClass().getSimpleName() + " does not match primitive type " + primitiveType + "." );
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.bigarray;
+
+import java.util.List;
+
+import net.imglib2.FlatIterationOrder;
+import net.imglib2.Interval;
+import net.imglib2.img.AbstractNativeImg;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * This {@link Img} stores an image in flat iteration order like an
+ * {@link ArrayImg}, but indexes pixels with {@code long} and is therefore not
+ * limited to {@link Integer#MAX_VALUE} entities. Pixels are split into chunks
+ * of a fixed, power-of-two number of pixels, each chunk is stored in its own
+ * basic type access. Pixel {@code i} (in flat iteration order) is pixel
+ * {@code i % pixelsPerChunk} of chunk {@code i / pixelsPerChunk}.
+ *
+ * @param <T>
+ * @param <A>
+ */
+public class BigArrayImg< T extends NativeType< T >, A > extends AbstractNativeImg< T, A >
+{
+	/**
+	 * This interface is implemented by all samplers on the
+	 * {@link BigArrayImg}. It allows the container to ask for the chunk the
+	 * sampler is currently in.
+	 */
+	public interface BigArrayContainerSampler
+	{
+		/**
+		 * @return the index of the chunk the sampler is currently accessing.
+		 */
+		public int getCurrentChunkIndex();
+	}
+
+	final long[] dim;
+
+	final long[] steps;
+
+	/**
+	 * log2 of the number of pixels per chunk.
+	 */
+	final int chunkShift;
+
+	/**
+	 * Number of pixels per chunk minus one.
+	 */
+	final long chunkMask;
+
+	private final List< A > chunks;
+
+	/**
+	 * @param chunks
+	 *            the basic type accesses holding the data. All but the last
+	 *            chunk hold {@code 1 << chunkShift} pixels.
+	 * @param dim
+	 *            image dimensions
+	 * @param entitiesPerPixel
+	 * @param chunkShift
+	 *            log2 of the number of pixels per chunk
+	 */
+	public BigArrayImg( final List< A > chunks, final long[] dim, final Fraction entitiesPerPixel, final int chunkShift )
+	{
+		super( dim, entitiesPerPixel );
+		this.dim = dim.clone();
+		this.steps = new long[ n ];
+		IntervalIndexer.createAllocationSteps( this.dim, this.steps );
+		this.chunkShift = chunkShift;
+		this.chunkMask = ( 1L << chunkShift ) - 1;
+		if ( chunks.size() != numChunks( numPixels, chunkShift ) )
+			throw new IllegalArgumentException( "Expected " + numChunks( numPixels, chunkShift ) + " chunks, got " + chunks.size() );
+		this.chunks = chunks;
+	}
+
+	static long numChunks( final long numPixels, final int chunkShift )
+	{
+		return ( ( numPixels - 1 ) >> chunkShift ) + 1;
+	}
+
+	@Override
+	public A update( final Object c )
+	{
+		return chunks.get( ( ( BigArrayContainerSampler ) c ).getCurrentChunkIndex() );
+	}
+
+	/**
+	 * @return the number of pixels in all but the last chunk.
+	 */
+	public int getPixelsPerChunk()
+	{
+		return 1 << chunkShift;
+	}
+
+	public int numChunks()
+	{
+		return chunks.size();
+	}
+
+	/**
+	 * @return the basic type access holding chunk {@code i}.
+	 */
+	public A getChunk( final int i )
+	{
+		return chunks.get( i );
+	}
+
+	@Override
+	public BigArrayCursor< T > cursor()
+	{
+		return new BigArrayCursor<>( this );
+	}
+
+	@Override
+	public BigArrayLocalizingCursor< T > localizingCursor()
+	{
+		return new BigArrayLocalizingCursor<>( this );
+	}
+
+	@Override
+	public BigArrayRandomAccess< T > randomAccess()
+	{
+		return new BigArrayRandomAccess<>( this );
+	}
+
+	@Override
+	public BigArrayRandomAccess< T > randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+
+	@Override
+	public FlatIterationOrder iterationOrder()
+	{
+		return new FlatIterationOrder( this );
+	}
+
+	@Override
+	public BigArrayImgFactory< T > factory()
+	{
+		return new BigArrayImgFactory<>( linkedType, getPixelsPerChunk() );
+	}
+
+	@Override
+	public BigArrayImg< T, ? > copy()
+	{
+		final BigArrayImg< T, ? > copy = factory().create( dimension );
+
+		final BigArrayCursor< T > source = this.cursor();
+		final BigArrayCursor< T > target = copy.cursor();
+
+		while ( source.hasNext() )
+			target.next().set( source.next() );
+
+		return copy;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.bigarray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for {@link BigArrayImg}s. The number of pixels per chunk can be
+ * supplied in the constructor of the factory. It must be a power of two. If
+ * it is not given, chunks of 2<sup>24</sup> pixels are created.
+ */
+public class BigArrayImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	public static final int DEFAULT_PIXELS_PER_CHUNK = 1 << 24;
+
+	private final int pixelsPerChunk;
+
+	public BigArrayImgFactory( final T type )
+	{
+		this( type, DEFAULT_PIXELS_PER_CHUNK );
+	}
+
+	public BigArrayImgFactory( final T type, final int pixelsPerChunk )
+	{
+		super( type );
+		if ( pixelsPerChunk <= 0 || Integer.bitCount( pixelsPerChunk ) != 1 )
+			throw new IllegalArgumentException( "pixelsPerChunk must be a power of two: " + pixelsPerChunk );
+		this.pixelsPerChunk = pixelsPerChunk;
+	}
+
+	@Override
+	public BigArrayImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final BigArrayImg< T, ? > img = create( dimensions, type(), ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public BigArrayImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public BigArrayImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends ArrayDataAccess< A > > BigArrayImg< T, A > create(
+			final long[] dimensions,
+			final T type,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		CellImgFactory.verifyDimensions( dimensions );
+
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		if ( ( pixelsPerChunk * entitiesPerPixel.getNumerator() ) % entitiesPerPixel.getDenominator() != 0 )
+			throw new IllegalArgumentException( "Chunks of " + pixelsPerChunk + " pixels do not start at whole entities." );
+		if ( entitiesPerPixel.mulCeil( pixelsPerChunk ) > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Number of entities in chunk too large. Use fewer pixels per chunk." );
+
+		final int chunkShift = Integer.numberOfTrailingZeros( pixelsPerChunk );
+		final long numPixels = Intervals.numElements( dimensions );
+		final long numChunks = BigArrayImg.numChunks( numPixels, chunkShift );
+		if ( numChunks > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Number of chunks too large. Use more pixels per chunk." );
+
+		final A prototype = ArrayDataAccessFactory.get( typeFactory );
+		final List< A > chunks = new ArrayList<>( ( int ) numChunks );
+		for ( long c = 0; c < numChunks; ++c )
+		{
+			final long chunkPixels = Math.min( pixelsPerChunk, numPixels - ( c << chunkShift ) );
+			chunks.add( prototype.createArray( ( int ) entitiesPerPixel.mulCeil( chunkPixels ) ) );
+		}
+
+		final BigArrayImg< T, A > img = new BigArrayImg<>( chunks, dimensions, entitiesPerPixel, chunkShift );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( type instanceof NativeType )
+			return new BigArrayImgFactory( ( NativeType ) type, pixelsPerChunk );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public BigArrayImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final BigArrayImg< T, ? > img = create( dimensions, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return img;
+	}
+}
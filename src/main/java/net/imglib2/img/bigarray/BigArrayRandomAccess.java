@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.bigarray;
+
+import net.imglib2.AbstractLocalizable;
+import net.imglib2.Localizable;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.bigarray.BigArrayImg.BigArrayContainerSampler;
+import net.imglib2.type.NativeType;
+
+/**
+ * {@link RandomAccess} on a {@link BigArrayImg}.
+ * <p>
+ * Moving only updates the flat {@code long} index. The chunk and the index
+ * within the chunk are resolved in {@link #get()}, so that the access may be
+ * moved through out-of-bounds positions.
+ * </p>
+ *
+ * @param <T>
+ */
+public class BigArrayRandomAccess< T extends NativeType< T > > extends AbstractLocalizable implements RandomAccess< T >, BigArrayContainerSampler
+{
+	protected final T type;
+
+	private final BigArrayImg< T, ? > img;
+
+	private final long[] steps;
+
+	/**
+	 * Flat index of the current position.
+	 */
+	private long index;
+
+	private int chunkIndex;
+
+	protected BigArrayRandomAccess( final BigArrayRandomAccess< T > randomAccess )
+	{
+		super( randomAccess.numDimensions() );
+		this.img = randomAccess.img;
+		this.steps = randomAccess.steps;
+		this.type = img.createLinkedType();
+		for ( int d = 0; d < n; d++ )
+			position[ d ] = randomAccess.position[ d ];
+		index = randomAccess.index;
+		chunkIndex = randomAccess.chunkIndex;
+		type.updateContainer( this );
+	}
+
+	public BigArrayRandomAccess( final BigArrayImg< T, ? > img )
+	{
+		super( img.numDimensions() );
+		this.img = img;
+		this.steps = img.steps;
+		this.type = img.createLinkedType();
+		index = 0;
+		chunkIndex = 0;
+		type.updateContainer( this );
+	}
+
+	@Override
+	public int getCurrentChunkIndex()
+	{
+		return chunkIndex;
+	}
+
+	@Override
+	public T get()
+	{
+		final int c = ( int ) ( index >> img.chunkShift );
+		if ( c != chunkIndex )
+		{
+			chunkIndex = c;
+			type.updateContainer( this );
+		}
+		type.updateIndex( ( int ) ( index & img.chunkMask ) );
+		return type;
+	}
+
+	@Override
+	public void fwd( final int d )
+	{
+		index += steps[ d ];
+		++position[ d ];
+	}
+
+	@Override
+	public void bck( final int d )
+	{
+		index -= steps[ d ];
+		--position[ d ];
+	}
+
+	@Override
+	public void move( final int distance, final int d )
+	{
+		move( ( long ) distance, d );
+	}
+
+	@Override
+	public void move( final long distance, final int d )
+	{
+		index += steps[ d ] * distance;
+		position[ d ] += distance;
+	}
+
+	@Override
+	public void move( final Localizable localizable )
+	{
+		for ( int d = 0; d < n; ++d )
+			move( localizable.getLongPosition( d ), d );
+	}
+
+	@Override
+	public void move( final int[] distance )
+	{
+		for ( int d = 0; d < n; ++d )
+			move( distance[ d ], d );
+	}
+
+	@Override
+	public void move( final long[] distance )
+	{
+		for ( int d = 0; d < n; ++d )
+			move( distance[ d ], d );
+	}
+
+	@Override
+	public void setPosition( final Localizable localizable )
+	{
+		long i = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			position[ d ] = localizable.getLongPosition( d );
+			i += position[ d ] * steps[ d ];
+		}
+		index = i;
+	}
+
+	@Override
+	public void setPosition( final int[] pos )
+	{
+		long i = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			position[ d ] = pos[ d ];
+			i += position[ d ] * steps[ d ];
+		}
+		index = i;
+	}
+
+	@Override
+	public void setPosition( final long[] pos )
+	{
+		long i = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			position[ d ] = pos[ d ];
+			i += position[ d ] * steps[ d ];
+		}
+		index = i;
+	}
+
+	@Override
+	public void setPosition( final int pos, final int d )
+	{
+		setPosition( ( long ) pos, d );
+	}
+
+	@Override
+	public void setPosition( final long pos, final int d )
+	{
+		index += ( pos - position[ d ] ) * steps[ d ];
+		position[ d ] = pos;
+	}
+
+	@Override
+	public BigArrayRandomAccess< T > copy()
+	{
+		return new BigArrayRandomAccess<>( this );
+	}
+
+	@Override
+	public BigArrayRandomAccess< T > copyRandomAccess()
+	{
+		return copy();
+	}
+}
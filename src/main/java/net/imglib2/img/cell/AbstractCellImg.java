@@ -34,12 +34,17 @@
 
 package net.imglib2.img.cell;
 
+import net.imglib2.Cursor;
+import net.imglib2.FlatIterationOrder;
+import net.imglib2.Interval;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccessible;
 import net.imglib2.img.AbstractNativeImg;
 import net.imglib2.img.Img;
 import net.imglib2.type.NativeType;
 import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.iteration.SubIntervalIterable;
 
 /**
  * Abstract superclass for {@link Img} types that divide their underlying data
@@ -54,6 +59,7 @@ public abstract class AbstractCellImg<
 				C extends Cell< A >,
 				I extends RandomAccessible< C > & IterableInterval< C > >
 		extends AbstractNativeImg< T, A >
+		implements SubIntervalIterable< T >
 {
 	protected final CellGrid grid;
 
@@ -110,6 +116,41 @@ public abstract class AbstractCellImg<
 		return new CellIterationOrder( this );
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Any contained sub-interval is iterated line by line, in runs that are
+	 * contiguous within a cell (see {@link CellIntervalCursor}).
+	 * </p>
+	 */
+	@Override
+	public boolean supportsOptimizedCursor( final Interval interval )
+	{
+		return Intervals.contains( this, interval ) && !Intervals.isEmpty( interval );
+	}
+
+	@Override
+	public Object subIntervalIterationOrder( final Interval interval )
+	{
+		return new FlatIterationOrder( interval );
+	}
+
+	@Override
+	public Cursor< T > cursor( final Interval interval )
+	{
+		assert supportsOptimizedCursor( interval );
+
+		return new CellIntervalCursor<>( this, interval );
+	}
+
+	@Override
+	public Cursor< T > localizingCursor( final Interval interval )
+	{
+		assert supportsOptimizedCursor( interval );
+
+		return new CellIntervalCursor<>( this, interval );
+	}
+
 	/**
 	 * Get the underlying image of cells which gives access to the individual
 	 * {@link Cell}s through Cursors and RandomAccesses.
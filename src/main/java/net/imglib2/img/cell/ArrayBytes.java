@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+/**
+ * Converts between the primitive storage arrays of {@link ArrayDataAccess}es
+ * and bytes in native byte order. {@code boolean}s are stored as one byte
+ * each.
+ */
+final class ArrayBytes
+{
+	private ArrayBytes()
+	{}
+
+	/**
+	 * @return the number of bytes per element of {@code array}.
+	 */
+	static int bytesPerElement( final Object array )
+	{
+		if ( array instanceof byte[] || array instanceof boolean[] )
+			return 1;
+		if ( array instanceof short[] || array instanceof char[] )
+			return 2;
+		if ( array instanceof int[] || array instanceof float[] )
+			return 4;
+		if ( array instanceof long[] || array instanceof double[] )
+			return 8;
+		throw new IllegalArgumentException( "Unsupported storage array " + array.getClass() );
+	}
+
+	/**
+	 * @return a copy of {@code array}.
+	 */
+	static Object copy( final Object array )
+	{
+		final int length = Array.getLength( array );
+		final Object copy = Array.newInstance( array.getClass().getComponentType(), length );
+		System.arraycopy( array, 0, copy, 0, length );
+		return copy;
+	}
+
+	/**
+	 * Whether {@code a} and {@code b} are arrays of the same type with
+	 * identical bits. Unlike {@link Arrays#equals(float[], float[])},
+	 * {@code NaN}s with different bit patterns are not equal.
+	 */
+	static boolean sameContent( final Object a, final Object b )
+	{
+		if ( a instanceof float[] && b instanceof float[] )
+		{
+			final float[] fa = ( float[] ) a;
+			final float[] fb = ( float[] ) b;
+			if ( fa.length != fb.length )
+				return false;
+			for ( int i = 0; i < fa.length; ++i )
+				if ( Float.floatToRawIntBits( fa[ i ] ) != Float.floatToRawIntBits( fb[ i ] ) )
+					return false;
+			return true;
+		}
+		if ( a instanceof double[] && b instanceof double[] )
+		{
+			final double[] da = ( double[] ) a;
+			final double[] db = ( double[] ) b;
+			if ( da.length != db.length )
+				return false;
+			for ( int i = 0; i < da.length; ++i )
+				if ( Double.doubleToRawLongBits( da[ i ] ) != Double.doubleToRawLongBits( db[ i ] ) )
+					return false;
+			return true;
+		}
+		return Objects.deepEquals( a, b );
+	}
+
+	/**
+	 * Copy the remaining bytes of {@code buffer} into {@code array}.
+	 */
+	static void fromBytes( final ByteBuffer buffer, final Object array )
+	{
+		buffer.order( ByteOrder.nativeOrder() );
+		if ( array instanceof byte[] )
+			buffer.get( ( byte[] ) array );
+		else if ( array instanceof short[] )
+			buffer.asShortBuffer().get( ( short[] ) array );
+		else if ( array instanceof char[] )
+			buffer.asCharBuffer().get( ( char[] ) array );
+		else if ( array instanceof int[] )
+			buffer.asIntBuffer().get( ( int[] ) array );
+		else if ( array instanceof long[] )
+			buffer.asLongBuffer().get( ( long[] ) array );
+		else if ( array instanceof float[] )
+			buffer.asFloatBuffer().get( ( float[] ) array );
+		else if ( array instanceof double[] )
+			buffer.asDoubleBuffer().get( ( double[] ) array );
+		else if ( array instanceof boolean[] )
+		{
+			final boolean[] booleans = ( boolean[] ) array;
+			for ( int i = 0; i < booleans.length; ++i )
+				booleans[ i ] = buffer.get() != 0;
+		}
+		else
+			throw new IllegalArgumentException( "Unsupported storage array " + array.getClass() );
+	}
+
+	/**
+	 * @return the content of {@code array} as a buffer positioned at 0. A
+	 *         {@code byte[]} is wrapped, other arrays are copied.
+	 */
+	static ByteBuffer toBytes( final Object array )
+	{
+		if ( array instanceof byte[] )
+			return ByteBuffer.wrap( ( byte[] ) array );
+		if ( array instanceof short[] )
+		{
+			final short[] a = ( short[] ) array;
+			final ByteBuffer buffer = ByteBuffer.allocate( 2 * a.length ).order( ByteOrder.nativeOrder() );
+			buffer.asShortBuffer().put( a );
+			return buffer;
+		}
+		if ( array instanceof char[] )
+		{
+			final char[] a = ( char[] ) array;
+			final ByteBuffer buffer = ByteBuffer.allocate( 2 * a.length ).order( ByteOrder.nativeOrder() );
+			buffer.asCharBuffer().put( a );
+			return buffer;
+		}
+		if ( array instanceof int[] )
+		{
+			final int[] a = ( int[] ) array;
+			final ByteBuffer buffer = ByteBuffer.allocate( 4 * a.length ).order( ByteOrder.nativeOrder() );
+			buffer.asIntBuffer().put( a );
+			return buffer;
+		}
+		if ( array instanceof long[] )
+		{
+			final long[] a = ( long[] ) array;
+			final ByteBuffer buffer = ByteBuffer.allocate( 8 * a.length ).order( ByteOrder.nativeOrder() );
+			buffer.asLongBuffer().put( a );
+			return buffer;
+		}
+		if ( array instanceof float[] )
+		{
+			final float[] a = ( float[] ) array;
+			final ByteBuffer buffer = ByteBuffer.allocate( 4 * a.length ).order( ByteOrder.nativeOrder() );
+			buffer.asFloatBuffer().put( a );
+			return buffer;
+		}
+		if ( array instanceof double[] )
+		{
+			final double[] a = ( double[] ) array;
+			final ByteBuffer buffer = ByteBuffer.allocate( 8 * a.length ).order( ByteOrder.nativeOrder() );
+			buffer.asDoubleBuffer().put( a );
+			return buffer;
+		}
+		if ( array instanceof boolean[] )
+		{
+			final boolean[] a = ( boolean[] ) array;
+			final ByteBuffer buffer = ByteBuffer.allocate( a.length );
+			for ( final boolean b : a )
+				buffer.put( ( byte ) ( b ? 1 : 0 ) );
+			buffer.flip();
+			return buffer;
+		}
+		throw new IllegalArgumentException( "Unsupported storage array " + array.getClass() );
+	}
+}
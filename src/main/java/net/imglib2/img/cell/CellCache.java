@@ -0,0 +1,607 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+
+/**
+ * A cache that can be used as the {@link LazyCellImg.Get} of a
+ * {@link LazyCellImg}. Values are obtained from a loader when they are
+ * requested for the first time, and kept until the {@link EvictionPolicy}
+ * decides to evict them.
+ * <p>
+ * If multiple threads request the same missing value concurrently, the loader
+ * is called only once, and the other threads wait for the result.
+ * </p>
+ *
+ * @param <V>
+ *            the cached value type, usually a {@link Cell}
+ */
+public class CellCache< V > implements LazyCellImg.Get< V >
+{
+	/**
+	 * Decides how the values of a {@link CellCache} are referenced, and when
+	 * they are evicted. Implementations must be thread-safe.
+	 */
+	public interface EvictionPolicy< V >
+	{
+		/**
+		 * Create the reference through which the cache holds a newly loaded
+		 * value. References that are enqueued in {@code queue} must implement
+		 * {@link KeyedReference}, the corresponding entries are then removed
+		 * from the cache.
+		 */
+		Supplier< V > reference( long key, V value, ReferenceQueue< V > queue );
+
+		/**
+		 * Called whenever the value for {@code key} is loaded or requested.
+		 * Keys that should be evicted are passed to {@code evict}.
+		 */
+		void accessed( long key, V value, LongConsumer evict );
+
+		/**
+		 * Called when the value for {@code key} is removed from the cache,
+		 * including removals through {@code evict}. Keys that are not known
+		 * to the policy must be ignored. {@link #accessed} is not called for
+		 * the removed value afterwards.
+		 */
+		void removed( long key );
+	}
+
+	/**
+	 * Notified when a value is evicted by the {@link EvictionPolicy}. Values
+	 * that are garbage collected are not reported.
+	 */
+	public interface EvictionListener< V >
+	{
+		/**
+		 * Called before the value is removed from the cache. Until this method
+		 * returns, requests for {@code key} still return {@code value}.
+		 */
+		void evicted( long key, V value );
+	}
+
+	/**
+	 * A {@link java.lang.ref.Reference} that knows the key of the referenced
+	 * value.
+	 */
+	public interface KeyedReference
+	{
+		long getKey();
+	}
+
+	private final LazyCellImg.Get< V > loader;
+
+	private final EvictionPolicy< V > policy;
+
+	private final EvictionListener< V > listener;
+
+	private final ConcurrentHashMap< Long, Entry< V > > map = new ConcurrentHashMap<>();
+
+	private final ReferenceQueue< V > queue = new ReferenceQueue<>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	public CellCache( final LazyCellImg.Get< V > loader, final EvictionPolicy< V > policy )
+	{
+		this( loader, policy, null );
+	}
+
+	public CellCache( final LazyCellImg.Get< V > loader, final EvictionPolicy< V > policy, final EvictionListener< V > listener )
+	{
+		this.loader = loader;
+		this.policy = policy;
+		this.listener = listener;
+	}
+
+	@Override
+	public V get( final long index )
+	{
+		cleanUp();
+		final Long key = index;
+		while ( true )
+		{
+			Entry< V > entry = map.get( key );
+			if ( entry == null )
+			{
+				final Entry< V > created = new Entry<>();
+				entry = map.putIfAbsent( key, created );
+				if ( entry == null )
+					return load( index, created );
+			}
+			final V value = entry.getValue();
+			if ( value != null )
+			{
+				hits.incrementAndGet();
+				accessed( index, entry, value );
+				return value;
+			}
+			// the value was garbage collected, or loading failed
+			remove( index, entry );
+		}
+	}
+
+	/**
+	 * Returns the value for {@code index} if it is in the cache, or
+	 * {@code null} otherwise. This never calls the loader, and never waits
+	 * for another thread that is currently loading the value.
+	 */
+	public V getIfPresent( final long index )
+	{
+		cleanUp();
+		final Entry< V > entry = map.get( index );
+		if ( entry == null || entry.reference == null )
+			return null;
+		final V value = entry.reference.get();
+		if ( value != null )
+		{
+			hits.incrementAndGet();
+			accessed( index, entry, value );
+		}
+		return value;
+	}
+
+	private V load( final long index, final Entry< V > entry )
+	{
+		misses.incrementAndGet();
+		final V value;
+		try
+		{
+			value = loader.get( index );
+		}
+		catch ( final RuntimeException | Error e )
+		{
+			remove( index, entry );
+			entry.setReference( () -> null );
+			throw e;
+		}
+		entry.setReference( policy.reference( index, value, queue ) );
+		accessed( index, entry, value );
+		return value;
+	}
+
+	/**
+	 * Tell the policy that the value of {@code entry} was accessed, unless the
+	 * entry has been removed meanwhile. Keys to evict are collected, and
+	 * evicted after the lock of {@code entry} is released.
+	 */
+	private void accessed( final long index, final Entry< V > entry, final V value )
+	{
+		final List< Long > evict = new ArrayList<>();
+		synchronized ( entry )
+		{
+			if ( entry.removed )
+				return;
+			policy.accessed( index, value, evict::add );
+		}
+		for ( final Long key : evict )
+			evict( key );
+	}
+
+	/**
+	 * Remove {@code entry} if it is still mapped to {@code key}, and tell the
+	 * policy. Because this holds the lock of the entry, the policy is never
+	 * told about accesses to a removed entry.
+	 *
+	 * @return whether the entry was removed.
+	 */
+	private boolean remove( final long key, final Entry< V > entry )
+	{
+		synchronized ( entry )
+		{
+			if ( entry.removed || map.get( key ) != entry )
+				return false;
+			policy.removed( key );
+			map.remove( key, entry );
+			entry.removed = true;
+			return true;
+		}
+	}
+
+	private void evict( final long index )
+	{
+		final Entry< V > entry = map.get( index );
+		if ( entry == null )
+			return;
+		if ( listener != null && entry.reference != null )
+		{
+			final V value = entry.reference.get();
+			if ( value != null )
+				listener.evicted( index, value );
+		}
+		if ( remove( index, entry ) )
+			evictions.incrementAndGet();
+	}
+
+	/**
+	 * Remove entries whose values have been garbage collected.
+	 */
+	private void cleanUp()
+	{
+		Object ref;
+		while ( ( ref = queue.poll() ) != null )
+		{
+			final long key = ( ( KeyedReference ) ref ).getKey();
+			final Entry< V > entry = map.get( key );
+			if ( entry != null && entry.reference == ref && remove( key, entry ) )
+				evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Remove the value for {@code key} from the cache, if present.
+	 */
+	public void invalidate( final long key )
+	{
+		final Entry< V > entry = map.get( key );
+		if ( entry != null )
+			remove( key, entry );
+	}
+
+	/**
+	 * Remove all values from the cache.
+	 */
+	public void invalidateAll()
+	{
+		for ( final Long key : map.keySet() )
+			invalidate( key );
+	}
+
+	/**
+	 * Perform {@code action} for every value that is currently in the cache.
+	 */
+	public void forEach( final BiConsumer< Long, ? super V > action )
+	{
+		map.forEach( ( key, entry ) -> {
+			final Supplier< V > reference = entry.reference;
+			final V value = reference == null ? null : reference.get();
+			if ( value != null )
+				action.accept( key, value );
+		} );
+	}
+
+	/**
+	 * @return the number of entries currently in the cache. Entries whose
+	 *         values have been garbage collected recently may still be
+	 *         counted.
+	 */
+	public long size()
+	{
+		return map.size();
+	}
+
+	/**
+	 * @return how often a requested value was found in the cache.
+	 */
+	public long getHitCount()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return how often a requested value had to be loaded.
+	 */
+	public long getMissCount()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return how many values have been evicted by the {@link EvictionPolicy}
+	 *         or the garbage collector.
+	 */
+	public long getEvictionCount()
+	{
+		return evictions.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName()
+				+ "( size = " + size()
+				+ ", hits = " + getHitCount()
+				+ ", misses = " + getMissCount()
+				+ ", evictions = " + getEvictionCount() + " )";
+	}
+
+	/**
+	 * Keep at most {@code maxCount} values, evict the least recently used
+	 * values first.
+	 */
+	public static < V > EvictionPolicy< V > lru( final long maxCount )
+	{
+		return lru( maxCount, value -> 1 );
+	}
+
+	/**
+	 * Keep values up to a total weight of {@code maxWeight}, evict the least
+	 * recently used values first. The most recently used value is never
+	 * evicted, even if it exceeds {@code maxWeight} on its own.
+	 *
+	 * @param maxWeight
+	 *            maximum total weight, for example in bytes.
+	 * @param weigher
+	 *            computes the weight of a value, for example
+	 *            {@link #sizeInBytes(Cell)}.
+	 */
+	public static < V > EvictionPolicy< V > lru( final long maxWeight, final ToLongFunction< ? super V > weigher )
+	{
+		return new LruPolicy<>( maxWeight, weigher );
+	}
+
+	/**
+	 * Hold values through {@link SoftReference}s. Values are evicted by the
+	 * garbage collector when memory is needed.
+	 */
+	public static < V > EvictionPolicy< V > softReferences()
+	{
+		return new ReferencePolicy<>( true );
+	}
+
+	/**
+	 * Hold values through {@link WeakReference}s. Values are evicted by the
+	 * garbage collector as soon as they are no longer used elsewhere.
+	 */
+	public static < V > EvictionPolicy< V > weakReferences()
+	{
+		return new ReferencePolicy<>( false );
+	}
+
+	/**
+	 * Hold values strongly and never evict them. This is for values that
+	 * cannot be loaded again without losing state, such as modified data that
+	 * is not written anywhere.
+	 */
+	public static < V > EvictionPolicy< V > strongReferences()
+	{
+		return new StrongPolicy<>();
+	}
+
+	/**
+	 * Estimate the size of the primitive array or {@link BufferAccess buffer}
+	 * that stores the data of the given cell. Returns 0 if the data is not an
+	 * {@link ArrayDataAccess}.
+	 */
+	public static long sizeInBytes( final Cell< ? > cell )
+	{
+		final Object data = cell.getData();
+		if ( data instanceof BufferAccess )
+		{
+			final BufferAccess< ? > access = ( BufferAccess< ? > ) data;
+			return ( long ) access.getArrayLength() * access.getBytesPerEntity();
+		}
+		if ( !( data instanceof ArrayDataAccess ) )
+			return 0;
+		final ArrayDataAccess< ? > access = ( ArrayDataAccess< ? > ) data;
+		final Object array = access.getCurrentStorageArray();
+		final long length = access.getArrayLength();
+		if ( array instanceof long[] || array instanceof double[] )
+			return 8 * length;
+		if ( array instanceof int[] || array instanceof float[] )
+			return 4 * length;
+		if ( array instanceof short[] || array instanceof char[] )
+			return 2 * length;
+		return length;
+	}
+
+	private static class Entry< V >
+	{
+		private volatile Supplier< V > reference;
+
+		/**
+		 * Whether the entry has been removed from the cache. Guarded by the
+		 * lock of the entry.
+		 */
+		private boolean removed = false;
+
+		synchronized V getValue()
+		{
+			boolean interrupted = false;
+			while ( reference == null )
+			{
+				try
+				{
+					wait();
+				}
+				catch ( final InterruptedException e )
+				{
+					interrupted = true;
+				}
+			}
+			if ( interrupted )
+				Thread.currentThread().interrupt();
+			return reference.get();
+		}
+
+		synchronized void setReference( final Supplier< V > reference )
+		{
+			this.reference = reference;
+			notifyAll();
+		}
+	}
+
+	private static class LruPolicy< V > implements EvictionPolicy< V >
+	{
+		private final long maxWeight;
+
+		private final ToLongFunction< ? super V > weigher;
+
+		private final LinkedHashMap< Long, Long > weights = new LinkedHashMap<>( 16, 0.75f, true );
+
+		private long totalWeight = 0;
+
+		LruPolicy( final long maxWeight, final ToLongFunction< ? super V > weigher )
+		{
+			this.maxWeight = maxWeight;
+			this.weigher = weigher;
+		}
+
+		@Override
+		public Supplier< V > reference( final long key, final V value, final ReferenceQueue< V > queue )
+		{
+			return () -> value;
+		}
+
+		@Override
+		public void accessed( final long key, final V value, final LongConsumer evict )
+		{
+			final List< Long > evicted = new ArrayList<>();
+			synchronized ( this )
+			{
+				if ( weights.get( key ) == null )
+				{
+					final long weight = weigher.applyAsLong( value );
+					weights.put( key, weight );
+					totalWeight += weight;
+				}
+				final Iterator< Map.Entry< Long, Long > > it = weights.entrySet().iterator();
+				while ( totalWeight > maxWeight && weights.size() > 1 )
+				{
+					final Map.Entry< Long, Long > eldest = it.next();
+					totalWeight -= eldest.getValue();
+					evicted.add( eldest.getKey() );
+					it.remove();
+				}
+			}
+			for ( final Long k : evicted )
+				evict.accept( k );
+		}
+
+		@Override
+		public synchronized void removed( final long key )
+		{
+			final Long weight = weights.remove( key );
+			if ( weight != null )
+				totalWeight -= weight;
+		}
+	}
+
+	private static class StrongPolicy< V > implements EvictionPolicy< V >
+	{
+		@Override
+		public Supplier< V > reference( final long key, final V value, final ReferenceQueue< V > queue )
+		{
+			return () -> value;
+		}
+
+		@Override
+		public void accessed( final long key, final V value, final LongConsumer evict )
+		{}
+
+		@Override
+		public void removed( final long key )
+		{}
+	}
+
+	private static class ReferencePolicy< V > implements EvictionPolicy< V >
+	{
+		private final boolean soft;
+
+		ReferencePolicy( final boolean soft )
+		{
+			this.soft = soft;
+		}
+
+		@Override
+		public Supplier< V > reference( final long key, final V value, final ReferenceQueue< V > queue )
+		{
+			return soft
+					? new KeyedSoftReference<>( key, value, queue )
+					: new KeyedWeakReference<>( key, value, queue );
+		}
+
+		@Override
+		public void accessed( final long key, final V value, final LongConsumer evict )
+		{}
+
+		@Override
+		public void removed( final long key )
+		{}
+	}
+
+	private static class KeyedSoftReference< V > extends SoftReference< V > implements Supplier< V >, KeyedReference
+	{
+		private final long key;
+
+		KeyedSoftReference( final long key, final V referent, final ReferenceQueue< ? super V > q )
+		{
+			super( referent, q );
+			this.key = key;
+		}
+
+		@Override
+		public long getKey()
+		{
+			return key;
+		}
+	}
+
+	private static class KeyedWeakReference< V > extends WeakReference< V > implements Supplier< V >, KeyedReference
+	{
+		private final long key;
+
+		KeyedWeakReference( final long key, final V referent, final ReferenceQueue< ? super V > q )
+		{
+			super( referent, q );
+			this.key = key;
+		}
+
+		@Override
+		public long getKey()
+		{
+			return key;
+		}
+	}
+}
@@ -77,6 +77,25 @@ public class CellGrid
 		hashcode = 31 * Arrays.hashCode( dimensions ) + Arrays.hashCode( cellDimensions );
 	}
 
+	/**
+	 * Constructor for subclasses with non-uniform cells. {@code numCells}
+	 * is the number of cells in each dimension, {@code borderSize} the size of
+	 * the last cell in each dimension.
+	 */
+	protected CellGrid(
+			final long[] dimensions,
+			final int[] cellDimensions,
+			final long[] numCells,
+			final int[] borderSize )
+	{
+		this.n = dimensions.length;
+		this.dimensions = dimensions.clone();
+		this.cellDimensions = cellDimensions.clone();
+		this.numCells = numCells.clone();
+		this.borderSize = borderSize.clone();
+		hashcode = 31 * Arrays.hashCode( dimensions ) + Arrays.hashCode( cellDimensions );
+	}
+
 	public CellGrid( final CellGrid grid )
 	{
 		n = grid.n;
@@ -294,6 +313,21 @@ public class CellGrid
 			cellPos.setPosition( position[ d ] / cellDimensions[ d ], d );
 	}
 
+	/**
+	 * Get the grid position in dimension {@code d} of the cell containing
+	 * image position {@code position} in dimension {@code d}.
+	 *
+	 * @param d
+	 *            dimension index
+	 * @param position
+	 *            position of an element in the image in dimension {@code d}.
+	 * @return grid position of the cell in dimension {@code d}.
+	 */
+	public long getCellPosition( final int d, final long position )
+	{
+		return position / cellDimensions[ d ];
+	}
+
 	@Override
 	public int hashCode()
 	{
@@ -303,7 +337,7 @@ public class CellGrid
 	@Override
 	public boolean equals( final Object obj )
 	{
-		if ( obj instanceof CellGrid )
+		if ( obj != null && obj.getClass() == getClass() )
 		{
 			final CellGrid other = ( CellGrid ) obj;
 			return Arrays.equals( dimensions, other.dimensions )
@@ -34,12 +34,16 @@
 
 package net.imglib2.img.cell;
 
+import java.nio.ByteOrder;
+
 import net.imglib2.Dimensions;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.NativeImgFactory;
 import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
 import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccessFactory;
 import net.imglib2.img.list.ListImg;
 import net.imglib2.img.list.ListLocalizingCursor;
 import net.imglib2.type.NativeType;
@@ -53,6 +57,11 @@ import net.imglib2.util.Util;
  * for a standard cell can be supplied in the constructor of the factory. If no
  * cell dimensions are given, the factory creates cells of size <em>10 x 10 x
  * ... x 10</em>.
+ * <p>
+ * By default, cell data is stored in Java primitive arrays. If a
+ * {@link ByteOrder} is given, cell data is stored off-heap in direct buffers
+ * with that byte order (see {@link BufferAccess}).
+ * </p>
  *
  * @author Tobias Pietzsch
  */
@@ -60,16 +69,38 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 {
 	private final int[] defaultCellDimensions;
 
+	private final ByteOrder byteOrder;
+
 	public CellImgFactory( final T type )
 	{
 		this( type, 10 );
 	}
 
 	public CellImgFactory( final T type, final int... cellDimensions )
+	{
+		this( type, null, cellDimensions );
+	}
+
+	/**
+	 * @param byteOrder
+	 *            byte order of off-heap {@link BufferAccess} storage, or
+	 *            {@code null} to store data in Java primitive arrays.
+	 */
+	public CellImgFactory( final T type, final ByteOrder byteOrder, final int... cellDimensions )
 	{
 		super( type );
 		defaultCellDimensions = cellDimensions.clone();
 		verifyDimensions( defaultCellDimensions );
+		this.byteOrder = byteOrder;
+	}
+
+	/**
+	 * Returns the byte order of off-heap storage, or {@code null} if this
+	 * factory stores data in Java primitive arrays.
+	 */
+	public ByteOrder getByteOrder()
+	{
+		return byteOrder;
 	}
 
 	/**
@@ -180,13 +211,16 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 		final long[] cellGridPosition = new long[ n ];
 		final long[] cellMin = new long[ n ];
 		final int[] cellDims = new int[ n ];
+		final A prototype = byteOrder == null
+				? ArrayDataAccessFactory.get( typeFactory )
+				: BufferAccessFactory.get( typeFactory, byteOrder );
 		final ListLocalizingCursor< Cell< A > > cellCursor = cells.localizingCursor();
 		while ( cellCursor.hasNext() )
 		{
 			cellCursor.fwd();
 			cellCursor.localize( cellGridPosition );
 			grid.getCellDimensions( cellGridPosition, cellMin, cellDims );
-			final A data = ArrayDataAccessFactory.get( typeFactory ).createArray( ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) ) );
+			final A data = prototype.createArray( ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) ) );
 			cellCursor.set( new Cell<>( cellDims, cellMin, data ) );
 		}
 
@@ -200,7 +234,7 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
 	{
 		if ( NativeType.class.isInstance( type ) )
-			return new CellImgFactory( ( NativeType ) type, defaultCellDimensions );
+			return new CellImgFactory( ( NativeType ) type, byteOrder, defaultCellDimensions );
 		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
 	}
 
@@ -227,6 +261,7 @@ public class CellImgFactory< T extends NativeType< T > > extends NativeImgFactor
 	{
 		defaultCellDimensions = cellDimensions.clone();
 		verifyDimensions( defaultCellDimensions );
+		byteOrder = null;
 	}
 
 	@Deprecated
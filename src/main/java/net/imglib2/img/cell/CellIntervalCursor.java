@@ -0,0 +1,311 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import net.imglib2.AbstractLocalizingCursor;
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Localizing {@link Cursor} on an arbitrary rectangular sub-interval of an
+ * {@link AbstractCellImg}, iterating in flat order. Each line along dimension 0
+ * is split into contiguous runs, one per cell it passes through; the cell is
+ * looked up only at the end of a run.
+ *
+ * @param <T>
+ * @param <C>
+ */
+public class CellIntervalCursor< T extends NativeType< T >, C extends Cell< ? > >
+		extends AbstractLocalizingCursor< T >
+		implements AbstractCellImg.CellImgSampler< C >
+{
+	protected final T type;
+
+	protected final CellGrid grid;
+
+	protected final RandomAccess< C > randomAccessOnCells;
+
+	/**
+	 * Minimum of the iterated interval in every dimension.
+	 */
+	protected final long[] min;
+
+	/**
+	 * Maximum of the iterated interval in every dimension.
+	 */
+	protected final long[] max;
+
+	/**
+	 * Dimensions of the iterated interval.
+	 */
+	protected final long[] dimensions;
+
+	/**
+	 * Number of lines in the iterated interval.
+	 */
+	protected final long numLines;
+
+	/**
+	 * The current index of the type. It is faster to duplicate this here than
+	 * to access it through type.getIndex().
+	 */
+	protected int index;
+
+	/**
+	 * Index of the last element of the current run, that is, of the current
+	 * line within the current cell.
+	 */
+	protected int lastIndexInRun;
+
+	/**
+	 * Position in dimension 0 of the last element of the current run.
+	 */
+	protected long lastPositionInRun;
+
+	/**
+	 * Number of lines after the current line.
+	 */
+	protected long linesLeft;
+
+	protected CellIntervalCursor( final CellIntervalCursor< T, C > cursor )
+	{
+		super( cursor.numDimensions() );
+
+		type = cursor.type.duplicateTypeOnSameNativeImg();
+		grid = cursor.grid;
+		randomAccessOnCells = cursor.randomAccessOnCells.copyRandomAccess();
+		min = cursor.min;
+		max = cursor.max;
+		dimensions = cursor.dimensions;
+		numLines = cursor.numLines;
+
+		for ( int d = 0; d < n; ++d )
+			position[ d ] = cursor.position[ d ];
+		index = cursor.index;
+		lastIndexInRun = cursor.lastIndexInRun;
+		lastPositionInRun = cursor.lastPositionInRun;
+		linesLeft = cursor.linesLeft;
+
+		type.updateContainer( this );
+		type.updateIndex( index );
+	}
+
+	public CellIntervalCursor( final AbstractCellImg< T, ?, C, ? > img, final Interval interval )
+	{
+		super( img.numDimensions() );
+
+		type = img.createLinkedType();
+		grid = img.getCellGrid();
+		randomAccessOnCells = img.getCells().randomAccess();
+		min = new long[ n ];
+		max = new long[ n ];
+		dimensions = new long[ n ];
+		interval.min( min );
+		interval.max( max );
+		interval.dimensions( dimensions );
+		long lines = 1;
+		for ( int d = 1; d < n; ++d )
+			lines *= dimensions[ d ];
+		numLines = lines;
+
+		reset();
+	}
+
+	@Override
+	public C getCell()
+	{
+		return randomAccessOnCells.get();
+	}
+
+	@Override
+	public T get()
+	{
+		return type;
+	}
+
+	@Override
+	public CellIntervalCursor< T, C > copy()
+	{
+		return new CellIntervalCursor<>( this );
+	}
+
+	@Override
+	public CellIntervalCursor< T, C > copyCursor()
+	{
+		return copy();
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return index < lastIndexInRun || lastPositionInRun < max[ 0 ] || linesLeft > 0;
+	}
+
+	@Override
+	public void fwd()
+	{
+		if ( ++index > lastIndexInRun )
+			nextRun();
+		type.updateIndex( index );
+	}
+
+	private void nextRun()
+	{
+		if ( lastPositionInRun < max[ 0 ] )
+		{
+			// continue the line in the next cell
+			position[ 0 ] = lastPositionInRun + 1;
+			randomAccessOnCells.fwd( 0 );
+		}
+		else
+		{
+			--linesLeft;
+			position[ 0 ] = min[ 0 ];
+			for ( int d = 1; d < n; ++d )
+			{
+				if ( ++position[ d ] > max[ d ] )
+					position[ d ] = min[ d ];
+				else
+					break;
+			}
+			grid.getCellPosition( position, randomAccessOnCells );
+		}
+		enterCell();
+	}
+
+	/**
+	 * Update index and run length for the current position, which must lie in
+	 * the cell at the current position of {@link #randomAccessOnCells}.
+	 */
+	private void enterCell()
+	{
+		final C cell = getCell();
+		index = cell.globalPositionToIndex( position );
+		lastPositionInRun = Math.min( cell.max[ 0 ], max[ 0 ] );
+		lastIndexInRun = index + ( int ) ( lastPositionInRun - position[ 0 ] );
+		type.updateContainer( this );
+	}
+
+	/**
+	 * Move to the element with the given flat index in the iterated interval.
+	 */
+	private void seek( final long i )
+	{
+		IntervalIndexer.indexToPositionWithOffset( i, dimensions, min, position );
+		linesLeft = numLines - 1 - i / dimensions[ 0 ];
+		grid.getCellPosition( position, randomAccessOnCells );
+		enterCell();
+	}
+
+	@Override
+	public void jumpFwd( final long steps )
+	{
+		updatePosition0();
+		seek( IntervalIndexer.positionWithOffsetToIndex( position, dimensions, min ) + steps );
+		type.updateIndex( index );
+	}
+
+	@Override
+	public void reset()
+	{
+		seek( 0 );
+		--index;
+		type.updateIndex( index );
+	}
+
+	/**
+	 * {@code position[ 0 ]} is not maintained while moving along a run. It is
+	 * derived from the distance of {@link #index} to the end of the run.
+	 */
+	private void updatePosition0()
+	{
+		position[ 0 ] = lastPositionInRun - ( lastIndexInRun - index );
+	}
+
+	@Override
+	public void localize( final int[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final long[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final float[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final double[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public long getLongPosition( final int d )
+	{
+		return d == 0 ? lastPositionInRun - ( lastIndexInRun - index ) : position[ d ];
+	}
+
+	@Override
+	public int getIntPosition( final int d )
+	{
+		return ( int ) getLongPosition( d );
+	}
+
+	@Override
+	public float getFloatPosition( final int d )
+	{
+		return getLongPosition( d );
+	}
+
+	@Override
+	public double getDoublePosition( final int d )
+	{
+		return getLongPosition( d );
+	}
+}
@@ -57,6 +57,13 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 
 	protected final RandomAccess< C > randomAccessOnCells;
 
+	/**
+	 * @deprecated Not used. Cells are located by {@link CellGrid#getCellPosition(int, long)},
+	 *             which also supports grids of non-uniform cells such as
+	 *             {@link RectilinearCellGrid}, where these are not the
+	 *             dimensions of every cell.
+	 */
+	@Deprecated
 	protected final int[] cellDims;
 
 	protected final long[] dimensions;
@@ -185,7 +192,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 		position[ d ] += distance;
 		if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 		{
-			randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+			randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 			updatePosition( position[ d ] < 0 || position[ d ] >= dimensions[ d ] );
 		}
 		type.updateIndex( index );
@@ -198,7 +205,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 		position[ d ] += distance;
 		if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 		{
-			randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+			randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 			updatePosition( position[ d ] < 0 || position[ d ] >= dimensions[ d ] );
 		}
 		type.updateIndex( index );
@@ -216,7 +223,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 				position[ d ] += pos;
 				if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 				{
-					randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+					randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 					boolean movedOutOfBounds = position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 
 					for ( ++d; d < n; ++d )
@@ -227,7 +234,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 							position[ d ] += pos2;
 							if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 							{
-								randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+								randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 								movedOutOfBounds |= position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 							}
 						}
@@ -251,7 +258,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 				position[ d ] += distance[ d ];
 				if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 				{
-					randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+					randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 					boolean movedOutOfBounds = position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 
 					for ( ++d; d < n; ++d )
@@ -261,7 +268,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 							position[ d ] += distance[ d ];
 							if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 							{
-								randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+								randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 								movedOutOfBounds |= position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 							}
 						}
@@ -285,7 +292,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 				position[ d ] += distance[ d ];
 				if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 				{
-					randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+					randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 					boolean movedOutOfBounds = position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 
 					for ( ++d; d < n; ++d )
@@ -295,7 +302,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 							position[ d ] += distance[ d ];
 							if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 							{
-								randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+								randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 								movedOutOfBounds |= position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 							}
 						}
@@ -315,7 +322,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 		position[ d ] = pos;
 		if ( pos < currentCellMin[ d ] || pos > currentCellMax[ d ] )
 		{
-			randomAccessOnCells.setPosition( pos / cellDims[ d ], d );
+			randomAccessOnCells.setPosition( grid.getCellPosition( d, pos ), d );
 			updatePosition( position[ d ] < 0 || position[ d ] >= dimensions[ d ] );
 		}
 		type.updateIndex( index );
@@ -328,7 +335,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 		position[ d ] = pos;
 		if ( pos < currentCellMin[ d ] || pos > currentCellMax[ d ] )
 		{
-			randomAccessOnCells.setPosition( pos / cellDims[ d ], d );
+			randomAccessOnCells.setPosition( grid.getCellPosition( d, pos ), d );
 			updatePosition( position[ d ] < 0 || position[ d ] >= dimensions[ d ] );
 		}
 		type.updateIndex( index );
@@ -346,7 +353,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 				position[ d ] = pos;
 				if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 				{
-					randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+					randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 					boolean movedOutOfBounds = position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 
 					for ( ++d; d < n; ++d )
@@ -357,7 +364,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 							position[ d ] = posInner;
 							if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 							{
-								randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+								randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 								movedOutOfBounds |= position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 							}
 						}
@@ -399,7 +406,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 				position[ d ] = pos[ d ];
 				if ( pos[ d ] < currentCellMin[ d ] || pos[ d ] > currentCellMax[ d ] )
 				{
-					randomAccessOnCells.setPosition( pos[ d ] / cellDims[ d ], d );
+					randomAccessOnCells.setPosition( grid.getCellPosition( d, pos[ d ] ), d );
 					movedOutOfBounds |= pos[ d ] < 0 || pos[ d ] >= dimensions[ d ];
 				}
 			}
@@ -418,7 +425,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 				position[ d ] = pos[ d ];
 				if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 				{
-					randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+					randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 					boolean movedOutOfBounds = position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 
 					for ( ++d; d < n; ++d )
@@ -428,7 +435,7 @@ public class CellRandomAccess< T extends NativeType< T >, C extends Cell< ? > >
 							position[ d ] = pos[ d ];
 							if ( position[ d ] < currentCellMin[ d ] || position[ d ] > currentCellMax[ d ] )
 							{
-								randomAccessOnCells.setPosition( position[ d ] / cellDims[ d ], d );
+								randomAccessOnCells.setPosition( grid.getCellPosition( d, position[ d ] ), d );
 								movedOutOfBounds |= position[ d ] < 0 || position[ d ] >= dimensions[ d ];
 							}
 						}
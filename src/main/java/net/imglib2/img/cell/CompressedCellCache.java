@@ -0,0 +1,402 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.util.Fraction;
+
+/**
+ * A {@link WriteBackCellCache} that keeps a bounded hot set of {@link Cell}s
+ * uncompressed in memory, and stores all other cells compressed in memory.
+ * Compressed cells are decompressed when they are accessed again. This is
+ * suited for label images and masks, where most cells are constant or
+ * contain long runs of equal values.
+ * <p>
+ * Only dirty cells are compressed when they leave the hot set, clean cells
+ * are dropped. Cells that have never been modified are created empty and
+ * take no memory while they are not in the hot set.
+ * </p>
+ *
+ * @param <A>
+ *            the underlying access type
+ */
+public class CompressedCellCache< A extends ArrayDataAccess< A > > extends WriteBackCellCache< A >
+{
+	/**
+	 * Compresses the bytes of a cell's storage array.
+	 */
+	public interface Codec
+	{
+		/**
+		 * Compress the remaining bytes of {@code data}.
+		 *
+		 * @param bytesPerElement
+		 *            size of the primitive elements in {@code data}.
+		 */
+		byte[] encode( ByteBuffer data, int bytesPerElement );
+
+		/**
+		 * Decompress {@code encoded} into the remaining bytes of
+		 * {@code target}.
+		 *
+		 * @param bytesPerElement
+		 *            size of the primitive elements in {@code target}.
+		 */
+		void decode( byte[] encoded, ByteBuffer target, int bytesPerElement );
+	}
+
+	private final CompressedStore store;
+
+	/**
+	 * @param grid
+	 *            the cell grid.
+	 * @param entitiesPerPixel
+	 *            the number of entities per pixel of the pixel type.
+	 * @param prototype
+	 *            any access of the required type, used to create the data of
+	 *            cells.
+	 * @param codec
+	 *            the compression, e.g., {@link #runLength()}.
+	 * @param maxCellsInMemory
+	 *            the maximum number of uncompressed cells.
+	 */
+	public CompressedCellCache( final CellGrid grid, final Fraction entitiesPerPixel, final A prototype, final Codec codec, final long maxCellsInMemory )
+	{
+		this( grid, entitiesPerPixel, prototype, new CompressedStore( codec ), maxCellsInMemory );
+	}
+
+	private CompressedCellCache( final CellGrid grid, final Fraction entitiesPerPixel, final A prototype, final CompressedStore store, final long maxCellsInMemory )
+	{
+		super( grid, entitiesPerPixel, prototype, store, maxCellsInMemory, null );
+		this.store = store;
+	}
+
+	/**
+	 * @return the number of cells stored compressed.
+	 */
+	public long getNumCompressedCells()
+	{
+		return store.compressed.size();
+	}
+
+	/**
+	 * @return the total size in bytes of all compressed cells.
+	 */
+	public long getCompressedBytes()
+	{
+		return store.compressedBytes.get();
+	}
+
+	/**
+	 * @return the total size in bytes that the compressed cells would take
+	 *         uncompressed.
+	 */
+	public long getUncompressedBytes()
+	{
+		return store.uncompressedBytes.get();
+	}
+
+	/**
+	 * @return {@link #getUncompressedBytes()} divided by
+	 *         {@link #getCompressedBytes()}, or 1 if no cell is compressed.
+	 */
+	public double getCompressionRatio()
+	{
+		final long c = store.compressedBytes.get();
+		return c == 0 ? 1 : ( double ) store.uncompressedBytes.get() / c;
+	}
+
+	/**
+	 * @return how many times a cell has been compressed.
+	 */
+	public long getCompressionCount()
+	{
+		return store.numCompressions.get();
+	}
+
+	/**
+	 * @return how many times a cell has been decompressed.
+	 */
+	public long getDecompressionCount()
+	{
+		return store.numDecompressions.get();
+	}
+
+	/**
+	 * @return total time spent compressing, in nanoseconds.
+	 */
+	public long getCompressionNanos()
+	{
+		return store.compressionNanos.get();
+	}
+
+	/**
+	 * @return total time spent decompressing, in nanoseconds.
+	 */
+	public long getDecompressionNanos()
+	{
+		return store.decompressionNanos.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		final long d = store.numDecompressions.get();
+		return String.format( "CompressedCellCache[cells=%d, compressed=%d bytes, ratio=%.1f, decompressions=%d, mean decompression=%.1f us]",
+				store.compressed.size(), store.compressedBytes.get(), getCompressionRatio(), d,
+				d == 0 ? 0.0 : store.decompressionNanos.get() / 1000.0 / d );
+	}
+
+	/**
+	 * Stores each cell as a compressed byte array.
+	 */
+	private static final class CompressedStore implements Store
+	{
+		final Codec codec;
+
+		final Map< Long, byte[] > compressed = new ConcurrentHashMap<>();
+
+		final AtomicLong compressedBytes = new AtomicLong();
+
+		final AtomicLong uncompressedBytes = new AtomicLong();
+
+		final AtomicLong numCompressions = new AtomicLong();
+
+		final AtomicLong numDecompressions = new AtomicLong();
+
+		final AtomicLong compressionNanos = new AtomicLong();
+
+		final AtomicLong decompressionNanos = new AtomicLong();
+
+		CompressedStore( final Codec codec )
+		{
+			this.codec = codec;
+		}
+
+		@Override
+		public void write( final long index, final Object storage )
+		{
+			final long t0 = System.nanoTime();
+			final ByteBuffer buffer = ArrayBytes.toBytes( storage );
+			final int numBytes = buffer.remaining();
+			final byte[] bytes = codec.encode( buffer, ArrayBytes.bytesPerElement( storage ) );
+			compressionNanos.addAndGet( System.nanoTime() - t0 );
+			numCompressions.incrementAndGet();
+
+			final byte[] old = compressed.put( index, bytes );
+			compressedBytes.addAndGet( bytes.length - ( old == null ? 0 : old.length ) );
+			if ( old == null )
+				uncompressedBytes.addAndGet( numBytes );
+		}
+
+		@Override
+		public boolean read( final long index, final Object storage )
+		{
+			final byte[] bytes = compressed.get( index );
+			if ( bytes == null )
+				return false;
+			final long t0 = System.nanoTime();
+			if ( storage instanceof byte[] )
+				codec.decode( bytes, ByteBuffer.wrap( ( byte[] ) storage ), 1 );
+			else
+			{
+				final int bytesPerElement = ArrayBytes.bytesPerElement( storage );
+				final ByteBuffer buffer = ByteBuffer.allocate( Array.getLength( storage ) * bytesPerElement );
+				codec.decode( bytes, buffer, bytesPerElement );
+				buffer.clear();
+				ArrayBytes.fromBytes( buffer, storage );
+			}
+			decompressionNanos.addAndGet( System.nanoTime() - t0 );
+			numDecompressions.incrementAndGet();
+			return true;
+		}
+	}
+
+	/**
+	 * Run-length encoding of primitive elements. Each run is stored as its
+	 * length (variable-length encoded) followed by the bytes of the repeated
+	 * element. A constant cell is compressed to a single run.
+	 */
+	public static Codec runLength()
+	{
+		return RunLengthCodec.INSTANCE;
+	}
+
+	/**
+	 * Compression by {@link Deflater} with {@link Deflater#BEST_SPEED}, for
+	 * data that is not dominated by runs of equal values.
+	 */
+	public static Codec deflate()
+	{
+		return DeflateCodec.INSTANCE;
+	}
+
+	private static final class RunLengthCodec implements Codec
+	{
+		static final RunLengthCodec INSTANCE = new RunLengthCodec();
+
+		@Override
+		public byte[] encode( final ByteBuffer data, final int bytesPerElement )
+		{
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final int start = data.position();
+			final int end = data.limit();
+			int runStart = start;
+			while ( runStart < end )
+			{
+				int runEnd = runStart + bytesPerElement;
+				while ( runEnd < end && equalElements( data, runStart, runEnd, bytesPerElement ) )
+					runEnd += bytesPerElement;
+				writeVarInt( out, ( runEnd - runStart ) / bytesPerElement );
+				for ( int i = 0; i < bytesPerElement; ++i )
+					out.write( data.get( runStart + i ) );
+				runStart = runEnd;
+			}
+			return out.toByteArray();
+		}
+
+		@Override
+		public void decode( final byte[] encoded, final ByteBuffer target, final int bytesPerElement )
+		{
+			int pos = 0;
+			int t = target.position();
+			while ( pos < encoded.length )
+			{
+				int runLength = 0;
+				int shift = 0;
+				byte b;
+				do
+				{
+					b = encoded[ pos++ ];
+					runLength |= ( b & 0x7f ) << shift;
+					shift += 7;
+				}
+				while ( b < 0 );
+				for ( int r = 0; r < runLength; ++r )
+					for ( int i = 0; i < bytesPerElement; ++i )
+						target.put( t++, encoded[ pos + i ] );
+				pos += bytesPerElement;
+			}
+		}
+
+		private static boolean equalElements( final ByteBuffer data, final int a, final int b, final int bytesPerElement )
+		{
+			for ( int i = 0; i < bytesPerElement; ++i )
+				if ( data.get( a + i ) != data.get( b + i ) )
+					return false;
+			return true;
+		}
+
+		private static void writeVarInt( final ByteArrayOutputStream out, int value )
+		{
+			while ( ( value & ~0x7f ) != 0 )
+			{
+				out.write( ( value & 0x7f ) | 0x80 );
+				value >>>= 7;
+			}
+			out.write( value );
+		}
+	}
+
+	private static final class DeflateCodec implements Codec
+	{
+		static final DeflateCodec INSTANCE = new DeflateCodec();
+
+		@Override
+		public byte[] encode( final ByteBuffer data, final int bytesPerElement )
+		{
+			final byte[] input = new byte[ data.remaining() ];
+			data.duplicate().get( input );
+			final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+			try
+			{
+				deflater.setInput( input );
+				deflater.finish();
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				final byte[] chunk = new byte[ 4096 ];
+				while ( !deflater.finished() )
+					out.write( chunk, 0, deflater.deflate( chunk ) );
+				return out.toByteArray();
+			}
+			finally
+			{
+				deflater.end();
+			}
+		}
+
+		@Override
+		public void decode( final byte[] encoded, final ByteBuffer target, final int bytesPerElement )
+		{
+			final boolean inPlace = target.hasArray() && target.arrayOffset() == 0 && target.position() == 0 && target.limit() == target.capacity();
+			final byte[] output = inPlace ? target.array() : new byte[ target.remaining() ];
+			final Inflater inflater = new Inflater();
+			try
+			{
+				inflater.setInput( encoded );
+				int n = 0;
+				while ( n < output.length && !inflater.finished() )
+				{
+					final int inflated = inflater.inflate( output, n, output.length - n );
+					// inflate() makes no progress on truncated input
+					if ( inflated == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+						throw new IllegalStateException( "Truncated or corrupt compressed cell: " + n + " of " + output.length + " bytes decoded." );
+					n += inflated;
+				}
+				if ( n < output.length )
+					throw new IllegalStateException( "Compressed cell too short: " + n + " of " + output.length + " bytes decoded." );
+			}
+			catch ( final DataFormatException e )
+			{
+				throw new IllegalStateException( e );
+			}
+			finally
+			{
+				inflater.end();
+			}
+			if ( !inPlace )
+				target.duplicate().put( output );
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.NativeType;
+
+/**
+ * A {@link LazyCellImg} that keeps a bounded hot set of {@link Cell}s
+ * uncompressed and stores all other cells compressed in memory, see
+ * {@link CompressedCellCache}. Use {@link CompressedCellImgFactory} to create
+ * one.
+ *
+ * @param <T>
+ *            the pixel type
+ * @param <A>
+ *            the underlying native access type
+ */
+public class CompressedCellImg< T extends NativeType< T >, A extends ArrayDataAccess< A > > extends LazyCellImg< T, A >
+{
+	private final CompressedCellImgFactory< T > factory;
+
+	private final CompressedCellCache< A > cache;
+
+	public CompressedCellImg( final CompressedCellImgFactory< T > factory, final CellGrid grid, final T type, final CompressedCellCache< A > cache )
+	{
+		super( grid, type, cache );
+		this.factory = factory;
+		this.cache = cache;
+	}
+
+	/**
+	 * Get the cache, which reports compression ratio and decompression time.
+	 */
+	public CompressedCellCache< A > getCache()
+	{
+		return cache;
+	}
+
+	/**
+	 * Compress all modified cells of the hot set.
+	 */
+	public void flush()
+	{
+		cache.flush();
+	}
+
+	@Override
+	public CompressedCellImgFactory< T > factory()
+	{
+		return factory;
+	}
+}
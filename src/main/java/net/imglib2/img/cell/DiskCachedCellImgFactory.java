@@ -0,0 +1,132 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static net.imglib2.img.basictypeaccess.AccessFlags.DIRTY;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.basictypeaccess.AccessFlags;
+import net.imglib2.img.basictypeaccess.ArrayDataAccessFactory;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for creating {@link DiskCachedCellImg}s. At most
+ * {@code maxCellsInMemory} cells of each image are kept in memory, modified
+ * cells are written to a temporary directory when they are evicted. The cells
+ * use {@link AccessFlags#DIRTY dirty} accesses, such that unmodified cells are
+ * never written.
+ */
+public class DiskCachedCellImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	private final long maxCellsInMemory;
+
+	private final int[] defaultCellDimensions;
+
+	public DiskCachedCellImgFactory( final T type, final long maxCellsInMemory )
+	{
+		this( type, maxCellsInMemory, 10 );
+	}
+
+	public DiskCachedCellImgFactory( final T type, final long maxCellsInMemory, final int... cellDimensions )
+	{
+		super( type );
+		if ( maxCellsInMemory < 1 )
+			throw new IllegalArgumentException( "maxCellsInMemory must be positive." );
+		this.maxCellsInMemory = maxCellsInMemory;
+		this.defaultCellDimensions = cellDimensions.clone();
+		CellImgFactory.verifyDimensions( defaultCellDimensions );
+	}
+
+	@Override
+	public DiskCachedCellImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final DiskCachedCellImg< T, ? > img = create( dimensions, type(), ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public DiskCachedCellImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public DiskCachedCellImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends ArrayDataAccess< A > > DiskCachedCellImg< T, A > create(
+			final long[] dimensions,
+			final T type,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		CellImgFactory.verifyDimensions( dimensions );
+
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		final int[] cellDimensions = CellImgFactory.getCellDimensions( defaultCellDimensions, dimensions.length, entitiesPerPixel );
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+		final A prototype = ArrayDataAccessFactory.get( typeFactory, AccessFlags.setOf( DIRTY ) );
+		final DiskCellCache< A > cache = new DiskCellCache<>( grid, entitiesPerPixel, prototype, maxCellsInMemory );
+		return new DiskCachedCellImg<>( this, grid, type, cache );
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new DiskCachedCellImgFactory( ( NativeType ) type, maxCellsInMemory, defaultCellDimensions );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public DiskCachedCellImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final DiskCachedCellImg< T, ? > img = create( dimensions, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return img;
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.util.Fraction;
+
+/**
+ * A {@link WriteBackCellCache} that writes modified cells to a scratch
+ * directory when they are evicted, and reads them back from there when they
+ * are accessed again.
+ *
+ * @param <A>
+ *            the underlying access type
+ */
+public class DiskCellCache< A extends ArrayDataAccess< A > > extends WriteBackCellCache< A > implements AutoCloseable
+{
+	private final DiskStore store;
+
+	private final boolean deleteDirectoryOnClose;
+
+	/**
+	 * Create a cache that writes to a new temporary directory, which is
+	 * deleted by {@link #close()}. Cells that have never been written are
+	 * created empty.
+	 *
+	 * @param grid
+	 *            the cell grid.
+	 * @param entitiesPerPixel
+	 *            the number of entities per pixel of the pixel type.
+	 * @param prototype
+	 *            any access of the required type, used to create the data of
+	 *            new cells.
+	 * @param maxCellsInMemory
+	 *            the maximum number of cells kept in memory.
+	 */
+	public DiskCellCache( final CellGrid grid, final Fraction entitiesPerPixel, final A prototype, final long maxCellsInMemory )
+	{
+		this( grid, entitiesPerPixel, prototype, new DiskStore( createTempDirectory() ), true, maxCellsInMemory, null );
+	}
+
+	/**
+	 * Create a cache that writes to the given directory.
+	 *
+	 * @param grid
+	 *            the cell grid.
+	 * @param entitiesPerPixel
+	 *            the number of entities per pixel of the pixel type.
+	 * @param prototype
+	 *            any access of the required type, used to create the data of
+	 *            cells that are read from disk or created empty.
+	 * @param directory
+	 *            scratch directory for evicted dirty cells.
+	 * @param maxCellsInMemory
+	 *            the maximum number of cells kept in memory.
+	 * @param initialCells
+	 *            provides the initial content of cells that have never been
+	 *            written, or {@code null} to create empty cells.
+	 */
+	public DiskCellCache( final CellGrid grid, final Fraction entitiesPerPixel, final A prototype, final Path directory, final long maxCellsInMemory, final LazyCellImg.Get< Cell< A > > initialCells )
+	{
+		this( grid, entitiesPerPixel, prototype, new DiskStore( directory ), false, maxCellsInMemory, initialCells );
+	}
+
+	private DiskCellCache( final CellGrid grid, final Fraction entitiesPerPixel, final A prototype, final DiskStore store, final boolean deleteDirectoryOnClose, final long maxCellsInMemory, final LazyCellImg.Get< Cell< A > > initialCells )
+	{
+		super( grid, entitiesPerPixel, prototype, store, maxCellsInMemory, initialCells );
+		this.store = store;
+		this.deleteDirectoryOnClose = deleteDirectoryOnClose;
+	}
+
+	/**
+	 * Delete all files written to the scratch directory, and the directory
+	 * itself if it was created by this cache. The cache must not be used
+	 * afterwards.
+	 */
+	@Override
+	public void close()
+	{
+		invalidateAll();
+		store.deleteAll( deleteDirectoryOnClose );
+	}
+
+	public Path getDirectory()
+	{
+		return store.directory;
+	}
+
+	/**
+	 * @return how many cells have been written to disk.
+	 */
+	public long getWriteCount()
+	{
+		return store.numWrites.get();
+	}
+
+	/**
+	 * @return how many cells have been read from disk.
+	 */
+	public long getReadCount()
+	{
+		return store.numReads.get();
+	}
+
+	private static Path createTempDirectory()
+	{
+		try
+		{
+			return Files.createTempDirectory( "imglib2-cells-" );
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * Stores each cell in a file of raw bytes in native byte order.
+	 */
+	private static final class DiskStore implements Store
+	{
+		final Path directory;
+
+		final Set< Long > written = ConcurrentHashMap.newKeySet();
+
+		final AtomicLong numWrites = new AtomicLong();
+
+		final AtomicLong numReads = new AtomicLong();
+
+		DiskStore( final Path directory )
+		{
+			this.directory = directory;
+		}
+
+		@Override
+		public void write( final long index, final Object storage )
+		{
+			final ByteBuffer buffer = ArrayBytes.toBytes( storage );
+			try (final FileChannel channel = FileChannel.open( file( index ), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ))
+			{
+				while ( buffer.hasRemaining() )
+					channel.write( buffer );
+			}
+			catch ( final IOException e )
+			{
+				throw new UncheckedIOException( e );
+			}
+			written.add( index );
+			numWrites.incrementAndGet();
+		}
+
+		@Override
+		public boolean read( final long index, final Object storage )
+		{
+			if ( !written.contains( index ) )
+				return false;
+			final Path file = file( index );
+			try
+			{
+				final ByteBuffer buffer = ByteBuffer.allocate( ( int ) Files.size( file ) ).order( ByteOrder.nativeOrder() );
+				try (final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ))
+				{
+					while ( buffer.hasRemaining() && channel.read( buffer ) >= 0 )
+					{}
+				}
+				buffer.flip();
+				ArrayBytes.fromBytes( buffer, storage );
+			}
+			catch ( final IOException e )
+			{
+				throw new UncheckedIOException( e );
+			}
+			numReads.incrementAndGet();
+			return true;
+		}
+
+		void deleteAll( final boolean deleteDirectory )
+		{
+			try
+			{
+				for ( final Long index : written )
+					Files.deleteIfExists( file( index ) );
+				written.clear();
+				if ( deleteDirectory )
+					Files.deleteIfExists( directory );
+			}
+			catch ( final IOException e )
+			{
+				throw new UncheckedIOException( e );
+			}
+		}
+
+		private Path file( final long index )
+		{
+			return directory.resolve( "cell-" + index );
+		}
+	}
+}
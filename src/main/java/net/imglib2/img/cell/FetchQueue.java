@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A blocking queue of keys to be loaded, with a fixed number of priority
+ * levels. Keys with a lower priority level are taken first. Within a priority
+ * level, the most recently added key is taken first, because it is usually
+ * the most relevant for an interactive consumer. A key that is already in the
+ * queue is not added again, but moved to the front of a higher priority level
+ * if it is requested with that priority.
+ */
+public class FetchQueue
+{
+	private final List< ArrayDeque< Long > > levels;
+
+	/**
+	 * Maps queued keys to their priority level.
+	 */
+	private final Map< Long, Integer > queued = new HashMap<>();
+
+	public FetchQueue( final int numPriorities )
+	{
+		if ( numPriorities < 1 )
+			throw new IllegalArgumentException( "Number of priorities must be positive." );
+		levels = new ArrayList<>( numPriorities );
+		for ( int i = 0; i < numPriorities; ++i )
+			levels.add( new ArrayDeque<>() );
+	}
+
+	public int numPriorities()
+	{
+		return levels.size();
+	}
+
+	/**
+	 * Add {@code key} to the queue. If it is already queued with a lower
+	 * priority, it is moved to the front of the given priority level.
+	 * Otherwise, the queue is not changed.
+	 *
+	 * @param key
+	 *            the key to be loaded.
+	 * @param priority
+	 *            priority level, 0 is the highest priority. Values outside the
+	 *            valid range are clamped.
+	 * @return whether the key was added or moved.
+	 */
+	public synchronized boolean put( final long key, final int priority )
+	{
+		final int level = Math.max( 0, Math.min( levels.size() - 1, priority ) );
+		final Integer queuedLevel = queued.get( key );
+		if ( queuedLevel != null )
+		{
+			if ( queuedLevel <= level )
+				return false;
+			levels.get( queuedLevel ).removeFirstOccurrence( key );
+		}
+		queued.put( key, level );
+		levels.get( level ).addFirst( key );
+		notify();
+		return true;
+	}
+
+	/**
+	 * Remove and return the next key, waiting if necessary until a key
+	 * becomes available.
+	 */
+	public synchronized long take() throws InterruptedException
+	{
+		while ( true )
+		{
+			for ( final ArrayDeque< Long > level : levels )
+			{
+				final Long key = level.pollFirst();
+				if ( key != null )
+				{
+					queued.remove( key );
+					return key;
+				}
+			}
+			wait();
+		}
+	}
+
+	/**
+	 * Remove all keys from the queue. This is useful if the queued keys are
+	 * no longer relevant, for example because the visible region changed.
+	 */
+	public synchronized void clear()
+	{
+		for ( final ArrayDeque< Long > level : levels )
+			level.clear();
+		queued.clear();
+	}
+
+	public synchronized int size()
+	{
+		return queued.size();
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.util.Arrays;
+
+import net.imglib2.Positionable;
+
+/**
+ * A {@link CellGrid} with explicit, possibly non-uniform, cell boundaries in
+ * each dimension (a rectilinear grid). This allows to wrap data that is
+ * already split into tiles of varying size, e.g. using a {@link LazyCellImg},
+ * without re-chunking it.
+ * <p>
+ * The cells in dimension {@code d} are given by {@code boundaries[d]}, which
+ * starts at 0 and ends at the image size in dimension {@code d}. Cell
+ * {@code i} spans {@code boundaries[d][i]} to {@code boundaries[d][i+1]-1}.
+ * {@link #cellDimensions(int[])} and {@link #cellDimension(int)} report the
+ * largest cell size in each dimension.
+ * </p>
+ */
+public class RectilinearCellGrid extends CellGrid
+{
+	private final long[][] boundaries;
+
+	private final int hashcode;
+
+	/**
+	 * Create a grid with the given cell boundaries.
+	 *
+	 * @param boundaries
+	 *            for each dimension, the strictly increasing image positions
+	 *            of cell boundaries, starting at 0 and ending with the image
+	 *            size.
+	 */
+	public RectilinearCellGrid( final long[]... boundaries )
+	{
+		super( imgDimensions( boundaries ), maxCellDimensions( boundaries ), numCells( boundaries ), lastCellDimensions( boundaries ) );
+		this.boundaries = new long[ boundaries.length ][];
+		for ( int d = 0; d < boundaries.length; ++d )
+			this.boundaries[ d ] = boundaries[ d ].clone();
+		hashcode = Arrays.deepHashCode( this.boundaries );
+	}
+
+	/**
+	 * Create a grid from the sizes of the cells along each dimension.
+	 *
+	 * @param cellSizes
+	 *            for each dimension, the sizes of consecutive cells.
+	 */
+	public static RectilinearCellGrid fromCellSizes( final int[]... cellSizes )
+	{
+		final long[][] boundaries = new long[ cellSizes.length ][];
+		for ( int d = 0; d < cellSizes.length; ++d )
+		{
+			final int[] sizes = cellSizes[ d ];
+			boundaries[ d ] = new long[ sizes.length + 1 ];
+			for ( int i = 0; i < sizes.length; ++i )
+				boundaries[ d ][ i + 1 ] = boundaries[ d ][ i ] + sizes[ i ];
+		}
+		return new RectilinearCellGrid( boundaries );
+	}
+
+	/**
+	 * Get the cell boundaries in dimension {@code d} as a new long[].
+	 */
+	public long[] getCellBoundaries( final int d )
+	{
+		return boundaries[ d ].clone();
+	}
+
+	@Override
+	public void getCellDimensions( long index, final long[] cellMin, final int[] cellDims )
+	{
+		final int n = numDimensions();
+		for ( int d = 0; d < n; ++d )
+		{
+			final long numCells = gridDimension( d );
+			final long j = index / numCells;
+			final int gridPos = ( int ) ( index - j * numCells );
+			index = j;
+			cellMin[ d ] = boundaries[ d ][ gridPos ];
+			cellDims[ d ] = ( int ) ( boundaries[ d ][ gridPos + 1 ] - cellMin[ d ] );
+		}
+	}
+
+	@Override
+	public void getCellDimensions( final long[] cellGridPosition, final long[] cellMin, final int[] cellDims )
+	{
+		final int n = numDimensions();
+		for ( int d = 0; d < n; ++d )
+		{
+			final int gridPos = ( int ) cellGridPosition[ d ];
+			cellMin[ d ] = boundaries[ d ][ gridPos ];
+			cellDims[ d ] = ( int ) ( boundaries[ d ][ gridPos + 1 ] - cellMin[ d ] );
+		}
+	}
+
+	@Override
+	public int getCellDimension( final int d, final long cellGridPosition )
+	{
+		final int gridPos = ( int ) cellGridPosition;
+		return ( int ) ( boundaries[ d ][ gridPos + 1 ] - boundaries[ d ][ gridPos ] );
+	}
+
+	@Override
+	public long getCellMin( final int d, final long cellGridPosition )
+	{
+		return boundaries[ d ][ ( int ) cellGridPosition ];
+	}
+
+	@Override
+	public void getCellPosition( final long[] position, final long[] cellPos )
+	{
+		final int n = numDimensions();
+		for ( int d = 0; d < n; ++d )
+			cellPos[ d ] = getCellPosition( d, position[ d ] );
+	}
+
+	@Override
+	public void getCellPosition( final long[] position, final Positionable cellPos )
+	{
+		final int n = numDimensions();
+		for ( int d = 0; d < n; ++d )
+			cellPos.setPosition( getCellPosition( d, position[ d ] ), d );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Positions before the first cell map to -1, positions after the last
+	 * cell map to the number of cells.
+	 * </p>
+	 */
+	@Override
+	public long getCellPosition( final int d, final long position )
+	{
+		final int i = Arrays.binarySearch( boundaries[ d ], position );
+		return i >= 0 ? i : -i - 2;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashcode;
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		if ( obj instanceof RectilinearCellGrid )
+			return Arrays.deepEquals( boundaries, ( ( RectilinearCellGrid ) obj ).boundaries );
+		return false;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "( boundaries = " + Arrays.deepToString( boundaries ) + " )";
+	}
+
+	private static long[] imgDimensions( final long[][] boundaries )
+	{
+		if ( boundaries.length == 0 )
+			throw new IllegalArgumentException( "boundaries.length == 0" );
+		final long[] dimensions = new long[ boundaries.length ];
+		for ( int d = 0; d < boundaries.length; ++d )
+		{
+			final long[] b = boundaries[ d ];
+			if ( b.length < 2 || b[ 0 ] != 0 )
+				throw new IllegalArgumentException( "boundaries[ " + d + " ] must start at 0 and contain at least one cell" );
+			for ( int i = 1; i < b.length; ++i )
+				if ( b[ i ] <= b[ i - 1 ] || b[ i ] - b[ i - 1 ] > Integer.MAX_VALUE )
+					throw new IllegalArgumentException( "boundaries[ " + d + " ] must be strictly increasing with cell sizes <= Integer.MAX_VALUE" );
+			dimensions[ d ] = b[ b.length - 1 ];
+		}
+		return dimensions;
+	}
+
+	private static int[] maxCellDimensions( final long[][] boundaries )
+	{
+		final int[] cellDimensions = new int[ boundaries.length ];
+		for ( int d = 0; d < boundaries.length; ++d )
+			for ( int i = 1; i < boundaries[ d ].length; ++i )
+				cellDimensions[ d ] = Math.max( cellDimensions[ d ], ( int ) ( boundaries[ d ][ i ] - boundaries[ d ][ i - 1 ] ) );
+		return cellDimensions;
+	}
+
+	private static long[] numCells( final long[][] boundaries )
+	{
+		final long[] numCells = new long[ boundaries.length ];
+		for ( int d = 0; d < boundaries.length; ++d )
+			numCells[ d ] = boundaries[ d ].length - 1;
+		return numCells;
+	}
+
+	private static int[] lastCellDimensions( final long[][] boundaries )
+	{
+		final int[] borderSize = new int[ boundaries.length ];
+		for ( int d = 0; d < boundaries.length; ++d )
+		{
+			final long[] b = boundaries[ d ];
+			borderSize[ d ] = ( int ) ( b[ b.length - 1 ] - b[ b.length - 2 ] );
+		}
+		return borderSize;
+	}
+}
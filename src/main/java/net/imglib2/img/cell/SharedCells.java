@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+
+/**
+ * Utilities for {@link Cell}s whose data are {@link CopyOnWriteAccess}es,
+ * such that identical cells can share a single storage array.
+ */
+public final class SharedCells
+{
+	private SharedCells()
+	{}
+
+	/**
+	 * Let all cells with identical content share one storage array. In
+	 * particular, all constant cells with the same value and size share one
+	 * array. Cells whose data are not {@link CopyOnWriteAccess}es are ignored.
+	 * The cells must not be written concurrently.
+	 *
+	 * @return the number of cells whose storage array was replaced by a
+	 *         shared one.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	public static long deduplicate( final Iterable< ? extends Cell< ? > > cells )
+	{
+		final Map< Content, CopyOnWriteAccess > canonical = new HashMap<>();
+		long numShared = 0;
+		for ( final Cell< ? > cell : cells )
+		{
+			final Object data = cell.getData();
+			if ( !( data instanceof CopyOnWriteAccess ) )
+				continue;
+			final CopyOnWriteAccess access = ( CopyOnWriteAccess ) data;
+			final Object array = access.getCurrentStorageArray();
+			final CopyOnWriteAccess existing = canonical.putIfAbsent( new Content( array ), access );
+			if ( existing != null && existing.getCurrentStorageArray() != array )
+			{
+				access.shareData( existing );
+				++numShared;
+			}
+		}
+		return numShared;
+	}
+
+	/**
+	 * Create a {@link LazyCellImg.Get} that creates empty cells. All cells with
+	 * the same number of entities share one storage array, so empty cells take
+	 * almost no memory until they are written. This is meant as the loader of
+	 * a cache, e.g., {@link CellCache}, that keeps modified cells.
+	 *
+	 * @param grid
+	 *            the cell grid.
+	 * @param entitiesPerPixel
+	 *            the number of entities per pixel of the pixel type.
+	 * @param prototype
+	 *            any access of the required type.
+	 */
+	public static < A extends CopyOnWriteAccess< A > > LazyCellImg.Get< Cell< A > > emptyCells( final CellGrid grid, final Fraction entitiesPerPixel, final A prototype )
+	{
+		final Map< Integer, A > empty = new ConcurrentHashMap<>();
+		return index -> {
+			final int n = grid.numDimensions();
+			final long[] cellMin = new long[ n ];
+			final int[] cellDims = new int[ n ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final int numEntities = ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) );
+			return new Cell<>( cellDims, cellMin, sharedEmpty( empty, prototype, numEntities ) );
+		};
+	}
+
+	/**
+	 * Get a new access that shares the empty storage array of size
+	 * {@code numEntities} in {@code empty}, creating it if necessary.
+	 */
+	static < A extends CopyOnWriteAccess< A > > A sharedEmpty( final Map< Integer, A > empty, final A prototype, final int numEntities )
+	{
+		final A canonical = empty.computeIfAbsent( numEntities, prototype::createArray );
+		final A access = prototype.createArray( 0 );
+		access.shareData( canonical );
+		return access;
+	}
+
+	/**
+	 * Wraps a primitive storage array for content-based hashing.
+	 */
+	private static final class Content
+	{
+		private final Object array;
+
+		private final int hash;
+
+		Content( final Object array )
+		{
+			this.array = array;
+			this.hash = Arrays.deepHashCode( new Object[] { array } );
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals( final Object obj )
+		{
+			if ( !( obj instanceof Content ) )
+				return false;
+			final Content other = ( Content ) obj;
+			return hash == other.hash && Objects.deepEquals( array, other.array );
+		}
+	}
+}
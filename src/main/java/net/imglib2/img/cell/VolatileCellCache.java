@@ -0,0 +1,292 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.img.basictypeaccess.volatiles.VolatileAccess;
+import net.imglib2.img.basictypeaccess.volatiles.VolatileArrayDataAccess;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@link LazyCellImg.Get} that never blocks on loading. If a requested
+ * {@link Cell} is in the cache, it is returned. Otherwise, a load request is
+ * put into a {@link FetchQueue}, and an invalid placeholder cell is returned
+ * immediately. A pool of fetcher threads takes requests from the queue and
+ * loads the cells into the cache, such that later requests get valid data.
+ * <p>
+ * The placeholder's data must be {@link VolatileAccess#isValid() invalid}, so
+ * that consumers, like {@code Volatile2DRandomAccessibleProjector}, can tell
+ * that they have to try again later. The loaded cells must be valid.
+ * </p>
+ * <p>
+ * If loading a cell fails, the failure is counted (see
+ * {@link #getFailureCount()} and {@link #getLastFailure()}) and the cell is
+ * not requested again for a while. The delay doubles with every consecutive
+ * failure of the same cell, up to {@link #MAX_RETRY_DELAY_MILLIS}.
+ * </p>
+ *
+ * @param <A>
+ *            the underlying volatile access type
+ */
+public class VolatileCellCache< A extends VolatileAccess > implements LazyCellImg.Get< Cell< A > >
+{
+	/**
+	 * Delay before a cell is requested again after its first failed load.
+	 */
+	public static final long MIN_RETRY_DELAY_MILLIS = 100;
+
+	/**
+	 * Maximum delay before a cell is requested again after repeatedly failed
+	 * loads.
+	 */
+	public static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+	/**
+	 * Consecutive failures of loading one cell, and the earliest time at
+	 * which it may be requested again.
+	 */
+	private static class Failures
+	{
+		final int count;
+
+		final long retryTime;
+
+		Failures( final int count, final long retryTime )
+		{
+			this.count = count;
+			this.retryTime = retryTime;
+		}
+	}
+
+	private final CellCache< Cell< A > > cache;
+
+	private final LazyCellImg.Get< Cell< A > > placeholders;
+
+	private final FetchQueue queue;
+
+	private final List< Thread > fetchers = new ArrayList<>();
+
+	private volatile int priority = 0;
+
+	private final ConcurrentHashMap< Long, Failures > failures = new ConcurrentHashMap<>();
+
+	private final AtomicLong failureCount = new AtomicLong();
+
+	private volatile Throwable lastFailure;
+
+	/**
+	 * @param loader
+	 *            loads valid cells, called by the fetcher threads.
+	 * @param placeholders
+	 *            creates invalid cells to be returned while the valid cells
+	 *            are loading, see
+	 *            {@link #emptyPlaceholders(CellGrid, Fraction, VolatileArrayDataAccess)}.
+	 * @param policy
+	 *            eviction policy for the loaded cells.
+	 * @param numPriorities
+	 *            number of priority levels of the {@link FetchQueue}.
+	 * @param numFetcherThreads
+	 *            number of threads that load cells.
+	 */
+	public VolatileCellCache(
+			final LazyCellImg.Get< Cell< A > > loader,
+			final LazyCellImg.Get< Cell< A > > placeholders,
+			final CellCache.EvictionPolicy< Cell< A > > policy,
+			final int numPriorities,
+			final int numFetcherThreads )
+	{
+		this.cache = new CellCache<>( loader, policy );
+		this.placeholders = placeholders;
+		this.queue = new FetchQueue( numPriorities );
+		for ( int i = 0; i < numFetcherThreads; ++i )
+		{
+			final Thread fetcher = new Thread( this::fetch, "VolatileCellCache-fetcher-" + i );
+			fetcher.setDaemon( true );
+			fetcher.start();
+			fetchers.add( fetcher );
+		}
+	}
+
+	@Override
+	public Cell< A > get( final long index )
+	{
+		final Cell< A > cell = cache.getIfPresent( index );
+		if ( cell != null )
+			return cell;
+		if ( mayRequest( index ) )
+			queue.put( index, priority );
+		return placeholders.get( index );
+	}
+
+	/**
+	 * Request the cell with the given index to be loaded in the background,
+	 * with the given priority, unless it is already in the cache.
+	 */
+	public void request( final long index, final int priority )
+	{
+		if ( cache.getIfPresent( index ) == null && mayRequest( index ) )
+			queue.put( index, priority );
+	}
+
+	/**
+	 * Set the priority of load requests caused by {@link #get(long)}. 0 is
+	 * the highest priority.
+	 */
+	public void setPriority( final int priority )
+	{
+		this.priority = priority;
+	}
+
+	/**
+	 * Get the cache that holds the loaded cells. Calling {@code get()} on
+	 * it loads missing cells in the calling thread.
+	 */
+	public CellCache< Cell< A > > getCache()
+	{
+		return cache;
+	}
+
+	public FetchQueue getQueue()
+	{
+		return queue;
+	}
+
+	/**
+	 * @return how often loading a cell failed in a fetcher thread.
+	 */
+	public long getFailureCount()
+	{
+		return failureCount.get();
+	}
+
+	/**
+	 * @return the most recent exception or error thrown by the loader in a
+	 *         fetcher thread, or {@code null} if loading never failed.
+	 */
+	public Throwable getLastFailure()
+	{
+		return lastFailure;
+	}
+
+	/**
+	 * Stop the fetcher threads. Pending requests are discarded.
+	 */
+	public void shutdown()
+	{
+		queue.clear();
+		for ( final Thread fetcher : fetchers )
+			fetcher.interrupt();
+	}
+
+	private void fetch()
+	{
+		while ( !Thread.currentThread().isInterrupted() )
+		{
+			final long index;
+			try
+			{
+				index = queue.take();
+			}
+			catch ( final InterruptedException e )
+			{
+				break;
+			}
+			if ( !mayRequest( index ) )
+				// queued before the last failure, will be requested again after the retry delay
+				continue;
+			try
+			{
+				cache.get( index );
+				failures.remove( index );
+			}
+			catch ( final Throwable t )
+			{
+				// the cell remains invalid, and is requested again after the retry delay
+				failed( index, t );
+			}
+		}
+	}
+
+	private boolean mayRequest( final long index )
+	{
+		final Failures f = failures.get( index );
+		return f == null || System.nanoTime() - f.retryTime >= 0;
+	}
+
+	private void failed( final long index, final Throwable t )
+	{
+		failures.compute( index, ( k, f ) -> {
+			final int count = f == null ? 1 : f.count + 1;
+			final long delay = MIN_RETRY_DELAY_MILLIS << Math.min( count - 1, 30 );
+			final long retryTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( Math.min( delay, MAX_RETRY_DELAY_MILLIS ) );
+			return new Failures( count, retryTime );
+		} );
+		lastFailure = t;
+		failureCount.incrementAndGet();
+	}
+
+	/**
+	 * Create placeholder cells with {@link VolatileAccess#isValid() invalid},
+	 * zero-filled data. Cells of the same size share one data array, which
+	 * must therefore never be written to.
+	 *
+	 * @param grid
+	 *            the cell grid.
+	 * @param entitiesPerPixel
+	 *            the number of entities per pixel of the pixel type.
+	 * @param prototype
+	 *            any access of the required type, used to create the invalid
+	 *            data arrays.
+	 */
+	public static < A extends VolatileArrayDataAccess< A > > LazyCellImg.Get< Cell< A > > emptyPlaceholders( final CellGrid grid, final Fraction entitiesPerPixel, final A prototype )
+	{
+		final Map< Integer, A > sharedData = new ConcurrentHashMap<>();
+		final int n = grid.numDimensions();
+		return index -> {
+			final long[] cellMin = new long[ n ];
+			final int[] cellDims = new int[ n ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final int numEntities = ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) );
+			final A data = sharedData.computeIfAbsent( numEntities, k -> prototype.createArray( k, false ) );
+			return new Cell<>( cellDims, cellMin, data );
+		};
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.imglib2.Dirty;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+
+/**
+ * A {@link LazyCellImg.Get} that keeps a bounded number of {@link Cell}s in
+ * memory, and writes modified cells to a {@link Store} when they are evicted.
+ * Evicted cells are read back from the store when they are accessed again.
+ * <p>
+ * The data of the cells should implement {@link Dirty}, for example
+ * {@code DirtyFloatArray}. Only dirty cells are written, clean cells are
+ * evicted without writing. Cells that have never been written are obtained
+ * from an optional loader, or are created empty.
+ * </p>
+ * <p>
+ * The data must be stored in Java primitive arrays. Off-heap
+ * {@link BufferAccess}es are not supported.
+ * </p>
+ * <p>
+ * A cell that is evicted while it is still in use, for example by a cursor,
+ * is returned again if it is requested before being garbage collected. Its
+ * storage array remains reachable until its data is garbage collected, and
+ * modifications made after the eviction are written then. To detect such
+ * modifications, a copy of the storage array is kept until the data is
+ * garbage collected. To avoid repeated writes and copies, the number of cells
+ * kept in memory should be larger than the number of cells that are accessed
+ * concurrently.
+ * </p>
+ *
+ * @param <A>
+ *            the underlying access type
+ */
+public class WriteBackCellCache< A extends ArrayDataAccess< A > > implements LazyCellImg.Get< Cell< A > >
+{
+	/**
+	 * Persists the storage arrays of evicted cells. Cells with different
+	 * indices may be written and read concurrently.
+	 */
+	public interface Store
+	{
+		/**
+		 * Store the content of the primitive {@code storage} array of the
+		 * cell with the given index, replacing previously stored content.
+		 */
+		void write( long index, Object storage );
+
+		/**
+		 * Copy the stored content of the cell with the given index into the
+		 * primitive {@code storage} array.
+		 *
+		 * @return {@code false} if nothing has been stored for the cell.
+		 */
+		boolean read( long index, Object storage );
+	}
+
+	/**
+	 * Weak reference to the data of an evicted cell, which keeps the storage
+	 * array of the data strongly reachable. When the data is garbage
+	 * collected, the storage array is written if its content differs from
+	 * the written content.
+	 */
+	private static final class EvictedData< A extends ArrayDataAccess< A > > extends WeakReference< A >
+	{
+		final long index;
+
+		final Object storage;
+
+		/**
+		 * Copy of the content that was last written, or that was clean when
+		 * evicted.
+		 */
+		volatile Object written;
+
+		private boolean done = false;
+
+		EvictedData( final long index, final A data, final ReferenceQueue< A > queue )
+		{
+			super( data, queue );
+			this.index = index;
+			this.storage = data.getCurrentStorageArray();
+		}
+
+		/**
+		 * @return {@code true} the first time it is called, {@code false}
+		 *         afterwards.
+		 */
+		synchronized boolean finish()
+		{
+			final boolean wasDone = done;
+			done = true;
+			return !wasDone;
+		}
+	}
+
+	private final CellGrid grid;
+
+	private final Fraction entitiesPerPixel;
+
+	private final A prototype;
+
+	private final LazyCellImg.Get< Cell< A > > initialCells;
+
+	private final Store store;
+
+	private final CellCache< Cell< A > > cache;
+
+	private final Map< Long, EvictedData< A > > evicted = new ConcurrentHashMap<>();
+
+	private final ReferenceQueue< A > collected = new ReferenceQueue<>();
+
+	/**
+	 * @param grid
+	 *            the cell grid.
+	 * @param entitiesPerPixel
+	 *            the number of entities per pixel of the pixel type.
+	 * @param prototype
+	 *            any access of the required type, used to create the data of
+	 *            cells that are read from the store or created empty.
+	 * @param store
+	 *            stores evicted dirty cells.
+	 * @param maxCellsInMemory
+	 *            the maximum number of cells kept in memory.
+	 * @param initialCells
+	 *            provides the initial content of cells that have never been
+	 *            written, or {@code null} to create empty cells.
+	 * @throws IllegalArgumentException
+	 *             if {@code prototype} is a {@link BufferAccess}.
+	 */
+	public WriteBackCellCache( final CellGrid grid, final Fraction entitiesPerPixel, final A prototype, final Store store, final long maxCellsInMemory, final LazyCellImg.Get< Cell< A > > initialCells )
+	{
+		if ( prototype instanceof BufferAccess )
+			throw new IllegalArgumentException( "Cells stored in BufferAccesses cannot be written back, use primitive arrays." );
+		this.grid = grid;
+		this.entitiesPerPixel = entitiesPerPixel;
+		this.prototype = prototype;
+		this.store = store;
+		this.initialCells = initialCells;
+		this.cache = new CellCache<>( this::load, CellCache.lru( maxCellsInMemory ), this::evicted );
+	}
+
+	@Override
+	public Cell< A > get( final long index )
+	{
+		writeBackCollected();
+		return cache.get( index );
+	}
+
+	/**
+	 * Write all dirty cells that are currently in memory to the store, and
+	 * mark them clean. This includes evicted cells that are still in use. The
+	 * cells remain in memory.
+	 */
+	public void flush()
+	{
+		writeBackCollected();
+		cache.forEach( ( index, cell ) -> writeIfDirty( index, cell.getData() ) );
+		for ( final EvictedData< A > ref : evicted.values() )
+		{
+			final A data = ref.get();
+			if ( data != null )
+			{
+				synchronized ( data )
+				{
+					if ( isDirty( data ) )
+						ref.written = ArrayBytes.copy( ref.storage );
+					writeIfDirty( ref.index, data );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discard all cells in memory without writing them. The cache must not be
+	 * used afterwards.
+	 */
+	protected void invalidateAll()
+	{
+		cache.invalidateAll();
+		evicted.clear();
+		while ( collected.poll() != null )
+		{}
+	}
+
+	/**
+	 * Get the cache that holds the cells in memory. It gives access to hit,
+	 * miss and eviction counts.
+	 */
+	public CellCache< Cell< A > > getCache()
+	{
+		return cache;
+	}
+
+	public Store getStore()
+	{
+		return store;
+	}
+
+	private Cell< A > load( final long index )
+	{
+		final int n = grid.numDimensions();
+		final long[] cellMin = new long[ n ];
+		final int[] cellDims = new int[ n ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+
+		final EvictedData< A > ref = evicted.remove( index );
+		if ( ref != null )
+		{
+			final A stillInUse = ref.get();
+			ref.clear();
+			if ( stillInUse != null )
+				return new Cell<>( cellDims, cellMin, stillInUse );
+			// collected, but not yet written back
+			writeBack( ref );
+		}
+
+		final A data = prototype.createArray( ( int ) entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) ) );
+		if ( store.read( index, data.getCurrentStorageArray() ) || initialCells == null )
+			return new Cell<>( cellDims, cellMin, data );
+		return initialCells.get( index );
+	}
+
+	private void evicted( final long index, final Cell< A > cell )
+	{
+		final A data = cell.getData();
+		final EvictedData< A > ref = new EvictedData<>( index, data, collected );
+		synchronized ( data )
+		{
+			// copy before writing, such that concurrent modifications are
+			// not lost but written again later
+			ref.written = ArrayBytes.copy( ref.storage );
+			writeIfDirty( index, data );
+		}
+		evicted.put( index, ref );
+	}
+
+	/**
+	 * Write evicted cells whose data has been garbage collected, if they were
+	 * modified after the eviction.
+	 */
+	private void writeBackCollected()
+	{
+		Object ref;
+		while ( ( ref = collected.poll() ) != null )
+		{
+			@SuppressWarnings( "unchecked" )
+			final EvictedData< A > data = ( EvictedData< A > ) ref;
+			evicted.remove( data.index, data );
+			writeBack( data );
+		}
+	}
+
+	private void writeBack( final EvictedData< A > ref )
+	{
+		if ( ref.finish() && !ArrayBytes.sameContent( ref.storage, ref.written ) )
+			store.write( ref.index, ref.storage );
+	}
+
+	private static boolean isDirty( final Object data )
+	{
+		return !( data instanceof Dirty ) || ( ( Dirty ) data ).isDirty();
+	}
+
+	private void writeIfDirty( final long index, final A data )
+	{
+		synchronized ( data )
+		{
+			if ( !isDirty( data ) )
+				return;
+			// clear before writing, such that concurrent modifications are
+			// not lost but written again later
+			if ( data instanceof Dirty )
+				( ( Dirty ) data ).setDirty( false );
+			store.write( index, data.getCurrentStorageArray() );
+		}
+	}
+}
@@ -0,0 +1,354 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.mapped;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccessFactory;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellCache;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for images whose data is a memory-mapped raw file (see
+ * {@link FileChannel#map(MapMode, long, long)}). The file contains the pixel
+ * data in flat iteration order, starting at a given byte offset, with a given
+ * {@link ByteOrder}. Nothing is copied: reading and writing pixels accesses
+ * the mapped file directly and the operating system's page cache holds the
+ * working set.
+ * <p>
+ * If the data fits into a single mapping ({@link Integer#MAX_VALUE} bytes),
+ * {@link #create(long...)} returns an {@link ArrayImg}. Otherwise it returns a
+ * {@link LazyCellImg} whose cells are slabs of consecutive hyper-planes
+ * (full extent in all but the last dimension), so that each cell is a
+ * contiguous window of the file. Cells are mapped lazily when they are first
+ * accessed and unmapped when they are no longer referenced. With
+ * {@link MapMode#PRIVATE}, cells stay mapped as long as the image exists,
+ * because their modifications exist only in memory.
+ * </p>
+ * <p>
+ * With {@link MapMode#READ_WRITE}, the file is created and grown as required
+ * and modifications are written to the file. With {@link MapMode#READ_ONLY}
+ * writing pixels throws {@link java.nio.ReadOnlyBufferException}. With
+ * {@link MapMode#PRIVATE} modifications are not written to the file.
+ * </p>
+ * <p>
+ * Note that all images created by one factory map the same file region, that
+ * is, they share their data. This does not apply to factories obtained by
+ * {@link #imgFactory(Object)}, which map a new temporary file for every image
+ * they create, such that images created for the results of an algorithm never
+ * alias its input.
+ * </p>
+ */
+public class MappedImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	/**
+	 * Default upper bound for the size of cells (64 MB).
+	 */
+	public static final int DEFAULT_MAX_CELL_BYTES = 1 << 26;
+
+	/**
+	 * The mapped file, or {@code null} to map a new temporary file for every
+	 * image.
+	 */
+	private final Path file;
+
+	private final ByteOrder byteOrder;
+
+	private final MapMode mode;
+
+	private final long offset;
+
+	private final int maxCellBytes;
+
+	public MappedImgFactory( final T type, final Path file, final ByteOrder byteOrder, final MapMode mode )
+	{
+		this( type, file, byteOrder, mode, 0, DEFAULT_MAX_CELL_BYTES );
+	}
+
+	/**
+	 * @param offset
+	 *            position in the file (in bytes) of the first pixel, e.g., to
+	 *            skip a header.
+	 * @param maxCellBytes
+	 *            upper bound for the size of cells of {@link LazyCellImg}s.
+	 *            Cells contain at least one hyper-plane, so they may be larger
+	 *            if a single hyper-plane exceeds this size.
+	 */
+	public MappedImgFactory( final T type, final Path file, final ByteOrder byteOrder, final MapMode mode, final long offset, final int maxCellBytes )
+	{
+		super( type );
+		if ( offset < 0 )
+			throw new IllegalArgumentException( "offset < 0" );
+		if ( maxCellBytes <= 0 )
+			throw new IllegalArgumentException( "maxCellBytes <= 0" );
+		this.file = file;
+		this.byteOrder = byteOrder;
+		this.mode = mode;
+		this.offset = offset;
+		this.maxCellBytes = maxCellBytes;
+	}
+
+	/**
+	 * Factory that maps a new temporary file with {@link MapMode#READ_WRITE}
+	 * for every image.
+	 */
+	private MappedImgFactory( final T type, final ByteOrder byteOrder, final int maxCellBytes )
+	{
+		this( type, null, byteOrder, MapMode.READ_WRITE, 0, maxCellBytes );
+	}
+
+	/**
+	 * @return the mapped file, or {@code null} if this factory maps a new
+	 *         temporary file for every image.
+	 */
+	public Path getFile()
+	{
+		return file;
+	}
+
+	public ByteOrder getByteOrder()
+	{
+		return byteOrder;
+	}
+
+	public MapMode getMapMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * Create an {@link ArrayImg} if the data fits into a single mapping, and a
+	 * {@link LazyCellImg} otherwise.
+	 */
+	@Override
+	public NativeImg< T, ? > create( final long... dimensions )
+	{
+		final long numBytes = type().getEntitiesPerPixel().mulCeil( Intervals.numElements( dimensions ) ) * bytesPerEntity();
+		return numBytes <= Integer.MAX_VALUE
+				? createArrayImg( dimensions )
+				: createCellImg( dimensions );
+	}
+
+	@Override
+	public NativeImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public NativeImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	/**
+	 * Create an {@link ArrayImg} that maps the whole image data.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the data is larger than {@link Integer#MAX_VALUE} bytes.
+	 */
+	public ArrayImg< T, ? > createArrayImg( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final ArrayImg< T, ? > img = createArrayImg( dimensions, ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	/**
+	 * Create a {@link LazyCellImg} with cells that are slabs of consecutive
+	 * hyper-planes, each mapped lazily.
+	 */
+	public LazyCellImg< T, ? > createCellImg( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final LazyCellImg< T, ? > img = createCellImg( dimensions, ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	private < A extends ArrayDataAccess< A > > ArrayImg< T, A > createArrayImg(
+			final long[] dimensions,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		CellImgFactory.verifyDimensions( dimensions );
+		final Fraction entitiesPerPixel = type().getEntitiesPerPixel();
+		final long numBytes = entitiesPerPixel.mulCeil( Intervals.numElements( dimensions ) ) * bytesPerEntity();
+		if ( numBytes > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Image data too big for a single mapping, use createCellImg() instead: " + numBytes + " > " + Integer.MAX_VALUE );
+
+		final A data = BufferAccessFactory.wrap( typeFactory, map( imageFile(), offset, numBytes ) );
+		final ArrayImg< T, A > img = new ArrayImg<>( data, dimensions, entitiesPerPixel );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	private < A extends ArrayDataAccess< A > > LazyCellImg< T, A > createCellImg(
+			final long[] dimensions,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		CellImgFactory.verifyDimensions( dimensions );
+		final int n = dimensions.length;
+		final Fraction entitiesPerPixel = type().getEntitiesPerPixel();
+		final int bytesPerEntity = bytesPerEntity();
+
+		final int[] cellDimensions = new int[ n ];
+		long planeSize = 1;
+		for ( int d = 0; d < n - 1; ++d )
+		{
+			if ( dimensions[ d ] > Integer.MAX_VALUE )
+				throw new IllegalArgumentException( "dimensions[ " + d + " ] too large for a cell" );
+			cellDimensions[ d ] = ( int ) dimensions[ d ];
+			planeSize *= dimensions[ d ];
+		}
+		final long planeBytes = entitiesPerPixel.mulCeil( planeSize ) * bytesPerEntity;
+		int planesPerCell = ( int ) Math.min( dimensions[ n - 1 ], Math.max( 1, maxCellBytes / planeBytes ) );
+		// cells must start at whole entities in the file
+		while ( planesPerCell > 0 && ( planeSize * planesPerCell * entitiesPerPixel.getNumerator() ) % entitiesPerPixel.getDenominator() != 0 )
+			--planesPerCell;
+		if ( planesPerCell == 0 )
+			throw new IllegalArgumentException( "Cannot split image into cells that start at whole entities." );
+		if ( planeBytes * planesPerCell > Integer.MAX_VALUE )
+			throw new IllegalArgumentException( "Hyper-plane too big for a single mapping: " + planeBytes + " > " + Integer.MAX_VALUE );
+		cellDimensions[ n - 1 ] = planesPerCell;
+
+		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
+		final Path imageFile = imageFile();
+		final long fileOffset = offset;
+		final long entitiesPerPlaneNumerator = planeSize * entitiesPerPixel.getNumerator();
+		final LazyCellImg.Get< Cell< A > > loader = index -> {
+			final long[] cellMin = new long[ n ];
+			final int[] cellDims = new int[ n ];
+			grid.getCellDimensions( index, cellMin, cellDims );
+			final long firstEntity = cellMin[ n - 1 ] * entitiesPerPlaneNumerator / entitiesPerPixel.getDenominator();
+			final long numBytes = entitiesPerPixel.mulCeil( Intervals.numElements( cellDims ) ) * bytesPerEntity;
+			final A data = BufferAccessFactory.wrap( typeFactory, map( imageFile, fileOffset + firstEntity * bytesPerEntity, numBytes ) );
+			return new Cell<>( cellDims, cellMin, data );
+		};
+		// private mappings cannot be mapped again without losing modifications
+		final CellCache.EvictionPolicy< Cell< A > > policy = mode == MapMode.PRIVATE
+				? CellCache.strongReferences()
+				: CellCache.softReferences();
+		return new LazyCellImg<>( grid, type(), new CellCache<>( loader, policy ) );
+	}
+
+	private int bytesPerEntity()
+	{
+		return ( ( BufferAccess< ? > ) BufferAccessFactory.get( type().getNativeTypeFactory().getPrimitiveType(), byteOrder ) ).getBytesPerEntity();
+	}
+
+	/**
+	 * @return the file to map for a new image.
+	 */
+	private Path imageFile()
+	{
+		if ( file != null )
+			return file;
+		try
+		{
+			final Path temp = Files.createTempFile( "imglib2-mapped-", ".raw" );
+			temp.toFile().deleteOnExit();
+			return temp;
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	private ByteBuffer map( final Path file, final long position, final long size )
+	{
+		// private mappings require a writable channel, but never modify the file
+		try (final FileChannel channel = mode == MapMode.READ_WRITE
+				? FileChannel.open( file, READ, WRITE, CREATE )
+				: mode == MapMode.PRIVATE
+						? FileChannel.open( file, READ, WRITE )
+						: FileChannel.open( file, READ ))
+		{
+			return channel.map( mode, position, size ).order( byteOrder );
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * Returns a factory with the same byte order that maps a new temporary
+	 * file for every image it creates. The file of this factory is never
+	 * mapped by the returned factory.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( type instanceof NativeType )
+			return new MappedImgFactory( ( NativeType ) type, byteOrder, maxCellBytes );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public NativeImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		return create( dimensions );
+	}
+}
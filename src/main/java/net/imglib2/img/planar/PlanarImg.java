@@ -278,12 +278,16 @@ public class PlanarImg< T extends NativeType< T >, A extends ArrayDataAccess< A
 
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * A single plane is iterated as one run of the plane array. Any other
+	 * contained sub-interval is iterated line by line (see
+	 * {@link PlanarIntervalCursor}).
+	 * </p>
 	 */
 	@Override
 	public boolean supportsOptimizedCursor( final Interval interval )
 	{
-		// we want to optimize exactly one plane
-		return Intervals.contains( this, interval ) && correspondsToPlane( interval );
+		return Intervals.contains( this, interval ) && !Intervals.isEmpty( interval );
 	}
 
 	/**
@@ -303,7 +307,9 @@ public class PlanarImg< T extends NativeType< T >, A extends ArrayDataAccess< A
 	{
 		assert ( supportsOptimizedCursor( interval ) );
 
-		return new PlanarPlaneSubsetCursor< T >( this, interval );
+		if ( correspondsToPlane( interval ) )
+			return new PlanarPlaneSubsetCursor< T >( this, interval );
+		return new PlanarIntervalCursor< T >( this, interval );
 	}
 
 	private boolean correspondsToPlane( final Interval interval )
@@ -335,7 +341,9 @@ public class PlanarImg< T extends NativeType< T >, A extends ArrayDataAccess< A
 	{
 		assert ( supportsOptimizedCursor( interval ) );
 
-		return new PlanarPlaneSubsetLocalizingCursor< T >( this, interval );
+		if ( correspondsToPlane( interval ) )
+			return new PlanarPlaneSubsetLocalizingCursor< T >( this, interval );
+		return new PlanarIntervalCursor< T >( this, interval );
 	}
 
 	/**
@@ -0,0 +1,306 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.planar;
+
+import net.imglib2.AbstractLocalizingCursorInt;
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Localizing {@link Cursor} on an arbitrary rectangular sub-interval of a
+ * {@link PlanarImg}, iterating in flat order. Each line along dimension 0 is a
+ * contiguous run of a plane array; the index jumps only at line ends, and the
+ * plane is switched only when the line leaves the current plane.
+ *
+ * @param <T>
+ */
+public class PlanarIntervalCursor< T extends NativeType< T > > extends AbstractLocalizingCursorInt< T > implements PlanarImg.PlanarContainerSampler
+{
+	protected final T type;
+
+	protected final PlanarImg< T, ? > container;
+
+	/**
+	 * Minimum of the iterated interval in every dimension.
+	 */
+	protected final int[] min;
+
+	/**
+	 * Maximum of the iterated interval in every dimension.
+	 */
+	protected final int[] max;
+
+	/**
+	 * Dimensions of the iterated interval.
+	 */
+	protected final int[] dimensions;
+
+	/**
+	 * Width of a plane of the container.
+	 */
+	protected final int planeWidth;
+
+	/**
+	 * Number of lines in the iterated interval.
+	 */
+	protected final long numLines;
+
+	/**
+	 * Current slice index.
+	 */
+	protected int sliceIndex;
+
+	/**
+	 * The current index of the type. It is faster to duplicate this here than
+	 * to access it through type.getIndex().
+	 */
+	protected int index;
+
+	/**
+	 * Index of the last element on the current line.
+	 */
+	protected int lastIndexOnLine;
+
+	/**
+	 * Number of lines after the current line.
+	 */
+	protected long linesLeft;
+
+	protected PlanarIntervalCursor( final PlanarIntervalCursor< T > cursor )
+	{
+		super( cursor.numDimensions() );
+
+		container = cursor.container;
+		type = container.createLinkedType();
+		min = cursor.min;
+		max = cursor.max;
+		dimensions = cursor.dimensions;
+		planeWidth = cursor.planeWidth;
+		numLines = cursor.numLines;
+
+		for ( int d = 0; d < n; ++d )
+			position[ d ] = cursor.position[ d ];
+		sliceIndex = cursor.sliceIndex;
+		index = cursor.index;
+		lastIndexOnLine = cursor.lastIndexOnLine;
+		linesLeft = cursor.linesLeft;
+
+		type.updateContainer( this );
+		type.updateIndex( index );
+	}
+
+	public PlanarIntervalCursor( final PlanarImg< T, ? > container, final Interval interval )
+	{
+		super( container.numDimensions() );
+
+		this.container = container;
+		type = container.createLinkedType();
+		min = new int[ n ];
+		max = new int[ n ];
+		dimensions = new int[ n ];
+		long lines = 1;
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = ( int ) interval.min( d );
+			max[ d ] = ( int ) interval.max( d );
+			dimensions[ d ] = max[ d ] - min[ d ] + 1;
+			if ( d > 0 )
+				lines *= dimensions[ d ];
+		}
+		planeWidth = container.dimensions[ 0 ];
+		numLines = lines;
+
+		reset();
+	}
+
+	@Override
+	public int getCurrentSliceIndex()
+	{
+		return sliceIndex;
+	}
+
+	@Override
+	public T get()
+	{
+		return type;
+	}
+
+	@Override
+	public PlanarIntervalCursor< T > copy()
+	{
+		return new PlanarIntervalCursor<>( this );
+	}
+
+	@Override
+	public PlanarIntervalCursor< T > copyCursor()
+	{
+		return copy();
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return index < lastIndexOnLine || linesLeft > 0;
+	}
+
+	@Override
+	public void fwd()
+	{
+		if ( ++index > lastIndexOnLine )
+		{
+			--linesLeft;
+			position[ 0 ] = min[ 0 ];
+			if ( position[ 1 ] < max[ 1 ] )
+			{
+				++position[ 1 ];
+				index = lastIndexOnLine - dimensions[ 0 ] + 1 + planeWidth;
+			}
+			else
+			{
+				position[ 1 ] = min[ 1 ];
+				for ( int d = 2; d < n; ++d )
+				{
+					if ( ++position[ d ] > max[ d ] )
+						position[ d ] = min[ d ];
+					else
+						break;
+				}
+				updateSlice();
+				index = position[ 1 ] * planeWidth + position[ 0 ];
+			}
+			lastIndexOnLine = index + dimensions[ 0 ] - 1;
+		}
+		type.updateIndex( index );
+	}
+
+	private void updateSlice()
+	{
+		sliceIndex = 0;
+		for ( int d = 2; d < n; ++d )
+			sliceIndex += position[ d ] * container.sliceSteps[ d ];
+		type.updateContainer( this );
+	}
+
+	/**
+	 * Move to the element with the given flat index in the iterated interval.
+	 */
+	private void seek( final long i )
+	{
+		IntervalIndexer.indexToPositionWithOffset( ( int ) i, dimensions, min, position );
+		updateSlice();
+		index = ( n > 1 ? position[ 1 ] * planeWidth : 0 ) + position[ 0 ];
+		lastIndexOnLine = index + max[ 0 ] - position[ 0 ];
+		linesLeft = numLines - 1 - i / dimensions[ 0 ];
+	}
+
+	@Override
+	public void jumpFwd( final long steps )
+	{
+		updatePosition0();
+		seek( IntervalIndexer.positionWithOffsetToIndex( position, dimensions, min ) + steps );
+		type.updateIndex( index );
+	}
+
+	@Override
+	public void reset()
+	{
+		seek( 0 );
+		--index;
+		type.updateIndex( index );
+	}
+
+	/**
+	 * {@code position[ 0 ]} is not maintained while moving along a line. It is
+	 * derived from the distance of {@link #index} to the end of the line.
+	 */
+	private void updatePosition0()
+	{
+		position[ 0 ] = max[ 0 ] - ( lastIndexOnLine - index );
+	}
+
+	@Override
+	public void localize( final int[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final long[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final float[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public void localize( final double[] pos )
+	{
+		updatePosition0();
+		super.localize( pos );
+	}
+
+	@Override
+	public int getIntPosition( final int d )
+	{
+		return d == 0 ? max[ 0 ] - ( lastIndexOnLine - index ) : position[ d ];
+	}
+
+	@Override
+	public long getLongPosition( final int d )
+	{
+		return getIntPosition( d );
+	}
+
+	@Override
+	public float getFloatPosition( final int d )
+	{
+		return getIntPosition( d );
+	}
+
+	@Override
+	public double getDoublePosition( final int d )
+	{
+		return getIntPosition( d );
+	}
+}
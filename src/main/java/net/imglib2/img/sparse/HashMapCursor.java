@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.sparse;
+
+import net.imglib2.AbstractLocalizingCursor;
+import net.imglib2.Cursor;
+import net.imglib2.img.sparse.HashMapImg.IndexProvider;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Localizing {@link Cursor} over all pixels of a {@link HashMapImg}, in flat
+ * iteration order.
+ *
+ * @param <T>
+ */
+public final class HashMapCursor< T extends NativeType< T > > extends AbstractLocalizingCursor< T > implements IndexProvider
+{
+	private final HashMapImg< T, ? > img;
+
+	private final T type;
+
+	private final long lastIndex;
+
+	/**
+	 * Maximum of the {@link HashMapImg} in every dimension.
+	 */
+	private final long[] max;
+
+	/**
+	 * Flat index of the current pixel.
+	 */
+	private long index;
+
+	private HashMapCursor( final HashMapCursor< T > cursor )
+	{
+		super( cursor.numDimensions() );
+		this.img = cursor.img;
+		this.type = img.createLinkedType();
+		this.lastIndex = cursor.lastIndex;
+		this.max = cursor.max;
+		this.index = cursor.index;
+		for ( int d = 0; d < n; ++d )
+			position[ d ] = cursor.position[ d ];
+		type.updateContainer( this );
+	}
+
+	public HashMapCursor( final HashMapImg< T, ? > img )
+	{
+		super( img.numDimensions() );
+		this.img = img;
+		this.type = img.createLinkedType();
+		this.lastIndex = img.size() - 1;
+		max = new long[ n ];
+		img.max( max );
+		type.updateContainer( this );
+		reset();
+	}
+
+	@Override
+	public long getIndex()
+	{
+		return index;
+	}
+
+	@Override
+	public T get()
+	{
+		return type;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return index < lastIndex;
+	}
+
+	@Override
+	public void fwd()
+	{
+		++index;
+		if ( ++position[ 0 ] <= max[ 0 ] )
+			return;
+		position[ 0 ] = 0;
+		for ( int d = 1; d < n; ++d )
+		{
+			if ( ++position[ d ] <= max[ d ] )
+				break;
+			position[ d ] = 0;
+		}
+	}
+
+	@Override
+	public void jumpFwd( final long steps )
+	{
+		index += steps;
+		IntervalIndexer.indexToPosition( index, img.dim, position );
+	}
+
+	@Override
+	public void reset()
+	{
+		index = -1;
+		for ( int d = 1; d < n; ++d )
+			position[ d ] = 0;
+		position[ 0 ] = -1;
+	}
+
+	@Override
+	public HashMapCursor< T > copy()
+	{
+		return new HashMapCursor<>( this );
+	}
+
+	@Override
+	public HashMapCursor< T > copyCursor()
+	{
+		return copy();
+	}
+}
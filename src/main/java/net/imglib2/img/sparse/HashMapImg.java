@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.sparse;
+
+import net.imglib2.Cursor;
+import net.imglib2.FlatIterationOrder;
+import net.imglib2.img.AbstractNativeImg;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * Sparse image that stores only pixels different from a background value, in
+ * a {@link LongLongHashMap} keyed by flat pixel index. Unlike {@link NtreeImg},
+ * writing a pixel is O(1) regardless of the spatial distribution of the data.
+ * This is suited for very sparse data such as point annotations.
+ * <p>
+ * {@link #cursor()} iterates all pixels. {@link #sparseCursor()} iterates only
+ * the {@link #numNonBackground()} non-background pixels, in unspecified order.
+ * Only types with one entity per pixel are supported.
+ * </p>
+ *
+ * @param <T>
+ * @param <A>
+ */
+public class HashMapImg< T extends NativeType< T >, A extends HashMapAccess< A > > extends AbstractNativeImg< T, A >
+{
+	/**
+	 * Provides the flat index of the current pixel to the
+	 * {@link HashMapAccess} bound to a RandomAccess or Cursor.
+	 */
+	public static interface IndexProvider
+	{
+		long getIndex();
+	}
+
+	final A data;
+
+	final long[] dim;
+
+	final long[] steps;
+
+	public HashMapImg( final A data, final long[] dim, final Fraction entitiesPerPixel )
+	{
+		super( dim, entitiesPerPixel );
+		this.data = data;
+		this.dim = dim.clone();
+		steps = new long[ n ];
+		IntervalIndexer.createAllocationSteps( dim, steps );
+	}
+
+	// updater is the RandomAccess / Cursor etc
+	// each call creates a new HashMapAccess wrapper
+	@Override
+	public A update( final Object updater )
+	{
+		return data.createInstance( data.getCurrentStorageMap(), ( IndexProvider ) updater );
+	}
+
+	/**
+	 * Get the number of pixels that are not background.
+	 */
+	public long numNonBackground()
+	{
+		return data.getCurrentStorageMap().size();
+	}
+
+	/**
+	 * Get a copy of the background value.
+	 */
+	public T getBackground()
+	{
+		final LongLongHashMap empty = new LongLongHashMap( data.getCurrentStorageMap().getBackground(), 0 );
+		return create( empty, new long[] { 1 } ).firstElement().copy();
+	}
+
+	@Override
+	public HashMapRandomAccess< T > randomAccess()
+	{
+		return new HashMapRandomAccess<>( this );
+	}
+
+	@Override
+	public HashMapCursor< T > cursor()
+	{
+		return new HashMapCursor<>( this );
+	}
+
+	@Override
+	public HashMapCursor< T > localizingCursor()
+	{
+		return cursor();
+	}
+
+	/**
+	 * Get a {@link Cursor} over the non-background pixels only. The iteration
+	 * order is unspecified. Adding or removing non-background pixels (this
+	 * includes setting a pixel to the background value through the cursor)
+	 * while iterating makes the cursor throw a
+	 * {@link java.util.ConcurrentModificationException}.
+	 */
+	public HashMapSparseCursor< T > sparseCursor()
+	{
+		return new HashMapSparseCursor<>( this );
+	}
+
+	@Override
+	public HashMapImgFactory< T > factory()
+	{
+		return new HashMapImgFactory<>( linkedType, getBackground() );
+	}
+
+	@Override
+	public HashMapImg< T, A > copy()
+	{
+		return create( data.getCurrentStorageMap().copy(), dimension.clone() );
+	}
+
+	@Override
+	public FlatIterationOrder iterationOrder()
+	{
+		return new FlatIterationOrder( this );
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private HashMapImg< T, A > create( final LongLongHashMap map, final long[] dim )
+	{
+		final HashMapImg< T, A > img = new HashMapImg<>( data.createInstance( map, null ), dim, entitiesPerPixel );
+		img.setLinkedType( ( T ) ( ( NativeTypeFactory ) linkedType.getNativeTypeFactory() ).createLinkedType( img ) );
+		return img;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.sparse;
+
+import net.imglib2.Dimensions;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImgFactory;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.NativeTypeFactory;
+import net.imglib2.util.Fraction;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+/**
+ * Factory for {@link HashMapImg}s. The background value of created images can
+ * be given in the constructor, otherwise it is the value whose storage bits
+ * are all zero (i.e., 0 for numeric types, false for boolean types).
+ *
+ * @param <T>
+ */
+public class HashMapImgFactory< T extends NativeType< T > > extends NativeImgFactory< T >
+{
+	private final T background;
+
+	public HashMapImgFactory( final T type )
+	{
+		this( type, null );
+	}
+
+	/**
+	 * @param background
+	 *            background value of created images, or {@code null} for
+	 *            zero background.
+	 */
+	public HashMapImgFactory( final T type, final T background )
+	{
+		super( type );
+		this.background = background == null ? null : background.copy();
+	}
+
+	@Override
+	public HashMapImg< T, ? > create( final long... dimensions )
+	{
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final HashMapImg< T, ? > img = create( dimensions, type(), ( NativeTypeFactory ) type().getNativeTypeFactory() );
+		return img;
+	}
+
+	@Override
+	public HashMapImg< T, ? > create( final Dimensions dimensions )
+	{
+		return create( Intervals.dimensionsAsLongArray( dimensions ) );
+	}
+
+	@Override
+	public HashMapImg< T, ? > create( final int[] dimensions )
+	{
+		return create( Util.int2long( dimensions ) );
+	}
+
+	private < A extends HashMapAccess< A > > HashMapImg< T, A > create(
+			final long[] dimensions,
+			final T type,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		final Fraction entitiesPerPixel = type.getEntitiesPerPixel();
+		if ( entitiesPerPixel.getNumerator() != entitiesPerPixel.getDenominator() )
+			throw new IllegalArgumentException( "HashMapImg only supports types with one entity per pixel." );
+
+		final HashMapImg< T, A > img = create( dimensions, new LongLongHashMap( 0 ), entitiesPerPixel, typeFactory );
+		if ( background == null )
+			return img;
+
+		// determine the storage bits of the background value
+		final HashMapImg< T, A > tmp = create( new long[] { 1 }, new LongLongHashMap( 0, 1 ), entitiesPerPixel, typeFactory );
+		tmp.firstElement().set( background );
+		final long bits = tmp.data.getCurrentStorageMap().get( 0 );
+		return create( dimensions, new LongLongHashMap( bits ), entitiesPerPixel, typeFactory );
+	}
+
+	private < A extends HashMapAccess< A > > HashMapImg< T, A > create(
+			final long[] dimensions,
+			final LongLongHashMap map,
+			final Fraction entitiesPerPixel,
+			final NativeTypeFactory< T, A > typeFactory )
+	{
+		final HashMapImg< T, A > img = new HashMapImg<>( HashMapImgFactory.< A >createHashMapAccess( typeFactory, map ), dimensions, entitiesPerPixel );
+		img.setLinkedType( typeFactory.createLinkedType( img ) );
+		return img;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static < A extends HashMapAccess< A > > A createHashMapAccess(
+			final NativeTypeFactory< ?, ? super A > typeFactory,
+			final LongLongHashMap map )
+	{
+		switch ( typeFactory.getPrimitiveType() )
+		{
+		case BOOLEAN:
+			return ( A ) new BooleanHashMapAccess( map, null );
+		case BYTE:
+			return ( A ) new ByteHashMapAccess( map, null );
+		case CHAR:
+			return ( A ) new CharHashMapAccess( map, null );
+		case DOUBLE:
+			return ( A ) new DoubleHashMapAccess( map, null );
+		case FLOAT:
+			return ( A ) new FloatHashMapAccess( map, null );
+		case INT:
+			return ( A ) new IntHashMapAccess( map, null );
+		case LONG:
+			return ( A ) new LongHashMapAccess( map, null );
+		case SHORT:
+			return ( A ) new ShortHashMapAccess( map, null );
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	@Override
+	public < S > ImgFactory< S > imgFactory( final S type ) throws IncompatibleTypeException
+	{
+		if ( NativeType.class.isInstance( type ) )
+			return new HashMapImgFactory( ( NativeType ) type );
+		throw new IncompatibleTypeException( this, type.getClass().getCanonicalName() + " does not implement NativeType." );
+	}
+
+	@Deprecated
+	@Override
+	public HashMapImg< T, ? > create( final long[] dimensions, final T type )
+	{
+		cache( type );
+		@SuppressWarnings( { "unchecked", "rawtypes" } )
+		final HashMapImg< T, ? > img = create( dimensions, type, ( NativeTypeFactory ) type.getNativeTypeFactory() );
+		return img;
+	}
+}
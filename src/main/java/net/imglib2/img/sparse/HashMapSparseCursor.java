@@ -0,0 +1,160 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.sparse;
+
+import java.util.ConcurrentModificationException;
+
+import net.imglib2.AbstractCursor;
+import net.imglib2.Cursor;
+import net.imglib2.img.sparse.HashMapImg.IndexProvider;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.IntervalIndexer;
+
+/**
+ * {@link Cursor} over the non-background pixels of a {@link HashMapImg}. The
+ * iteration order is the order of entries in the hash map. The position is
+ * computed from the flat pixel index when the cursor is localized.
+ *
+ * @param <T>
+ */
+public final class HashMapSparseCursor< T extends NativeType< T > > extends AbstractCursor< T > implements IndexProvider
+{
+	private final HashMapImg< T, ? > img;
+
+	private final LongLongHashMap map;
+
+	private final T type;
+
+	private int expectedModCount;
+
+	/**
+	 * Current slot in the hash map.
+	 */
+	private int slot;
+
+	/**
+	 * Next occupied slot, or -1 if there is none.
+	 */
+	private int nextSlot;
+
+	/**
+	 * Flat index of the current pixel.
+	 */
+	private long index;
+
+	private HashMapSparseCursor( final HashMapSparseCursor< T > cursor )
+	{
+		super( cursor.numDimensions() );
+		this.img = cursor.img;
+		this.map = cursor.map;
+		this.type = img.createLinkedType();
+		expectedModCount = cursor.expectedModCount;
+		slot = cursor.slot;
+		nextSlot = cursor.nextSlot;
+		index = cursor.index;
+		type.updateContainer( this );
+	}
+
+	public HashMapSparseCursor( final HashMapImg< T, ? > img )
+	{
+		super( img.numDimensions() );
+		this.img = img;
+		this.map = img.data.getCurrentStorageMap();
+		this.type = img.createLinkedType();
+		type.updateContainer( this );
+		reset();
+	}
+
+	@Override
+	public long getIndex()
+	{
+		return index;
+	}
+
+	@Override
+	public T get()
+	{
+		return type;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return nextSlot >= 0;
+	}
+
+	@Override
+	public void fwd()
+	{
+		if ( map.modCount() != expectedModCount )
+			throw new ConcurrentModificationException();
+		slot = nextSlot;
+		index = map.keyAt( slot );
+		nextSlot = map.nextSlot( slot + 1 );
+	}
+
+	@Override
+	public void reset()
+	{
+		expectedModCount = map.modCount();
+		slot = -1;
+		index = -1;
+		nextSlot = map.nextSlot( 0 );
+	}
+
+	@Override
+	public void localize( final long[] position )
+	{
+		IntervalIndexer.indexToPosition( index, img.dim, position );
+	}
+
+	@Override
+	public long getLongPosition( final int d )
+	{
+		return IntervalIndexer.indexToPosition( index, img.dim, img.steps, d );
+	}
+
+	@Override
+	public HashMapSparseCursor< T > copy()
+	{
+		return new HashMapSparseCursor<>( this );
+	}
+
+	@Override
+	public HashMapSparseCursor< T > copyCursor()
+	{
+		return copy();
+	}
+}
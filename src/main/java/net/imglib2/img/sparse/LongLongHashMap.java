@@ -0,0 +1,334 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.sparse;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative {@code long} keys to
+ * {@code long} values, without boxing. Keys that are not contained in the map
+ * map to a background value. Putting the background value removes the key, so
+ * that only non-background entries are stored.
+ * <p>
+ * Collisions are resolved by linear probing, removal uses backward-shift
+ * deletion (no tombstones).
+ * </p>
+ * <p>
+ * The map holds at most {@link #MAX_SIZE} entries. Up to {@code 2^29}
+ * entries, the table is kept at most half full. Beyond that, the table does
+ * not grow any further and fills up to three quarters.
+ * </p>
+ */
+public final class LongLongHashMap
+{
+	private static final long EMPTY = -1;
+
+	private static final int MIN_CAPACITY = 16;
+
+	/**
+	 * Largest power-of-two table size that is a valid array length.
+	 */
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * Maximum number of entries.
+	 */
+	public static final int MAX_SIZE = MAX_CAPACITY / 4 * 3;
+
+	private final long background;
+
+	private long[] keys;
+
+	private long[] values;
+
+	private int mask;
+
+	private int size;
+
+	/**
+	 * Number of structural modifications, i.e., insertions and removals of
+	 * keys.
+	 */
+	private int modCount;
+
+	public LongLongHashMap( final long background )
+	{
+		this( background, MIN_CAPACITY / 2 );
+	}
+
+	/**
+	 * @param background
+	 *            value of keys that are not contained in the map.
+	 * @param expectedSize
+	 *            number of entries that can be stored without rehashing.
+	 */
+	public LongLongHashMap( final long background, final int expectedSize )
+	{
+		this.background = background;
+		allocate( capacityFor( expectedSize ) );
+	}
+
+	private LongLongHashMap( final LongLongHashMap map )
+	{
+		background = map.background;
+		keys = map.keys.clone();
+		values = map.values.clone();
+		mask = map.mask;
+		size = map.size;
+	}
+
+	public long getBackground()
+	{
+		return background;
+	}
+
+	/**
+	 * Get the number of (non-background) entries.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	public long get( final long key )
+	{
+		int slot = hash( key ) & mask;
+		while ( true )
+		{
+			final long k = keys[ slot ];
+			if ( k == key )
+				return values[ slot ];
+			if ( k == EMPTY )
+				return background;
+			slot = ( slot + 1 ) & mask;
+		}
+	}
+
+	public boolean containsKey( final long key )
+	{
+		return find( key ) >= 0;
+	}
+
+	/**
+	 * Set the value of {@code key}. If {@code value} is the background value,
+	 * the key is removed.
+	 *
+	 * @param key
+	 *            non-negative key
+	 * @throws IllegalStateException
+	 *             if a new key is added to a map that already holds
+	 *             {@link #MAX_SIZE} entries.
+	 */
+	public void put( final long key, final long value )
+	{
+		if ( key < 0 )
+			throw new IllegalArgumentException( "negative key " + key );
+
+		if ( value == background )
+		{
+			remove( key );
+			return;
+		}
+
+		int slot = hash( key ) & mask;
+		while ( true )
+		{
+			final long k = keys[ slot ];
+			if ( k == key )
+			{
+				values[ slot ] = value;
+				return;
+			}
+			if ( k == EMPTY )
+				break;
+			slot = ( slot + 1 ) & mask;
+		}
+
+		if ( size >= MAX_SIZE )
+			throw new IllegalStateException( "LongLongHashMap cannot hold more than " + MAX_SIZE + " entries" );
+		keys[ slot ] = key;
+		values[ slot ] = value;
+		++modCount;
+		if ( ++size > ( mask + 1 ) / 2 && mask + 1 < MAX_CAPACITY )
+			rehash( ( mask + 1 ) * 2 );
+	}
+
+	/**
+	 * Remove {@code key}, i.e., set it to the background value.
+	 */
+	public void remove( final long key )
+	{
+		int gap = find( key );
+		if ( gap < 0 )
+			return;
+
+		// shift back entries of the probe sequence following the removed key
+		int slot = ( gap + 1 ) & mask;
+		while ( true )
+		{
+			final long k = keys[ slot ];
+			if ( k == EMPTY )
+				break;
+			final int ideal = hash( k ) & mask;
+			if ( ( ( slot - ideal ) & mask ) >= ( ( slot - gap ) & mask ) )
+			{
+				keys[ gap ] = k;
+				values[ gap ] = values[ slot ];
+				gap = slot;
+			}
+			slot = ( slot + 1 ) & mask;
+		}
+		keys[ gap ] = EMPTY;
+		--size;
+		++modCount;
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear()
+	{
+		allocate( MIN_CAPACITY );
+		size = 0;
+		++modCount;
+	}
+
+	public LongLongHashMap copy()
+	{
+		return new LongLongHashMap( this );
+	}
+
+	/*
+	 * Slot-level access for iteration over the entries.
+	 */
+
+	int capacity()
+	{
+		return mask + 1;
+	}
+
+	int modCount()
+	{
+		return modCount;
+	}
+
+	/**
+	 * Get the first occupied slot {@code >= slot}, or {@code -1} if there is
+	 * none.
+	 */
+	int nextSlot( final int slot )
+	{
+		for ( int s = slot; s <= mask; ++s )
+			if ( keys[ s ] != EMPTY )
+				return s;
+		return -1;
+	}
+
+	long keyAt( final int slot )
+	{
+		return keys[ slot ];
+	}
+
+	long valueAt( final int slot )
+	{
+		return values[ slot ];
+	}
+
+	private int find( final long key )
+	{
+		int slot = hash( key ) & mask;
+		while ( true )
+		{
+			final long k = keys[ slot ];
+			if ( k == key )
+				return slot;
+			if ( k == EMPTY )
+				return -1;
+			slot = ( slot + 1 ) & mask;
+		}
+	}
+
+	private void rehash( final int capacity )
+	{
+		final long[] oldKeys = keys;
+		final long[] oldValues = values;
+		allocate( capacity );
+		for ( int i = 0; i < oldKeys.length; ++i )
+		{
+			final long k = oldKeys[ i ];
+			if ( k != EMPTY )
+			{
+				int slot = hash( k ) & mask;
+				while ( keys[ slot ] != EMPTY )
+					slot = ( slot + 1 ) & mask;
+				keys[ slot ] = k;
+				values[ slot ] = oldValues[ i ];
+			}
+		}
+	}
+
+	private void allocate( final int capacity )
+	{
+		keys = new long[ capacity ];
+		values = new long[ capacity ];
+		Arrays.fill( keys, EMPTY );
+		mask = capacity - 1;
+	}
+
+	private static int capacityFor( final int expectedSize )
+	{
+		if ( expectedSize > MAX_SIZE )
+			throw new IllegalArgumentException( "expectedSize too large: " + expectedSize + " > " + MAX_SIZE );
+		int capacity = MIN_CAPACITY;
+		while ( capacity / 2 < expectedSize && capacity < MAX_CAPACITY )
+			capacity <<= 1;
+		return capacity;
+	}
+
+	/**
+	 * MurmurHash3 64-bit finalizer. Neighbouring pixel indices must not end up
+	 * in neighbouring slots, otherwise linear probing degrades on dense runs.
+	 */
+	private static int hash( final long key )
+	{
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return ( int ) h;
+	}
+}
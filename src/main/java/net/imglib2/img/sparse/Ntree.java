@@ -34,6 +34,8 @@
 
 package net.imglib2.img.sparse;
 
+import java.util.function.Function;
+
 /**
  * N-dimensional equivalent of a quad/oct-tree.
  * 
@@ -109,6 +111,12 @@ public final class Ntree< T extends Comparable< T >>
 	 */
 	final long[] dimensions;
 
+	/**
+	 * Whether {@link #createNodeWithValue(long[], Comparable)} merges nodes
+	 * upwards after each write.
+	 */
+	private boolean autoMerge = true;
+
 	/**
 	 * Create a ntree structure capable of representing an array of the given
 	 * dimensions. Initially, the tree contains only a root node and represents
@@ -166,6 +174,7 @@ public final class Ntree< T extends Comparable< T >>
 		n = ntree.n;
 		numTreeLevels = ntree.numTreeLevels;
 		numChildren = ntree.numChildren;
+		autoMerge = ntree.autoMerge;
 		root = copyRecursively( ntree.root, null );
 	}
 
@@ -265,7 +274,7 @@ public final class Ntree< T extends Comparable< T >>
 		if ( current.getValue().compareTo( value ) == 0 )
 			return current;
 		current.setValue( value );
-		return mergeUpwards( current );
+		return autoMerge ? mergeUpwards( current ) : current;
 	}
 
 	/**
@@ -296,6 +305,184 @@ public final class Ntree< T extends Comparable< T >>
 		return mergeUpwards( parent );
 	}
 
+	/**
+	 * Set whether nodes are merged after every write. Writing many pixels is
+	 * faster with automatic merging disabled, followed by a single
+	 * {@link #merge()}.
+	 */
+	public synchronized void setAutoMerge( final boolean autoMerge )
+	{
+		this.autoMerge = autoMerge;
+	}
+
+	public synchronized boolean isAutoMerge()
+	{
+		return autoMerge;
+	}
+
+	/**
+	 * Merge all nodes whose children are leaves of the same value, bottom-up
+	 * in a single pass over the tree.
+	 */
+	public synchronized void merge()
+	{
+		mergeRecursively( root );
+	}
+
+	private void mergeRecursively( final NtreeNode< T > node )
+	{
+		if ( !node.hasChildren() )
+			return;
+		for ( final NtreeNode< T > child : node.children )
+			mergeRecursively( child );
+		final T value = uniformValue( node.children );
+		if ( value != null )
+		{
+			node.setValue( value );
+			node.children = null;
+		}
+	}
+
+	/**
+	 * Replace the contents of the tree by the given pixel values. The tree is
+	 * constructed bottom-up in a single pass, merging uniform nodes as soon as
+	 * all their children are known. Pixels are requested in Morton
+	 * (Z-curve) order.
+	 *
+	 * @param values
+	 *            maps a position inside the image to its pixel value. The
+	 *            position array is reused between calls.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public synchronized void fill( final Function< long[], T > values )
+	{
+		final long[][] mins = new long[ numTreeLevels ][ n ];
+		final NtreeNode< T >[][] childArrays = ( NtreeNode< T >[][] ) new NtreeNode< ? >[ numTreeLevels ][];
+		root = build( null, numTreeLevels - 1, mins, values, childArrays );
+	}
+
+	/**
+	 * Build the subtree of the node at {@code level} with minimum
+	 * {@code mins[level]}. Returns {@code null} if the node lies completely
+	 * outside the image.
+	 */
+	private NtreeNode< T > build( final NtreeNode< T > parent, final int level, final long[][] mins, final Function< long[], T > values, final NtreeNode< T >[][] childArrays )
+	{
+		final long[] min = mins[ level ];
+		for ( int d = 0; d < n; ++d )
+			if ( min[ d ] >= dimensions[ d ] )
+				return null;
+
+		if ( level == 0 )
+			return new NtreeNode<>( parent, values.apply( min ) );
+
+		final NtreeNode< T > node = new NtreeNode<>( parent, null );
+		if ( level == 1 )
+			return buildLeaves( node, min, values );
+
+		// children arrays are reused, unless they are attached to the tree
+		NtreeNode< T >[] children = childArrays[ level ];
+		if ( children == null )
+			children = newNodeArray( numChildren );
+		final long[] childMin = mins[ level - 1 ];
+		final long halfSize = 1L << ( level - 1 );
+		for ( int i = 0; i < numChildren; ++i )
+		{
+			for ( int d = 0; d < n; ++d )
+				childMin[ d ] = ( ( i & ( 1 << d ) ) == 0 ) ? min[ d ] : min[ d ] + halfSize;
+			children[ i ] = build( node, level - 1, mins, values, childArrays );
+		}
+
+		final T value = uniformValue( children );
+		if ( value != null )
+		{
+			node.setValue( value );
+			childArrays[ level ] = children;
+			return node;
+		}
+
+		// children outside the image are never accessed, give them any value
+		T any = null;
+		for ( int i = 0; any == null; ++i )
+			if ( children[ i ] != null )
+				any = children[ i ].getValue();
+		for ( int i = 0; i < numChildren; ++i )
+			if ( children[ i ] == null )
+				children[ i ] = new NtreeNode<>( node, any );
+		node.setValue( any );
+		node.children = children;
+		childArrays[ level ] = null;
+		return node;
+	}
+
+	/**
+	 * Build the children of a {@code node} at level 1, i.e., single pixels.
+	 * Leaf nodes are only created if the pixel values are not uniform.
+	 */
+	private NtreeNode< T > buildLeaves( final NtreeNode< T > node, final long[] min, final Function< long[], T > values )
+	{
+		final long[] pos = new long[ n ];
+		T uniform = null;
+		NtreeNode< T >[] children = null;
+		for ( int i = 0; i < numChildren; ++i )
+		{
+			boolean inside = true;
+			for ( int d = 0; d < n; ++d )
+			{
+				pos[ d ] = ( ( i & ( 1 << d ) ) == 0 ) ? min[ d ] : min[ d ] + 1;
+				inside &= pos[ d ] < dimensions[ d ];
+			}
+			if ( !inside )
+				continue;
+
+			final T value = values.apply( pos );
+			if ( uniform == null )
+				uniform = value;
+			else if ( children == null && uniform.compareTo( value ) != 0 )
+			{
+				children = newNodeArray( numChildren );
+				for ( int j = 0; j < i; ++j )
+					children[ j ] = new NtreeNode<>( node, uniform );
+			}
+			if ( children != null )
+				children[ i ] = new NtreeNode<>( node, value );
+		}
+		node.setValue( uniform );
+		node.children = children;
+		return node;
+	}
+
+	/**
+	 * Create an empty array of nodes (generic arrays cannot be created
+	 * directly).
+	 */
+	@SuppressWarnings( "unchecked" )
+	private static < T > NtreeNode< T >[] newNodeArray( final int length )
+	{
+		return ( NtreeNode< T >[] ) new NtreeNode< ? >[ length ];
+	}
+
+	/**
+	 * If all non-{@code null} children are leaves of the same value, return
+	 * that value. Otherwise return {@code null}.
+	 */
+	private T uniformValue( final NtreeNode< T >[] children )
+	{
+		T value = null;
+		for ( final NtreeNode< T > child : children )
+		{
+			if ( child == null )
+				continue;
+			if ( child.hasChildren() )
+				return null;
+			if ( value == null )
+				value = child.getValue();
+			else if ( value.compareTo( child.getValue() ) != 0 )
+				return null;
+		}
+		return value;
+	}
+
 	/**
 	 * Returns the root node of the ntree
 	 * 
@@ -82,6 +82,29 @@ public final class NtreeImg< T extends NativeType< T >, A extends NtreeAccess< ?
 		return data.createInstance( ( ( PositionProvider ) updater ).getPosition() );
 	}
 
+	/**
+	 * Merge all uniform nodes of the underlying {@link Ntree} in a single
+	 * pass.
+	 *
+	 * @see Ntree#merge()
+	 */
+	public void merge()
+	{
+		data.getCurrentStorageNtree().merge();
+	}
+
+	/**
+	 * Set whether nodes of the underlying {@link Ntree} are merged after every
+	 * write. When writing many pixels, disable automatic merging and call
+	 * {@link #merge()} afterwards.
+	 *
+	 * @see Ntree#setAutoMerge(boolean)
+	 */
+	public void setAutoMerge( final boolean autoMerge )
+	{
+		data.getCurrentStorageNtree().setAutoMerge( autoMerge );
+	}
+
 	@Override
 	public NtreeRandomAccess< T > randomAccess()
 	{
@@ -100,6 +123,15 @@ public final class NtreeImg< T extends NativeType< T >, A extends NtreeAccess< ?
 		return cursor();
 	}
 
+	/**
+	 * Get a cursor over the uniform leaves of the underlying {@link Ntree}.
+	 * Each leaf is reported once, as an interval plus value.
+	 */
+	public NtreeLeafCursor< T > leafCursor()
+	{
+		return new NtreeLeafCursor<>( this );
+	}
+
 	@Override
 	public ImgFactory< T > factory()
 	{
@@ -0,0 +1,250 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.sparse;
+
+import net.imglib2.AbstractInterval;
+import net.imglib2.Interval;
+import net.imglib2.Sampler;
+import net.imglib2.img.sparse.Ntree.NtreeNode;
+import net.imglib2.img.sparse.NtreeImg.PositionProvider;
+import net.imglib2.type.NativeType;
+import net.imglib2.util.Intervals;
+
+/**
+ * Iterates the leaves of the {@link Ntree} underlying an {@link NtreeImg}.
+ * Every leaf is a hypercube of uniform value. After {@link #fwd()}, the cursor
+ * is the {@link Interval} of the current leaf (clipped to the image) and
+ * {@link #get()} returns its value. This allows to process a uniform region
+ * in O(1) instead of O(volume), for example
+ *
+ * <pre>
+ * {@code
+ * final NtreeLeafCursor< IntType > leaves = img.leafCursor();
+ * while ( leaves.hasNext() )
+ * {
+ * 	leaves.fwd();
+ * 	histogram[ leaves.get().get() ] += Intervals.numElements( leaves );
+ * }
+ * }
+ * </pre>
+ *
+ * {@link #get()} is meant for reading. Writing to it changes only the pixel
+ * at the min of the current leaf. The image must not be modified while
+ * iterating its leaves.
+ *
+ * @param <T>
+ */
+public final class NtreeLeafCursor< T extends NativeType< T > > extends AbstractInterval implements Sampler< T >, PositionProvider
+{
+	private final NtreeImg< T, ? > img;
+
+	private final Ntree< ? > tree;
+
+	private final T type;
+
+	/**
+	 * Level of the root node. A node at level {@code l} covers
+	 * {@code 2^l} pixels in every dimension.
+	 */
+	private final int rootLevel;
+
+	/**
+	 * Traversal stack, indexed by level. The top of the stack is at
+	 * {@code level}.
+	 */
+	private final NtreeNode< ? >[] nodes;
+
+	private final long[][] nodeMins;
+
+	private final int[] nextChild;
+
+	private int level;
+
+	/**
+	 * Min of the current leaf. The linked type reads from this position.
+	 */
+	private final long[] position;
+
+	private NtreeNode< ? > nextLeaf;
+
+	private int nextLeafLevel;
+
+	private final long[] nextLeafMin;
+
+	public NtreeLeafCursor( final NtreeImg< T, ? > img )
+	{
+		super( img.numDimensions() );
+		this.img = img;
+		this.tree = img.data.getCurrentStorageNtree();
+		rootLevel = tree.numTreeLevels - 1;
+		nodes = new NtreeNode< ? >[ rootLevel + 1 ];
+		nodeMins = new long[ rootLevel + 1 ][ n ];
+		nextChild = new int[ rootLevel + 1 ];
+		position = new long[ n ];
+		nextLeafMin = new long[ n ];
+		type = img.createLinkedType();
+		type.updateContainer( this );
+		reset();
+	}
+
+	private NtreeLeafCursor( final NtreeLeafCursor< T > cursor )
+	{
+		super( cursor );
+		img = cursor.img;
+		tree = cursor.tree;
+		rootLevel = cursor.rootLevel;
+		nodes = cursor.nodes.clone();
+		nodeMins = new long[ rootLevel + 1 ][];
+		for ( int l = 0; l <= rootLevel; ++l )
+			nodeMins[ l ] = cursor.nodeMins[ l ].clone();
+		nextChild = cursor.nextChild.clone();
+		level = cursor.level;
+		position = cursor.position.clone();
+		nextLeaf = cursor.nextLeaf;
+		nextLeafLevel = cursor.nextLeafLevel;
+		nextLeafMin = cursor.nextLeafMin.clone();
+		type = img.createLinkedType();
+		type.updateContainer( this );
+	}
+
+	@Override
+	public long[] getPosition()
+	{
+		return position;
+	}
+
+	/**
+	 * Get the value of the current leaf.
+	 */
+	@Override
+	public T get()
+	{
+		return type;
+	}
+
+	public boolean hasNext()
+	{
+		return nextLeaf != null;
+	}
+
+	/**
+	 * Move to the next leaf.
+	 */
+	public void fwd()
+	{
+		final long size = 1L << nextLeafLevel;
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = nextLeafMin[ d ];
+			max[ d ] = Math.min( nextLeafMin[ d ] + size, tree.dimensions[ d ] ) - 1;
+			position[ d ] = nextLeafMin[ d ];
+		}
+		advance();
+	}
+
+	/**
+	 * Get the number of pixels in the current leaf.
+	 */
+	public long size()
+	{
+		return Intervals.numElements( this );
+	}
+
+	public void reset()
+	{
+		level = rootLevel;
+		nodes[ level ] = tree.getRootNode();
+		nextChild[ level ] = 0;
+		for ( int d = 0; d < n; ++d )
+		{
+			nodeMins[ level ][ d ] = 0;
+			min[ d ] = 0;
+			max[ d ] = -1;
+			position[ d ] = 0;
+		}
+		advance();
+	}
+
+	/**
+	 * Find the next leaf that intersects the image, and store it in
+	 * {@code nextLeaf}.
+	 */
+	private void advance()
+	{
+		while ( level <= rootLevel )
+		{
+			final NtreeNode< ? > node = nodes[ level ];
+			final NtreeNode< ? >[] children = node.getChildren();
+			if ( children == null )
+			{
+				nextLeaf = node;
+				nextLeafLevel = level;
+				System.arraycopy( nodeMins[ level ], 0, nextLeafMin, 0, n );
+				++level;
+				return;
+			}
+
+			final int c = nextChild[ level ]++;
+			if ( c == children.length )
+			{
+				++level;
+				continue;
+			}
+
+			final long[] parentMin = nodeMins[ level ];
+			final long[] childMin = nodeMins[ level - 1 ];
+			final long halfSize = 1L << ( level - 1 );
+			boolean inside = true;
+			for ( int d = 0; d < n; ++d )
+			{
+				childMin[ d ] = ( ( c & ( 1 << d ) ) == 0 ) ? parentMin[ d ] : parentMin[ d ] + halfSize;
+				inside &= childMin[ d ] < tree.dimensions[ d ];
+			}
+			if ( inside )
+			{
+				--level;
+				nodes[ level ] = children[ c ];
+				nextChild[ level ] = 0;
+			}
+		}
+		nextLeaf = null;
+	}
+
+	@Override
+	public NtreeLeafCursor< T > copy()
+	{
+		return new NtreeLeafCursor<>( this );
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.loops;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.type.NativeType;
+
+/**
+ * Helper for the implementation of {@link LoopBuilder}. An
+ * {@link IndexSampler} that iterates over the pixels of one {@link Cell} of
+ * an {@link AbstractCellImg} at a time, by accessing the cell's data
+ * directly.
+ */
+class CellSampler< T extends NativeType< T > > extends IndexSampler< T > implements AbstractCellImg.CellImgSampler< Cell< ? > >
+{
+
+	private final RandomAccess< ? extends Cell< ? > > cells;
+
+	private Cell< ? > cell;
+
+	CellSampler( final AbstractCellImg< T, ?, ?, ? > img )
+	{
+		super( img.createLinkedType() );
+		this.cells = img.getCells().randomAccess();
+	}
+
+	private CellSampler( final CellSampler< T > sampler )
+	{
+		super( sampler.type.duplicateTypeOnSameNativeImg() );
+		cells = sampler.cells.copyRandomAccess();
+		cell = sampler.cell;
+		if ( cell != null )
+		{
+			type.updateContainer( this );
+			type.updateIndex( sampler.type.getIndex() );
+		}
+	}
+
+	/**
+	 * Move to the first pixel of the cell at the given grid position.
+	 */
+	public void setCell( final long[] cellGridPosition )
+	{
+		cells.setPosition( cellGridPosition );
+		cell = cells.get();
+		type.updateContainer( this );
+		type.updateIndex( 0 );
+	}
+
+	@Override
+	public CellSampler< T > copy()
+	{
+		return new CellSampler<>( this );
+	}
+
+	@Override
+	public Cell< ? > getCell()
+	{
+		return cell;
+	}
+}
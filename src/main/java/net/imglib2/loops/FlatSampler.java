@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.loops;
+
+import net.imglib2.img.AbstractNativeImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.NativeType;
+
+/**
+ * Helper for the implementation of {@link LoopBuilder}. An
+ * {@link IndexSampler} that iterates over the pixels of an {@link ArrayImg},
+ * or of one plane of a {@link PlanarImg} at a time, by accessing the
+ * underlying arrays directly.
+ */
+class FlatSampler< T extends NativeType< T > > extends IndexSampler< T > implements PlanarImg.PlanarContainerSampler
+{
+
+	private int slice = 0;
+
+	FlatSampler( final AbstractNativeImg< T, ? > img )
+	{
+		super( img.createLinkedType() );
+	}
+
+	private FlatSampler( final FlatSampler< T > sampler )
+	{
+		super( sampler.type.duplicateTypeOnSameNativeImg() );
+		slice = sampler.slice;
+		type.updateContainer( this );
+		type.updateIndex( sampler.type.getIndex() );
+	}
+
+	/**
+	 * Move to the pixel with the given index in the given slice. For an
+	 * {@link ArrayImg} the slice is always zero.
+	 */
+	public void moveTo( final int slice, final int index )
+	{
+		this.slice = slice;
+		type.updateContainer( this );
+		type.updateIndex( index );
+	}
+
+	@Override
+	public FlatSampler< T > copy()
+	{
+		return new FlatSampler<>( this );
+	}
+
+	@Override
+	public int getCurrentSliceIndex()
+	{
+		return slice;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.loops;
+
+import net.imglib2.Localizable;
+import net.imglib2.Positionable;
+import net.imglib2.Sampler;
+import net.imglib2.type.NativeType;
+
+/**
+ * Helper for the implementation of {@link LoopBuilder}. A {@link Sampler} on
+ * a {@link NativeType} that is moved by changing the index of the type
+ * directly. It is a one dimensional {@link Positionable}: a call to
+ * {@code fwd(d)} increments the index of the type, regardless of {@code d}.
+ * This allows to use {@link SyncedPositionables} and {@link LoopUtils} to
+ * iterate over the flat arrays that store the pixels of an image.
+ * <p>
+ * Subclasses are responsible to call {@link NativeType#updateContainer} for
+ * the linked type. A {@link #copy()} should link a
+ * {@link NativeType#duplicateTypeOnSameNativeImg() duplicate} of the type to
+ * the same container and index.
+ * </p>
+ */
+abstract class IndexSampler< T extends NativeType< T > > implements Sampler< T >, Positionable
+{
+
+	protected final T type;
+
+	protected IndexSampler( final T type )
+	{
+		this.type = type;
+	}
+
+	@Override
+	public T get()
+	{
+		return type;
+	}
+
+	@Override
+	public abstract IndexSampler< T > copy();
+
+	@Override
+	public int numDimensions()
+	{
+		return 1;
+	}
+
+	@Override
+	public void fwd( final int d )
+	{
+		type.incIndex();
+	}
+
+	@Override
+	public void bck( final int d )
+	{
+		type.decIndex();
+	}
+
+	@Override
+	public void move( final int distance, final int d )
+	{
+		type.incIndex( distance );
+	}
+
+	@Override
+	public void move( final long distance, final int d )
+	{
+		type.incIndex( ( int ) distance );
+	}
+
+	@Override
+	public void move( final Localizable distance )
+	{
+		move( distance.getLongPosition( 0 ), 0 );
+	}
+
+	@Override
+	public void move( final int[] distance )
+	{
+		move( distance[ 0 ], 0 );
+	}
+
+	@Override
+	public void move( final long[] distance )
+	{
+		move( distance[ 0 ], 0 );
+	}
+
+	@Override
+	public void setPosition( final Localizable position )
+	{
+		setPosition( position.getLongPosition( 0 ), 0 );
+	}
+
+	@Override
+	public void setPosition( final int[] position )
+	{
+		setPosition( position[ 0 ], 0 );
+	}
+
+	@Override
+	public void setPosition( final long[] position )
+	{
+		setPosition( position[ 0 ], 0 );
+	}
+
+	@Override
+	public void setPosition( final int position, final int d )
+	{
+		type.updateIndex( position );
+	}
+
+	@Override
+	public void setPosition( final long position, final int d )
+	{
+		type.updateIndex( ( int ) position );
+	}
+}
@@ -33,11 +33,20 @@
  */
 package net.imglib2.loops;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -48,6 +57,13 @@ import net.imglib2.Positionable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.Sampler;
+import net.imglib2.img.AbstractNativeImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.NativeType;
 import net.imglib2.util.Intervals;
 
 /**
@@ -72,6 +88,35 @@ import net.imglib2.util.Intervals;
  * The {@link RandomAccessibleInterval}s {@code imageA}, {@code imageB} and
  * {@code sum} must have equal dimensions, but the bounds of there
  * {@link Intervals} can differ.
+ * <p>
+ * The loop can be executed in parallel by calling {@link #multiThreaded()}
+ * before {@link #forEachPixel}:
+ *
+ * <pre>
+ * {@code
+ * LoopBuilder.setImages(imageA, imageB, sum).multiThreaded().forEachPixel(
+ *     (a, b, s) -> {
+ *          s.setReal(a.getRealDouble() + b.getRealDouble());
+ *     }
+ * );
+ * }
+ * </pre>
+ *
+ * The interval is then split into slabs along the last dimension, and every
+ * slab is processed by a separate task, using its own {@link RandomAccess}es.
+ * The action must therefore be safe to be called concurrently for different
+ * pixels.
+ * <p>
+ * If all images are {@link AbstractCellImg}s with equal {@link CellGrid}s, the
+ * loop iterates cell by cell, directly over the data of each {@link Cell}.
+ * In this case, the cells are distributed among the tasks, such that each
+ * task processes one or more whole cells.
+ * </p>
+ * <p>
+ * Similarly, if all images are {@link ArrayImg}s, or all images are
+ * {@link PlanarImg}s, the loop directly increments the index of the pixel
+ * types, instead of moving {@link RandomAccess}es.
+ * </p>
  *
  * @author Matthias Arzt
  */
@@ -82,6 +127,10 @@ public class LoopBuilder< T >
 
 	private final RandomAccessibleInterval< ? >[] images;
 
+	private ExecutorService executorService = null;
+
+	private int numberOfTasks = 1;
+
 	private LoopBuilder( final RandomAccessibleInterval< ? >... images )
 	{
 		this.images = images;
@@ -127,18 +176,284 @@ public class LoopBuilder< T >
 		return new LoopBuilder<>( a, b, c, d, e, f );
 	}
 
+	/**
+	 * Execute the loop in parallel, using the {@link ForkJoinPool#commonPool()}.
+	 * The interval is split into one task per available processor.
+	 */
+	public LoopBuilder< T > multiThreaded()
+	{
+		return multiThreaded( ForkJoinPool.commonPool() );
+	}
+
+	/**
+	 * Execute the loop in parallel, using the given {@link ExecutorService}.
+	 * The interval is split into one task per available processor.
+	 */
+	public LoopBuilder< T > multiThreaded( final ExecutorService executorService )
+	{
+		return multiThreaded( executorService, Runtime.getRuntime().availableProcessors() );
+	}
+
+	/**
+	 * Execute the loop in parallel, using the given {@link ExecutorService}.
+	 *
+	 * @param executorService
+	 *            {@link ExecutorService} that executes the tasks.
+	 * @param numberOfTasks
+	 *            Maximum number of tasks the interval is split into. The
+	 *            number of tasks is limited by the size of the last
+	 *            dimension.
+	 */
+	public LoopBuilder< T > multiThreaded( final ExecutorService executorService, final int numberOfTasks )
+	{
+		if ( numberOfTasks < 1 )
+			throw new IllegalArgumentException( "Number of tasks must be positive." );
+		this.executorService = Objects.requireNonNull( executorService );
+		this.numberOfTasks = numberOfTasks;
+		return this;
+	}
+
 	public void forEachPixel( final T action )
 	{
 		Objects.requireNonNull( action );
-		final List< RandomAccess< ? > > samplers = Stream.of( images ).map( this::initRandomAccess ).collect( Collectors.toList() );
+		final List< Callable< Void > > callables = new ArrayList<>();
+		for ( final Consumer< T > task : createTasks() )
+			callables.add( () -> {
+				task.accept( action );
+				return null;
+			} );
+		run( callables );
+	}
+
+	/**
+	 * Calculates a reduction over all pixels, for example the sum, the
+	 * minimum or the maximum of an image:
+	 *
+	 * <pre>
+	 * {@code
+	 * double sum = LoopBuilder.setImages( image ).multiThreaded().reduce(
+	 *     DoubleType::new,
+	 *     accumulator -> pixel -> accumulator.set( accumulator.get() + pixel.getRealDouble() ),
+	 *     ( a, b ) -> { a.add( b ); return a; }
+	 * ).get();
+	 * }
+	 * </pre>
+	 *
+	 * Every task creates its own accumulator, and binds it to an action. The
+	 * action is executed for the pixels processed by the task, and updates the
+	 * accumulator. Finally the accumulators of all tasks are combined, in the
+	 * order of the tasks. The result is therefore deterministic, if the
+	 * combiner is associative.
+	 *
+	 * @param accumulatorSupplier
+	 *            Creates a new, empty accumulator, called once per task.
+	 * @param action
+	 *            Returns the action that updates the given accumulator for
+	 *            each pixel.
+	 * @param combiner
+	 *            Combines two accumulators. It may modify and return its first
+	 *            argument.
+	 * @return The combined accumulator.
+	 */
+	public < R > R reduce( final Supplier< R > accumulatorSupplier, final Function< R, T > action, final BinaryOperator< R > combiner )
+	{
+		Objects.requireNonNull( accumulatorSupplier );
+		Objects.requireNonNull( action );
+		Objects.requireNonNull( combiner );
+		final List< Callable< R > > callables = new ArrayList<>();
+		for ( final Consumer< T > task : createTasks() )
+			callables.add( () -> {
+				final R accumulator = accumulatorSupplier.get();
+				task.accept( action.apply( accumulator ) );
+				return accumulator;
+			} );
+		return run( callables ).stream().reduce( combiner ).orElseGet( accumulatorSupplier );
+	}
+
+	/**
+	 * Returns a list of tasks, each task executes a given action for a part
+	 * of the pixels. Together the tasks cover all pixels exactly once.
+	 */
+	private List< Consumer< T > > createTasks()
+	{
+		if ( haveEqualCellGrids() )
+			return cellTasks();
+		if ( allInstancesOf( ArrayImg.class ) )
+			return flatTasks( Intervals.numElements( dimensions ) );
+		if ( allInstancesOf( PlanarImg.class ) )
+			return flatTasks( Intervals.numElements( dimensions ) / ( ( PlanarImg< ?, ? > ) images[ 0 ] ).numSlices() );
+		return slabTasks();
+	}
+
+	private List< Consumer< T > > slabTasks()
+	{
+		return LoopUtils.splitIntoSlabs( dimensions, numberOfTasks ).stream()
+				.map( chunk -> ( Consumer< T > ) action -> runOnChunk( action, chunk ) )
+				.collect( Collectors.toList() );
+	}
+
+	private boolean allInstancesOf( final Class< ? > clazz )
+	{
+		for ( final RandomAccessibleInterval< ? > image : images )
+			if ( !clazz.isInstance( image ) )
+				return false;
+		return true;
+	}
+
+	/**
+	 * Splits the flat index range of the images into tasks. The images are
+	 * expected to store their pixels in flat iteration order, in planes of
+	 * the given size.
+	 */
+	private List< Consumer< T > > flatTasks( final long planeSize )
+	{
+		final long numPixels = Intervals.numElements( dimensions );
+		final long count = Math.min( numPixels, numberOfTasks );
+		final List< Consumer< T > > tasks = new ArrayList<>();
+		for ( long i = 0; i < count; i++ )
+		{
+			final long start = alignFlatIndex( i * numPixels / count, planeSize );
+			final long end = ( i + 1 == count ) ? numPixels : alignFlatIndex( ( i + 1 ) * numPixels / count, planeSize );
+			tasks.add( action -> runOnFlatRange( action, planeSize, start, end ) );
+		}
+		return tasks;
+	}
+
+	/**
+	 * Rounds the position within the plane down to a multiple of 64. This
+	 * ensures that two tasks never write to the same array element, even for
+	 * types that pack multiple pixels into one element, like {@code BitType}.
+	 */
+	private static long alignFlatIndex( final long position, final long planeSize )
+	{
+		final long planeStart = position / planeSize * planeSize;
+		return planeStart + ( position - planeStart ) / 64 * 64;
+	}
+
+	private void runOnFlatRange( final T action, final long planeSize, final long start, final long end )
+	{
+		final List< FlatSampler< ? > > samplers = Stream.of( images )
+				.map( image -> createFlatSampler( ( AbstractNativeImg< ?, ? > ) image ) )
+				.collect( Collectors.toList() );
+		final Positionable synced = SyncedPositionables.create( samplers );
+		final Runnable runnable = RunnableFactory.bindActionToSamplers( action, samplers );
+		long position = start;
+		while ( position < end )
+		{
+			final int slice = ( int ) ( position / planeSize );
+			final int index = ( int ) ( position - slice * planeSize );
+			final long length = Math.min( end - position, planeSize - index );
+			for ( final FlatSampler< ? > sampler : samplers )
+				sampler.moveTo( slice, index );
+			LoopUtils.createLineLoop( synced, length, 0, runnable ).run();
+			position += length;
+		}
+	}
+
+	private static < A extends NativeType< A > > FlatSampler< A > createFlatSampler( final AbstractNativeImg< A, ? > img )
+	{
+		return new FlatSampler<>( img );
+	}
+
+	private boolean haveEqualCellGrids()
+	{
+		if ( !( images[ 0 ] instanceof AbstractCellImg ) )
+			return false;
+		final CellGrid grid = ( ( AbstractCellImg< ?, ?, ?, ? > ) images[ 0 ] ).getCellGrid();
+		for ( final RandomAccessibleInterval< ? > image : images )
+			if ( !( image instanceof AbstractCellImg ) || !grid.equals( ( ( AbstractCellImg< ?, ?, ?, ? > ) image ).getCellGrid() ) )
+				return false;
+		return true;
+	}
+
+	private List< Consumer< T > > cellTasks()
+	{
+		final CellGrid grid = ( ( AbstractCellImg< ?, ?, ?, ? > ) images[ 0 ] ).getCellGrid();
+		final long numCells = Intervals.numElements( grid.getGridDimensions() );
+		final long count = Math.max( 1, Math.min( numCells, numberOfTasks ) );
+		final List< Consumer< T > > tasks = new ArrayList<>();
+		for ( long i = 0; i < count; i++ )
+		{
+			final long firstCell = i * numCells / count;
+			final long endCell = ( i + 1 ) * numCells / count;
+			tasks.add( action -> runOnCells( action, grid, firstCell, endCell ) );
+		}
+		return tasks;
+	}
+
+	private void runOnCells( final T action, final CellGrid grid, final long firstCell, final long endCell )
+	{
+		final List< CellSampler< ? > > samplers = Stream.of( images )
+				.map( image -> createCellSampler( ( AbstractCellImg< ?, ?, ?, ? > ) image ) )
+				.collect( Collectors.toList() );
+		final Positionable synced = SyncedPositionables.create( samplers );
+		final Runnable runnable = RunnableFactory.bindActionToSamplers( action, samplers );
+		final long[] cellGridPosition = new long[ grid.numDimensions() ];
+		for ( long i = firstCell; i < endCell; i++ )
+		{
+			grid.getCellGridPositionFlat( i, cellGridPosition );
+			for ( final CellSampler< ? > sampler : samplers )
+				sampler.setCell( cellGridPosition );
+			LoopUtils.createLineLoop( synced, samplers.get( 0 ).getCell().size(), 0, runnable ).run();
+		}
+	}
+
+	private static < A extends NativeType< A > > CellSampler< A > createCellSampler( final AbstractCellImg< A, ?, ?, ? > img )
+	{
+		return new CellSampler<>( img );
+	}
+
+	private < R > List< R > run( final List< Callable< R > > callables )
+	{
+		try
+		{
+			final List< R > results = new ArrayList<>( callables.size() );
+			if ( executorService == null || callables.size() <= 1 )
+				for ( final Callable< R > callable : callables )
+					results.add( callable.call() );
+			else
+				for ( final Future< R > future : executorService.invokeAll( callables ) )
+					results.add( future.get() );
+			return results;
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch ( final ExecutionException e )
+		{
+			throw rethrow( e.getCause() );
+		}
+		catch ( final Exception e )
+		{
+			throw rethrow( e );
+		}
+	}
+
+	private static RuntimeException rethrow( final Throwable throwable )
+	{
+		if ( throwable instanceof RuntimeException )
+			throw ( RuntimeException ) throwable;
+		if ( throwable instanceof Error )
+			throw ( Error ) throwable;
+		throw new RuntimeException( throwable );
+	}
+
+	private void runOnChunk( final T action, final Interval chunk )
+	{
+		final List< RandomAccess< ? > > samplers = Stream.of( images ).map( image -> initRandomAccess( image, chunk ) ).collect( Collectors.toList() );
 		final Positionable synced = SyncedPositionables.create( samplers );
-		LoopUtils.createIntervalLoop( synced, dimensions, RunnableFactory.bindActionToSamplers( action, samplers ) ).run();
+		LoopUtils.createIntervalLoop( synced, chunk, RunnableFactory.bindActionToSamplers( action, samplers ) ).run();
 	}
 
-	private RandomAccess< ? > initRandomAccess( final RandomAccessibleInterval< ? > image )
+	private RandomAccess< ? > initRandomAccess( final RandomAccessibleInterval< ? > image, final Interval chunk )
 	{
 		final RandomAccess< ? > ra = image.randomAccess();
-		ra.setPosition( Intervals.minAsLongArray( image ) );
+		final long[] position = Intervals.minAsLongArray( image );
+		for ( int d = 0; d < position.length; d++ )
+			position[ d ] += chunk.min( d );
+		ra.setPosition( position );
 		return ra;
 	}
 
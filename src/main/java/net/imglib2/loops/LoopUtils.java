@@ -33,11 +33,15 @@
  */
 package net.imglib2.loops;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import net.imglib2.Dimensions;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.Positionable;
+import net.imglib2.util.Intervals;
 
 /**
  * {@link LoopUtils} contains methods to simplify writing a loop over an image
@@ -120,6 +124,45 @@ final public class LoopUtils
 		return action;
 	}
 
+	/**
+	 * Splits an interval with the given dimensions and minimum zero into
+	 * slabs along the last dimension. The slabs are disjoint, cover the
+	 * entire interval and are ordered by their position.
+	 *
+	 * @param dimensions
+	 *            Dimensions of the interval to be split.
+	 * @param numberOfSlabs
+	 *            Maximum number of slabs. Fewer slabs are returned if the
+	 *            last dimension is smaller.
+	 * @return List of slabs, each has the same size as the given dimensions,
+	 *         except for the last dimension.
+	 */
+	public static List< Interval > splitIntoSlabs( final Dimensions dimensions, final int numberOfSlabs )
+	{
+		final int n = dimensions.numDimensions();
+		final long[] max = new long[ n ];
+		for ( int d = 0; d < n; d++ )
+			max[ d ] = dimensions.dimension( d ) - 1;
+		final Interval interval = new FinalInterval( new long[ n ], max );
+		final List< Interval > slabs = new ArrayList<>();
+		if ( n == 0 || Intervals.numElements( dimensions ) <= 0 || numberOfSlabs <= 1 )
+		{
+			slabs.add( interval );
+			return slabs;
+		}
+		final long size = dimensions.dimension( n - 1 );
+		final long count = Math.min( size, numberOfSlabs );
+		final long[] slabMin = new long[ n ];
+		final long[] slabMax = max.clone();
+		for ( long i = 0; i < count; i++ )
+		{
+			slabMin[ n - 1 ] = i * size / count;
+			slabMax[ n - 1 ] = ( i + 1 ) * size / count - 1;
+			slabs.add( new FinalInterval( slabMin, slabMax ) );
+		}
+		return slabs;
+	}
+
 	public static class LineProcessor implements Runnable
 	{
 
@@ -34,8 +34,6 @@
 
 package net.imglib2.transform.integer;
 
-import net.imglib2.transform.Transform;
-
 /**
  * Mixed transform allows to express common integer view transformations such as
  * translation, rotation, rotoinversion, and projection.
@@ -52,10 +50,14 @@ import net.imglib2.transform.Transform;
  * <li>project up (add zero components in the target vector)</li>
  * <li>translation</li>
  * </ol>
+ * <p>
+ * A mixed transform is a {@link Strided} transform with all strides equal to
+ * 1.
+ * </p>
  *
  * @author Tobias Pietzsch
  */
-public interface Mixed extends Transform, BoundingBoxTransform
+public interface Mixed extends Strided
 {
 	/**
 	 * Get the translation. Translation is added to the target vector after
@@ -147,6 +149,34 @@ public interface Mixed extends Transform, BoundingBoxTransform
 	 */
 	public boolean getComponentInversion( final int d );
 
+	/**
+	 * Get the stride for each target component. Mixed transforms have unit
+	 * stride in every component.
+	 *
+	 * @param stride
+	 *            array of size at least the target dimension to store the
+	 *            result.
+	 */
+	@Override
+	default void getStride( final long[] stride )
+	{
+		assert stride.length >= numTargetDimensions();
+		for ( int d = 0; d < numTargetDimensions(); ++d )
+			stride[ d ] = 1;
+	}
+
+	/**
+	 * Get the d-th component of stride vector, which is always 1 for mixed
+	 * transforms.
+	 *
+	 * @param d
+	 */
+	@Override
+	default long getStride( final int d )
+	{
+		return 1;
+	}
+
 	/**
 	 * Get the matrix that transforms homogeneous source points to homogeneous
 	 * target points. For testing purposes.
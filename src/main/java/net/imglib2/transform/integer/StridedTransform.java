@@ -0,0 +1,511 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.transform.integer;
+
+import net.imglib2.Localizable;
+import net.imglib2.Positionable;
+import net.imglib2.concatenate.Concatenable;
+import net.imglib2.concatenate.PreConcatenable;
+
+/**
+ * Strided transform maps a n-dimensional source vector to a m-dimensional
+ * target vector like a {@link MixedTransform}, but additionally multiplies each
+ * source component by an integer stride. This expresses sub-sampling, and can
+ * be concatenated with {@link Mixed} transforms (translation, slicing,
+ * rotation, ...) into a single transform.
+ *
+ * <p>
+ * <em>target[d] = translation[d] &plusmn; stride[d] &middot;
+ * source[component[d]]</em>
+ * </p>
+ */
+public class StridedTransform implements Strided, Concatenable< Strided >, PreConcatenable< Strided >
+{
+	/**
+	 * dimension of source vector.
+	 */
+	protected final int numSourceDimensions;
+
+	/**
+	 * dimension of target vector.
+	 */
+	protected final int numTargetDimensions;
+
+	/**
+	 * target = stride * source + translation.
+	 */
+	protected final long[] translation;
+
+	/**
+	 * for each component of the target vector: should the value be taken from
+	 * a source vector component (false) or should it be zero (true).
+	 */
+	protected final boolean[] zero;
+
+	/**
+	 * for each component of the target vector: should the source vector
+	 * component be inverted (true).
+	 */
+	protected final boolean[] invert;
+
+	/**
+	 * for each component of the target vector: by which (positive) stride
+	 * should the source vector component be multiplied.
+	 */
+	protected final long[] stride;
+
+	/**
+	 * for each component of the target vector: from which source vector
+	 * component should it be taken.
+	 */
+	protected final int[] component;
+
+	public StridedTransform( final int sourceDim, final int targetDim )
+	{
+		this.numSourceDimensions = sourceDim;
+		this.numTargetDimensions = targetDim;
+		translation = new long[ targetDim ];
+		zero = new boolean[ targetDim ];
+		invert = new boolean[ targetDim ];
+		stride = new long[ targetDim ];
+		component = new int[ targetDim ];
+		for ( int d = 0; d < targetDim; ++d )
+		{
+			stride[ d ] = 1;
+			if ( d < sourceDim )
+			{
+				component[ d ] = d;
+			}
+			else
+			{
+				component[ d ] = 0;
+				zero[ d ] = true;
+			}
+		}
+	}
+
+	@Override
+	public int numSourceDimensions()
+	{
+		return numSourceDimensions;
+	}
+
+	@Override
+	public int numTargetDimensions()
+	{
+		return numTargetDimensions;
+	}
+
+	@Override
+	public void getTranslation( final long[] t )
+	{
+		assert t.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			t[ d ] = translation[ d ];
+	}
+
+	@Override
+	public long getTranslation( final int d )
+	{
+		assert d <= numTargetDimensions;
+		return translation[ d ];
+	}
+
+	public void setTranslation( final long[] t )
+	{
+		assert t.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			translation[ d ] = t[ d ];
+	}
+
+	@Override
+	public void getComponentZero( final boolean[] zero )
+	{
+		assert zero.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			zero[ d ] = this.zero[ d ];
+	}
+
+	@Override
+	public boolean getComponentZero( final int d )
+	{
+		assert d <= numTargetDimensions;
+		return zero[ d ];
+	}
+
+	/**
+	 * Set which target dimensions are _not_ taken from source dimensions (see
+	 * {@link MixedTransform#setComponentZero(boolean[])}).
+	 */
+	public void setComponentZero( final boolean[] zero )
+	{
+		assert zero.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			this.zero[ d ] = zero[ d ];
+	}
+
+	@Override
+	public void getComponentMapping( final int[] component )
+	{
+		assert component.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			component[ d ] = this.component[ d ];
+	}
+
+	@Override
+	public int getComponentMapping( final int d )
+	{
+		assert d <= numTargetDimensions;
+		return component[ d ];
+	}
+
+	/**
+	 * Set for each target dimensions from which source dimension it is taken
+	 * (see {@link MixedTransform#setComponentMapping(int[])}).
+	 */
+	public void setComponentMapping( final int[] component )
+	{
+		assert component.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			this.component[ d ] = component[ d ];
+	}
+
+	@Override
+	public void getComponentInversion( final boolean[] invert )
+	{
+		assert invert.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			invert[ d ] = this.invert[ d ];
+	}
+
+	@Override
+	public boolean getComponentInversion( final int d )
+	{
+		assert d <= numTargetDimensions;
+		return invert[ d ];
+	}
+
+	/**
+	 * Set for each target component, whether the source component it is taken
+	 * from should be inverted (see
+	 * {@link MixedTransform#setComponentInversion(boolean[])}).
+	 */
+	public void setComponentInversion( final boolean[] invert )
+	{
+		assert invert.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			this.invert[ d ] = invert[ d ];
+	}
+
+	@Override
+	public void getStride( final long[] stride )
+	{
+		assert stride.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			stride[ d ] = this.stride[ d ];
+	}
+
+	@Override
+	public long getStride( final int d )
+	{
+		assert d <= numTargetDimensions;
+		return stride[ d ];
+	}
+
+	/**
+	 * Set for each target component, by which stride the source component it
+	 * is taken from should be multiplied.
+	 *
+	 * @param stride
+	 *            positive strides for each component of the target vector.
+	 */
+	public void setStride( final long[] stride )
+	{
+		assert stride.length >= numTargetDimensions;
+		for ( int d = 0; d < numTargetDimensions; ++d )
+		{
+			if ( stride[ d ] <= 0 )
+				throw new IllegalArgumentException( "stride[ " + d + " ] <= 0" );
+			this.stride[ d ] = stride[ d ];
+		}
+	}
+
+	/**
+	 * set parameters to <code>transform</code>.
+	 *
+	 * @param transform
+	 */
+	public void set( final Strided transform )
+	{
+		assert numSourceDimensions == transform.numSourceDimensions();
+		assert numTargetDimensions == transform.numTargetDimensions();
+
+		transform.getTranslation( translation );
+		transform.getComponentZero( zero );
+		transform.getComponentMapping( component );
+		transform.getComponentInversion( invert );
+		transform.getStride( stride );
+	}
+
+	/**
+	 * Check whether all strides are 1, that is, whether this transform can be
+	 * represented by a {@link MixedTransform}.
+	 */
+	public boolean hasUnitStride()
+	{
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			if ( !zero[ d ] && stride[ d ] != 1 )
+				return false;
+		return true;
+	}
+
+	/**
+	 * Check whether the transforms has a full mapping of source to target
+	 * components (no source component is discarded).
+	 *
+	 * @return whether there is a full mapping of source to target components.
+	 */
+	public boolean hasFullSourceMapping()
+	{
+		final boolean[] sourceMapped = new boolean[ numSourceDimensions ];
+		for ( int d = 0; d < numTargetDimensions; ++d )
+			if ( !zero[ d ] )
+				sourceMapped[ component[ d ] ] = true;
+		for ( int d = 0; d < numSourceDimensions; ++d )
+			if ( !sourceMapped[ d ] )
+				return false;
+		return true;
+	}
+
+	@Override
+	public void apply( final long[] source, final long[] target )
+	{
+		assert source.length >= numSourceDimensions;
+		assert target.length >= numTargetDimensions;
+
+		for ( int d = 0; d < numTargetDimensions; ++d )
+		{
+			target[ d ] = translation[ d ];
+			if ( !zero[ d ] )
+			{
+				final long v = stride[ d ] * source[ component[ d ] ];
+				if ( invert[ d ] )
+					target[ d ] -= v;
+				else
+					target[ d ] += v;
+			}
+		}
+	}
+
+	@Override
+	public void apply( final int[] source, final int[] target )
+	{
+		assert source.length >= numSourceDimensions;
+		assert target.length >= numTargetDimensions;
+
+		for ( int d = 0; d < numTargetDimensions; ++d )
+		{
+			target[ d ] = ( int ) translation[ d ];
+			if ( !zero[ d ] )
+			{
+				final long v = stride[ d ] * source[ component[ d ] ];
+				if ( invert[ d ] )
+					target[ d ] -= v;
+				else
+					target[ d ] += v;
+			}
+		}
+	}
+
+	@Override
+	public void apply( final Localizable source, final Positionable target )
+	{
+		assert source.numDimensions() >= numSourceDimensions;
+		assert target.numDimensions() >= numTargetDimensions;
+
+		for ( int d = 0; d < numTargetDimensions; ++d )
+		{
+			long pos = translation[ d ];
+			if ( !zero[ d ] )
+			{
+				final long v = stride[ d ] * source.getLongPosition( component[ d ] );
+				if ( invert[ d ] )
+					pos -= v;
+				else
+					pos += v;
+			}
+			target.setPosition( pos, d );
+		}
+	}
+
+	@Override
+	public BoundingBox transform( final BoundingBox boundingBox )
+	{
+		assert boundingBox.numDimensions() == numSourceDimensions;
+
+		if ( numSourceDimensions == numTargetDimensions )
+		{ // apply in-place
+			final long[] tmp = new long[ numSourceDimensions ];
+			boundingBox.corner1( tmp );
+			apply( tmp, boundingBox.corner1 );
+			boundingBox.corner2( tmp );
+			apply( tmp, boundingBox.corner2 );
+			return boundingBox;
+		}
+		final BoundingBox b = new BoundingBox( numTargetDimensions );
+		apply( boundingBox.corner1, b.corner1 );
+		apply( boundingBox.corner2, b.corner2 );
+		return b;
+	}
+
+	@Override
+	public StridedTransform concatenate( final Strided t )
+	{
+		assert this.numSourceDimensions == t.numTargetDimensions();
+
+		final StridedTransform result = new StridedTransform( t.numSourceDimensions(), this.numTargetDimensions );
+
+		for ( int d = 0; d < result.numTargetDimensions; ++d )
+		{
+			result.translation[ d ] = this.translation[ d ];
+			if ( this.zero[ d ] )
+			{
+				result.zero[ d ] = true;
+				result.invert[ d ] = false;
+				result.component[ d ] = 0;
+			}
+			else
+			{
+				final int c = this.component[ d ];
+				final long v = this.stride[ d ] * t.getTranslation( c );
+				if ( this.invert[ d ] )
+					result.translation[ d ] -= v;
+				else
+					result.translation[ d ] += v;
+
+				if ( t.getComponentZero( c ) )
+				{
+					result.zero[ d ] = true;
+					result.invert[ d ] = false;
+					result.component[ d ] = 0;
+				}
+				else
+				{
+					result.zero[ d ] = false;
+					result.invert[ d ] = ( this.invert[ d ] != t.getComponentInversion( c ) );
+					result.stride[ d ] = this.stride[ d ] * t.getStride( c );
+					result.component[ d ] = t.getComponentMapping( c );
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Class< Strided > getConcatenableClass()
+	{
+		return Strided.class;
+	}
+
+	@Override
+	public StridedTransform preConcatenate( final Strided t )
+	{
+		assert t.numSourceDimensions() == this.numTargetDimensions;
+
+		final StridedTransform result = new StridedTransform( this.numSourceDimensions, t.numTargetDimensions() );
+
+		for ( int d = 0; d < result.numTargetDimensions; ++d )
+		{
+			result.translation[ d ] = t.getTranslation( d );
+			if ( t.getComponentZero( d ) )
+			{
+				result.zero[ d ] = true;
+				result.invert[ d ] = false;
+				result.component[ d ] = 0;
+			}
+			else
+			{
+				final int c = t.getComponentMapping( d );
+				final long v = t.getStride( d ) * this.translation[ c ];
+				if ( t.getComponentInversion( d ) )
+					result.translation[ d ] -= v;
+				else
+					result.translation[ d ] += v;
+
+				if ( this.zero[ c ] )
+				{
+					result.zero[ d ] = true;
+					result.invert[ d ] = false;
+					result.component[ d ] = 0;
+				}
+				else
+				{
+					result.zero[ d ] = false;
+					result.invert[ d ] = ( t.getComponentInversion( d ) != this.invert[ c ] );
+					result.stride[ d ] = t.getStride( d ) * this.stride[ c ];
+					result.component[ d ] = this.component[ c ];
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Class< Strided > getPreConcatenableClass()
+	{
+		return Strided.class;
+	}
+
+	/**
+	 * Get the matrix that transforms homogeneous source points to homogeneous
+	 * target points. For testing purposes.
+	 */
+	@Override
+	public double[][] getMatrix()
+	{
+		final double[][] mat = new double[ numTargetDimensions + 1 ][ numSourceDimensions + 1 ];
+
+		mat[ numTargetDimensions ][ numSourceDimensions ] = 1;
+
+		for ( int d = 0; d < numTargetDimensions; ++d )
+		{
+			mat[ d ][ numSourceDimensions ] = translation[ d ];
+			if ( !zero[ d ] )
+				mat[ d ][ component[ d ] ] = invert[ d ] ? -stride[ d ] : stride[ d ];
+		}
+
+		return mat;
+	}
+}
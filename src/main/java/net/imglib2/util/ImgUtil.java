@@ -34,20 +34,64 @@
 
 package net.imglib2.util;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.ObjIntConsumer;
+
 import net.imglib2.Cursor;
+import net.imglib2.Dirty;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteAccess;
+import net.imglib2.img.basictypeaccess.nio.BufferAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.loops.LoopBuilder;
+import net.imglib2.loops.LoopUtils;
 import net.imglib2.type.BooleanType;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.Type;
+import net.imglib2.type.logic.NativeBoolType;
 import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.BorderSplit;
+import net.imglib2.view.ExtendedRandomAccessibleInterval;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.Views;
 
 /**
  * This class contains static methods for copying image data to and from Img
  * instances. It was developed to support access to imglib from applications
  * that can't rely on JIT compilation and that access imglib via the JVM or
  * through JNI (specifically CellProfiler).
- * 
+ * <p>
+ * If the memory layout of source and destination match, data is transferred
+ * in blocks with {@link System#arraycopy}. This is the case for
+ * {@link ArrayImg}s and {@link PlanarImg}s of the same type and size (or a
+ * primitive array with flat strides and a matching pixel type), and for cell
+ * images with the same {@link CellGrid}. The variants taking an
+ * {@link ExecutorService} copy in parallel.
+ * </p>
  * 
  * @author Tobias Pietzsch
  * @author Stephan Preibisch
@@ -82,19 +126,22 @@ public class ImgUtil
 	 */
 	public static < T extends RealType< T >> void copy( final double[] src, final int offset, final int[] stride, final Img< T > dest )
 	{
-		final Cursor< T > c = dest.localizingCursor();
-		final int[] location = new int[ dest.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			t.setReal( src[ this_offset ] );
-		}
+		copy( src, offset, stride, dest, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(double[], int, int[], Img)}. If {@code dest} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link DoubleType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends RealType< T >> void copy( final double[] src, final int offset, final int[] stride, final Img< T > dest, final ExecutorService executorService )
+	{
+		if ( !blockCopy( src, offset, stride, dest, DoubleType.class, true, executorService ) )
+			copyStrided( dest, offset, stride, ( t, i ) -> t.setReal( src[ i ] ), executorService );
 	}
 
 	/**
@@ -102,19 +149,22 @@ public class ImgUtil
 	 */
 	public static < T extends RealType< T >> void copy( final float[] src, final int offset, final int[] stride, final Img< T > dest )
 	{
-		final Cursor< T > c = dest.localizingCursor();
-		final int[] location = new int[ dest.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			t.setReal( src[ this_offset ] );
-		}
+		copy( src, offset, stride, dest, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(float[], int, int[], Img)}. If {@code dest} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link FloatType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends RealType< T >> void copy( final float[] src, final int offset, final int[] stride, final Img< T > dest, final ExecutorService executorService )
+	{
+		if ( !blockCopy( src, offset, stride, dest, FloatType.class, true, executorService ) )
+			copyStrided( dest, offset, stride, ( t, i ) -> t.setReal( src[ i ] ), executorService );
 	}
 
 	/**
@@ -122,19 +172,22 @@ public class ImgUtil
 	 */
 	public static < T extends IntegerType< T >> void copy( final long[] src, final int offset, final int[] stride, final Img< T > dest )
 	{
-		final Cursor< T > c = dest.localizingCursor();
-		final int[] location = new int[ dest.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			t.setInteger( src[ this_offset ] );
-		}
+		copy( src, offset, stride, dest, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(long[], int, int[], Img)}. If {@code dest} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link LongType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends IntegerType< T >> void copy( final long[] src, final int offset, final int[] stride, final Img< T > dest, final ExecutorService executorService )
+	{
+		if ( !blockCopy( src, offset, stride, dest, LongType.class, true, executorService ) )
+			copyStrided( dest, offset, stride, ( t, i ) -> t.setInteger( src[ i ] ), executorService );
 	}
 
 	/**
@@ -142,19 +195,22 @@ public class ImgUtil
 	 */
 	public static < T extends IntegerType< T >> void copy( final int[] src, final int offset, final int[] stride, final Img< T > dest )
 	{
-		final Cursor< T > c = dest.localizingCursor();
-		final int[] location = new int[ dest.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			t.setInteger( src[ this_offset ] );
-		}
+		copy( src, offset, stride, dest, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(int[], int, int[], Img)}. If {@code dest} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link IntType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends IntegerType< T >> void copy( final int[] src, final int offset, final int[] stride, final Img< T > dest, final ExecutorService executorService )
+	{
+		if ( !blockCopy( src, offset, stride, dest, IntType.class, true, executorService ) )
+			copyStrided( dest, offset, stride, ( t, i ) -> t.setInteger( src[ i ] ), executorService );
 	}
 
 	/**
@@ -162,19 +218,22 @@ public class ImgUtil
 	 */
 	public static < T extends BooleanType< T >> void copy( final boolean[] src, final int offset, final int[] stride, final Img< T > dest )
 	{
-		final Cursor< T > c = dest.localizingCursor();
-		final int[] location = new int[ dest.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			t.set( src[ this_offset ] );
-		}
+		copy( src, offset, stride, dest, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(boolean[], int, int[], Img)}. If {@code dest} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link NativeBoolType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends BooleanType< T >> void copy( final boolean[] src, final int offset, final int[] stride, final Img< T > dest, final ExecutorService executorService )
+	{
+		if ( !blockCopy( src, offset, stride, dest, NativeBoolType.class, true, executorService ) )
+			copyStrided( dest, offset, stride, ( t, i ) -> t.set( src[ i ] ), executorService );
 	}
 
 	/**
@@ -196,19 +255,22 @@ public class ImgUtil
 	 */
 	public static < T extends RealType< T >> void copy( final Img< T > src, final double[] dest, final int offset, final int[] stride )
 	{
-		final Cursor< T > c = src.localizingCursor();
-		final int[] location = new int[ src.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			dest[ this_offset ] = t.getRealDouble();
-		}
+		copy( src, dest, offset, stride, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(Img, double[], int, int[])}. If {@code src} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link DoubleType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends RealType< T >> void copy( final Img< T > src, final double[] dest, final int offset, final int[] stride, final ExecutorService executorService )
+	{
+		if ( !blockCopy( dest, offset, stride, src, DoubleType.class, false, executorService ) )
+			copyStrided( src, offset, stride, ( t, i ) -> dest[ i ] = t.getRealDouble(), executorService );
 	}
 
 	/**
@@ -216,19 +278,22 @@ public class ImgUtil
 	 */
 	public static < T extends RealType< T >> void copy( final Img< T > src, final float[] dest, final int offset, final int[] stride )
 	{
-		final Cursor< T > c = src.localizingCursor();
-		final int[] location = new int[ src.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			dest[ this_offset ] = t.getRealFloat();
-		}
+		copy( src, dest, offset, stride, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(Img, float[], int, int[])}. If {@code src} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link FloatType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends RealType< T >> void copy( final Img< T > src, final float[] dest, final int offset, final int[] stride, final ExecutorService executorService )
+	{
+		if ( !blockCopy( dest, offset, stride, src, FloatType.class, false, executorService ) )
+			copyStrided( src, offset, stride, ( t, i ) -> dest[ i ] = t.getRealFloat(), executorService );
 	}
 
 	/**
@@ -236,19 +301,22 @@ public class ImgUtil
 	 */
 	public static < T extends IntegerType< T >> void copy( final Img< T > src, final long[] dest, final int offset, final int[] stride )
 	{
-		final Cursor< T > c = src.localizingCursor();
-		final int[] location = new int[ src.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			dest[ this_offset ] = t.getIntegerLong();
-		}
+		copy( src, dest, offset, stride, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(Img, long[], int, int[])}. If {@code src} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link LongType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends IntegerType< T >> void copy( final Img< T > src, final long[] dest, final int offset, final int[] stride, final ExecutorService executorService )
+	{
+		if ( !blockCopy( dest, offset, stride, src, LongType.class, false, executorService ) )
+			copyStrided( src, offset, stride, ( t, i ) -> dest[ i ] = t.getIntegerLong(), executorService );
 	}
 
 	/**
@@ -256,39 +324,45 @@ public class ImgUtil
 	 */
 	public static < T extends IntegerType< T >> void copy( final Img< T > src, final int[] dest, final int offset, final int[] stride )
 	{
-		final Cursor< T > c = src.localizingCursor();
-		final int[] location = new int[ src.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			dest[ this_offset ] = t.getInteger();
-		}
+		copy( src, dest, offset, stride, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(Img, int[], int, int[])}. If {@code src} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link IntType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends IntegerType< T >> void copy( final Img< T > src, final int[] dest, final int offset, final int[] stride, final ExecutorService executorService )
+	{
+		if ( !blockCopy( dest, offset, stride, src, IntType.class, false, executorService ) )
+			copyStrided( src, offset, stride, ( t, i ) -> dest[ i ] = t.getInteger(), executorService );
 	}
-	
+
 	/**
 	 * @see ImgUtil#copy(Img, double[], int, int[])
 	 */
 	public static < T extends IntegerType< T >> void copy( final Img< T > src, final short[] dest, final int offset, final int[] stride )
 	{
-		final Cursor< T > c = src.localizingCursor();
-		final int[] location = new int[ src.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			dest[ this_offset ] = (short) t.getInteger();
-		}
+		copy( src, dest, offset, stride, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(Img, short[], int, int[])}. If {@code src} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link ShortType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends IntegerType< T >> void copy( final Img< T > src, final short[] dest, final int offset, final int[] stride, final ExecutorService executorService )
+	{
+		if ( !blockCopy( dest, offset, stride, src, ShortType.class, false, executorService ) )
+			copyStrided( src, offset, stride, ( t, i ) -> dest[ i ] = ( short ) t.getInteger(), executorService );
 	}
 
 	/**
@@ -296,21 +370,24 @@ public class ImgUtil
 	 */
 	public static < T extends BooleanType< T >> void copy( final Img< T > src, final boolean[] dest, final int offset, final int[] stride )
 	{
-		final Cursor< T > c = src.localizingCursor();
-		final int[] location = new int[ src.numDimensions() ];
-		while ( c.hasNext() )
-		{
-			final T t = c.next();
-			c.localize( location );
-			int this_offset = offset;
-			for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
-			{
-				this_offset += location[ i ] * stride[ i ];
-			}
-			dest[ this_offset ] = t.get();
-		}
+		copy( src, dest, offset, stride, null );
+	}
+
+	/**
+	 * Parallel version of {@link #copy(Img, boolean[], int, int[])}. If {@code src} is an {@link ArrayImg} or
+	 * {@link PlanarImg} of {@link NativeBoolType} and {@code stride} matches its memory
+	 * layout, the data is copied with {@link System#arraycopy}.
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends BooleanType< T >> void copy( final Img< T > src, final boolean[] dest, final int offset, final int[] stride, final ExecutorService executorService )
+	{
+		if ( !blockCopy( dest, offset, stride, src, NativeBoolType.class, false, executorService ) )
+			copyStrided( src, offset, stride, ( t, i ) -> dest[ i ] = t.get(), executorService );
 	}
-	
+
 	/**
 	 * Copy one {@link Img} into another.
 	 * If both have the same iteration order, the copy proceeds with two {@link Cursor}.
@@ -322,24 +399,463 @@ public class ImgUtil
 	 */
 	public static < T extends Type< T >> void copy( final Img< T > src, final Img< T > dest )
 	{
-		if ( src.iterationOrder() == dest.iterationOrder() )
+		copy( src, dest, null );
+	}
+
+	/**
+	 * Copy one {@link Img} into another, in parallel. Source and destination
+	 * must have the same dimensions.
+	 * <p>
+	 * If both are {@link ArrayImg}s or {@link PlanarImg}s of the same type,
+	 * or cell images with the same {@link CellGrid}, the storage arrays are
+	 * copied with {@link System#arraycopy}. Otherwise, source and destination
+	 * are split into slabs that are copied by {@link Cursor}s in flat
+	 * iteration order.
+	 * </p>
+	 *
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 */
+	public static < T extends Type< T > > void copy( final Img< T > src, final Img< T > dest, final ExecutorService executorService )
+	{
+		if ( blockCopy( src, dest, executorService ) )
+			return;
+
+		if ( executorService == null )
 		{
-			final Cursor< T > c1 = src.cursor(),
-							  c2 = dest.cursor();
-			while ( c1.hasNext() )
-				c2.next().set( c1.next() );
+			if ( src.iterationOrder().equals( dest.iterationOrder() ) )
+			{
+				final Cursor< T > c1 = src.cursor(),
+								  c2 = dest.cursor();
+				while ( c1.hasNext() )
+					c2.next().set( c1.next() );
+			}
+			else
+			{
+				final Cursor< T > c = src.cursor();
+				final RandomAccess< T > r = dest.randomAccess();
+
+				while ( c.hasNext() )
+				{
+					c.fwd();
+					r.setPosition( c );
+					r.get().set( c.get() );
+				}
+			}
+			return;
+		}
+
+		final List< Runnable > tasks = new ArrayList<>();
+		for ( final Interval slab : LoopUtils.splitIntoSlabs( src, numTasks( executorService ) ) )
+			tasks.add( () -> copyInterval( src, dest, slab ) );
+		run( tasks, executorService );
+	}
+
+	/**
+	 * Materialize {@code extended} on its source interval expanded by
+	 * {@code border} into a new image created by {@code factory}.
+	 *
+	 * @see #pad(ExtendedRandomAccessibleInterval, ImgFactory, ExecutorService,
+	 *      long...)
+	 */
+	public static < T extends Type< T > > IntervalView< T > pad( final ExtendedRandomAccessibleInterval< T, ? > extended, final ImgFactory< T > factory, final long... border )
+	{
+		return pad( extended, factory, null, border );
+	}
+
+	/**
+	 * Materialize {@code extended} on its source interval expanded by
+	 * {@code border} into a new image created by {@code factory}, in
+	 * parallel.
+	 * <p>
+	 * Within the padded interval, the result has the same values and
+	 * coordinates as {@code extended}, but reading it involves no
+	 * out-of-bounds computations. This pays off if the extended image is read
+	 * repeatedly with a reach of at most {@code border}. Positions outside the
+	 * padded interval must not be accessed. The source interval is copied
+	 * without out-of-bounds checks, see {@link BorderSplit}.
+	 * </p>
+	 *
+	 * @param border
+	 *            border width for all dimensions, or for each dimension.
+	 * @param executorService
+	 *            executes the copy tasks, or {@code null} to copy on the
+	 *            calling thread.
+	 * @return the padded copy, with the interval of the source expanded by
+	 *         {@code border}.
+	 */
+	public static < T extends Type< T > > IntervalView< T > pad( final ExtendedRandomAccessibleInterval< T, ? > extended, final ImgFactory< T > factory, final ExecutorService executorService, final long... border )
+	{
+		final int n = extended.numDimensions();
+		if ( border.length != 1 && border.length != n )
+			throw new IllegalArgumentException( "border must have length 1 or " + n );
+		final long[] width = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+			width[ d ] = border[ border.length == 1 ? 0 : d ];
+
+		final Interval padded = Intervals.expand( extended.getSource(), width );
+		final long[] min = Intervals.minAsLongArray( padded );
+		final IntervalView< T > result = Views.translate( factory.create( padded ), min );
+
+		final List< Runnable > tasks = new ArrayList<>();
+		for ( final Interval slab : LoopUtils.splitIntoSlabs( padded, numTasks( executorService ) ) )
+			tasks.add( () -> {
+				final BorderSplit< T > split = new BorderSplit<>( extended, Intervals.translate( slab, min ), 0 );
+				if ( split.getInterior() != null )
+					copyRegion( extended, result, split.getInterior() );
+				for ( final Interval region : split.getBoundary() )
+					copyRegion( extended, result, region );
+			} );
+		run( tasks, executorService );
+		return result;
+	}
+
+	/**
+	 * Copy {@code interval} from {@code src} to {@code dest}. Reads from an
+	 * extended source use the plain source access if {@code interval} lies
+	 * inside the source.
+	 */
+	private static < T extends Type< T > > void copyRegion( final RandomAccessible< T > src, final RandomAccessible< T > dest, final Interval interval )
+	{
+		LoopBuilder.setImages( Views.interval( src, interval ), Views.interval( dest, interval ) ).forEachPixel( ( s, t ) -> t.set( s ) );
+	}
+
+	/**
+	 * Visit every pixel of {@code img} together with its index
+	 * {@code offset + sum( location[ d ] * stride[ d ] )} in a flat array.
+	 */
+	private static < T > void copyStrided( final Img< T > img, final int offset, final int[] stride, final ObjIntConsumer< T > action, final ExecutorService executorService )
+	{
+		final int n = img.numDimensions();
+		final List< Runnable > tasks = new ArrayList<>();
+		for ( final Interval slab : LoopUtils.splitIntoSlabs( img, numTasks( executorService ) ) )
+			tasks.add( () -> {
+				final Cursor< T > c = Views.interval( img, slab ).localizingCursor();
+				final int[] location = new int[ n ];
+				while ( c.hasNext() )
+				{
+					final T t = c.next();
+					c.localize( location );
+					int this_offset = offset;
+					for ( int i = 0; ( i < stride.length ) && ( i < location.length ); i++ )
+					{
+						this_offset += location[ i ] * stride[ i ];
+					}
+					action.accept( t, this_offset );
+				}
+			} );
+		run( tasks, executorService );
+	}
+
+	/**
+	 * Copy between a flat primitive {@code array} and the storage of an
+	 * {@link ArrayImg} or {@link PlanarImg}, if {@code img} has pixel type
+	 * {@code typeClass} and {@code stride} matches its memory layout.
+	 *
+	 * @return whether the data was copied.
+	 */
+	private static boolean blockCopy( final Object array, final int offset, final int[] stride, final Img< ? > img, final Class< ? > typeClass, final boolean toImg, final ExecutorService executorService )
+	{
+		final int n = img.numDimensions();
+		if ( stride.length != n || !( img instanceof ArrayImg || img instanceof PlanarImg )
+				|| ( ( NativeImg< ?, ? > ) img ).createLinkedType().getClass() != typeClass )
+			return false;
+
+		// number of leading dimensions that are contiguous in a storage array
+		final int numContiguous = img instanceof ArrayImg ? n : Math.min( n, 2 );
+		long step = 1;
+		for ( int d = 0; d < numContiguous; ++d )
+		{
+			if ( stride[ d ] != step && img.dimension( d ) > 1 )
+				return false;
+			step *= img.dimension( d );
+		}
+		final int blockSize = ( int ) step;
+
+		final List< Object > storage = new ArrayList<>();
+		final List< Integer > arrayOffsets = new ArrayList<>();
+		if ( img instanceof ArrayImg )
+		{
+			storage.add( ( ( ArrayImg< ?, ? > ) img ).update( null ) );
+			arrayOffsets.add( offset );
+		}
+		else
+		{
+			final PlanarImg< ?, ? > planar = ( PlanarImg< ?, ? > ) img;
+			final long[] sliceDimensions = new long[ Math.max( n - 2, 0 ) ];
+			for ( int d = 2; d < n; ++d )
+				sliceDimensions[ d - 2 ] = img.dimension( d );
+			final long[] slicePosition = new long[ sliceDimensions.length ];
+			for ( int i = 0; i < planar.numSlices(); ++i )
+			{
+				IntervalIndexer.indexToPosition( i, sliceDimensions, slicePosition );
+				int o = offset;
+				for ( int d = 2; d < n; ++d )
+					o += slicePosition[ d - 2 ] * stride[ d ];
+				storage.add( planar.getPlane( i ) );
+				arrayOffsets.add( o );
+			}
+		}
+
+		for ( final Object access : storage )
+			if ( storageArray( access, array.getClass(), toImg ) == null )
+				return false;
+
+		final List< Runnable > tasks = new ArrayList<>();
+		if ( storage.size() == 1 )
+		{
+			final Object data = storageArray( storage.get( 0 ), array.getClass(), toImg );
+			for ( final long[] chunk : split( blockSize, numTasks( executorService ) ) )
+			{
+				final int start = ( int ) chunk[ 0 ];
+				final int length = ( int ) chunk[ 1 ];
+				tasks.add( toImg
+						? () -> System.arraycopy( array, offset + start, data, start, length )
+						: () -> System.arraycopy( data, start, array, offset + start, length ) );
+			}
 		}
 		else
 		{
-			final Cursor< T > c = src.cursor();
-			final RandomAccess< T > r = dest.randomAccess();
-			
-			while ( c.hasNext() )
+			for ( int i = 0; i < storage.size(); ++i )
+			{
+				final Object data = storageArray( storage.get( i ), array.getClass(), toImg );
+				final int o = arrayOffsets.get( i );
+				tasks.add( toImg
+						? () -> System.arraycopy( array, o, data, 0, blockSize )
+						: () -> System.arraycopy( data, 0, array, o, blockSize ) );
+			}
+		}
+		run( tasks, executorService );
+
+		if ( toImg )
+			for ( final Object access : storage )
+				setDirty( access );
+		return true;
+	}
+
+	/**
+	 * Copy the storage arrays of {@code src} to {@code dest}, if both are
+	 * {@link ArrayImg}s, {@link PlanarImg}s, or cell images with the same
+	 * grid, and have the same pixel type and storage layout.
+	 *
+	 * @return whether the data was copied.
+	 */
+	private static < T extends Type< T > > boolean blockCopy( final Img< T > src, final Img< T > dest, final ExecutorService executorService )
+	{
+		if ( !( src instanceof NativeImg && dest instanceof NativeImg )
+				|| !sameLayout( ( ( NativeImg< ?, ? > ) src ).createLinkedType(), ( ( NativeImg< ?, ? > ) dest ).createLinkedType() )
+				|| !Intervals.equalDimensions( src, dest ) )
+			return false;
+
+		final List< Runnable > tasks = new ArrayList<>();
+		if ( src instanceof ArrayImg && dest instanceof ArrayImg )
+		{
+			final Object srcAccess = ( ( ArrayImg< ?, ? > ) src ).update( null );
+			final Object destAccess = ( ( ArrayImg< ?, ? > ) dest ).update( null );
+			final Object srcArray = storageArray( srcAccess, null, false );
+			final Object destArray = storageArray( destAccess, srcArray == null ? null : srcArray.getClass(), true );
+			if ( srcArray == null || destArray == null || Array.getLength( srcArray ) != Array.getLength( destArray ) )
+				return false;
+			for ( final long[] chunk : split( Array.getLength( srcArray ), numTasks( executorService ) ) )
+				tasks.add( () -> System.arraycopy( srcArray, ( int ) chunk[ 0 ], destArray, ( int ) chunk[ 0 ], ( int ) chunk[ 1 ] ) );
+			run( tasks, executorService );
+			setDirty( destAccess );
+			return true;
+		}
+
+		if ( src instanceof PlanarImg && dest instanceof PlanarImg )
+		{
+			final PlanarImg< ?, ? > srcPlanar = ( PlanarImg< ?, ? > ) src;
+			final PlanarImg< ?, ? > destPlanar = ( PlanarImg< ?, ? > ) dest;
+			for ( int i = 0; i < srcPlanar.numSlices(); ++i )
 			{
-				c.fwd();
-				r.setPosition( c );
-				r.get().set( c.get() );
+				final Object srcArray = storageArray( srcPlanar.getPlane( i ), null, false );
+				final Object destAccess = destPlanar.getPlane( i );
+				final Object destArray = storageArray( destAccess, srcArray == null ? null : srcArray.getClass(), true );
+				if ( srcArray == null || destArray == null || Array.getLength( srcArray ) != Array.getLength( destArray ) )
+					return false;
+				tasks.add( () -> {
+					System.arraycopy( srcArray, 0, destArray, 0, Array.getLength( srcArray ) );
+					setDirty( destAccess );
+				} );
 			}
+			run( tasks, executorService );
+			return true;
+		}
+
+		if ( src instanceof AbstractCellImg && dest instanceof AbstractCellImg )
+		{
+			final AbstractCellImg< ?, ?, ?, ? > srcCells = ( AbstractCellImg< ?, ?, ?, ? > ) src;
+			final AbstractCellImg< ?, ?, ?, ? > destCells = ( AbstractCellImg< ?, ?, ?, ? > ) dest;
+			final CellGrid grid = srcCells.getCellGrid();
+			if ( !grid.equals( destCells.getCellGrid() ) )
+				return false;
+			final long[] gridDimensions = grid.getGridDimensions();
+			final RandomAccessibleInterval< ? extends Cell< ? > > srcCellImg = cells( srcCells );
+			final RandomAccessibleInterval< ? extends Cell< ? > > destCellImg = cells( destCells );
+			for ( final long[] chunk : split( Intervals.numElements( gridDimensions ), numTasks( executorService ) ) )
+				tasks.add( () -> copyCells( src, dest, srcCellImg, destCellImg, gridDimensions, chunk[ 0 ], chunk[ 1 ] ) );
+			run( tasks, executorService );
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether pixels of types {@code t1} and {@code t2} are stored identically,
+	 * such that their storage can be copied bit by bit. For example,
+	 * {@link net.imglib2.type.numeric.integer.UnsignedVariableBitLengthType}s
+	 * of different bit depths are not.
+	 */
+	private static boolean sameLayout( final Type< ? > t1, final Type< ? > t2 )
+	{
+		if ( t1.getClass() != t2.getClass() )
+			return false;
+		if ( t1 instanceof NativeType )
+		{
+			final Fraction e1 = ( ( NativeType< ? > ) t1 ).getEntitiesPerPixel();
+			final Fraction e2 = ( ( NativeType< ? > ) t2 ).getEntitiesPerPixel();
+			if ( e1.getNumerator() * e2.getDenominator() != e2.getNumerator() * e1.getDenominator() )
+				return false;
+		}
+		return !( t1 instanceof RealType ) || ( ( RealType< ? > ) t1 ).getBitsPerPixel() == ( ( RealType< ? > ) t2 ).getBitsPerPixel();
+	}
+
+	/**
+	 * Copy cells {@code start} to {@code start + length - 1} (in flat order of
+	 * the cell grid). The storage arrays are copied if possible, otherwise
+	 * the pixels of the cell are copied by {@link Cursor}s.
+	 */
+	private static < T extends Type< T > > void copyCells(
+			final Img< T > src,
+			final Img< T > dest,
+			final RandomAccessibleInterval< ? extends Cell< ? > > srcCells,
+			final RandomAccessibleInterval< ? extends Cell< ? > > destCells,
+			final long[] gridDimensions,
+			final long start,
+			final long length )
+	{
+		final int n = gridDimensions.length;
+		final RandomAccess< ? extends Cell< ? > > srcAccess = srcCells.randomAccess();
+		final RandomAccess< ? extends Cell< ? > > destAccess = destCells.randomAccess();
+		final long[] gridPosition = new long[ n ];
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		for ( long i = start; i < start + length; ++i )
+		{
+			IntervalIndexer.indexToPosition( i, gridDimensions, gridPosition );
+			srcAccess.setPosition( gridPosition );
+			destAccess.setPosition( gridPosition );
+			final Cell< ? > srcCell = srcAccess.get();
+			final Cell< ? > destCell = destAccess.get();
+			final Object srcArray = storageArray( srcCell.getData(), null, false );
+			final Object destArray = storageArray( destCell.getData(), srcArray == null ? null : srcArray.getClass(), true );
+			if ( srcArray != null && destArray != null && Array.getLength( srcArray ) == Array.getLength( destArray ) )
+			{
+				System.arraycopy( srcArray, 0, destArray, 0, Array.getLength( srcArray ) );
+				setDirty( destCell.getData() );
+			}
+			else
+			{
+				srcCell.min( min );
+				for ( int d = 0; d < n; ++d )
+					max[ d ] = min[ d ] + srcCell.dimension( d ) - 1;
+				copyInterval( src, dest, new FinalInterval( min, max ) );
+			}
+		}
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private static RandomAccessibleInterval< ? extends Cell< ? > > cells( final AbstractCellImg< ?, ?, ?, ? > img )
+	{
+		return ( RandomAccessibleInterval ) img.getCells();
+	}
+
+	private static < T extends Type< T > > void copyInterval( final Img< T > src, final Img< T > dest, final Interval interval )
+	{
+		final Cursor< T > c1 = Views.flatIterable( Views.interval( src, interval ) ).cursor();
+		final Cursor< T > c2 = Views.flatIterable( Views.interval( dest, interval ) ).cursor();
+		while ( c1.hasNext() )
+			c2.next().set( c1.next() );
+	}
+
+	/**
+	 * Get the primitive storage array of {@code access}, or {@code null} if it
+	 * has none, or it is not of the given class, or (if {@code write}) it
+	 * must not be written directly.
+	 *
+	 * @param arrayClass
+	 *            required class of the storage array, or {@code null} for any
+	 *            primitive array.
+	 */
+	private static Object storageArray( final Object access, final Class< ? > arrayClass, final boolean write )
+	{
+		if ( !( access instanceof ArrayDataAccess ) || access instanceof BufferAccess || ( write && access instanceof CopyOnWriteAccess ) )
+			return null;
+		final Object array = ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray();
+		if ( !array.getClass().isArray() || ( arrayClass != null && array.getClass() != arrayClass ) )
+			return null;
+		return array;
+	}
+
+	private static void setDirty( final Object access )
+	{
+		if ( access instanceof Dirty )
+			( ( Dirty ) access ).setDirty();
+	}
+
+	/**
+	 * Split {@code [0, size)} into at most {@code numChunks} chunks
+	 * {@code {start, length}}.
+	 */
+	private static List< long[] > split( final long size, final int numChunks )
+	{
+		final List< long[] > chunks = new ArrayList<>();
+		final long chunkSize = Math.max( 1, ( size + numChunks - 1 ) / numChunks );
+		for ( long start = 0; start < size; start += chunkSize )
+			chunks.add( new long[] { start, Math.min( chunkSize, size - start ) } );
+		return chunks;
+	}
+
+	private static int numTasks( final ExecutorService executorService )
+	{
+		return executorService == null ? 1 : Runtime.getRuntime().availableProcessors();
+	}
+
+	private static void run( final List< Runnable > tasks, final ExecutorService executorService )
+	{
+		if ( executorService == null || tasks.size() <= 1 )
+		{
+			tasks.forEach( Runnable::run );
+			return;
+		}
+
+		final List< Callable< Void > > callables = new ArrayList<>( tasks.size() );
+		for ( final Runnable task : tasks )
+			callables.add( () -> {
+				task.run();
+				return null;
+			} );
+		try
+		{
+			for ( final Future< Void > future : executorService.invokeAll( callables ) )
+				future.get();
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch ( final ExecutionException e )
+		{
+			final Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException )
+				throw ( RuntimeException ) cause;
+			if ( cause instanceof Error )
+				throw ( Error ) cause;
+			throw new RuntimeException( cause );
 		}
 	}
 }
@@ -0,0 +1,234 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.util.Intervals;
+
+/**
+ * Splits a target interval for neighborhood processing on an extended
+ * {@link RandomAccessibleInterval} into an interior part and boundary slabs.
+ * <p>
+ * The interior contains all positions of the target whose neighborhood (the
+ * position expanded by the border radius) lies completely inside the source.
+ * It is accessed through a {@link RandomAccess} of the source, without any
+ * out-of-bounds checks. The remaining positions of the target are covered by
+ * at most {@code 2n} disjoint slabs, which are accessed through the extended
+ * {@link RandomAccessible}. Slabs are split along the last dimension first, so
+ * that they are contiguous in the lower dimensions.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * BorderSplit< FloatType > split = new BorderSplit<>( Views.extendMirrorSingle( img ), img, 1 );
+ * split.forEachRegion( ( interval, access ) -> convolve3x3( interval, access, output ) );
+ * }
+ * </pre>
+ *
+ * @param <T>
+ *            pixel type
+ */
+public class BorderSplit< T >
+{
+	private final RandomAccessibleInterval< T > source;
+
+	private final RandomAccessible< T > extended;
+
+	private final long[] radius;
+
+	private final Interval interior;
+
+	private final List< Interval > boundary;
+
+	/**
+	 * Split {@code target} for access to {@code extended} within
+	 * {@code radius} of each target position.
+	 *
+	 * @param extended
+	 *            the extended source.
+	 * @param target
+	 *            the interval of positions to process.
+	 * @param radius
+	 *            border radius for all dimensions, or for each dimension.
+	 */
+	public BorderSplit( final ExtendedRandomAccessibleInterval< T, ? > extended, final Interval target, final long... radius )
+	{
+		this( extended.getSource(), extended, target, radius );
+	}
+
+	/**
+	 * Split {@code target} for access to {@code extended} within
+	 * {@code radius} of each target position. {@code extended} must coincide
+	 * with {@code source} inside the source interval.
+	 *
+	 * @param source
+	 *            the source interval, accessed for the interior.
+	 * @param extended
+	 *            the extended source, accessed for boundary slabs.
+	 * @param target
+	 *            the interval of positions to process.
+	 * @param radius
+	 *            border radius for all dimensions, or for each dimension.
+	 */
+	public BorderSplit( final RandomAccessibleInterval< T > source, final RandomAccessible< T > extended, final Interval target, final long... radius )
+	{
+		final int n = target.numDimensions();
+		if ( source.numDimensions() != n || extended.numDimensions() != n )
+			throw new IllegalArgumentException( "source, extended and target must have the same number of dimensions" );
+		if ( radius.length != 1 && radius.length != n )
+			throw new IllegalArgumentException( "radius must have length 1 or " + n );
+
+		this.source = source;
+		this.extended = extended;
+		this.radius = new long[ n ];
+		for ( int d = 0; d < n; ++d )
+		{
+			this.radius[ d ] = radius[ radius.length == 1 ? 0 : d ];
+			if ( this.radius[ d ] < 0 )
+				throw new IllegalArgumentException( "radius must not be negative" );
+		}
+
+		final long[] min = new long[ n ];
+		final long[] max = new long[ n ];
+		boolean isEmpty = false;
+		for ( int d = 0; d < n; ++d )
+		{
+			min[ d ] = Math.max( target.min( d ), source.min( d ) + this.radius[ d ] );
+			max[ d ] = Math.min( target.max( d ), source.max( d ) - this.radius[ d ] );
+			isEmpty |= min[ d ] > max[ d ];
+		}
+
+		if ( isEmpty )
+		{
+			interior = null;
+			boundary = Collections.singletonList( new FinalInterval( target ) );
+		}
+		else
+		{
+			interior = new FinalInterval( min, max );
+			final List< Interval > slabs = new ArrayList<>();
+			final long[] currentMin = Intervals.minAsLongArray( target );
+			final long[] currentMax = Intervals.maxAsLongArray( target );
+			for ( int d = n - 1; d >= 0; --d )
+			{
+				if ( currentMin[ d ] < min[ d ] )
+				{
+					final long[] slabMax = currentMax.clone();
+					slabMax[ d ] = min[ d ] - 1;
+					slabs.add( new FinalInterval( currentMin.clone(), slabMax ) );
+				}
+				if ( currentMax[ d ] > max[ d ] )
+				{
+					final long[] slabMin = currentMin.clone();
+					slabMin[ d ] = max[ d ] + 1;
+					slabs.add( new FinalInterval( slabMin, currentMax.clone() ) );
+				}
+				currentMin[ d ] = min[ d ];
+				currentMax[ d ] = max[ d ];
+			}
+			boundary = Collections.unmodifiableList( slabs );
+		}
+	}
+
+	/**
+	 * Get the interior interval, or {@code null} if no target position has
+	 * its neighborhood completely inside the source.
+	 */
+	public Interval getInterior()
+	{
+		return interior;
+	}
+
+	/**
+	 * Get the boundary slabs. Together with the interior, they cover the
+	 * target interval without overlap.
+	 */
+	public List< Interval > getBoundary()
+	{
+		return boundary;
+	}
+
+	/**
+	 * Get the border radius in dimension {@code d}.
+	 */
+	public long radius( final int d )
+	{
+		return radius[ d ];
+	}
+
+	/**
+	 * Get a {@link RandomAccess} for the neighborhoods of the interior. This
+	 * is a {@link RandomAccess} of the source, without out-of-bounds checks.
+	 *
+	 * @throws IllegalStateException
+	 *             if the interior is empty.
+	 */
+	public RandomAccess< T > interiorRandomAccess()
+	{
+		if ( interior == null )
+			throw new IllegalStateException( "interior is empty" );
+		return source.randomAccess( Intervals.expand( interior, radius ) );
+	}
+
+	/**
+	 * Get a {@link RandomAccess} for the neighborhoods of boundary slab
+	 * {@code slab}.
+	 */
+	public RandomAccess< T > boundaryRandomAccess( final Interval slab )
+	{
+		return extended.randomAccess( Intervals.expand( slab, radius ) );
+	}
+
+	/**
+	 * Call {@code action} for the interior (if not empty) and each boundary
+	 * slab, with a {@link RandomAccess} suitable for that region.
+	 */
+	public void forEachRegion( final BiConsumer< Interval, RandomAccess< T > > action )
+	{
+		if ( interior != null )
+			action.accept( interior, interiorRandomAccess() );
+		for ( final Interval slab : boundary )
+			action.accept( slab, boundaryRandomAccess( slab ) );
+	}
+}
@@ -37,25 +37,35 @@ import net.imglib2.Interval;
 import net.imglib2.Localizable;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
-import net.imglib2.View;
+import net.imglib2.transform.integer.StridedTransform;
 
 /**
  * {@link SubsampleView} is a view that provides access to only every
  * <em>s<sub>d</sub></em><sup>th</sup> value of a source
  * {@link RandomAccessible}. This is effectively an integer scaling
- * transformation. Localization calls to the {@link RandomAccess} return scaled
- * coordinates that are generated on-the-fly. Localization is thus moderately
- * inefficient to the benefit of faster positioning. Don't ask for what you
- * already know ;).
+ * transformation, represented by a {@link StridedTransform}. Random access is
+ * provided by {@link TransformBuilder}, so sub-sampling is fused with
+ * neighboring translations, slicings, and rotations into a single strided
+ * transform.
  * 
  * @author Stephan Saalfeld
  */
-public class SubsampleView< T > implements RandomAccessible< T >, View
+public class SubsampleView< T > implements TransformedRandomAccessible< T >
 {
 	final protected RandomAccessible< T > source;
 
 	final protected long[] steps;
 
+	protected RandomAccessible< T > fullViewRandomAccessible;
+
+	/**
+	 * {@link RandomAccess} that scales coordinates on-the-fly. Localization is
+	 * moderately inefficient to the benefit of faster positioning.
+	 *
+	 * @deprecated {@link SubsampleView#randomAccess()} now returns a
+	 *             {@link StridedRandomAccess}.
+	 */
+	@Deprecated
 	public class SubsampleRandomAccess implements RandomAccess< T >
 	{
 		final protected RandomAccess< T > sourceRandomAccess;
@@ -263,20 +273,34 @@ public class SubsampleView< T > implements RandomAccessible< T >, View
 	@Override
 	public RandomAccess< T > randomAccess()
 	{
-		return new SubsampleRandomAccess();
+		if ( fullViewRandomAccessible == null )
+			fullViewRandomAccessible = TransformBuilder.getEfficientRandomAccessible( null, this );
+		return fullViewRandomAccessible.randomAccess();
 	}
 
 	@Override
 	public RandomAccess< T > randomAccess( final Interval interval )
 	{
-		return new SubsampleRandomAccess( interval );
+		return TransformBuilder.getEfficientRandomAccessible( interval, this ).randomAccess();
 	}
-	
+
+	@Override
 	public RandomAccessible< T > getSource()
 	{
 		return source;
 	}
 
+	@Override
+	public StridedTransform getTransformToSource()
+	{
+		final int n = source.numDimensions();
+		final long[] stride = new long[ n ];
+		System.arraycopy( steps, 0, stride, 0, n );
+		final StridedTransform t = new StridedTransform( n, n );
+		t.setStride( stride );
+		return t;
+	}
+
 	/**
 	 * @return sub-sampling steps
 	 */
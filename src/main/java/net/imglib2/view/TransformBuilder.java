@@ -34,6 +34,7 @@
 
 package net.imglib2.view;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
 
@@ -41,6 +42,11 @@ import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.read.ConvertedRandomAccessible;
+import net.imglib2.converter.read.ConvertedRandomAccessibleInterval;
+import net.imglib2.converter.readwrite.WriteConvertedIterableRandomAccessibleInterval;
+import net.imglib2.converter.readwrite.WriteConvertedRandomAccessible;
+import net.imglib2.converter.readwrite.WriteConvertedRandomAccessibleInterval;
 import net.imglib2.img.WrappedImg;
 import net.imglib2.transform.Transform;
 import net.imglib2.transform.integer.BoundingBox;
@@ -48,12 +54,22 @@ import net.imglib2.transform.integer.BoundingBoxTransform;
 import net.imglib2.transform.integer.Mixed;
 import net.imglib2.transform.integer.MixedTransform;
 import net.imglib2.transform.integer.SlicingTransform;
+import net.imglib2.transform.integer.StridedTransform;
 import net.imglib2.transform.integer.TranslationTransform;
+import net.imglib2.type.Type;
 import net.imglib2.util.Intervals;
 
 /**
  * The "brain" of the Views framework. Simplifies View cascades to provide the
  * most efficient accessor for a specified Interval.
+ * <p>
+ * Coordinate transforms are joined and simplified. Wrapper views that neither
+ * transform coordinates nor values are bypassed. Converting views are pushed
+ * to the top of the cascade, because converters act on values only and
+ * commute with coordinate transforms. Thus, a cascade of transforms and
+ * converters costs one transform indirection plus one indirection per
+ * converter.
+ * </p>
  * 
  * @see #getEfficientRandomAccessible(Interval, RandomAccessible)
  * 
@@ -99,6 +115,23 @@ public class TransformBuilder< T >
 	 */
 	protected LinkedList< Transform > transforms;
 
+	/**
+	 * Re-creates a converting view on top of a new source.
+	 */
+	@FunctionalInterface
+	protected interface Conversion
+	{
+		RandomAccessible< ? > wrap( RandomAccessible< ? > source );
+	}
+
+	/**
+	 * List of converting views passed while traversing the view hierarchy,
+	 * outermost first. These are applied on top of the {@link #transforms}
+	 * when building the RandomAccessible. If this is not empty, the
+	 * {@link #source} pixel type differs from {@code T}.
+	 */
+	protected LinkedList< Conversion > conversions;
+
 	/**
 	 * Create a new TransformBuilder. Starting from {@code randomAccessible}, go
 	 * down the view hierarchy to the RandomAccessible that will provide the
@@ -117,6 +150,7 @@ public class TransformBuilder< T >
 	protected TransformBuilder( final Interval interval, final RandomAccessible< T > randomAccessible )
 	{
 		transforms = new LinkedList< Transform >();
+		conversions = new LinkedList< Conversion >();
 		boundingBox = ( interval == null ) ? null : new BoundingBox( interval );
 		// System.out.println( randomAccessible );
 		visit( randomAccessible );
@@ -146,12 +180,13 @@ public class TransformBuilder< T >
 	 * {@code randomAccessible} is handled by
 	 * {@link #visitTransformed(TransformedRandomAccessible)} or
 	 * {@link #visitExtended(ExtendedRandomAccessibleInterval)} when it has the
-	 * appropriate type. Otherwise, the traversal stops and
+	 * appropriate type. Converting views are recorded in {@link #conversions}
+	 * and wrapper views are bypassed. Otherwise, the traversal stops and
 	 * {@code randomAccessible} is set as the {@link #source}.
 	 * 
 	 * @param randomAccessible
 	 */
-	@SuppressWarnings( "unchecked" )
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
 	protected void visit( final RandomAccessible< T > randomAccessible )
 	{
 		if ( TransformedRandomAccessible.class.isInstance( randomAccessible ) )
@@ -170,6 +205,42 @@ public class TransformBuilder< T >
 		{
 			visit( ( ( WrappedImg< T > ) randomAccessible ).getImg() );
 		}
+		else if ( IterableRandomAccessibleInterval.class.isInstance( randomAccessible ) )
+		{
+			visit( ( ( IterableRandomAccessibleInterval< T > ) randomAccessible ).getSource() );
+		}
+		else if ( ConvertedRandomAccessible.class.isInstance( randomAccessible ) )
+		{
+			final ConvertedRandomAccessible c = ( ConvertedRandomAccessible ) randomAccessible;
+			final Type type = c.getDestinationType();
+			conversions.addLast( s -> new ConvertedRandomAccessible( s, c.getConverter(), type ) );
+			visit( c.getSource() );
+		}
+		else if ( ConvertedRandomAccessibleInterval.class.isInstance( randomAccessible ) )
+		{
+			final ConvertedRandomAccessibleInterval c = ( ConvertedRandomAccessibleInterval ) randomAccessible;
+			final Type type = c.getDestinationType();
+			conversions.addLast( s -> new ConvertedRandomAccessible( s, c.getConverter(), type ) );
+			visit( ( RandomAccessible ) c.getSource() );
+		}
+		else if ( WriteConvertedRandomAccessible.class.isInstance( randomAccessible ) )
+		{
+			final WriteConvertedRandomAccessible c = ( WriteConvertedRandomAccessible ) randomAccessible;
+			conversions.addLast( s -> new WriteConvertedRandomAccessible( s, c.getConverter() ) );
+			visit( c.getSource() );
+		}
+		else if ( WriteConvertedRandomAccessibleInterval.class.isInstance( randomAccessible ) )
+		{
+			final WriteConvertedRandomAccessibleInterval c = ( WriteConvertedRandomAccessibleInterval ) randomAccessible;
+			conversions.addLast( s -> new WriteConvertedRandomAccessible( s, c.getConverter() ) );
+			visit( ( RandomAccessible ) c.getSource() );
+		}
+		else if ( WriteConvertedIterableRandomAccessibleInterval.class.isInstance( randomAccessible ) )
+		{
+			final WriteConvertedIterableRandomAccessibleInterval c = ( WriteConvertedIterableRandomAccessibleInterval ) randomAccessible;
+			conversions.addLast( s -> new WriteConvertedRandomAccessible( s, c.getConverter() ) );
+			visit( ( RandomAccessible ) c.getSource() );
+		}
 		else
 		{
 			source = randomAccessible;
@@ -282,7 +353,9 @@ public class TransformBuilder< T >
 
 	/**
 	 * Simplify the {@link #transforms} list. First, concatenate neighboring
-	 * transforms if possible. Then, for every {@link Mixed} transform:
+	 * transforms if possible. Then, replace every {@link StridedTransform}
+	 * with unit stride by a {@link MixedTransform}. Then, for every
+	 * {@link Mixed} transform:
 	 * <ul>
 	 * <li>remove it if it is the identity transforms.
 	 * <li>replace it by a {@link TranslationTransform} if it is a pure
@@ -296,7 +369,14 @@ public class TransformBuilder< T >
 
 		for ( final ListIterator< Transform > i = transforms.listIterator(); i.hasNext(); )
 		{
-			final Transform t = i.next();
+			Transform t = i.next();
+			if ( StridedTransform.class.isInstance( t ) && ( ( StridedTransform ) t ).hasUnitStride() )
+			{
+				// found strided transform without stride
+				// replace by a MixedTransform
+				t = toMixedTransform( ( StridedTransform ) t );
+				i.set( t );
+			}
 			if ( Mixed.class.isInstance( t ) )
 			{
 				final Mixed mixed = ( Mixed ) t;
@@ -343,15 +423,37 @@ public class TransformBuilder< T >
 		}
 	}
 
+	private static MixedTransform toMixedTransform( final StridedTransform t )
+	{
+		final int m = t.numTargetDimensions();
+		final long[] translation = new long[ m ];
+		final boolean[] zero = new boolean[ m ];
+		final int[] component = new int[ m ];
+		final boolean[] invert = new boolean[ m ];
+		t.getTranslation( translation );
+		t.getComponentZero( zero );
+		t.getComponentMapping( component );
+		t.getComponentInversion( invert );
+		final MixedTransform mixed = new MixedTransform( t.numSourceDimensions(), m );
+		mixed.setTranslation( translation );
+		mixed.setComponentZero( zero );
+		mixed.setComponentMapping( component );
+		mixed.setComponentInversion( invert );
+		return mixed;
+	}
+
 	/**
 	 * Create a sequence of wrapped RandomAccessibles from the
-	 * {@link #transforms} list.
+	 * {@link #transforms} list, topped by the {@link #conversions}. The
+	 * {@link #source} is accessed with the transformed bounding box, if it is
+	 * known.
 	 * 
 	 * @return RandomAccessible on the interval specified in the constructor.
 	 */
+	@SuppressWarnings( "unchecked" )
 	protected RandomAccessible< T > build()
 	{
-		RandomAccessible< T > result = source;
+		RandomAccessible< T > result = ( boundingBox == null ) ? source : wrapInterval( source, boundingBox.getInterval() );
 		for ( final ListIterator< Transform > i = transforms.listIterator(); i.hasNext(); )
 		{
 			final Transform t = i.next();
@@ -361,12 +463,40 @@ public class TransformBuilder< T >
 				result = wrapTranslationTransform( result, ( TranslationTransform ) t );
 			else if ( SlicingTransform.class.isInstance( t ) )
 				result = wrapSlicingTransform( result, ( SlicingTransform ) t );
+			else if ( StridedTransform.class.isInstance( t ) )
+				result = wrapStridedTransform( result, ( StridedTransform ) t );
 			else
 				result = wrapGenericTransform( result, t );
 		}
+		for ( final Iterator< Conversion > i = conversions.descendingIterator(); i.hasNext(); )
+			result = ( RandomAccessible< T > ) i.next().wrap( result );
 		return result;
 	}
 
+	protected RandomAccessible< T > wrapInterval( final RandomAccessible< T > s, final Interval interval )
+	{
+		return new RandomAccessible< T >()
+		{
+			@Override
+			public int numDimensions()
+			{
+				return s.numDimensions();
+			}
+
+			@Override
+			public RandomAccess< T > randomAccess()
+			{
+				return s.randomAccess( interval );
+			}
+
+			@Override
+			public RandomAccess< T > randomAccess( final Interval i )
+			{
+				return s.randomAccess( interval );
+			}
+		};
+	}
+
 	protected RandomAccessible< T > wrapGenericTransform( final RandomAccessible< T > s, final Transform t )
 	{
 		return new RandomAccessible< T >()
@@ -472,4 +602,28 @@ public class TransformBuilder< T >
 			}
 		};
 	}
+
+	protected RandomAccessible< T > wrapStridedTransform( final RandomAccessible< T > s, final StridedTransform t )
+	{
+		return new RandomAccessible< T >()
+		{
+			@Override
+			public int numDimensions()
+			{
+				return t.numSourceDimensions();
+			}
+
+			@Override
+			public StridedRandomAccess< T > randomAccess()
+			{
+				return new StridedRandomAccess< T >( s.randomAccess(), t );
+			}
+
+			@Override
+			public StridedRandomAccess< T > randomAccess( final Interval interval )
+			{
+				return new StridedRandomAccess< T >( s.randomAccess(), t );
+			}
+		};
+	}
 }
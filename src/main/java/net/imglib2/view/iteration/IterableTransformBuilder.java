@@ -228,7 +228,7 @@ public class IterableTransformBuilder< T > extends TransformBuilder< T >
 	 */
 	public IterableInterval< T > buildIterableInterval()
 	{
-		if ( boundingBox != null && SubIntervalIterable.class.isInstance( source ) )
+		if ( boundingBox != null && conversions.isEmpty() && SubIntervalIterable.class.isInstance( source ) )
 		{
 			@SuppressWarnings( "unchecked" )
 			final SubIntervalIterable< T > iterableSource = ( SubIntervalIterable< T > ) source;
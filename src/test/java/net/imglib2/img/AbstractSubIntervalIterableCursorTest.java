@@ -67,6 +67,12 @@ public abstract class AbstractSubIntervalIterableCursorTest< T extends Img< IntT
 	/** Interval which is not optimizable */
 	protected Interval intervalShifted;
 
+	/**
+	 * Interval which is not contiguous in memory and iterated line by line.
+	 * dimension 0 should be at least 18
+	 */
+	protected Interval intervalRoi;
+
 	/*
 	 * Cursor
 	 */
@@ -103,6 +109,23 @@ public abstract class AbstractSubIntervalIterableCursorTest< T extends Img< IntT
 		testCursorJumpFwd( cursor, intervalShifted );
 	}
 
+	@Test
+	public void testIterationRoi()
+	{
+		Cursor< IntType > cursor = Views.interval( img, intervalRoi ).cursor();
+
+		testCursorIteration( cursor, intervalRoi );
+	}
+
+	@Test
+	public void testJumpFwdRoi()
+	{
+		Cursor< IntType > cursor = Views.interval( img, intervalRoi ).cursor();
+
+		testCursorJumpFwd( cursor, intervalRoi );
+		testCursorJumpFwdAcrossLines( Views.interval( img, intervalRoi ).cursor() );
+	}
+
 	/*
 	 * Localizing Cursor
 	 */
@@ -139,6 +162,23 @@ public abstract class AbstractSubIntervalIterableCursorTest< T extends Img< IntT
 		testCursorJumpFwd( cursor, intervalShifted );
 	}
 
+	@Test
+	public void testLocalizingIterationRoi()
+	{
+		Cursor< IntType > cursor = Views.interval( img, intervalRoi ).localizingCursor();
+
+		testCursorIteration( cursor, intervalRoi );
+	}
+
+	@Test
+	public void testLocalizingJumpFwdRoi()
+	{
+		Cursor< IntType > cursor = Views.interval( img, intervalRoi ).localizingCursor();
+
+		testCursorJumpFwd( cursor, intervalRoi );
+		testCursorJumpFwdAcrossLines( Views.interval( img, intervalRoi ).localizingCursor() );
+	}
+
 	protected void testCursorIteration( Cursor< IntType > cursor, Interval i )
 	{
 
@@ -190,6 +230,37 @@ public abstract class AbstractSubIntervalIterableCursorTest< T extends Img< IntT
 		assertArrayEquals( "jumpFwd position incorrect.", ref, position );
 	}
 
+	protected void testCursorJumpFwdAcrossLines( Cursor< IntType > cursor )
+	{
+		long[] position = new long[ cursor.numDimensions() ];
+		long[] ref = new long[ cursor.numDimensions() ];
+
+		final Cursor< IntType > reference = cursor.copyCursor();
+		long steps = 0;
+		for ( final long jump : new long[] { 1, 30, 18, 500, 1 } )
+		{
+			cursor.jumpFwd( jump );
+			for ( long s = 0; s < jump; ++s )
+				reference.fwd();
+			steps += jump;
+
+			cursor.localize( position );
+			reference.localize( ref );
+			assertArrayEquals( "jumpFwd position incorrect after " + steps + " steps.", ref, position );
+			assertEquals( "jumpFwd value incorrect after " + steps + " steps.", reference.get().get(), cursor.get().get() );
+		}
+
+		// copies continue from the same position
+		final Cursor< IntType > copy = cursor.copyCursor();
+		while ( reference.hasNext() )
+		{
+			reference.fwd();
+			copy.fwd();
+			assertEquals( reference.get().get(), copy.get().get() );
+		}
+		assertFalse( copy.hasNext() );
+	}
+
 	// HELPER
 
 	protected final long getSum( Interval interval )
@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.array.CopyOnWriteArrayImgFactory;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteIntArray;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.SharedCellImgFactory;
+import net.imglib2.type.numeric.integer.IntType;
+
+public class SnapshotsTest
+{
+	@Test
+	public void testArrayImgSnapshot()
+	{
+		final ArrayImg< IntType, ? > img = new CopyOnWriteArrayImgFactory<>( new IntType() ).create( 10, 10 );
+		int i = 0;
+		for ( final IntType t : img )
+			t.set( i++ );
+
+		final ArrayImg< IntType, ? > snapshot = Snapshots.snapshot( img );
+		assertTrue( ( ( CopyOnWriteIntArray ) snapshot.update( null ) ).isShared() );
+
+		img.forEach( t -> t.inc() );
+		i = 0;
+		for ( final IntType t : snapshot )
+			assertEquals( i++, t.get() );
+
+		snapshot.forEach( t -> t.set( 0 ) );
+		i = 0;
+		for ( final IntType t : img )
+			assertEquals( 1 + i++, t.get() );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testArrayImgSnapshotRequiresCopyOnWrite()
+	{
+		Snapshots.snapshot( ArrayImgs.ints( 10, 10 ) );
+	}
+
+	@Test
+	public void testCellImgSnapshot()
+	{
+		@SuppressWarnings( "unchecked" )
+		final CellImg< IntType, CopyOnWriteIntArray > img = ( CellImg< IntType, CopyOnWriteIntArray > ) new SharedCellImgFactory<>( new IntType(), 5 ).create( 10, 10 );
+		img.forEach( t -> t.set( 7 ) );
+
+		@SuppressWarnings( "unchecked" )
+		final CellImg< IntType, CopyOnWriteIntArray > snapshot = ( CellImg< IntType, CopyOnWriteIntArray > ) Snapshots.snapshot( img );
+		final RandomAccess< IntType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 6, 1 } );
+		ra.get().set( 42 );
+
+		final RandomAccess< IntType > sra = snapshot.randomAccess();
+		sra.setPosition( new long[] { 6, 1 } );
+		assertEquals( 7, sra.get().get() );
+		assertEquals( 42, ra.get().get() );
+
+		// only the written cell was copied
+		int numShared = 0;
+		for ( final Cell< CopyOnWriteIntArray > cell : img.getCells() )
+			if ( cell.getData().isShared() )
+				++numShared;
+		assertEquals( 3, numShared );
+		final RandomAccess< Cell< CopyOnWriteIntArray > > cells = img.getCells().randomAccess();
+		cells.setPosition( new long[] { 1, 0 } );
+		assertFalse( cells.get().getData().isShared() );
+	}
+}
@@ -77,6 +77,8 @@ public class ArrayIterableSubIntervalCursorTest extends AbstractSubIntervalItera
 
 		intervalShifted = new FinalInterval( new long[] { 0, 0, 3, 5, 1 }, new long[] { dimensions[ 0 ] - 1, dimensions[ 1 ] - 1, 4, 5, 1 } );
 
+		intervalRoi = new FinalInterval( new long[] { 2, 3, 1, 2, 0 }, new long[] { 19, 20, 4, 5, 2 } );
+
 		numValues = 1;
 		for ( int d = 0; d < dimensions.length; ++d )
 			numValues *= dimensions[ d ];
@@ -119,6 +121,12 @@ public class ArrayIterableSubIntervalCursorTest extends AbstractSubIntervalItera
 		// Testing Localizing Cursor
 		assertFalse( ( Views.interval( img, intervalFastPart ).localizingCursor() instanceof AbstractArrayLocalizingCursor ) );
 
+		// Testing Cursor
+		assertTrue( ( Views.interval( img, intervalRoi ).cursor() instanceof ArrayIntervalCursor ) );
+
+		// Testing Localizing Cursor
+		assertTrue( ( Views.interval( img, intervalRoi ).localizingCursor() instanceof ArrayIntervalCursor ) );
+
 		// Testing Cursor
 		assertTrue( ( Views.interval( img, intervalShifted ).cursor() instanceof ArraySubIntervalCursor ) );
 
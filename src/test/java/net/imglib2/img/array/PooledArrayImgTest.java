@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.array;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.imglib2.img.basictypeaccess.ArrayDataAccessPool;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class PooledArrayImgTest
+{
+	@Test
+	public void testReuse()
+	{
+		final PooledArrayImgFactory< FloatType > factory = new PooledArrayImgFactory<>( new FloatType() );
+		final ArrayDataAccessPool pool = factory.getPool();
+
+		final Object data;
+		try ( PooledArrayImg< FloatType, ? > img = factory.create( 10, 20 ) )
+		{
+			img.forEach( t -> t.set( 3 ) );
+			data = img.update( null );
+		}
+		assertEquals( 1, pool.getNumRetained() );
+		assertEquals( 800, pool.getRetainedBytes() );
+
+		try ( PooledArrayImg< FloatType, ? > img = factory.create( 20, 10 ) )
+		{
+			assertSame( data, img.update( null ) );
+			img.forEach( t -> assertEquals( 0, t.get(), 0 ) );
+
+			// different size is not taken from the pool
+			try ( PooledArrayImg< FloatType, ? > other = factory.create( 5, 5 ) )
+			{
+				assertNotSame( data, other.update( null ) );
+			}
+		}
+
+		assertEquals( 3, pool.getNumAcquired() );
+		assertEquals( 1, pool.getNumReused() );
+		assertEquals( 3, pool.getNumReleased() );
+		assertEquals( 2, pool.getNumRetained() );
+	}
+
+	@Test
+	public void testCloseTwice()
+	{
+		final PooledArrayImgFactory< FloatType > factory = new PooledArrayImgFactory<>( new FloatType() );
+		final PooledArrayImg< FloatType, ? > img = factory.create( 10 );
+		img.close();
+		img.close();
+		assertTrue( img.isClosed() );
+		assertEquals( 1, factory.getPool().getNumReleased() );
+	}
+
+	@Test
+	public void testMaxRetainedBytes()
+	{
+		final ArrayDataAccessPool pool = new ArrayDataAccessPool( 100 );
+		final PooledArrayImgFactory< FloatType > factory = new PooledArrayImgFactory<>( new FloatType(), pool );
+		final PooledArrayImg< FloatType, ? > a = factory.create( 20 );
+		final PooledArrayImg< FloatType, ? > b = factory.create( 20 );
+		final PooledArrayImg< FloatType, ? > c = factory.create( 6 );
+		a.close();
+		b.close();
+		c.close();
+		assertEquals( 1, pool.getNumRetained() );
+		assertEquals( 80, pool.getRetainedBytes() );
+		assertEquals( 2, pool.getNumDiscarded() );
+	}
+
+	@Test
+	public void testCopyAndDerivedFactoryUsePool()
+	{
+		final PooledArrayImgFactory< FloatType > factory = new PooledArrayImgFactory<>( new FloatType() );
+		try ( PooledArrayImg< FloatType, ? > img = factory.create( 4, 4 ); PooledArrayImg< FloatType, ? > copy = img.copy() )
+		{
+			assertSame( factory.getPool(), copy.getPool() );
+		}
+		assertEquals( 2, factory.getPool().getNumRetained() );
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.basictypeaccess.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.exception.IncompatibleTypeException;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.Cell;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+
+public class BufferAccessTest
+{
+	@Test
+	public void testByteOrder()
+	{
+		final IntBufferAccess little = new IntBufferAccess( 2, ByteOrder.LITTLE_ENDIAN );
+		little.setValue( 1, 0x01020304 );
+		assertTrue( little.getBuffer().isDirect() );
+		assertEquals( 2, little.getArrayLength() );
+		assertEquals( 0x04, little.getBuffer().get( 4 ) );
+
+		final IntBufferAccess big = new IntBufferAccess( 2, ByteOrder.BIG_ENDIAN );
+		big.setValue( 1, 0x01020304 );
+		assertEquals( 0x01, big.getBuffer().get( 4 ) );
+		assertEquals( 0x01020304, big.getValue( 1 ) );
+	}
+
+	@Test
+	public void testWrapWithoutCopy()
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate( 16 ).order( ByteOrder.LITTLE_ENDIAN );
+		buffer.position( 8 );
+		final DoubleBufferAccess access = new DoubleBufferAccess( buffer );
+		assertEquals( 1, access.getArrayLength() );
+		access.setValue( 0, 1.5 );
+		assertEquals( 1.5, buffer.getDouble( 8 ), 0 );
+		assertEquals( ByteOrder.LITTLE_ENDIAN, access.order() );
+	}
+
+	@Test( expected = IndexOutOfBoundsException.class )
+	public void testRelease()
+	{
+		final FloatBufferAccess access = new FloatBufferAccess( 100, ByteOrder.nativeOrder() );
+		access.setValue( 99, 1 );
+		assertFalse( access.isReleased() );
+		access.release();
+		access.release();
+		assertTrue( access.isReleased() );
+		assertEquals( 0, access.getArrayLength() );
+		assertEquals( ByteOrder.nativeOrder(), access.order() );
+		access.getValue( 0 );
+	}
+
+	@Test
+	public void testBufferRemainsValidAfterRelease()
+	{
+		final IntBufferAccess access = new IntBufferAccess( 10, ByteOrder.nativeOrder() );
+		access.setValue( 3, 42 );
+		final ByteBuffer view = access.getBuffer().duplicate().order( ByteOrder.nativeOrder() );
+		access.release();
+		assertTrue( access.isReleased() );
+		assertEquals( 0, access.getArrayLength() );
+		assertEquals( 42, view.getInt( 3 * Integer.BYTES ) );
+		view.putInt( 0, 7 );
+		assertEquals( 7, view.getInt( 0 ) );
+	}
+
+	@Test
+	public void testReleaseUnsafe()
+	{
+		final FloatBufferAccess access = new FloatBufferAccess( 100, ByteOrder.nativeOrder() );
+		access.releaseUnsafe();
+		access.release();
+		assertTrue( access.isReleased() );
+		assertEquals( 0, access.getArrayLength() );
+	}
+
+	@Test
+	public void testSerialization() throws Exception
+	{
+		final ShortBufferAccess access = new ShortBufferAccess( 3, ByteOrder.BIG_ENDIAN );
+		access.setValue( 2, ( short ) -7 );
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream( bytes ))
+		{
+			out.writeObject( access );
+		}
+		try (final ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			final ShortBufferAccess copy = ( ShortBufferAccess ) in.readObject();
+			assertEquals( 3, copy.getArrayLength() );
+			assertEquals( -7, copy.getValue( 2 ) );
+			assertEquals( ByteOrder.BIG_ENDIAN, copy.order() );
+		}
+	}
+
+	@Test
+	public void testArrayImgFactory()
+	{
+		final ArrayImg< FloatType, ? > img = new ArrayImgFactory<>( new FloatType(), ByteOrder.BIG_ENDIAN ).create( 4, 5 );
+		final Object data = img.update( null );
+		assertTrue( data instanceof FloatBufferAccess );
+
+		float i = 0;
+		for ( final FloatType t : img )
+			t.set( i++ );
+		assertEquals( 19f, ( ( FloatBufferAccess ) data ).getBuffer().getFloat( 19 * Float.BYTES ), 0 );
+
+		final ArrayImg< FloatType, ? > copy = img.copy();
+		assertTrue( copy.update( null ) instanceof FloatBufferAccess );
+		assertEquals( ByteOrder.BIG_ENDIAN, ( ( FloatBufferAccess ) copy.update( null ) ).order() );
+		final Cursor< FloatType > c = copy.cursor();
+		i = 0;
+		while ( c.hasNext() )
+			assertEquals( i++, c.next().get(), 0 );
+
+		( ( FloatBufferAccess ) data ).release();
+	}
+
+	@Test
+	public void testArrayImgFactoryBitType()
+	{
+		final ArrayImg< BitType, ? > img = new ArrayImgFactory<>( new BitType(), ByteOrder.LITTLE_ENDIAN ).create( 100 );
+		assertTrue( img.update( null ) instanceof LongBufferAccess );
+		int i = 0;
+		for ( final BitType t : img )
+			t.set( i++ % 3 == 0 );
+		i = 0;
+		for ( final BitType t : img )
+			assertEquals( i++ % 3 == 0, t.get() );
+	}
+
+	@Test
+	public void testCellImgFactory() throws IncompatibleTypeException
+	{
+		final CellImgFactory< UnsignedShortType > factory = new CellImgFactory<>( new UnsignedShortType(), ByteOrder.LITTLE_ENDIAN, 4 );
+		final CellImg< UnsignedShortType, ? > img = factory.create( 10, 6 );
+		img.forEach( t -> t.set( 60000 ) );
+
+		final Cursor< ? extends Cell< ? > > cells = img.getCells().cursor();
+		while ( cells.hasNext() )
+		{
+			final Object data = cells.next().getData();
+			assertTrue( data instanceof ShortBufferAccess );
+			final ShortBufferAccess access = ( ShortBufferAccess ) data;
+			assertEquals( ( short ) 60000, access.getValue( 0 ) );
+			access.release();
+		}
+
+		assertSame( ByteOrder.LITTLE_ENDIAN, ( ( CellImgFactory< ? > ) factory.imgFactory( new FloatType() ) ).getByteOrder() );
+		assertArrayEquals( new long[] { 10, 6 }, Intervals.dimensionsAsLongArray( img.factory().create( img ) ) );
+	}
+}
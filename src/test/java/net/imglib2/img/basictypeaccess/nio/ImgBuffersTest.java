@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.basictypeaccess.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Snapshots;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.array.CopyOnWriteArrayImgFactory;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.complex.ComplexFloatType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class ImgBuffersTest
+{
+	@Test
+	public void testFloatBufferSharesData()
+	{
+		final ArrayImg< FloatType, ? > img = ArrayImgs.floats( 4, 3 );
+		final FloatBuffer buffer = ( FloatBuffer ) ImgBuffers.buffer( img );
+		assertEquals( 12, buffer.remaining() );
+
+		buffer.put( 5, 3.5f );
+		final RandomAccess< FloatType > access = img.randomAccess();
+		access.setPosition( new long[] { 1, 1 } );
+		assertEquals( 3.5f, access.get().get(), 0 );
+
+		access.get().set( 7 );
+		assertEquals( 7f, buffer.get( 5 ), 0 );
+	}
+
+	@Test
+	public void testWrapByteBuffer()
+	{
+		for ( final ByteOrder order : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN } )
+		{
+			final ByteBuffer bytes = ByteBuffer.allocateDirect( 4 * 6 ).order( order );
+			bytes.putInt( 8, 0x01020304 );
+
+			final ArrayImg< IntType, ? > img = ImgBuffers.wrap( bytes, new IntType(), 3, 2 );
+			final RandomAccess< IntType > access = img.randomAccess();
+			access.setPosition( new long[] { 2, 0 } );
+			assertEquals( 0x01020304, access.get().get() );
+
+			access.setPosition( new long[] { 0, 1 } );
+			access.get().set( 42 );
+			assertEquals( 42, bytes.getInt( 12 ) );
+
+			final ByteBuffer exported = ImgBuffers.byteBuffer( img );
+			assertEquals( order, exported.order() );
+			assertEquals( 24, exported.remaining() );
+			assertEquals( 42, exported.getInt( 12 ) );
+		}
+	}
+
+	@Test
+	public void testWrapHeapFloatBuffer()
+	{
+		final float[] data = new float[ 6 ];
+		final ArrayImg< FloatType, ? > img = ImgBuffers.wrap( FloatBuffer.wrap( data ), new FloatType(), 2, 3 );
+		img.forEach( t -> t.set( 2 ) );
+		assertArrayEquals( new float[] { 2, 2, 2, 2, 2, 2 }, data, 0 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testWrapTooSmall()
+	{
+		ImgBuffers.wrap( ByteBuffer.allocate( 10 ), new FloatType(), 3 );
+	}
+
+	@Test( expected = UnsupportedOperationException.class )
+	public void testByteBufferOfHeapFloats()
+	{
+		ImgBuffers.byteBuffer( ArrayImgs.floats( 2 ) );
+	}
+
+	@Test
+	public void testComplexEntitiesInterleaved()
+	{
+		final ArrayImg< ComplexFloatType, ? > img = ArrayImgs.complexFloats( 3 );
+		final RandomAccess< ComplexFloatType > access = img.randomAccess();
+		access.setPosition( 1, 0 );
+		access.get().set( 1, 2 );
+
+		final FloatBuffer buffer = ( FloatBuffer ) ImgBuffers.buffer( img );
+		assertEquals( 6, buffer.remaining() );
+		assertEquals( 1f, buffer.get( 2 ), 0 );
+		assertEquals( 2f, buffer.get( 3 ), 0 );
+	}
+
+	@Test
+	public void testARGBByteLayout()
+	{
+		final byte[] big = argbBytes( ByteOrder.BIG_ENDIAN );
+		assertArrayEquals( new byte[] { 0x11, 0x22, 0x33, 0x44 }, big );
+		final byte[] little = argbBytes( ByteOrder.LITTLE_ENDIAN );
+		assertArrayEquals( new byte[] { 0x44, 0x33, 0x22, 0x11 }, little );
+	}
+
+	private static byte[] argbBytes( final ByteOrder order )
+	{
+		final ArrayImg< ARGBType, ? > img = new ArrayImgFactory<>( new ARGBType(), order ).create( 1 );
+		img.firstElement().set( ARGBType.rgba( 0x22, 0x33, 0x44, 0x11 ) );
+		final ByteBuffer bytes = ImgBuffers.byteBuffer( img );
+		final byte[] result = new byte[ 4 ];
+		bytes.get( result );
+		return result;
+	}
+
+	@Test
+	public void testPlanes()
+	{
+		final PlanarImg< IntType, ? > img = PlanarImgs.ints( 2, 2, 3 );
+		final RandomAccess< IntType > access = img.randomAccess();
+		access.setPosition( new long[] { 1, 0, 2 } );
+		access.get().set( 9 );
+		final IntBuffer plane = ( IntBuffer ) ImgBuffers.buffer( img, 2 );
+		assertEquals( 4, plane.remaining() );
+		assertEquals( 9, plane.get( 1 ) );
+
+		final PlanarImg< IntType, ? > wrapped = ImgBuffers.wrapPlanes( Arrays.asList(
+				IntBuffer.wrap( new int[ 4 ] ),
+				IntBuffer.wrap( new int[] { 0, 0, 0, 5 } ) ),
+				new IntType(), 2, 2, 2 );
+		final RandomAccess< IntType > wrappedAccess = wrapped.randomAccess();
+		wrappedAccess.setPosition( new long[] { 1, 1, 1 } );
+		assertEquals( 5, wrappedAccess.get().get() );
+		assertEquals( 2, wrapped.numSlices() );
+	}
+
+	@Test
+	public void testCopyOnWriteDataIsReadOnly()
+	{
+		final ArrayImg< FloatType, ? > img = new CopyOnWriteArrayImgFactory<>( new FloatType() ).create( 4 );
+		final FloatBuffer unshared = ( FloatBuffer ) ImgBuffers.buffer( img );
+		assertTrue( unshared.isReadOnly() );
+
+		// a snapshot taken after the export must not be affected by the buffer
+		img.firstElement().set( 1 );
+		final ArrayImg< FloatType, ? > snapshot = Snapshots.snapshot( img );
+		assertEquals( 1f, unshared.get( 0 ), 0 );
+
+		// the buffer is not updated after the image copied its storage
+		final FloatBuffer shared = ( FloatBuffer ) ImgBuffers.buffer( img );
+		assertTrue( shared.isReadOnly() );
+		img.firstElement().set( 2 );
+		assertEquals( 1f, shared.get( 0 ), 0 );
+		assertEquals( 1f, snapshot.firstElement().get(), 0 );
+		assertEquals( 2f, ( ( FloatBuffer ) ImgBuffers.buffer( img ) ).get( 0 ), 0 );
+	}
+}
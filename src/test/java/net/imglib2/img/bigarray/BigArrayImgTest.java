@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.bigarray;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.Unsigned12BitType;
+
+public class BigArrayImgTest
+{
+	private static BigArrayImg< IntType, ? > createIndexImg( final long... dimensions )
+	{
+		final BigArrayImg< IntType, ? > img = new BigArrayImgFactory<>( new IntType(), 64 ).create( dimensions );
+		int i = 0;
+		for ( final IntType t : img )
+			t.set( i++ );
+		return img;
+	}
+
+	@Test
+	public void testChunks()
+	{
+		final BigArrayImg< IntType, ? > img = createIndexImg( 10, 13 );
+		assertEquals( 3, img.numChunks() );
+		assertEquals( 64, img.getPixelsPerChunk() );
+		assertEquals( 2, ( ( IntArray ) img.getChunk( 2 ) ).getCurrentStorageArray().length );
+	}
+
+	@Test
+	public void testLocalizingCursor()
+	{
+		final BigArrayImg< IntType, ? > img = createIndexImg( 10, 13 );
+		final Cursor< IntType > cursor = img.localizingCursor();
+		final Cursor< IntType > plain = img.cursor();
+		final long[] position = new long[ 2 ];
+		while ( cursor.hasNext() )
+		{
+			final int value = cursor.next().get();
+			plain.fwd();
+			assertEquals( value, plain.get().get() );
+			assertEquals( cursor.getLongPosition( 0 ) + 10 * cursor.getLongPosition( 1 ), value );
+			plain.localize( position );
+			assertArrayEquals( new long[] { cursor.getLongPosition( 0 ), cursor.getLongPosition( 1 ) }, position );
+		}
+		assertEquals( 129, plain.get().get() );
+	}
+
+	@Test
+	public void testJumpFwdAndCopy()
+	{
+		final BigArrayImg< IntType, ? > img = createIndexImg( 10, 13 );
+		final Cursor< IntType > cursor = img.localizingCursor();
+		cursor.jumpFwd( 70 );
+		assertEquals( 69, cursor.get().get() );
+		assertEquals( 6, cursor.getLongPosition( 1 ) );
+		final Cursor< IntType > copy = cursor.copyCursor();
+		copy.fwd();
+		assertEquals( 70, copy.get().get() );
+		assertEquals( 69, cursor.get().get() );
+	}
+
+	@Test
+	public void testRandomAccess()
+	{
+		final BigArrayImg< IntType, ? > img = createIndexImg( 10, 13 );
+		final RandomAccess< IntType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 3, 12 } );
+		assertEquals( 123, ra.get().get() );
+		ra.bck( 1 );
+		assertEquals( 113, ra.get().get() );
+		// move through out-of-bounds positions
+		ra.move( -20, 0 );
+		ra.move( 20, 0 );
+		assertEquals( 113, ra.get().get() );
+		ra.setPosition( 0, 1 );
+		assertEquals( 3, ra.get().get() );
+		ra.get().set( -1 );
+		final RandomAccess< IntType > copy = ra.copyRandomAccess();
+		assertEquals( -1, copy.get().get() );
+	}
+
+	@Test
+	public void testSubByteTypes()
+	{
+		final BigArrayImg< BitType, ? > bits = new BigArrayImgFactory<>( new BitType(), 64 ).create( 1000 );
+		long i = 0;
+		for ( final BitType t : bits )
+			t.set( i++ % 7 == 0 );
+		final RandomAccess< BitType > ra = bits.randomAccess();
+		for ( i = 0; i < 1000; ++i )
+		{
+			ra.setPosition( i, 0 );
+			assertEquals( i % 7 == 0, ra.get().get() );
+		}
+
+		final BigArrayImg< Unsigned12BitType, ? > twelve = new BigArrayImgFactory<>( new Unsigned12BitType(), 64 ).create( 33, 7 );
+		i = 0;
+		for ( final Unsigned12BitType t : twelve )
+			t.set( i++ % 4096 );
+		final BigArrayImg< Unsigned12BitType, ? > copy = twelve.copy();
+		i = 0;
+		for ( final Unsigned12BitType t : copy )
+			assertEquals( i++ % 4096, t.get() );
+	}
+
+	@Test
+	public void testIterationOrder()
+	{
+		final BigArrayImg< IntType, ? > img = createIndexImg( 10, 13 );
+		assertTrue( img.iterationOrder().equals( ArrayImgs.ints( 10, 13 ).iterationOrder() ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNonPowerOfTwo()
+	{
+		new BigArrayImgFactory<>( new IntType(), 100 );
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.nio.DoubleBufferAccess;
+import net.imglib2.type.numeric.integer.IntType;
+
+public class CellCacheTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 10, 10 }, new int[] { 4, 4 } );
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private Cell< IntArray > load( final long index )
+	{
+		loads.incrementAndGet();
+		final long[] cellMin = new long[ 2 ];
+		final int[] cellDims = new int[ 2 ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final int[] data = new int[ cellDims[ 0 ] * cellDims[ 1 ] ];
+		Arrays.fill( data, ( int ) index );
+		return new Cell<>( cellDims, cellMin, new IntArray( data ) );
+	}
+
+	@Test
+	public void testHitsAndMisses()
+	{
+		final CellCache< Cell< IntArray > > cache = new CellCache<>( this::load, CellCache.lru( 100 ) );
+		final Cell< IntArray > cell = cache.get( 3 );
+		assertSame( cell, cache.get( 3 ) );
+		assertSame( cell, cache.get( 3 ) );
+		assertEquals( 1, loads.get() );
+		assertEquals( 1, cache.getMissCount() );
+		assertEquals( 2, cache.getHitCount() );
+		assertEquals( 0, cache.getEvictionCount() );
+	}
+
+	@Test
+	public void testLruByCount()
+	{
+		final CellCache< Cell< IntArray > > cache = new CellCache<>( this::load, CellCache.lru( 2 ) );
+		cache.get( 0 );
+		cache.get( 1 );
+		cache.get( 0 );
+		cache.get( 2 ); // evicts 1
+		assertEquals( 2, cache.size() );
+		assertEquals( 1, cache.getEvictionCount() );
+		cache.get( 0 );
+		assertEquals( 3, loads.get() );
+		cache.get( 1 );
+		assertEquals( 4, loads.get() );
+	}
+
+	@Test
+	public void testLruByBytes()
+	{
+		// cells 0 and 1 have 16 ints = 64 bytes each, cell 2 has 8 ints
+		final CellCache< Cell< IntArray > > cache = new CellCache<>( this::load, CellCache.lru( 100, CellCache::sizeInBytes ) );
+		assertEquals( 64, CellCache.sizeInBytes( cache.get( 0 ) ) );
+		assertEquals( 32, CellCache.sizeInBytes( cache.get( 2 ) ) );
+		assertEquals( 2, cache.size() );
+		cache.get( 1 ); // evicts 0
+		assertEquals( 2, cache.size() );
+		assertEquals( 1, cache.getEvictionCount() );
+		cache.get( 2 );
+		assertEquals( 3, loads.get() );
+		cache.get( 0 );
+		assertEquals( 4, loads.get() );
+	}
+
+	@Test
+	public void testSizeInBytesOfBufferAccess()
+	{
+		final Cell< DoubleBufferAccess > cell = new Cell<>( new int[] { 4, 3 }, new long[] { 0, 0 }, new DoubleBufferAccess( 12, ByteOrder.LITTLE_ENDIAN ) );
+		assertEquals( 96, CellCache.sizeInBytes( cell ) );
+	}
+
+	@Test
+	public void testWeakReferences()
+	{
+		final CellCache< Cell< IntArray > > cache = new CellCache<>( this::load, CellCache.weakReferences() );
+		final Cell< IntArray > cell = cache.get( 5 );
+		assertSame( cell, cache.get( 5 ) );
+		assertEquals( 1, loads.get() );
+	}
+
+	@Test
+	public void testInvalidate()
+	{
+		final CellCache< Cell< IntArray > > cache = new CellCache<>( this::load, CellCache.lru( 10 ) );
+		cache.get( 0 );
+		cache.get( 1 );
+		cache.invalidate( 0 );
+		assertEquals( 1, cache.size() );
+		cache.invalidateAll();
+		assertEquals( 0, cache.size() );
+		cache.get( 1 );
+		assertEquals( 3, loads.get() );
+	}
+
+	@Test
+	public void testInvalidateDuringLoad() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final CellCache< Cell< IntArray > > cache = new CellCache<>( index -> {
+			if ( index == 0 )
+			{
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch ( final InterruptedException e )
+				{
+					throw new RuntimeException( e );
+				}
+			}
+			return load( index );
+		}, CellCache.lru( 2 ) );
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try
+		{
+			cache.get( 1 );
+			final Future< Cell< IntArray > > future = executor.submit( () -> cache.get( 0 ) );
+			started.await( 10, TimeUnit.SECONDS );
+			cache.invalidate( 0 );
+			release.countDown();
+			future.get();
+
+			// the invalidated cell must not take a place in the LRU
+			cache.get( 2 );
+			assertEquals( 2, cache.size() );
+			assertEquals( 0, cache.getEvictionCount() );
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testConcurrentLoadsAreDeduplicated() throws Exception
+	{
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final CellCache< Cell< IntArray > > cache = new CellCache<>( index -> {
+			started.countDown();
+			try
+			{
+				release.await();
+			}
+			catch ( final InterruptedException e )
+			{
+				throw new RuntimeException( e );
+			}
+			return load( index );
+		}, CellCache.softReferences() );
+		final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final List< Future< Cell< IntArray > > > futures = new ArrayList<>();
+			futures.add( executor.submit( () -> cache.get( 7 ) ) );
+			started.await( 10, TimeUnit.SECONDS );
+			for ( int i = 0; i < 3; i++ )
+				futures.add( executor.submit( () -> cache.get( 7 ) ) );
+			release.countDown();
+			final Cell< IntArray > cell = futures.get( 0 ).get();
+			for ( final Future< Cell< IntArray > > future : futures )
+				assertSame( cell, future.get() );
+			assertEquals( 1, loads.get() );
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCachedCellImg()
+	{
+		final CachedCellImg< IntType, IntArray > img = new CachedCellImg<>( grid, new IntType(), this::load, CellCache.lru( 4 ) );
+		final CellCursor< IntType, ? > cursor = img.cursor();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			final long[] cellPosition = new long[ 2 ];
+			grid.getCellPosition( new long[] { cursor.getLongPosition( 0 ), cursor.getLongPosition( 1 ) }, cellPosition );
+			assertEquals( cellPosition[ 0 ] + 3 * cellPosition[ 1 ], cursor.get().get() );
+		}
+		assertEquals( 9, img.getCache().getMissCount() );
+		assertEquals( 4, img.getCache().size() );
+	}
+}
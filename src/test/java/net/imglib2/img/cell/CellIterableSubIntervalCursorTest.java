@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.AbstractSubIntervalIterableCursorTest;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.IntervalIndexer;
+import net.imglib2.view.Views;
+
+public class CellIterableSubIntervalCursorTest extends AbstractSubIntervalIterableCursorTest< CellImg< IntType, ? > >
+{
+	@Before
+	public void createSourceData()
+	{
+		dimensions = new long[] { 23, 31, 11, 7, 3 };
+
+		intervalFast = new FinalInterval( new long[] { dimensions[ 0 ], dimensions[ 1 ], 5, 1, 1 } );
+
+		intervalShifted = new FinalInterval( new long[] { 0, 0, 3, 5, 1 }, new long[] { dimensions[ 0 ] - 1, dimensions[ 1 ] - 1, 4, 5, 1 } );
+
+		intervalRoi = new FinalInterval( new long[] { 2, 3, 1, 2, 0 }, new long[] { 19, 20, 4, 5, 2 } );
+
+		int numValues = 1;
+		for ( int d = 0; d < dimensions.length; ++d )
+			numValues *= dimensions[ d ];
+
+		intData = new int[ numValues ];
+		final Random random = new Random( 0 );
+		for ( int i = 0; i < numValues; ++i )
+			intData[ i ] = random.nextInt();
+
+		img = new CellImgFactory<>( new IntType(), 5, 4, 3 ).create( dimensions );
+
+		final long[] pos = new long[ dimensions.length ];
+		final RandomAccess< IntType > a = img.randomAccess();
+		for ( int i = 0; i < numValues; ++i )
+		{
+			IntervalIndexer.indexToPosition( i, dimensions, pos );
+			a.setPosition( pos );
+			a.get().set( intData[ i ] );
+		}
+	}
+
+	@Test
+	public void testOptimizable()
+	{
+		assertTrue( Views.interval( img, intervalRoi ).cursor() instanceof CellIntervalCursor );
+
+		assertTrue( Views.interval( img, intervalRoi ).localizingCursor() instanceof CellIntervalCursor );
+
+		// sub-intervals of a CellImg have flat iteration order
+		assertTrue( Views.flatIterable( Views.interval( img, intervalShifted ) ).cursor() instanceof CellIntervalCursor );
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class CompressedCellImgTest
+{
+	@Test
+	public void testLabelImage()
+	{
+		final CompressedCellImg< UnsignedShortType, ? > img = new CompressedCellImgFactory<>( new UnsignedShortType(), 2, 16 ).create( 64, 64 );
+		final Cursor< UnsignedShortType > cursor = img.localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			cursor.get().set( label( cursor.getIntPosition( 0 ), cursor.getIntPosition( 1 ) ) );
+		}
+		img.flush();
+
+		final CompressedCellCache< ? > cache = img.getCache();
+		assertEquals( 16, cache.getNumCompressedCells() );
+		assertEquals( 16 * 16 * 16 * 2, cache.getUncompressedBytes() );
+		assertTrue( cache.getCompressionRatio() > 10 );
+		assertTrue( cache.getCache().size() <= 2 );
+
+		// allow evicted cells to be garbage collected, such that they are decompressed
+		System.gc();
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		for ( int y = 63; y >= 0; --y )
+			for ( int x = 63; x >= 0; --x )
+			{
+				ra.setPosition( new long[] { x, y } );
+				assertEquals( label( x, y ), ra.get().get() );
+			}
+	}
+
+	private static int label( final int x, final int y )
+	{
+		return x < 40 ? y / 10 : 1000;
+	}
+
+	@Test
+	public void testDeflate()
+	{
+		final CompressedCellImg< DoubleType, ? > img = new CompressedCellImgFactory<>( new DoubleType(), CompressedCellCache.deflate(), 1, 8 ).create( 24, 24 );
+		final Random random = new Random( 1 );
+		final double[] values = new double[ 24 * 24 ];
+		for ( int i = 0; i < values.length; ++i )
+			values[ i ] = random.nextInt( 4 );
+		final RandomAccess< DoubleType > ra = img.randomAccess();
+		for ( int i = 0; i < values.length; ++i )
+		{
+			ra.setPosition( new long[] { i % 24, i / 24 } );
+			ra.get().set( values[ i ] );
+		}
+		img.flush();
+		System.gc();
+		for ( int i = values.length - 1; i >= 0; --i )
+		{
+			ra.setPosition( new long[] { i % 24, i / 24 } );
+			assertEquals( values[ i ], ra.get().get(), 0 );
+		}
+		assertTrue( img.getCache().getCompressedBytes() < img.getCache().getUncompressedBytes() );
+	}
+
+	@Test
+	public void testWriteThroughLingeringAccessAfterEviction() throws InterruptedException
+	{
+		final CompressedCellImg< UnsignedShortType, ? > img = new CompressedCellImgFactory<>( new UnsignedShortType(), 1, 8 ).create( 16, 16 );
+		final CompressedCellCache< ? > cache = img.getCache();
+		RandomAccess< UnsignedShortType > lingering = img.randomAccess();
+		lingering.setPosition( new long[] { 1, 1 } );
+		lingering.get().set( 1 );
+
+		// evict the cell of the lingering access
+		final RandomAccess< UnsignedShortType > other = img.randomAccess();
+		other.setPosition( new long[] { 12, 12 } );
+		other.get().set( 2 );
+		assertEquals( 1, cache.getCompressionCount() );
+
+		// modify the evicted cell, then let it be garbage collected
+		lingering.get().set( 3 );
+		lingering = null;
+		for ( int i = 0; i < 100 && cache.getCompressionCount() == 1; ++i )
+		{
+			System.gc();
+			Thread.sleep( 10 );
+			cache.get( 3 );
+		}
+		assertEquals( 2, cache.getCompressionCount() );
+
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 1, 1 } );
+		assertEquals( 3, ra.get().get() );
+	}
+
+	@Test
+	public void testUntouchedCellsTakeNoMemory()
+	{
+		final CompressedCellImg< UnsignedShortType, ? > img = new CompressedCellImgFactory<>( new UnsignedShortType(), 1, 8 ).create( 64, 64 );
+		for ( final UnsignedShortType t : img )
+			assertEquals( 0, t.get() );
+		assertEquals( 0, img.getCache().getNumCompressedCells() );
+		assertEquals( 0, img.getCache().getCompressionCount() );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testDeflateTruncated()
+	{
+		final byte[] data = new byte[ 1000 ];
+		for ( int i = 0; i < data.length; ++i )
+			data[ i ] = ( byte ) ( i * i );
+		final CompressedCellCache.Codec codec = CompressedCellCache.deflate();
+		final byte[] encoded = codec.encode( ByteBuffer.wrap( data ), 1 );
+		codec.decode( Arrays.copyOf( encoded, encoded.length / 2 ), ByteBuffer.wrap( new byte[ data.length ] ), 1 );
+	}
+
+	@Test
+	public void testRunLengthCodec()
+	{
+		final byte[] data = new byte[ 3 * 200 ];
+		for ( int i = 0; i < 200; ++i )
+		{
+			data[ 3 * i ] = ( byte ) ( i / 150 );
+			data[ 3 * i + 2 ] = 7;
+		}
+		final CompressedCellCache.Codec codec = CompressedCellCache.runLength();
+		final byte[] encoded = codec.encode( ByteBuffer.wrap( data ), 3 );
+		// two runs of 150 and 50 elements, 150 needs two bytes
+		assertEquals( 2 + 3 + 1 + 3, encoded.length );
+
+		final byte[] decoded = new byte[ data.length ];
+		codec.decode( encoded, ByteBuffer.wrap( decoded ), 3 );
+		for ( int i = 0; i < data.length; ++i )
+			assertEquals( data[ i ], decoded[ i ] );
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.DoubleType;
+
+public class DiskCachedCellImgTest
+{
+	@Test
+	public void testWriteAndReadBack()
+	{
+		try (final DiskCachedCellImg< IntType, ? > img = new DiskCachedCellImgFactory<>( new IntType(), 3, 4 ).create( 20, 18 ))
+		{
+			fill( img );
+			assertTrue( img.getCache().getWriteCount() > 0 );
+			// allow evicted cells to be garbage collected, such that they are read from disk
+			System.gc();
+
+			final RandomAccess< IntType > ra = img.randomAccess();
+			for ( int y = 17; y >= 0; --y )
+				for ( int x = 19; x >= 0; --x )
+				{
+					ra.setPosition( new long[] { x, y } );
+					assertEquals( x + 100 * y, ra.get().get() );
+				}
+			assertTrue( img.getCache().getCache().size() <= 3 );
+		}
+	}
+
+	private void fill( final DiskCachedCellImg< IntType, ? > img )
+	{
+		final Cursor< IntType > cursor = img.localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			cursor.get().set( cursor.getIntPosition( 0 ) + 100 * cursor.getIntPosition( 1 ) );
+		}
+	}
+
+	@Test
+	public void testCleanCellsAreNotWritten()
+	{
+		try (final DiskCachedCellImg< DoubleType, ? > img = new DiskCachedCellImgFactory<>( new DoubleType(), 2, 5 ).create( 20, 20 ))
+		{
+			double sum = 0;
+			for ( final DoubleType pixel : img )
+				sum += pixel.get();
+			assertEquals( 0, sum, 0 );
+			assertEquals( 0, img.getCache().getWriteCount() );
+		}
+	}
+
+	@Test
+	public void testFlushWritesOnlyModifiedCells()
+	{
+		try (final DiskCachedCellImg< IntType, ? > img = new DiskCachedCellImgFactory<>( new IntType(), 10, 5 ).create( 10, 10 ))
+		{
+			final RandomAccess< IntType > ra = img.randomAccess();
+			ra.setPosition( new long[] { 7, 2 } );
+			ra.get().set( 42 );
+			ra.setPosition( new long[] { 1, 1 } );
+			ra.get().get();
+			img.flush();
+			assertEquals( 1, img.getCache().getWriteCount() );
+			img.flush();
+			assertEquals( 1, img.getCache().getWriteCount() );
+		}
+	}
+
+	@Test
+	public void testWriteThroughLingeringAccessAfterEviction() throws InterruptedException
+	{
+		try (final DiskCachedCellImg< IntType, ? > img = new DiskCachedCellImgFactory<>( new IntType(), 1, 5 ).create( 10, 10 ))
+		{
+			final DiskCellCache< ? > cache = img.getCache();
+			RandomAccess< IntType > lingering = img.randomAccess();
+			lingering.setPosition( new long[] { 1, 1 } );
+			lingering.get().set( 1 );
+
+			// evict the cell of the lingering access
+			final RandomAccess< IntType > other = img.randomAccess();
+			other.setPosition( new long[] { 8, 8 } );
+			other.get().set( 2 );
+			assertEquals( 1, cache.getWriteCount() );
+
+			// modify the evicted cell, then let it be garbage collected
+			lingering.get().set( 3 );
+			lingering = null;
+			for ( int i = 0; i < 100 && cache.getWriteCount() == 1; ++i )
+			{
+				System.gc();
+				Thread.sleep( 10 );
+				cache.get( 3 );
+			}
+			assertEquals( 2, cache.getWriteCount() );
+
+			final RandomAccess< IntType > ra = img.randomAccess();
+			ra.setPosition( new long[] { 1, 1 } );
+			assertEquals( 3, ra.get().get() );
+			ra.setPosition( new long[] { 8, 8 } );
+			assertEquals( 2, ra.get().get() );
+		}
+	}
+
+	@Test
+	public void testCloseDeletesScratchDirectory()
+	{
+		final DiskCachedCellImg< IntType, ? > img = new DiskCachedCellImgFactory<>( new IntType(), 1, 5 ).create( 10, 10 );
+		final Path directory = img.getCache().getDirectory();
+		img.forEach( pixel -> pixel.set( 1 ) );
+		assertTrue( Files.isDirectory( directory ) );
+		img.close();
+		assertFalse( Files.exists( directory ) );
+	}
+}
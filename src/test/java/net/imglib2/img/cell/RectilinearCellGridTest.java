@@ -0,0 +1,168 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+
+public class RectilinearCellGridTest
+{
+	private final RectilinearCellGrid grid = RectilinearCellGrid.fromCellSizes(
+			new int[] { 3, 7, 1, 5 },
+			new int[] { 4, 2, 6 } );
+
+	private static int value( final long x, final long y )
+	{
+		return ( int ) ( x + 100 * y );
+	}
+
+	/**
+	 * Wrap pre-chunked tiles, where each pixel holds {@code x + 100 * y}.
+	 */
+	private LazyCellImg< IntType, IntArray > createImg()
+	{
+		return new LazyCellImg<>( grid, new IntType(), index -> {
+			final long[] min = new long[ 2 ];
+			final int[] dims = new int[ 2 ];
+			grid.getCellDimensions( index, min, dims );
+			final int[] data = new int[ dims[ 0 ] * dims[ 1 ] ];
+			for ( int y = 0; y < dims[ 1 ]; ++y )
+				for ( int x = 0; x < dims[ 0 ]; ++x )
+					data[ x + y * dims[ 0 ] ] = value( min[ 0 ] + x, min[ 1 ] + y );
+			return new Cell<>( dims, min, new IntArray( data ) );
+		} );
+	}
+
+	@Test
+	public void testGeometry()
+	{
+		assertArrayEquals( new long[] { 16, 12 }, grid.getImgDimensions() );
+		assertArrayEquals( new long[] { 4, 3 }, grid.getGridDimensions() );
+		assertEquals( 7, grid.cellDimension( 0 ) );
+		assertEquals( 6, grid.cellDimension( 1 ) );
+
+		final long[] min = new long[ 2 ];
+		final int[] dims = new int[ 2 ];
+		grid.getCellDimensions( new long[] { 2, 1 }, min, dims );
+		assertArrayEquals( new long[] { 10, 4 }, min );
+		assertArrayEquals( new int[] { 1, 2 }, dims );
+		grid.getCellDimensions( 1 * 4 + 2, min, dims );
+		assertArrayEquals( new long[] { 10, 4 }, min );
+		assertArrayEquals( new int[] { 1, 2 }, dims );
+
+		assertEquals( 0, grid.getCellPosition( 0, 2 ) );
+		assertEquals( 1, grid.getCellPosition( 0, 3 ) );
+		assertEquals( 1, grid.getCellPosition( 0, 9 ) );
+		assertEquals( 2, grid.getCellPosition( 0, 10 ) );
+		assertEquals( 3, grid.getCellPosition( 0, 15 ) );
+		assertEquals( -1, grid.getCellPosition( 0, -5 ) );
+		assertEquals( 4, grid.getCellPosition( 0, 16 ) );
+
+		assertEquals( grid, new RectilinearCellGrid( new long[] { 0, 3, 10, 11, 16 }, new long[] { 0, 4, 6, 12 } ) );
+		assertFalse( grid.equals( new CellGrid( new long[] { 16, 12 }, new int[] { 7, 6 } ) ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testInvalidBoundaries()
+	{
+		new RectilinearCellGrid( new long[] { 0, 5, 5, 8 } );
+	}
+
+	@Test
+	public void testRandomAccess()
+	{
+		final LazyCellImg< IntType, IntArray > img = createImg();
+		final RandomAccess< IntType > ra = img.randomAccess();
+		for ( int y = 0; y < 12; ++y )
+			for ( int x = 0; x < 16; ++x )
+			{
+				ra.setPosition( new long[] { x, y } );
+				assertEquals( value( x, y ), ra.get().get() );
+			}
+
+		// walk across cell borders and out of / back into the image
+		ra.setPosition( new long[] { 0, 5 } );
+		for ( int x = 1; x < 16; ++x )
+		{
+			ra.fwd( 0 );
+			assertEquals( value( x, 5 ), ra.get().get() );
+		}
+		ra.move( -20, 0 );
+		ra.move( new long[] { 12, 5 } );
+		assertEquals( value( 7, 10 ), ra.get().get() );
+		ra.bck( 1 );
+		assertEquals( value( 7, 9 ), ra.get().get() );
+		ra.setPosition( 3, 1 );
+		assertEquals( value( 7, 3 ), ra.get().get() );
+		ra.move( 7, 0 );
+		assertEquals( value( 14, 3 ), ra.get().get() );
+	}
+
+	@Test
+	public void testCursors()
+	{
+		final LazyCellImg< IntType, IntArray > img = createImg();
+		assertEquals( 16 * 12, Intervals.numElements( img ) );
+
+		final long[] pos = new long[ 2 ];
+		int count = 0;
+		final Cursor< IntType > c = img.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			assertEquals( value( pos[ 0 ], pos[ 1 ] ), c.get().get() );
+			++count;
+		}
+		assertEquals( 16 * 12, count );
+
+		final Cursor< IntType > lc = img.localizingCursor();
+		lc.jumpFwd( 50 );
+		while ( lc.hasNext() )
+		{
+			lc.fwd();
+			assertEquals( value( lc.getLongPosition( 0 ), lc.getLongPosition( 1 ) ), lc.get().get() );
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.CopyOnWriteIntArray;
+import net.imglib2.type.numeric.integer.IntType;
+
+public class SharedCellsTest
+{
+	@SuppressWarnings( "unchecked" )
+	private static CellImg< IntType, CopyOnWriteIntArray > create( final long... dimensions )
+	{
+		return ( CellImg< IntType, CopyOnWriteIntArray > ) new SharedCellImgFactory<>( new IntType(), 10 ).create( dimensions );
+	}
+
+	@Test
+	public void testEmptyCellsAreShared()
+	{
+		final CellImg< IntType, CopyOnWriteIntArray > img = create( 100, 100 );
+		final Object first = img.getCells().firstElement().getData().getCurrentStorageArray();
+		for ( final Cell< CopyOnWriteIntArray > cell : img.getCells() )
+		{
+			final CopyOnWriteIntArray data = cell.getData();
+			assertTrue( data.isShared() );
+			assertSame( first, data.getCurrentStorageArray() );
+		}
+
+		final RandomAccess< IntType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 15, 3 } );
+		ra.get().set( 7 );
+
+		final RandomAccess< Cell< CopyOnWriteIntArray > > cells = img.getCells().randomAccess();
+		cells.setPosition( new long[] { 1, 0 } );
+		final CopyOnWriteIntArray written = cells.get().getData();
+		assertFalse( written.isShared() );
+		assertTrue( written.isDirty() );
+		assertNotSame( first, written.getCurrentStorageArray() );
+
+		cells.setPosition( new long[] { 2, 0 } );
+		final CopyOnWriteIntArray other = cells.get().getData();
+		assertTrue( other.isShared() );
+		assertFalse( other.isDirty() );
+
+		long sum = 0;
+		for ( final IntType t : img )
+			sum += t.get();
+		assertEquals( 7, sum );
+	}
+
+	@Test
+	public void testDeduplicate()
+	{
+		final CellImg< IntType, CopyOnWriteIntArray > img = create( 95, 100 );
+		img.forEach( t -> t.set( 5 ) );
+		for ( final Cell< CopyOnWriteIntArray > cell : img.getCells() )
+			assertFalse( cell.getData().isShared() );
+
+		// 90 cells of 10x10 and 10 cells of 5x10
+		assertEquals( 98, SharedCells.deduplicate( img.getCells() ) );
+		for ( final Cell< CopyOnWriteIntArray > cell : img.getCells() )
+		{
+			final CopyOnWriteIntArray data = cell.getData();
+			assertTrue( data.isShared() );
+			assertTrue( data.isDirty() );
+		}
+
+		final RandomAccess< IntType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 0, 0 } );
+		ra.get().set( 1 );
+		long sum = 0;
+		for ( final IntType t : img )
+			sum += t.get();
+		assertEquals( 5 * 95 * 100 - 4, sum );
+
+		final CellImg< IntType, CopyOnWriteIntArray > copy = img.copy();
+		sum = 0;
+		for ( final IntType t : copy )
+			sum += t.get();
+		assertEquals( 5 * 95 * 100 - 4, sum );
+	}
+
+	@Test
+	public void testLazyEmptyCells()
+	{
+		final CellGrid grid = new CellGrid( new long[] { 1000, 1000 }, new int[] { 50, 50 } );
+		final IntType type = new IntType();
+		final LazyCellImg< IntType, CopyOnWriteIntArray > img = new LazyCellImg<>( grid, type,
+				new CellCache<>( SharedCells.emptyCells( grid, type.getEntitiesPerPixel(), new CopyOnWriteIntArray( 0 ) ), CellCache.softReferences() ) );
+		final RandomAccess< IntType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 999, 999 } );
+		assertEquals( 0, ra.get().get() );
+		ra.get().set( 3 );
+		ra.setPosition( new long[] { 0, 0 } );
+		assertEquals( 0, ra.get().get() );
+		assertSame( img.getCells().get( 0 ).getData().getCurrentStorageArray(), img.getCells().get( 1 ).getData().getCurrentStorageArray() );
+		ra.setPosition( new long[] { 999, 999 } );
+		assertEquals( 3, ra.get().get() );
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.volatiles.array.VolatileFloatArray;
+import net.imglib2.type.volatiles.VolatileFloatType;
+import net.imglib2.util.Fraction;
+
+public class VolatileCellCacheTest
+{
+	private final CellGrid grid = new CellGrid( new long[] { 10, 10 }, new int[] { 4, 4 } );
+
+	private Cell< VolatileFloatArray > load( final long index )
+	{
+		final long[] cellMin = new long[ 2 ];
+		final int[] cellDims = new int[ 2 ];
+		grid.getCellDimensions( index, cellMin, cellDims );
+		final float[] data = new float[ cellDims[ 0 ] * cellDims[ 1 ] ];
+		Arrays.fill( data, index + 1 );
+		return new Cell<>( cellDims, cellMin, new VolatileFloatArray( data, true ) );
+	}
+
+	@Test
+	public void testFetchQueueOrder() throws InterruptedException
+	{
+		final FetchQueue queue = new FetchQueue( 2 );
+		queue.put( 1, 1 );
+		queue.put( 2, 0 );
+		queue.put( 3, 1 );
+		queue.put( 4, 0 );
+		assertFalse( queue.put( 4, 1 ) );
+		assertEquals( 4, queue.size() );
+		assertEquals( 4, queue.take() );
+		assertEquals( 2, queue.take() );
+		assertEquals( 3, queue.take() );
+		assertEquals( 1, queue.take() );
+		assertEquals( 0, queue.size() );
+	}
+
+	@Test
+	public void testFetchQueueRaisesPriority() throws InterruptedException
+	{
+		final FetchQueue queue = new FetchQueue( 3 );
+		queue.put( 1, 2 );
+		queue.put( 2, 1 );
+		queue.put( 3, 2 );
+		assertTrue( queue.put( 1, 0 ) );
+		assertFalse( queue.put( 2, 2 ) );
+		assertEquals( 3, queue.size() );
+		assertEquals( 1, queue.take() );
+		assertEquals( 2, queue.take() );
+		assertEquals( 3, queue.take() );
+		assertEquals( 0, queue.size() );
+	}
+
+	@Test
+	public void testPlaceholderThenValid() throws InterruptedException
+	{
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final CountDownLatch loaded = new CountDownLatch( 1 );
+		final VolatileCellCache< VolatileFloatArray > cache = new VolatileCellCache<>(
+				index -> {
+					try
+					{
+						release.await();
+					}
+					catch ( final InterruptedException e )
+					{
+						throw new RuntimeException( e );
+					}
+					final Cell< VolatileFloatArray > cell = load( index );
+					loaded.countDown();
+					return cell;
+				},
+				VolatileCellCache.emptyPlaceholders( grid, new Fraction(), new VolatileFloatArray( 0, false ) ),
+				CellCache.lru( 100 ), 2, 1 );
+		try
+		{
+			final VolatileCachedCellImg< VolatileFloatType, VolatileFloatArray > img = new VolatileCachedCellImg<>( grid, new VolatileFloatType(), cache );
+			final RandomAccess< VolatileFloatType > ra = img.randomAccess();
+			ra.setPosition( new long[] { 5, 1 } );
+			assertFalse( ra.get().isValid() );
+
+			release.countDown();
+			assertTrue( loaded.await( 10, TimeUnit.SECONDS ) );
+			assertTrue( waitUntilValid( img, new long[] { 5, 1 } ) );
+			final RandomAccess< VolatileFloatType > valid = img.randomAccess();
+			valid.setPosition( new long[] { 5, 1 } );
+			assertEquals( 2, valid.get().get().get(), 0 );
+		}
+		finally
+		{
+			cache.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailedLoadsAreCountedAndRetried() throws InterruptedException
+	{
+		final AtomicInteger attempts = new AtomicInteger();
+		final VolatileCellCache< VolatileFloatArray > cache = new VolatileCellCache<>(
+				index -> {
+					if ( index != 1 )
+						return load( index );
+					switch ( attempts.incrementAndGet() )
+					{
+					case 1:
+						throw new IllegalStateException( "broken loader" );
+					case 2:
+						throw new AssertionError( "broken loader" );
+					default:
+						return load( index );
+					}
+				},
+				VolatileCellCache.emptyPlaceholders( grid, new Fraction(), new VolatileFloatArray( 0, false ) ),
+				CellCache.lru( 100 ), 1, 1 );
+		try
+		{
+			final VolatileCachedCellImg< VolatileFloatType, VolatileFloatArray > img = new VolatileCachedCellImg<>( grid, new VolatileFloatType(), cache );
+			final RandomAccess< VolatileFloatType > ra = img.randomAccess();
+			ra.setPosition( new long[] { 5, 1 } );
+			assertFalse( ra.get().isValid() );
+
+			// the error does not stop the fetcher thread
+			assertTrue( waitUntilValid( img, new long[] { 5, 1 } ) );
+			assertEquals( 3, attempts.get() );
+			assertEquals( 2, cache.getFailureCount() );
+			assertTrue( cache.getLastFailure() instanceof AssertionError );
+		}
+		finally
+		{
+			cache.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailedLoadIsNotRequestedDuringRetryDelay() throws InterruptedException
+	{
+		final CountDownLatch failed = new CountDownLatch( 1 );
+		final VolatileCellCache< VolatileFloatArray > cache = new VolatileCellCache<>(
+				index -> {
+					failed.countDown();
+					throw new IllegalStateException( "broken loader" );
+				},
+				VolatileCellCache.emptyPlaceholders( grid, new Fraction(), new VolatileFloatArray( 0, false ) ),
+				CellCache.lru( 100 ), 1, 1 );
+		try
+		{
+			cache.get( 0 );
+			assertTrue( failed.await( 10, TimeUnit.SECONDS ) );
+			for ( int i = 0; i < 100 && cache.getFailureCount() == 0; i++ )
+				Thread.sleep( 10 );
+			assertEquals( 1, cache.getFailureCount() );
+
+			assertFalse( cache.get( 0 ).getData().isValid() );
+			cache.request( 0, 0 );
+			assertEquals( 0, cache.getQueue().size() );
+		}
+		finally
+		{
+			cache.shutdown();
+		}
+	}
+
+	private boolean waitUntilValid( final VolatileCachedCellImg< VolatileFloatType, ? > img, final long[] position ) throws InterruptedException
+	{
+		for ( int i = 0; i < 1000; i++ )
+		{
+			final RandomAccess< VolatileFloatType > ra = img.randomAccess();
+			ra.setPosition( position );
+			if ( ra.get().isValid() )
+				return true;
+			Thread.sleep( 10 );
+		}
+		return false;
+	}
+}
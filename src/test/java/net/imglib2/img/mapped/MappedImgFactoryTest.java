@@ -0,0 +1,194 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package net.imglib2.img.mapped;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
+import net.imglib2.img.NativeImg;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.cell.LazyCellImg;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+
+public class MappedImgFactoryTest
+{
+	private Path file;
+
+	@Before
+	public void createFile() throws IOException
+	{
+		file = Files.createTempFile( "mapped", ".raw" );
+	}
+
+	@After
+	public void deleteFile() throws IOException
+	{
+		Files.deleteIfExists( file );
+	}
+
+	private void writeShorts( final int header, final int size, final ByteOrder order ) throws IOException
+	{
+		final ByteBuffer bytes = ByteBuffer.allocate( header + 2 * size ).order( order );
+		for ( int i = 0; i < size; ++i )
+			bytes.putShort( header + 2 * i, ( short ) i );
+		Files.write( file, bytes.array() );
+	}
+
+	@Test
+	public void testReadArrayImg() throws IOException
+	{
+		writeShorts( 16, 6 * 5, ByteOrder.BIG_ENDIAN );
+		final MappedImgFactory< UnsignedShortType > factory = new MappedImgFactory<>( new UnsignedShortType(), file, ByteOrder.BIG_ENDIAN, MapMode.READ_ONLY, 16, MappedImgFactory.DEFAULT_MAX_CELL_BYTES );
+		final NativeImg< UnsignedShortType, ? > img = factory.create( 6, 5 );
+		assertTrue( img instanceof ArrayImg );
+
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 2, 3 } );
+		assertEquals( 20, ra.get().get() );
+	}
+
+	@Test( expected = ReadOnlyBufferException.class )
+	public void testReadOnly() throws IOException
+	{
+		writeShorts( 0, 4, ByteOrder.LITTLE_ENDIAN );
+		final NativeImg< UnsignedShortType, ? > img = new MappedImgFactory<>( new UnsignedShortType(), file, ByteOrder.LITTLE_ENDIAN, MapMode.READ_ONLY ).create( 4 );
+		img.firstElement().set( 1 );
+	}
+
+	@Test
+	public void testWriteArrayImg() throws IOException
+	{
+		final ArrayImg< FloatType, ? > img = new MappedImgFactory<>( new FloatType(), file, ByteOrder.LITTLE_ENDIAN, MapMode.READ_WRITE ).createArrayImg( 3, 2 );
+		float i = 0;
+		for ( final FloatType t : img )
+			t.set( i++ );
+
+		final ByteBuffer bytes = ByteBuffer.wrap( Files.readAllBytes( file ) ).order( ByteOrder.LITTLE_ENDIAN );
+		assertEquals( 6 * Float.BYTES, bytes.capacity() );
+		for ( int j = 0; j < 6; ++j )
+			assertEquals( j, bytes.getFloat( j * Float.BYTES ), 0 );
+	}
+
+	@Test
+	public void testCellImg() throws IOException
+	{
+		// 7 x 4 x 5 shorts, planes of 56 bytes, at most 2 planes per cell
+		writeShorts( 8, 7 * 4 * 5, ByteOrder.LITTLE_ENDIAN );
+		final MappedImgFactory< UnsignedShortType > factory = new MappedImgFactory<>( new UnsignedShortType(), file, ByteOrder.LITTLE_ENDIAN, MapMode.READ_WRITE, 8, 120 );
+		final LazyCellImg< UnsignedShortType, ? > img = factory.createCellImg( 7, 4, 5 );
+
+		final int[] cellDimensions = new int[ 3 ];
+		img.getCellGrid().cellDimensions( cellDimensions );
+		assertArrayEquals( new int[] { 7, 4, 2 }, cellDimensions );
+		assertEquals( 3, img.getCells().size() );
+
+		final Cursor< UnsignedShortType > cursor = img.localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			final int value = cursor.next().get();
+			final long expected = cursor.getLongPosition( 0 ) + 7 * ( cursor.getLongPosition( 1 ) + 4 * cursor.getLongPosition( 2 ) );
+			assertEquals( expected, value );
+		}
+
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 6, 3, 4 } );
+		ra.get().set( 1000 );
+		final ByteBuffer bytes = ByteBuffer.wrap( Files.readAllBytes( file ) ).order( ByteOrder.LITTLE_ENDIAN );
+		assertEquals( 1000, bytes.getShort( 8 + 2 * ( 7 * 4 * 5 - 1 ) ) );
+	}
+
+	@Test
+	public void testDerivedFactoryDoesNotAliasInput() throws Exception
+	{
+		writeShorts( 0, 4 * 3, ByteOrder.LITTLE_ENDIAN );
+		final MappedImgFactory< UnsignedShortType > factory = new MappedImgFactory<>( new UnsignedShortType(), file, ByteOrder.LITTLE_ENDIAN, MapMode.READ_WRITE );
+		final Img< UnsignedShortType > input = factory.create( 4, 3 );
+
+		final ImgFactory< IntType > derived = factory.imgFactory( new IntType() );
+		assertNull( ( ( MappedImgFactory< ? > ) derived ).getFile() );
+		final Img< IntType > output1 = derived.create( 4, 3 );
+		final Img< IntType > output2 = derived.create( 4, 3 );
+		for ( final IntType t : output1 )
+			t.set( 7 );
+		for ( final IntType t : output2 )
+			t.set( 9 );
+
+		int i = 0;
+		for ( final UnsignedShortType t : input )
+			assertEquals( i++, t.get() );
+		for ( final IntType t : output1 )
+			assertEquals( 7, t.get() );
+		final byte[] bytes = Files.readAllBytes( file );
+		assertEquals( 2 * 4 * 3, bytes.length );
+		assertEquals( 11, ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN ).getShort( 2 * 11 ) );
+	}
+
+	@Test
+	public void testPrivateCellsKeepModifications() throws IOException
+	{
+		writeShorts( 0, 7 * 4 * 5, ByteOrder.LITTLE_ENDIAN );
+		final LazyCellImg< UnsignedShortType, ? > img = new MappedImgFactory<>( new UnsignedShortType(), file, ByteOrder.LITTLE_ENDIAN, MapMode.PRIVATE, 0, 56 ).createCellImg( 7, 4, 5 );
+		for ( final UnsignedShortType t : img )
+			t.set( 500 );
+
+		// cells would be cleared under memory pressure if they were softly referenced
+		System.gc();
+		for ( final UnsignedShortType t : img )
+			assertEquals( 500, t.get() );
+
+		final ByteBuffer bytes = ByteBuffer.wrap( Files.readAllBytes( file ) ).order( ByteOrder.LITTLE_ENDIAN );
+		assertNotEquals( 500, bytes.getShort( 2 ) );
+	}
+}
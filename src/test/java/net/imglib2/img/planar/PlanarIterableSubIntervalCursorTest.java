@@ -73,6 +73,8 @@ public class PlanarIterableSubIntervalCursorTest extends AbstractSubIntervalIter
 
 		intervalShifted = new FinalInterval( new long[] { 0, 0, 3, 5, 1 }, new long[] { dimensions[ 0 ] - 1, dimensions[ 1 ] - 1, 4, 5, 1 } );
 
+		intervalRoi = new FinalInterval( new long[] { 2, 3, 1, 2, 0 }, new long[] { 19, 20, 4, 5, 2 } );
+
 		intervalFast = new FinalInterval( new long[] { dimensions[ 0 ], dimensions[ 1 ], 5, 1, 1 } );
 
 		intervalFastPart = new FinalInterval( new long[] { dimensions[ 0 ], 2, 3, 1, 1 } );
@@ -130,6 +132,12 @@ public class PlanarIterableSubIntervalCursorTest extends AbstractSubIntervalIter
 
 		// Testing Localizing Cursor
 		assertFalse( ( Views.interval( img, intervalFastPart ).localizingCursor() instanceof PlanarPlaneSubsetLocalizingCursor ) );
+
+		// Testing Cursor
+		assertTrue( ( Views.interval( img, intervalRoi ).cursor() instanceof PlanarIntervalCursor ) );
+
+		// Testing Localizing Cursor
+		assertTrue( ( Views.interval( img, intervalRoi ).localizingCursor() instanceof PlanarIntervalCursor ) );
 	}
 
 	@Test
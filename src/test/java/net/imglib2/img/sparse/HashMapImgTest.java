@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.img.sparse;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.IntervalIndexer;
+
+public class HashMapImgTest
+{
+	@Test
+	public void testLongLongHashMap()
+	{
+		final Random random = new Random( 1 );
+		final LongLongHashMap map = new LongLongHashMap( -5 );
+		final Map< Long, Long > expected = new HashMap<>();
+		for ( int i = 0; i < 100000; ++i )
+		{
+			final long key = random.nextInt( 5000 );
+			final long value = random.nextInt( 4 ) == 0 ? -5 : random.nextLong();
+			map.put( key, value );
+			if ( value == -5 )
+				expected.remove( key );
+			else
+				expected.put( key, value );
+		}
+		assertEquals( expected.size(), map.size() );
+		for ( long key = 0; key < 5000; ++key )
+			assertEquals( expected.getOrDefault( key, -5L ).longValue(), map.get( key ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testLongLongHashMapMaxSize()
+	{
+		new LongLongHashMap( 0, LongLongHashMap.MAX_SIZE + 1 );
+	}
+
+	@Test
+	public void testRandomAccessAndSparseCursor()
+	{
+		final long[] dims = { 100, 200, 300 };
+		final HashMapImg< UnsignedShortType, ? > img = new HashMapImgFactory<>( new UnsignedShortType() ).create( dims );
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		final Random random = new Random( 2 );
+		final Map< Long, Integer > expected = new HashMap<>();
+		final long[] pos = new long[ 3 ];
+		for ( int i = 0; i < 1000; ++i )
+		{
+			for ( int d = 0; d < 3; ++d )
+				pos[ d ] = random.nextInt( ( int ) dims[ d ] );
+			final int value = 1 + random.nextInt( 60000 );
+			ra.setPosition( pos );
+			ra.get().set( value );
+			expected.put( IntervalIndexer.positionToIndex( pos, dims ), value );
+		}
+		assertEquals( expected.size(), img.numNonBackground() );
+
+		final Set< Long > visited = new HashSet<>();
+		final Cursor< UnsignedShortType > c = img.sparseCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			c.localize( pos );
+			final long index = IntervalIndexer.positionToIndex( pos, dims );
+			assertTrue( visited.add( index ) );
+			assertEquals( expected.get( index ).intValue(), c.get().get() );
+			assertEquals( pos[ 2 ], c.getLongPosition( 2 ) );
+			ra.setPosition( c );
+			assertEquals( expected.get( index ).intValue(), ra.get().get() );
+		}
+		assertEquals( expected.keySet(), visited );
+	}
+
+	@Test
+	public void testCursor()
+	{
+		final HashMapImg< UnsignedShortType, ? > img = new HashMapImgFactory<>( new UnsignedShortType() ).create( 7, 5 );
+		final RandomAccess< UnsignedShortType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 3, 4 } );
+		ra.get().set( 9 );
+
+		final long[] pos = new long[ 2 ];
+		long sum = 0;
+		long i = 0;
+		final Cursor< UnsignedShortType > c = img.cursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			IntervalIndexer.indexToPosition( i++, new long[] { 7, 5 }, pos );
+			assertArrayEquals( pos, new long[] { c.getLongPosition( 0 ), c.getLongPosition( 1 ) } );
+			sum += c.get().get();
+		}
+		assertEquals( 35, i );
+		assertEquals( 9, sum );
+	}
+
+	@Test
+	public void testBackground()
+	{
+		final HashMapImg< FloatType, ? > img = new HashMapImgFactory<>( new FloatType(), new FloatType( 1.5f ) ).create( 10, 10 );
+		assertEquals( 1.5f, img.getBackground().get(), 0 );
+		for ( final FloatType t : img )
+			assertEquals( 1.5f, t.get(), 0 );
+
+		final RandomAccess< FloatType > ra = img.randomAccess();
+		ra.setPosition( new long[] { 4, 4 } );
+		ra.get().set( 0 );
+		assertEquals( 1, img.numNonBackground() );
+
+		final HashMapImg< FloatType, ? > copy = img.copy();
+		ra.get().set( 1.5f );
+		assertEquals( 0, img.numNonBackground() );
+		assertEquals( 1, copy.numNonBackground() );
+		assertFalse( img.sparseCursor().hasNext() );
+
+		final HashMapImg< FloatType, ? > created = img.factory().create( 3, 3 );
+		assertEquals( 1.5f, created.firstElement().get(), 0 );
+	}
+
+	@Test( expected = ConcurrentModificationException.class )
+	public void testConcurrentModification()
+	{
+		final HashMapImg< FloatType, ? > img = new HashMapImgFactory<>( new FloatType() ).create( 10, 10 );
+		img.forEach( t -> t.set( 1 ) );
+		final Cursor< FloatType > c = img.sparseCursor();
+		while ( c.hasNext() )
+			c.next().set( 0 );
+	}
+}
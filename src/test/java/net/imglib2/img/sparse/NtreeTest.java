@@ -34,11 +34,20 @@
 
 package net.imglib2.img.sparse;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+
 /**
  * @author Tobias Pietzsch
  * 
@@ -94,4 +103,93 @@ public class NtreeTest
 
 		assertFalse( t.root.hasChildren() );
 	}
+
+	@Test
+	public void test_fill()
+	{
+		final long[] dims = new long[] { 13, 20, 7 };
+		final Ntree< Integer > t = new Ntree< Integer >( dims, 0 );
+		t.fill( pos -> ( int ) ( pos[ 0 ] / 4 + pos[ 1 ] / 4 ) );
+
+		final long[] pos = new long[ 3 ];
+		for ( pos[ 2 ] = 0; pos[ 2 ] < dims[ 2 ]; ++pos[ 2 ] )
+			for ( pos[ 1 ] = 0; pos[ 1 ] < dims[ 1 ]; ++pos[ 1 ] )
+				for ( pos[ 0 ] = 0; pos[ 0 ] < dims[ 0 ]; ++pos[ 0 ] )
+					assertEquals( pos[ 0 ] / 4 + pos[ 1 ] / 4, t.getNode( pos ).getValue().longValue() );
+
+		t.fill( pos2 -> 3 );
+		assertFalse( t.root.hasChildren() );
+		assertEquals( 3, t.root.getValue().intValue() );
+	}
+
+	@Test
+	public void test_merge()
+	{
+		final Ntree< Integer > t = new Ntree< Integer >( new long[] { 64, 64 }, 0 );
+		t.setAutoMerge( false );
+		final long[] pos = new long[ 2 ];
+		for ( pos[ 1 ] = 0; pos[ 1 ] < 32; ++pos[ 1 ] )
+			for ( pos[ 0 ] = 0; pos[ 0 ] < 32; ++pos[ 0 ] )
+				t.createNodeWithValue( pos, 1 );
+		assertTrue( t.root.getChildren()[ 0 ].hasChildren() );
+
+		t.merge();
+		assertTrue( t.root.hasChildren() );
+		assertFalse( t.root.getChildren()[ 0 ].hasChildren() );
+		assertEquals( 1, t.root.getChildren()[ 0 ].getValue().intValue() );
+	}
+
+	@Test
+	public void test_buildImg()
+	{
+		final ArrayImg< IntType, IntArray > source = ArrayImgs.ints( 30, 17, 9 );
+		source.forEach( x -> x.set( 5 ) );
+		final RandomAccess< IntType > ra = source.randomAccess();
+		ra.setPosition( new long[] { 29, 16, 8 } );
+		ra.get().set( 7 );
+
+		final NtreeImg< IntType, ? > img = new NtreeImgFactory<>( new IntType() ).build( Views.translate( source, 4, 5, 6 ) );
+		assertEquals( 30, img.dimension( 0 ) );
+		final NtreeCursor< IntType > c = img.cursor();
+		for ( final IntType expected : source )
+			assertEquals( expected.get(), c.next().get() );
+	}
+
+	@Test
+	public void test_leafCursor()
+	{
+		final ArrayImg< IntType, IntArray > source = ArrayImgs.ints( 30, 17, 9 );
+		final RandomAccess< IntType > ra = source.randomAccess();
+		for ( final IntType t : Views.interval( source, Intervals.createMinMax( 16, 0, 0, 29, 16, 8 ) ) )
+			t.set( 2 );
+		ra.setPosition( new long[] { 3, 5, 7 } );
+		ra.get().set( 1 );
+
+		final NtreeImg< IntType, ? > img = new NtreeImgFactory<>( new IntType() ).build( source );
+		final NtreeLeafCursor< IntType > leaves = img.leafCursor();
+		long numPixels = 0;
+		long numLeaves = 0;
+		while ( leaves.hasNext() )
+		{
+			leaves.fwd();
+			++numLeaves;
+			numPixels += leaves.size();
+			final int value = leaves.get().get();
+			for ( final IntType t : Views.interval( source, leaves ) )
+				assertEquals( value, t.get() );
+			if ( numLeaves == 3 )
+			{
+				final NtreeLeafCursor< IntType > copy = leaves.copy();
+				assertEquals( leaves.min( 0 ), copy.min( 0 ) );
+				assertEquals( leaves.get().get(), copy.get().get() );
+				copy.fwd();
+				leaves.fwd();
+				++numLeaves;
+				numPixels += leaves.size();
+				assertEquals( Intervals.minAsLongArray( leaves )[ 1 ], copy.min( 1 ) );
+			}
+		}
+		assertEquals( source.size(), numPixels );
+		assertTrue( numLeaves < source.size() / 10 );
+	}
 }
@@ -39,6 +39,9 @@ import static org.junit.Assert.assertEquals;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
 import org.junit.Test;
@@ -47,7 +50,13 @@ import net.imglib2.Cursor;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.type.logic.BitType;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.LongType;
 import net.imglib2.util.Intervals;
 import net.imglib2.view.Views;
 
@@ -70,6 +79,218 @@ public class LoopBuilderTest
 		assertSum( sum );
 	}
 
+	@Test
+	public void testLoopBuilderMultiThreaded()
+	{
+		final RandomAccessibleInterval< IntType > sum = ArrayImgs.ints(
+				Intervals.dimensionsAsLongArray( imageA ) );
+		LoopBuilder.setImages( imageA, imageB, sum ).multiThreaded().forEachPixel(
+				( a, b, s ) -> {
+					s.set( a.get() + b.get() );
+				} );
+		assertSum( sum );
+	}
+
+	@Test
+	public void testLoopBuilderMultiThreadedWithExecutor()
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool( 3 );
+		try
+		{
+			final RandomAccessibleInterval< IntType > sum = ArrayImgs.ints(
+					Intervals.dimensionsAsLongArray( imageA ) );
+			LoopBuilder.setImages( imageA, imageB, sum ).multiThreaded( executor, 5 ).forEachPixel(
+					( a, b, s ) -> {
+						s.set( a.get() + b.get() );
+					} );
+			assertSum( sum );
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testMultiThreadedExceptionIsRethrown()
+	{
+		LoopBuilder.setImages( imageA ).multiThreaded().forEachPixel( a -> {
+			throw new IllegalStateException();
+		} );
+	}
+
+	@Test
+	public void testCellImgs()
+	{
+		final CellImgFactory< IntType > factory = new CellImgFactory<>( new IntType(), 2, 3, 2 );
+		final CellImg< IntType, ? > a = factory.create( 5, 7, 3 );
+		final CellImg< IntType, ? > b = factory.create( 5, 7, 3 );
+		LoopBuilder.setImages( a ).forEachPixel( pixel -> pixel.set( 3 ) );
+		LoopBuilder.setImages( a, b ).multiThreaded().forEachPixel( ( x, y ) -> y.set( x.get() + 1 ) );
+		b.forEach( pixel -> assertEquals( 4, pixel.get() ) );
+	}
+
+	@Test
+	public void testCellImgsPixelCorrespondence()
+	{
+		final CellImgFactory< IntType > factory = new CellImgFactory<>( new IntType(), 4, 3 );
+		final CellImg< IntType, ? > a = factory.create( 10, 9 );
+		final CellImg< IntType, ? > b = factory.create( 10, 9 );
+		final Cursor< IntType > cursor = a.localizingCursor();
+		while ( cursor.hasNext() )
+			cursor.next().set( cursor.getIntPosition( 0 ) + 100 * cursor.getIntPosition( 1 ) );
+		LoopBuilder.setImages( a, b ).multiThreaded().forEachPixel( ( x, y ) -> y.set( x.get() ) );
+		final Cursor< IntType > result = b.localizingCursor();
+		while ( result.hasNext() )
+		{
+			result.fwd();
+			assertEquals( result.getIntPosition( 0 ) + 100 * result.getIntPosition( 1 ), result.get().get() );
+		}
+	}
+
+	@Test
+	public void testCellImgsWithDifferentGrids()
+	{
+		final CellImg< IntType, ? > a = new CellImgFactory<>( new IntType(), 2, 3 ).create( 5, 7 );
+		final CellImg< IntType, ? > b = new CellImgFactory<>( new IntType(), 3, 2 ).create( 5, 7 );
+		LoopBuilder.setImages( a ).forEachPixel( pixel -> pixel.set( 3 ) );
+		LoopBuilder.setImages( a, b ).multiThreaded().forEachPixel( ( x, y ) -> y.set( x.get() + 1 ) );
+		b.forEach( pixel -> assertEquals( 4, pixel.get() ) );
+	}
+
+	@Test
+	public void testReduceSum()
+	{
+		final long expected = sum( imageA );
+		final LongType single = LoopBuilder.setImages( imageA ).reduce(
+				LongType::new,
+				accumulator -> pixel -> accumulator.set( accumulator.get() + pixel.get() ),
+				( x, y ) -> {
+					x.add( y );
+					return x;
+				} );
+		assertEquals( expected, single.get() );
+		final LongType multi = LoopBuilder.setImages( imageA ).multiThreaded().reduce(
+				LongType::new,
+				accumulator -> pixel -> accumulator.set( accumulator.get() + pixel.get() ),
+				( x, y ) -> {
+					x.add( y );
+					return x;
+				} );
+		assertEquals( expected, multi.get() );
+	}
+
+	@Test
+	public void testReduceMinMaxOnCellImg()
+	{
+		final CellImg< IntType, ? > img = new CellImgFactory<>( new IntType(), 3, 3 ).create( 10, 11 );
+		final Random random = new Random( 42 );
+		img.forEach( pixel -> pixel.set( random.nextInt( 1000 ) - 500 ) );
+		img.randomAccess().get().set( -1000 );
+		final int[] minMax = LoopBuilder.setImages( img ).multiThreaded().reduce(
+				() -> new int[] { Integer.MAX_VALUE, Integer.MIN_VALUE },
+				accumulator -> pixel -> {
+					accumulator[ 0 ] = Math.min( accumulator[ 0 ], pixel.get() );
+					accumulator[ 1 ] = Math.max( accumulator[ 1 ], pixel.get() );
+				},
+				( x, y ) -> new int[] { Math.min( x[ 0 ], y[ 0 ] ), Math.max( x[ 1 ], y[ 1 ] ) } );
+		int max = Integer.MIN_VALUE;
+		for ( final IntType pixel : img )
+			max = Math.max( max, pixel.get() );
+		assertArrayEquals( new int[] { -1000, max }, minMax );
+	}
+
+	@Test
+	public void testReduceCountWithTwoImages()
+	{
+		final long[] count = LoopBuilder.setImages( imageA, imageB ).multiThreaded().reduce(
+				() -> new long[ 1 ],
+				accumulator -> ( a, b ) -> {
+					if ( a.get() > b.get() )
+						accumulator[ 0 ]++;
+				},
+				( x, y ) -> new long[] { x[ 0 ] + y[ 0 ] } );
+		final Cursor< IntType > a = Views.iterable( imageA ).cursor();
+		final Cursor< IntType > b = Views.iterable( imageB ).cursor();
+		long expected = 0;
+		while ( a.hasNext() )
+			if ( a.next().get() > b.next().get() )
+				expected++;
+		assertEquals( expected, count[ 0 ] );
+	}
+
+	@Test
+	public void testArrayImgs()
+	{
+		testPixelCorrespondence( ArrayImgs.ints( 10, 9, 4 ), ArrayImgs.ints( 10, 9, 4 ) );
+	}
+
+	@Test
+	public void testPlanarImgs()
+	{
+		testPixelCorrespondence( PlanarImgs.ints( 10, 9, 4 ), PlanarImgs.ints( 10, 9, 4 ) );
+	}
+
+	@Test
+	public void testArrayAndPlanarImg()
+	{
+		testPixelCorrespondence( ArrayImgs.ints( 10, 9, 4 ), PlanarImgs.ints( 10, 9, 4 ) );
+	}
+
+	private void testPixelCorrespondence( final Img< IntType > a, final Img< IntType > b )
+	{
+		final Cursor< IntType > cursor = a.localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			cursor.get().set( position( cursor ) );
+		}
+		LoopBuilder.setImages( a, b ).multiThreaded( ForkJoinPool.commonPool(), 7 ).forEachPixel( ( x, y ) -> y.set( x.get() ) );
+		final Cursor< IntType > result = b.localizingCursor();
+		while ( result.hasNext() )
+		{
+			result.fwd();
+			assertEquals( position( result ), result.get().get() );
+		}
+	}
+
+	private int position( final Cursor< ? > cursor )
+	{
+		return cursor.getIntPosition( 0 ) + 100 * cursor.getIntPosition( 1 ) + 10000 * cursor.getIntPosition( 2 );
+	}
+
+	@Test
+	public void testEmptyArrayImg()
+	{
+		final long[] count = LoopBuilder.setImages( ArrayImgs.ints( 0, 3 ) ).multiThreaded().reduce(
+				() -> new long[ 1 ],
+				accumulator -> pixel -> accumulator[ 0 ]++,
+				( x, y ) -> new long[] { x[ 0 ] + y[ 0 ] } );
+		assertEquals( 0, count[ 0 ] );
+	}
+
+	@Test
+	public void testBitTypeArrayImgs()
+	{
+		final Img< BitType > a = ArrayImgs.bits( 67, 3 );
+		final Img< BitType > b = ArrayImgs.bits( 67, 3 );
+		final Random random = new Random( 42 );
+		a.forEach( pixel -> pixel.set( random.nextBoolean() ) );
+		LoopBuilder.setImages( a, b ).multiThreaded( ForkJoinPool.commonPool(), 5 ).forEachPixel( ( x, y ) -> y.set( !x.get() ) );
+		final Cursor< BitType > ca = a.cursor();
+		final Cursor< BitType > cb = b.cursor();
+		while ( ca.hasNext() )
+			assertEquals( !ca.next().get(), cb.next().get() );
+	}
+
+	private long sum( final RandomAccessibleInterval< IntType > image )
+	{
+		long sum = 0;
+		for ( final IntType pixel : Views.iterable( image ) )
+			sum += pixel.get();
+		return sum;
+	}
+
 	private RandomAccessibleInterval< IntType > randomImage( final int randomSeed )
 	{
 		final Img< IntType > result = ArrayImgs.ints( 3, 2, 5 );
@@ -111,6 +332,32 @@ public class LoopBuilderTest
 		assertIncreasing( images );
 	}
 
+	@Test
+	public void testIndexSamplerCopy()
+	{
+		final PlanarImg< IntType, ? > planar = PlanarImgs.ints( 4, 3, 2 );
+		planar.forEach( t -> t.set( 7 ) );
+		Views.hyperSlice( planar, 2, 1 ).forEach( t -> t.set( 42 ) );
+		final FlatSampler< IntType > flat = new FlatSampler<>( planar );
+		flat.moveTo( 1, 5 );
+		final FlatSampler< IntType > flatCopy = flat.copy();
+		flat.moveTo( 0, 0 );
+		assertEquals( 42, flatCopy.get().get() );
+		assertEquals( 7, flat.get().get() );
+
+		final CellImg< IntType, ? > cells = new CellImgFactory<>( new IntType(), 2 ).create( 4, 4 );
+		Views.interval( cells, Intervals.createMinMax( 2, 0, 3, 1 ) ).forEach( t -> t.set( 42 ) );
+		final CellSampler< IntType > cell = new CellSampler<>( cells );
+		cell.setCell( new long[] { 1, 0 } );
+		cell.fwd( 0 );
+		final CellSampler< IntType > cellCopy = cell.copy();
+		cell.setCell( new long[] { 0, 0 } );
+		assertEquals( 42, cellCopy.get().get() );
+		assertEquals( 0, cell.get().get() );
+		cellCopy.fwd( 0 );
+		assertEquals( 42, cellCopy.get().get() );
+	}
+
 	private List< Img< IntType > > createNImages(int n)
 	{
 		return IntStream.range( 0, n )
@@ -124,6 +124,12 @@ public class LoopPerformanceBenchmark
 		LoopBuilder.setImages( Views.interval( in, out ), out ).forEachPixel( ( in, out ) -> out.set( in ) );
 	}
 
+	@Benchmark
+	public void copy_loopBuilderArrayImgs()
+	{
+		LoopBuilder.setImages( in, allOut ).forEachPixel( ( in, out ) -> out.set( in ) );
+	}
+
 	public static void main( final String... args ) throws RunnerException
 	{
 		final Options opt = new OptionsBuilder()
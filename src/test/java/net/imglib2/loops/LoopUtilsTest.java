@@ -33,14 +33,20 @@
  */
 package net.imglib2.loops;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.util.List;
+
 import org.junit.Test;
 
+import net.imglib2.FinalDimensions;
+import net.imglib2.Interval;
 import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
 
 public class LoopUtilsTest
 {
@@ -71,4 +77,26 @@ public class LoopUtilsTest
 		// test
 		img.forEach( value -> assertEquals( 42, value.get() ) );
 	}
+
+	@Test
+	public void testSplitIntoSlabs()
+	{
+		final List< Interval > slabs = LoopUtils.splitIntoSlabs( new FinalDimensions( 4, 3, 10 ), 3 );
+		assertEquals( 3, slabs.size() );
+		assertArrayEquals( new long[] { 0, 0, 0 }, Intervals.minAsLongArray( slabs.get( 0 ) ) );
+		assertArrayEquals( new long[] { 3, 2, 2 }, Intervals.maxAsLongArray( slabs.get( 0 ) ) );
+		assertArrayEquals( new long[] { 0, 0, 3 }, Intervals.minAsLongArray( slabs.get( 1 ) ) );
+		assertArrayEquals( new long[] { 3, 2, 5 }, Intervals.maxAsLongArray( slabs.get( 1 ) ) );
+		assertArrayEquals( new long[] { 0, 0, 6 }, Intervals.minAsLongArray( slabs.get( 2 ) ) );
+		assertArrayEquals( new long[] { 3, 2, 9 }, Intervals.maxAsLongArray( slabs.get( 2 ) ) );
+	}
+
+	@Test
+	public void testSplitIntoSlabsLimitedByLastDimension()
+	{
+		final List< Interval > slabs = LoopUtils.splitIntoSlabs( new FinalDimensions( 100, 2 ), 8 );
+		assertEquals( 2, slabs.size() );
+		assertEquals( 1, slabs.get( 1 ).min( 1 ) );
+		assertEquals( 1, slabs.get( 1 ).max( 1 ) );
+	}
 }
@@ -39,15 +39,31 @@ import static net.imglib2.util.Util.quicksort;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import net.imglib2.Cursor;
 import net.imglib2.RandomAccess;
 import net.imglib2.img.Img;
+import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.CopyOnWriteArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.cell.SharedCellImgFactory;
+import net.imglib2.img.list.ListImgFactory;
+import net.imglib2.img.planar.PlanarImgFactory;
+import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.IntType;
 import net.imglib2.type.numeric.integer.LongType;
+import net.imglib2.type.numeric.integer.UnsignedVariableBitLengthType;
 import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.ExtendedRandomAccessibleInterval;
+import net.imglib2.view.IntervalView;
+import net.imglib2.view.Views;
 
 import org.junit.Test;
 
@@ -367,4 +383,148 @@ public class ImgUtilTest
 		}
 	}
 
+
+	@Test
+	public void testParallelCopyImgImg()
+	{
+		final ExecutorService es = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final long[] dims = { 31, 17, 5 };
+			final FloatType type = new FloatType();
+			final Img< FloatType > src = new ArrayImgFactory<>( type ).create( dims );
+			final Random random = new Random( 1 );
+			src.forEach( t -> t.set( random.nextFloat() ) );
+
+			final ImgFactory< FloatType > factories[] = new ImgFactory[] {
+					new ArrayImgFactory<>( type ),
+					new PlanarImgFactory<>( type ),
+					new CellImgFactory<>( type, 4 ),
+					new ListImgFactory<>( type ),
+					new ArrayImgFactory<>( type, ByteOrder.LITTLE_ENDIAN ),
+					new CellImgFactory<>( type, ByteOrder.BIG_ENDIAN, 4 ),
+					new CopyOnWriteArrayImgFactory<>( type ),
+					new SharedCellImgFactory<>( type, 4 ) };
+			for ( final ImgFactory< FloatType > f1 : factories )
+			{
+				final Img< FloatType > a = f1.create( dims );
+				ImgUtil.copy( src, a, es );
+				for ( final ImgFactory< FloatType > f2 : factories )
+				{
+					final Img< FloatType > b = f2.create( dims );
+					ImgUtil.copy( a, b, es );
+					assertImgEquals( src, b );
+					final Img< FloatType > c = f2.create( dims );
+					ImgUtil.copy( b, c );
+					assertImgEquals( src, c );
+				}
+			}
+		}
+		finally
+		{
+			es.shutdown();
+		}
+	}
+
+	@Test
+	public void testCopyDifferentBitDepths()
+	{
+		// 10 pixels of 5 or 6 bits are both stored in a single long
+		final Img< UnsignedVariableBitLengthType > src = new ArrayImgFactory<>( new UnsignedVariableBitLengthType( 5 ) ).create( 10 );
+		final Img< UnsignedVariableBitLengthType > dest = new ArrayImgFactory<>( new UnsignedVariableBitLengthType( 6 ) ).create( 10 );
+		int i = 0;
+		for ( final UnsignedVariableBitLengthType t : src )
+			t.set( 3 * i++ );
+		ImgUtil.copy( src, dest );
+		assertImgEquals( src, dest );
+	}
+
+	@Test
+	public void testParallelCopyArrays()
+	{
+		final ExecutorService es = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final long[] dims = { 7, 6, 5 };
+			final int[] stride = { 1, 7, 42 };
+			final float[] data = new float[ 1 + 7 * 6 * 5 ];
+			for ( int i = 0; i < data.length; ++i )
+				data[ i ] = i;
+			for ( final ImgFactory< FloatType > factory : Arrays.< ImgFactory< FloatType > >asList(
+					new ArrayImgFactory<>( new FloatType() ),
+					new PlanarImgFactory<>( new FloatType() ),
+					new CellImgFactory<>( new FloatType(), 3 ) ) )
+			{
+				final Img< FloatType > img = factory.create( dims );
+				ImgUtil.copy( data, 1, stride, img, es );
+				final RandomAccess< FloatType > ra = img.randomAccess();
+				ra.setPosition( new long[] { 2, 3, 4 } );
+				assertEquals( 1 + 2 + 3 * 7 + 4 * 42, ra.get().get(), 0 );
+
+				final float[] out = new float[ data.length ];
+				ImgUtil.copy( img, out, 1, stride, es );
+				assertArrayEquals( Arrays.copyOfRange( data, 1, data.length ), Arrays.copyOfRange( out, 1, out.length ), 0 );
+
+				// transposed strides do not match the memory layout
+				final int[] transposed = { 30, 5, 1 };
+				ImgUtil.copy( data, 0, transposed, img, es );
+				assertEquals( 2 * 30 + 3 * 5 + 4, ra.get().get(), 0 );
+			}
+		}
+		finally
+		{
+			es.shutdown();
+		}
+	}
+
+	@Test
+	public void testPad()
+	{
+		final ExecutorService es = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			final Img< FloatType > img = new ArrayImgFactory<>( new FloatType() ).create( 9, 7, 4 );
+			final Random random = new Random( 17 );
+			for ( final FloatType t : img )
+				t.set( random.nextFloat() );
+
+			final long[] border = { 3, 2, 5 };
+			for ( final ExtendedRandomAccessibleInterval< FloatType, Img< FloatType > > extended : Arrays.asList(
+					Views.extendMirrorDouble( img ),
+					Views.extendPeriodic( img ) ) )
+			{
+				for ( final ExecutorService executorService : Arrays.asList( null, es ) )
+				{
+					final IntervalView< FloatType > padded = ImgUtil.pad( extended, new CellImgFactory<>( new FloatType(), 4 ), executorService, border );
+					assertArrayEquals( new long[] { -3, -2, -5 }, Intervals.minAsLongArray( padded ) );
+					assertArrayEquals( new long[] { 11, 8, 8 }, Intervals.maxAsLongArray( padded ) );
+
+					final RandomAccess< FloatType > ra = extended.randomAccess();
+					final Cursor< FloatType > c = padded.localizingCursor();
+					while ( c.hasNext() )
+					{
+						c.fwd();
+						ra.setPosition( c );
+						assertEquals( ra.get().get(), c.get().get(), 0 );
+					}
+				}
+			}
+		}
+		finally
+		{
+			es.shutdown();
+		}
+	}
+
+	private static < T extends RealType< T > > void assertImgEquals( final Img< T > expected, final Img< T > actual )
+	{
+		final RandomAccess< T > ra = actual.randomAccess();
+		final Cursor< T > c = expected.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			ra.setPosition( c );
+			assertEquals( c.get().getRealDouble(), ra.get().getRealDouble(), 0 );
+		}
+	}
 }
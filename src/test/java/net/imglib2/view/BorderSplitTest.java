@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.outofbounds.OutOfBounds;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.util.Intervals;
+
+public class BorderSplitTest
+{
+	@Test
+	public void testRegionsCoverTarget()
+	{
+		final Img< IntType > img = ArrayImgs.ints( 10, 8, 6 );
+		final Interval target = Intervals.createMinMax( -2, 0, 1, 11, 7, 5 );
+		final BorderSplit< IntType > split = new BorderSplit<>( Views.extendBorder( img ), target, 2, 1, 1 );
+
+		assertTrue( Intervals.equals( Intervals.createMinMax( 2, 1, 1, 7, 6, 4 ), split.getInterior() ) );
+		assertTrue( Intervals.contains( img, Intervals.expand( split.getInterior(), 2, 1, 1 ) ) );
+		assertTrue( split.getBoundary().size() <= 6 );
+
+		final Img< IntType > counts = ArrayImgs.ints( Intervals.dimensionsAsLongArray( target ) );
+		final RandomAccessible< IntType > translated = Views.translate( counts, Intervals.minAsLongArray( target ) );
+		split.forEachRegion( ( interval, access ) -> {
+			for ( final IntType t : Views.interval( translated, interval ) )
+				t.inc();
+		} );
+		for ( final IntType t : counts )
+			assertEquals( 1, t.get() );
+	}
+
+	@Test
+	public void testInteriorAccessHasNoOutOfBounds()
+	{
+		final Img< IntType > img = ArrayImgs.ints( 10, 10 );
+		final BorderSplit< IntType > split = new BorderSplit<>( Views.extendPeriodic( img ), img, 1 );
+		assertFalse( split.interiorRandomAccess() instanceof OutOfBounds );
+		for ( final Interval slab : split.getBoundary() )
+			assertTrue( split.boundaryRandomAccess( slab ) instanceof OutOfBounds );
+	}
+
+	@Test
+	public void testEmptyInterior()
+	{
+		final Img< IntType > img = ArrayImgs.ints( 3, 10 );
+		final BorderSplit< IntType > split = new BorderSplit<>( Views.extendMirrorSingle( img ), img, 2 );
+		assertNull( split.getInterior() );
+		assertEquals( 1, split.getBoundary().size() );
+		assertTrue( Intervals.equals( img, split.getBoundary().get( 0 ) ) );
+	}
+
+	@Test
+	public void testKernelMatchesExtendedAccess()
+	{
+		final Img< IntType > img = ArrayImgs.ints( 13, 9 );
+		int i = 0;
+		for ( final IntType t : img )
+			t.set( i++ * 7 % 31 );
+
+		final ExtendedRandomAccessibleInterval< IntType, Img< IntType > > extended = Views.extendMirrorSingle( img );
+		final Img< IntType > expected = ArrayImgs.ints( 13, 9 );
+		boxSum( img, extended.randomAccess(), expected );
+
+		final Img< IntType > result = ArrayImgs.ints( 13, 9 );
+		new BorderSplit<>( extended, img, 1 ).forEachRegion( ( interval, access ) -> boxSum( interval, access, result ) );
+
+		final Cursor< IntType > e = expected.cursor();
+		final Cursor< IntType > r = result.cursor();
+		while ( e.hasNext() )
+			assertEquals( e.next().get(), r.next().get() );
+	}
+
+	private static void boxSum( final Interval interval, final RandomAccess< IntType > in, final Img< IntType > out )
+	{
+		final Cursor< IntType > c = Views.interval( out, new FinalInterval( interval ) ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			int sum = 0;
+			for ( int dy = -1; dy <= 1; ++dy )
+				for ( int dx = -1; dx <= 1; ++dx )
+				{
+					in.setPosition( c.getLongPosition( 0 ) + dx, 0 );
+					in.setPosition( c.getLongPosition( 1 ) + dy, 1 );
+					sum += in.get().get();
+				}
+			c.get().set( sum );
+		}
+	}
+}
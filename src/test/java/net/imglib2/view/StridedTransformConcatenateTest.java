@@ -0,0 +1,173 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.imglib2.transform.integer.MixedTransform;
+import net.imglib2.transform.integer.SlicingTransform;
+import net.imglib2.transform.integer.Strided;
+import net.imglib2.transform.integer.StridedTransform;
+import net.imglib2.transform.integer.TranslationTransform;
+
+public class StridedTransformConcatenateTest
+{
+	private static double[][] times( final double[][] a, final double[][] b )
+	{
+		final double[][] c = new double[ a.length ][ b[ 0 ].length ];
+		for ( int i = 0; i < a.length; ++i )
+			for ( int j = 0; j < b[ 0 ].length; ++j )
+				for ( int k = 0; k < b.length; ++k )
+					c[ i ][ j ] += a[ i ][ k ] * b[ k ][ j ];
+		return c;
+	}
+
+	private static void assertMatrixEquals( final double[][] expected, final double[][] actual )
+	{
+		assertEquals( expected.length, actual.length );
+		for ( int i = 0; i < expected.length; ++i )
+			assertArrayEquals( expected[ i ], actual[ i ], 0 );
+	}
+
+	private static void testConcatenation( final StridedTransform t1, final Strided t2 )
+	{
+		final StridedTransform t1t2 = t1.concatenate( t2 );
+		assertMatrixEquals( times( t1.getMatrix(), t2.getMatrix() ), t1t2.getMatrix() );
+	}
+
+	private static void testPreConcatenation( final Strided t1, final StridedTransform t2 )
+	{
+		final StridedTransform t1t2 = t2.preConcatenate( t1 );
+		assertMatrixEquals( times( t1.getMatrix(), t2.getMatrix() ), t1t2.getMatrix() );
+	}
+
+	StridedTransform stride1;
+
+	StridedTransform stride2;
+
+	StridedTransform rotStride;
+
+	StridedTransform projStride;
+
+	MixedTransform rot1;
+
+	TranslationTransform translation1;
+
+	SlicingTransform slicing1;
+
+	@Before
+	public void setUp()
+	{
+		stride1 = new StridedTransform( 3, 3 );
+		stride1.setStride( new long[] { 2, 3, 4 } );
+
+		stride2 = new StridedTransform( 3, 3 );
+		stride2.setStride( new long[] { 3, 1, 5 } );
+		stride2.setTranslation( new long[] { 7, -8, 9 } );
+
+		rotStride = new StridedTransform( 3, 3 );
+		rotStride.setComponentMapping( new int[] { 1, 0, 2 } );
+		rotStride.setComponentInversion( new boolean[] { false, true, false } );
+		rotStride.setStride( new long[] { 2, 2, 3 } );
+		rotStride.setTranslation( new long[] { 1, 2, 3 } );
+
+		projStride = new StridedTransform( 2, 3 );
+		projStride.setStride( new long[] { 4, 2, 1 } );
+		projStride.setTranslation( new long[] { 0, 0, 12 } );
+
+		rot1 = new MixedTransform( 3, 3 );
+		rot1.setComponentMapping( new int[] { 2, 0, 1 } );
+		rot1.setComponentInversion( new boolean[] { true, false, false } );
+		rot1.setTranslation( new long[] { 5, 6, 7 } );
+
+		translation1 = new TranslationTransform( new long[] { 2011, 3, 24 } );
+
+		slicing1 = new SlicingTransform( 2, 3 );
+		slicing1.setComponentMapping( new int[] { 0, 1, 0 } );
+		slicing1.setComponentZero( new boolean[] { false, false, true } );
+		slicing1.setTranslation( new long[] { 0, 0, 100 } );
+	}
+
+	@Test
+	public void testConcatenateStrided()
+	{
+		testConcatenation( stride1, stride2 );
+		testConcatenation( stride2, rotStride );
+		testConcatenation( rotStride, stride1 );
+		testConcatenation( stride1, projStride );
+	}
+
+	@Test
+	public void testConcatenateMixed()
+	{
+		testConcatenation( stride2, rot1 );
+		testConcatenation( rotStride, translation1 );
+		testConcatenation( stride2, slicing1 );
+	}
+
+	@Test
+	public void testPreConcatenateStrided()
+	{
+		testPreConcatenation( stride1, stride2 );
+		testPreConcatenation( rotStride, projStride );
+	}
+
+	@Test
+	public void testPreConcatenateMixed()
+	{
+		testPreConcatenation( rot1, stride2 );
+		testPreConcatenation( translation1, rotStride );
+		testPreConcatenation( rot1, projStride );
+	}
+
+	@Test
+	public void testApply()
+	{
+		final long[] source = new long[] { 3, -2, 5 };
+		final long[] target = new long[ 3 ];
+		rotStride.apply( source, target );
+		assertArrayEquals( new long[] { 1 + 2 * -2, 2 - 2 * 3, 3 + 3 * 5 }, target );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNonPositiveStride()
+	{
+		stride1.setStride( new long[] { 1, 0, 1 } );
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * #%L
+ * ImgLib2: a general-purpose, multidimensional image processing library.
+ * %%
+ * Copyright (C) 2009 - 2018 Tobias Pietzsch, Stephan Preibisch, Stephan Saalfeld,
+ * John Bogovic, Albert Cardona, Barry DeZonia, Christian Dietz, Jan Funke,
+ * Aivar Grislis, Jonathan Hale, Grant Harris, Stefan Helfrich, Mark Hiner,
+ * Martin Horn, Steffen Jaensch, Lee Kamentsky, Larry Lindsey, Melissa Linkert,
+ * Mark Longair, Brian Northan, Nick Perry, Curtis Rueden, Johannes Schindelin,
+ * Jean-Yves Tinevez and Michael Zinsmaier.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imglib2.view;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import net.imglib2.Cursor;
+import net.imglib2.Interval;
+import net.imglib2.Localizable;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.converter.readwrite.RealDoubleSamplerConverter;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.transform.integer.StridedTransform;
+import net.imglib2.transform.integer.TranslationTransform;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Intervals;
+
+public class TransformBuilderTest
+{
+	private static class Inspector< T > extends TransformBuilder< T >
+	{
+		Inspector( final Interval interval, final RandomAccessible< T > randomAccessible )
+		{
+			super( interval, randomAccessible );
+		}
+	}
+
+	private static Img< IntType > createImg()
+	{
+		final Img< IntType > img = ArrayImgs.ints( 10, 8 );
+		int i = 0;
+		for ( final IntType t : img )
+			t.set( i++ );
+		return img;
+	}
+
+	@Test
+	public void testConvertersArePushedUp()
+	{
+		final Img< IntType > img = createImg();
+		final RandomAccessibleInterval< FloatType > converted = Converters.convert(
+				( RandomAccessibleInterval< IntType > ) Views.translate( img, 3, 4 ),
+				( a, b ) -> b.setReal( a.get() * 2 ),
+				new FloatType() );
+		final RandomAccessibleInterval< DoubleType > view = Views.zeroMin( Converters.convert(
+				( RandomAccessibleInterval< FloatType > ) Views.iterable( Views.translate( converted, -1, 2 ) ),
+				( a, b ) -> b.set( a.get() + 0.5 ),
+				new DoubleType() ) );
+
+		final Inspector< DoubleType > inspector = new Inspector<>( view, view );
+		assertSame( img, inspector.source );
+		assertEquals( 0, inspector.transforms.size() );
+		assertEquals( 2, inspector.conversions.size() );
+
+		final RandomAccess< DoubleType > ra = view.randomAccess();
+		final Cursor< IntType > c = img.localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			ra.setPosition( c );
+			assertEquals( c.get().get() * 2 + 0.5, ra.get().get(), 0 );
+		}
+	}
+
+	@Test
+	public void testTransformsAroundConverterAreJoined()
+	{
+		final Img< IntType > img = createImg();
+		final RandomAccessible< DoubleType > converted = Converters.convert(
+				( RandomAccessible< IntType > ) Views.translate( img, 1, 1 ),
+				new RealDoubleSamplerConverter<>() );
+		final RandomAccessibleInterval< DoubleType > view = Views.interval( Views.translate( converted, 2, 0 ), Intervals.createMinMax( 3, 1, 12, 8 ) );
+
+		final Inspector< DoubleType > inspector = new Inspector<>( view, view );
+		assertSame( img, inspector.source );
+		assertEquals( 1, inspector.transforms.size() );
+		assertTrue( inspector.transforms.get( 0 ) instanceof TranslationTransform );
+		assertEquals( 1, inspector.conversions.size() );
+
+		// write through the write-converted view
+		final RandomAccess< DoubleType > ra = view.randomAccess();
+		ra.setPosition( new long[] { 5, 3 } );
+		assertEquals( 2 + 2 * 10, ra.get().get(), 0 );
+		ra.get().set( -7 );
+		final RandomAccess< IntType > ira = img.randomAccess();
+		ira.setPosition( new long[] { 2, 2 } );
+		assertEquals( -7, ira.get().get() );
+	}
+
+	@Test
+	public void testSubsamplingIsFused()
+	{
+		final Img< IntType > img = createImg();
+		final RandomAccessibleInterval< IntType > rotated = Views.translate( Views.rotate( img, 0, 1 ), 3, -2 );
+		final RandomAccessibleInterval< IntType > view = Views.subsample( rotated, 2, 3 );
+
+		final Inspector< IntType > inspector = new Inspector<>( view, view );
+		assertSame( img, inspector.source );
+		assertEquals( 1, inspector.transforms.size() );
+		assertTrue( inspector.transforms.get( 0 ) instanceof StridedTransform );
+		assertTrue( view.randomAccess() instanceof StridedRandomAccess );
+
+		final RandomAccess< IntType > expected = rotated.randomAccess();
+		final Cursor< IntType > c = Views.flatIterable( view ).localizingCursor();
+		while ( c.hasNext() )
+		{
+			c.fwd();
+			expected.setPosition( rotated.min( 0 ) + 2 * c.getLongPosition( 0 ), 0 );
+			expected.setPosition( rotated.min( 1 ) + 3 * c.getLongPosition( 1 ), 1 );
+			assertEquals( expected.get().get(), c.get().get() );
+		}
+	}
+
+	@Test
+	public void testStridedRandomAccessCopy()
+	{
+		final Img< IntType > img = ArrayImgs.ints( 10, 10 );
+		int i = 0;
+		for ( final IntType t : img )
+			t.set( i++ );
+		final RandomAccess< IntType > ra = Views.subsample( img, 2 ).randomAccess();
+		assertTrue( ra instanceof StridedRandomAccess );
+		ra.setPosition( new long[] { 3, 4 } );
+
+		final RandomAccess< IntType > copy = ra.copyRandomAccess();
+		assertArrayEquals( new long[] { 3, 4 }, position( copy ) );
+		assertEquals( 86, copy.get().get() );
+
+		copy.fwd( 0 );
+		assertArrayEquals( new long[] { 4, 4 }, position( copy ) );
+		assertEquals( 88, copy.get().get() );
+		assertArrayEquals( new long[] { 3, 4 }, position( ra ) );
+		assertEquals( 86, ra.get().get() );
+	}
+
+	private static long[] position( final Localizable localizable )
+	{
+		final long[] position = new long[ localizable.numDimensions() ];
+		localizable.localize( position );
+		return position;
+	}
+
+	@Test
+	public void testUnitSubsamplingIsSimplified()
+	{
+		final Img< IntType > img = createImg();
+		final RandomAccessibleInterval< IntType > view = Views.subsample( Views.translate( img, 3, -2 ), 1 );
+
+		final Inspector< IntType > inspector = new Inspector<>( view, view );
+		assertSame( img, inspector.source );
+		assertEquals( 0, inspector.transforms.size() );
+	}
+}